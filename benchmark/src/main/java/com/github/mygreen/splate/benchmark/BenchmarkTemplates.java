@@ -0,0 +1,222 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ベンチマークで使用するSQLテンプレートとパラメータを作成します。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public final class BenchmarkTemplates {
+
+    private BenchmarkTemplates() {
+    }
+
+    /**
+     * SQLテンプレートの大きさ。
+     */
+    public enum TemplateSize {
+
+        /** 条件のグループが1つ */
+        SMALL(1),
+        /** 条件のグループが20個 */
+        MEDIUM(20),
+        /** 条件のグループが1000個 */
+        HUGE(1000);
+
+        /**
+         * 条件のグループの個数
+         */
+        private final int groupCount;
+
+        TemplateSize(final int groupCount) {
+            this.groupCount = groupCount;
+        }
+
+        /**
+         * 大きさに応じたSQLテンプレートを作成します。
+         * @return SQLテンプレート
+         */
+        public String createTemplate() {
+            return BenchmarkTemplates.createTemplate(groupCount);
+        }
+    }
+
+    /**
+     * {@literal IF} コメントとバインド変数を、指定したグループ数分繰り返したSQLテンプレートを作成します。
+     * @param groupCount 条件のグループの個数
+     * @return SQLテンプレート
+     */
+    public static String createTemplate(final int groupCount) {
+
+        final StringBuilder sql = new StringBuilder(256 * groupCount);
+        sql.append("select * from employee e\n")
+            .append("/*BEGIN*/where\n");
+
+        for(int i=0; i < groupCount; i++) {
+            sql.append("  /*IF name != null*/and e.name = /*name*/'Yamada'/*END*/\n")
+                .append("  /*IF dept.name != null*/and e.dept_name = /*dept.name*/'Sales'/*END*/\n")
+                .append("  /*IF salaryMin != null*/and e.salary >= /*salaryMin*/1000/*END*/\n")
+                .append("  /*IF ids != null*/and e.id in /*ids*/(1, 2)/*END*/\n")
+                .append("  -- group ").append(i).append('\n');
+        }
+
+        sql.append("/*END*/\n")
+            .append("order by /*$order*/e.id\n");
+
+        return sql.toString();
+    }
+
+    /**
+     * {@literal BEGIN} コメントと {@literal IF} コメントを、指定した深さ分入れ子にしたSQLテンプレートを作成します。
+     * @param depth 入れ子の深さ
+     * @return SQLテンプレート
+     */
+    public static String createNestedTemplate(final int depth) {
+
+        final StringBuilder sql = new StringBuilder(64 * depth);
+        sql.append("select * from employee e where 1 = 1\n");
+
+        for(int i=0; i < depth; i++) {
+            sql.append("/*BEGIN*//*IF flag*/and (e.col").append(i).append(" = /*value*/1 ");
+        }
+
+        for(int i=0; i < depth; i++) {
+            sql.append(")/*END*//*END*/");
+        }
+
+        return sql.toString();
+    }
+
+    /**
+     * {@link #createTemplate(int)} に対応する、マップ形式のパラメータを作成します。
+     * @param inListSize {@literal IN} 句に渡す要素数
+     * @return パラメータ
+     */
+    public static Map<String, Object> createMapParam(final int inListSize) {
+
+        final Map<String, Object> dept = new HashMap<>();
+        dept.put("name", "Sales");
+
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("name", "Yamada");
+        variables.put("dept", dept);
+        variables.put("salaryMin", new BigDecimal("1000"));
+        variables.put("ids", createIds(inListSize));
+        variables.put("order", "e.id");
+        variables.put("flag", Boolean.TRUE);
+        variables.put("value", 1);
+        return variables;
+    }
+
+    /**
+     * {@link #createTemplate(int)} に対応する、JavaBean形式のパラメータを作成します。
+     * @param inListSize {@literal IN} 句に渡す要素数
+     * @return パラメータ
+     */
+    public static EmployeeParam createBeanParam(final int inListSize) {
+
+        final EmployeeParam param = new EmployeeParam();
+        param.setName("Yamada");
+        param.setDept(new DeptParam("Sales"));
+        param.setSalaryMin(new BigDecimal("1000"));
+        param.setIds(createIds(inListSize));
+        param.setOrder("e.id");
+        return param;
+    }
+
+    /**
+     * {@literal IN} 句に渡す要素を作成します。
+     * @param size 要素数
+     * @return 要素
+     */
+    public static List<Integer> createIds(final int size) {
+        final List<Integer> ids = new ArrayList<>(size);
+        for(int i=0; i < size; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    /**
+     * JavaBean形式のパラメータ
+     */
+    public static class EmployeeParam {
+
+        private String name;
+
+        private DeptParam dept;
+
+        private BigDecimal salaryMin;
+
+        private List<Integer> ids;
+
+        private String order;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public DeptParam getDept() {
+            return dept;
+        }
+
+        public void setDept(DeptParam dept) {
+            this.dept = dept;
+        }
+
+        public BigDecimal getSalaryMin() {
+            return salaryMin;
+        }
+
+        public void setSalaryMin(BigDecimal salaryMin) {
+            this.salaryMin = salaryMin;
+        }
+
+        public List<Integer> getIds() {
+            return ids;
+        }
+
+        public void setIds(List<Integer> ids) {
+            this.ids = ids;
+        }
+
+        public String getOrder() {
+            return order;
+        }
+
+        public void setOrder(String order) {
+            this.order = order;
+        }
+    }
+
+    /**
+     * JavaBean形式のパラメータのネストしたプロパティ
+     */
+    public static class DeptParam {
+
+        private String name;
+
+        public DeptParam(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.BeanPropertySqlTemplateContext;
+import com.github.mygreen.splate.ProcessMode;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+import com.github.mygreen.splate.benchmark.BenchmarkTemplates.EmployeeParam;
+import com.github.mygreen.splate.benchmark.BenchmarkTemplates.TemplateSize;
+import com.github.mygreen.splate.compiler.CompiledSqlTemplate;
+import com.github.mygreen.splate.compiler.SqlTemplateCompiler;
+
+/**
+ * Javaのクラスに変換したSQLテンプレートを評価するときのベンチマーク。
+ * <p>ノードのツリー、命令の配列、変換したクラスのそれぞれで評価したときを比較します。
+ *  {@link TemplateSize#HUGE} は、メソッドのサイズの上限を超えるため対象外です。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledTemplateBenchmark {
+
+    @Param({"SMALL", "MEDIUM"})
+    private TemplateSize size;
+
+    private SqlTemplate treeTemplate;
+
+    private SqlTemplate instructionTemplate;
+
+    private CompiledSqlTemplate compiledTemplate;
+
+    private EmployeeParam beanParam;
+
+    @Setup
+    public void setUp() {
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        this.treeTemplate = templateEngine.getTemplateByText(size.createTemplate());
+
+        templateEngine.setProcessMode(ProcessMode.INSTRUCTION);
+        this.instructionTemplate = templateEngine.getTemplateByText(size.createTemplate());
+
+        this.compiledTemplate = new SqlTemplateCompiler().compile(treeTemplate, EmployeeParam.class);
+
+        this.beanParam = BenchmarkTemplates.createBeanParam(3);
+    }
+
+    @Benchmark
+    public ProcessResult processNodeTree() {
+        return treeTemplate.process(new BeanPropertySqlTemplateContext(beanParam));
+    }
+
+    @Benchmark
+    public ProcessResult processInstruction() {
+        return instructionTemplate.process(new BeanPropertySqlTemplateContext(beanParam));
+    }
+
+    @Benchmark
+    public ProcessResult processCompiled() {
+        return compiledTemplate.process(new BeanPropertySqlTemplateContext(beanParam));
+    }
+
+}
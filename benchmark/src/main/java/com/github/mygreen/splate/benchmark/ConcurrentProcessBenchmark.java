@@ -0,0 +1,88 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
+/**
+ * キャッシュした同じ {@link SqlTemplate} を、複数のスレッドから同時に評価するときのベンチマーク。
+ * <p>仮想スレッドで計測する場合は、JDK21以降で JMH のオプション {@code -jvmArgsAppend -Djmh.executor=VIRTUAL} を指定します。
+ *  キャリアスレッドの固定（pinning）を確認する場合は、{@code -Djdk.tracePinnedThreads=full} も指定します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentProcessBenchmark {
+
+    private static final String SQL = "select * from employee"
+            + " /*BEGIN*/where"
+            + " /*IF name != null*/name = /*name*/'Yamada'/*END*/"
+            + " /*IF ids != null*/and id in /*ids*/(1, 2)/*END*/"
+            + " /*IF salaryMin != null*/and salary >= /*salaryMin*/1000/*END*/"
+            + "/*END*/"
+            + " order by /*$order*/id";
+
+    private SqlTemplateEngine templateEngine;
+
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+        this.templateEngine = new SqlTemplateEngine();
+        templateEngine.setCached(true);
+
+        this.variables = new HashMap<>();
+        variables.put("name", "Yamada");
+        variables.put("ids", List.of(1, 2, 3, 4, 5));
+        variables.put("salaryMin", 1000);
+        variables.put("order", "id");
+
+        // 事前にパースしてキャッシュしておく
+        templateEngine.getTemplateByText(SQL);
+    }
+
+    /**
+     * 1スレッドで評価します。比較の基準として使用します。
+     */
+    @Benchmark
+    @Threads(1)
+    public ProcessResult processSingleThread() {
+        return templateEngine.getTemplateByText(SQL).process(new MapSqlTemplateContext(variables));
+    }
+
+    /**
+     * CPUのコア数分のスレッドで同時に評価します。
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ProcessResult processSharedTemplate() {
+        return templateEngine.getTemplateByText(SQL).process(new MapSqlTemplateContext(variables));
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
+/**
+ * {@literal IN} 句のバインド変数に、大量の要素を渡したときのベンチマーク。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InListBenchmark {
+
+    private static final String SQL = "select * from employee where id in /*ids*/(1, 2)";
+
+    @Param({"10", "1000", "10000"})
+    private int elementCount;
+
+    private SqlTemplate template;
+
+    private Map<String, Object> param;
+
+    @Setup
+    public void setUp() {
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        this.template = templateEngine.getTemplateByText(SQL);
+        this.param = BenchmarkTemplates.createMapParam(elementCount);
+    }
+
+    @Benchmark
+    public ProcessResult processInList() {
+        return template.process(new MapSqlTemplateContext(param));
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessMode;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
+/**
+ * {@literal BEGIN} コメントと {@literal IF} コメントを入れ子にしたときのベンチマーク。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NestedBlockBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int depth;
+
+    @Param({"NODE_TREE", "INSTRUCTION"})
+    private ProcessMode processMode;
+
+    private SqlTemplate template;
+
+    private Map<String, Object> param;
+
+    @Setup
+    public void setUp() {
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setProcessMode(processMode);
+        this.template = templateEngine.getTemplateByText(BenchmarkTemplates.createNestedTemplate(depth));
+        this.param = BenchmarkTemplates.createMapParam(0);
+    }
+
+    @Benchmark
+    public ProcessResult processNested() {
+        return template.process(new MapSqlTemplateContext(param));
+    }
+
+}
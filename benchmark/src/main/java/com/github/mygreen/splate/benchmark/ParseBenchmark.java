@@ -0,0 +1,57 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+import com.github.mygreen.splate.benchmark.BenchmarkTemplates.TemplateSize;
+
+/**
+ * SQLテンプレートのパースのベンチマーク。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    private TemplateSize size;
+
+    private SqlTemplateEngine templateEngine;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        // キャッシュせずに毎回パースする
+        this.templateEngine = new SqlTemplateEngine();
+        templateEngine.setCached(false);
+
+        this.sql = size.createTemplate();
+    }
+
+    @Benchmark
+    public SqlTemplate parse() {
+        return templateEngine.getTemplateByText(sql);
+    }
+
+}
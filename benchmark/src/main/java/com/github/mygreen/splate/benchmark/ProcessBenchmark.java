@@ -0,0 +1,77 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.BeanPropertySqlTemplateContext;
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessMode;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+import com.github.mygreen.splate.benchmark.BenchmarkTemplates.EmployeeParam;
+import com.github.mygreen.splate.benchmark.BenchmarkTemplates.TemplateSize;
+
+/**
+ * パース済みのSQLテンプレートを評価するときのベンチマーク。
+ * <p>{@link MapSqlTemplateContext} と {@link BeanPropertySqlTemplateContext} の違いと、
+ *  評価する方式 {@link ProcessMode} の違いを比較します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    private TemplateSize size;
+
+    @Param({"NODE_TREE", "INSTRUCTION"})
+    private ProcessMode processMode;
+
+    private SqlTemplate template;
+
+    private Map<String, Object> mapParam;
+
+    private EmployeeParam beanParam;
+
+    @Setup
+    public void setUp() {
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setProcessMode(processMode);
+        this.template = templateEngine.getTemplateByText(size.createTemplate());
+
+        this.mapParam = BenchmarkTemplates.createMapParam(3);
+        this.beanParam = BenchmarkTemplates.createBeanParam(3);
+    }
+
+    @Benchmark
+    public ProcessResult processMap() {
+        return template.process(new MapSqlTemplateContext(mapParam));
+    }
+
+    @Benchmark
+    public ProcessResult processBean() {
+        return template.process(new BeanPropertySqlTemplateContext(beanParam));
+    }
+
+}
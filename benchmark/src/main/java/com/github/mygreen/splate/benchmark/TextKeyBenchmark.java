@@ -0,0 +1,88 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+import com.github.mygreen.splate.SqlUtils;
+import com.github.mygreen.splate.benchmark.BenchmarkTemplates.TemplateSize;
+
+/**
+ * {@link SqlTemplateEngine#getTemplateByText(String)} で、キャッシュに存在するときのベンチマーク。
+ * <p>SHA-256のダイジェストをキーにした場合と比較します。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextKeyBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    private TemplateSize size;
+
+    private SqlTemplateEngine templateEngine;
+
+    /**
+     * SHA-256のダイジェストをキーにしたキャッシュ
+     */
+    private Map<String, SqlTemplate> digestCache;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        this.templateEngine = new SqlTemplateEngine();
+        templateEngine.setCached(true);
+
+        this.sql = size.createTemplate();
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+
+        this.digestCache = new ConcurrentHashMap<>();
+        digestCache.put(SqlUtils.getMessageDigest(sql), template);
+    }
+
+    /**
+     * 変更前の方式。毎回SHA-256のダイジェストを計算する。
+     */
+    @Benchmark
+    public SqlTemplate digestKey() {
+        return digestCache.get(SqlUtils.getMessageDigest(new String(sql)));
+    }
+
+    /**
+     * 同じインスタンスの文字列で呼び出す場合。文字列にキャッシュされたハッシュ値を使用する。
+     */
+    @Benchmark
+    public SqlTemplate textKey_sameInstance() {
+        return templateEngine.getTemplateByText(sql);
+    }
+
+    /**
+     * 内容が同じ別のインスタンスの文字列で呼び出す場合。ハッシュ値の計算と、文字列全体の比較を行う。
+     */
+    @Benchmark
+    public SqlTemplate textKey_newInstance() {
+        return templateEngine.getTemplateByText(new String(sql));
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.parser.SqlTokenizer;
+import com.github.mygreen.splate.parser.SqlTokenizer.TokenType;
+
+/**
+ * 大きなSQLテンプレートをトークンに分解するときのベンチマーク。
+ * <p>グループ数に比例して処理時間が増える（線形である）ことを確認します。
+ *  1グループは約250文字のため、50000グループでは約12MBのSQLになります。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int groupCount;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        this.sql = BenchmarkTemplates.createTemplate(groupCount);
+    }
+
+    /**
+     * 最後までトークンに分解し、トークン数を返します。
+     * @return トークン数
+     */
+    @Benchmark
+    public int tokenize() {
+        SqlTokenizer tokenizer = new SqlTokenizer(sql);
+        int count = 0;
+        while(tokenizer.next() != TokenType.EOF) {
+            count++;
+        }
+        return count;
+    }
+
+}
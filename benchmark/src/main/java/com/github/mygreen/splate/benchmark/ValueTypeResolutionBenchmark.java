@@ -0,0 +1,100 @@
+package com.github.mygreen.splate.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.type.SqlTemplateValueType;
+import com.github.mygreen.splate.type.SqlTemplateValueTypeRegistry;
+
+/**
+ * {@link SqlTemplateValueTypeRegistry#findValueType(Class, String)} のベンチマーク。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValueTypeResolutionBenchmark {
+
+    private SqlTemplateValueTypeRegistry registry;
+
+    private SqlTemplateValueTypeRegistry frozenRegistry;
+
+    @Setup
+    public void setUp() {
+        final SqlTemplateValueType<LocalDate> localDateType = value -> value != null ? java.sql.Date.valueOf(value) : null;
+
+        this.registry = new SqlTemplateValueTypeRegistry();
+        registry.register(LocalDate.class, localDateType);
+        registry.register("person.birthday", LocalDate.class, localDateType);
+
+        this.frozenRegistry = registry.freeze();
+    }
+
+    /**
+     * パスが完全一致する場合。
+     */
+    @Benchmark
+    public SqlTemplateValueType<?> findByPath() {
+        return registry.findValueType(LocalDate.class, "person.birthday");
+    }
+
+    /**
+     * インデックスを除去したパスで一致する場合。
+     */
+    @Benchmark
+    public SqlTemplateValueType<?> findByStrippedPath() {
+        return registry.findValueType(LocalDate.class, "person[0].birthday");
+    }
+
+    /**
+     * クラスタイプで一致する場合。
+     */
+    @Benchmark
+    public SqlTemplateValueType<?> findByType() {
+        return registry.findValueType(LocalDate.class, "birthday");
+    }
+
+    /**
+     * 一致しない場合。
+     */
+    @Benchmark
+    public SqlTemplateValueType<?> findNotFound() {
+        return registry.findValueType(String.class, "name");
+    }
+
+    /**
+     * 評価するたびに {@link MapSqlTemplateContext} を作成する場合。
+     * <p>変更可能なインスタンスは、コンテキストごとにコピーされます。</p>
+     */
+    @Benchmark
+    public MapSqlTemplateContext createContext() {
+        return new MapSqlTemplateContext(registry);
+    }
+
+    /**
+     * 変更できないインスタンスを渡して {@link MapSqlTemplateContext} を作成する場合。
+     */
+    @Benchmark
+    public MapSqlTemplateContext createContextWithFrozen() {
+        return new MapSqlTemplateContext(frozenRegistry);
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.github.mygreen.splate.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import com.github.mygreen.splate.TwoWaySqlException;
+import com.github.mygreen.splate.archive.ArchiveParseOptions;
+import com.github.mygreen.splate.archive.ArchivedTemplate;
+import com.github.mygreen.splate.archive.SqlTemplateArchive;
+import com.github.mygreen.splate.node.Node;
+import com.github.mygreen.splate.parser.SqlParser;
+import com.github.mygreen.splate.parser.StringLiteralMode;
+
+/**
+ * SQLテンプレートをビルド時にパースし、アーカイブを作成します。
+ * <p>パースに失敗したSQLテンプレートがある場合は、全てのエラーを出力してビルドを失敗させます。</p>
+ * <p>作成したアーカイブは、実行時に {@link com.github.mygreen.splate.SqlTemplateEngine#loadArchive(String)} で読み込みます。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@Mojo(name="precompile", defaultPhase=LifecyclePhase.PROCESS_RESOURCES, threadSafe=true)
+public class PrecompileMojo extends AbstractMojo {
+
+    /**
+     * SQLテンプレートを探すディレクトリ。
+     */
+    @Parameter(defaultValue="${project.basedir}/src/main/resources", required=true)
+    private File sourceDirectory;
+
+    /**
+     * パース対象のSQLテンプレートのパターン。{@link java.nio.file.FileSystem#getPathMatcher(String)} のglob形式で指定します。
+     */
+    @Parameter(defaultValue="**.sql", required=true)
+    private String includes;
+
+    /**
+     * SQLテンプレートの文字コード。
+     */
+    @Parameter(defaultValue="${project.build.sourceEncoding}")
+    private String encoding;
+
+    /**
+     * 作成するアーカイブのファイル。
+     */
+    @Parameter(defaultValue="${project.build.outputDirectory}/" + SqlTemplateArchive.DEFAULT_PATH, required=true)
+    private File outputFile;
+
+    /**
+     * {@code IN} 句を分割するための情報を作成するかどうか。
+     * <p>実行時に {@link com.github.mygreen.splate.InListPadding} で要素数の上限を指定する場合は、{@literal true} を指定します。</p>
+     */
+    @Parameter(property="splate.precompile.inOperandExtracted", defaultValue="false")
+    private boolean inOperandExtracted;
+
+    /**
+     * 文字列リテラルの扱い。
+     * <p>実行時の {@link com.github.mygreen.splate.SqlTemplateEngine#setStringLiteralMode(StringLiteralMode)} と同じ値を指定します。</p>
+     */
+    @Parameter(property="splate.precompile.stringLiteralMode", defaultValue="IGNORED")
+    private StringLiteralMode stringLiteralMode;
+
+    /**
+     * 処理をスキップするかどうか。
+     */
+    @Parameter(property="splate.precompile.skip", defaultValue="false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+
+        if(skip) {
+            getLog().info("Skipping precompile SQL templates.");
+            return;
+        }
+
+        if(!sourceDirectory.isDirectory()) {
+            getLog().info(String.format("Not found source directory : %s", sourceDirectory));
+            return;
+        }
+
+        final Path root = sourceDirectory.toPath();
+        final Charset charset = Charset.forName(encoding != null ? encoding : "UTF-8");
+        final SpelExpressionParser expressionParser = new SpelExpressionParser();
+
+        final List<ArchivedTemplate> templates = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        for(Path file : findTemplateFiles(root)) {
+            final String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+            try {
+                final SqlParser parser = new SqlParser(Files.readString(file, charset), expressionParser);
+                parser.setInOperandExtracted(inOperandExtracted);
+                parser.setStringLiteralMode(stringLiteralMode);
+                final Node node = parser.parse();
+                templates.add(new ArchivedTemplate(path, parser.getSql(), node, ArchiveParseOptions.of(parser)));
+
+            } catch(IOException e) {
+                throw new MojoExecutionException(String.format("Fail reading SQL template : %s", file), e);
+
+            } catch(TwoWaySqlException e) {
+                errors.add(String.format("%s : %s", path, e.getMessage()));
+            }
+        }
+
+        if(!errors.isEmpty()) {
+            errors.forEach(error -> getLog().error(error));
+            throw new MojoFailureException(String.format("Fail parsing %d SQL template(s).", errors.size()));
+        }
+
+        try {
+            Files.createDirectories(outputFile.toPath().getParent());
+            try(OutputStream out = Files.newOutputStream(outputFile.toPath())) {
+                SqlTemplateArchive.write(out, templates);
+            }
+        } catch(IOException | TwoWaySqlException e) {
+            throw new MojoExecutionException(String.format("Fail writing archive : %s", outputFile), e);
+        }
+
+        getLog().info(String.format("Precompiled %d SQL template(s) to %s", templates.size(), outputFile));
+
+    }
+
+    /**
+     * パース対象のSQLテンプレートのファイルを探します。
+     * @param root 探すディレクトリ
+     * @return パス順に並べたファイル
+     * @throws MojoExecutionException ディレクトリの走査に失敗した場合
+     */
+    private List<Path> findTemplateFiles(final Path root) throws MojoExecutionException {
+
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + includes);
+        try(Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(root.relativize(file)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch(IOException e) {
+            throw new MojoExecutionException(String.format("Fail walking directory : %s", root), e);
+        }
+    }
+
+}
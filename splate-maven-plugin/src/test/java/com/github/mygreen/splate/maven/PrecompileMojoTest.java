@@ -0,0 +1,126 @@
+package com.github.mygreen.splate.maven;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+import com.github.mygreen.splate.archive.SqlTemplateArchiveException;
+import com.github.mygreen.splate.parser.StringLiteralMode;
+
+/**
+ * {@link PrecompileMojo} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class PrecompileMojoTest {
+
+    @Test
+    void testExecute(@TempDir Path dir) throws Exception {
+
+        Path outputFile = dir.resolve("META-INF/splate/templates.splate");
+        PrecompileMojo mojo = createMojo(Paths.get("src/test/resources/precompile/success"), outputFile);
+        mojo.execute();
+
+        assertThat(outputFile).exists();
+
+        // SQLファイル以外はアーカイブに含まない。
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        assertThat(engine.loadArchive(new FileSystemResource(outputFile))).isEqualTo(2);
+
+        // アーカイブ内のパスは、ディレクトリからの相対パスになる。
+        // クラスパスのルートにはファイルが存在しないため、アーカイブから取得したことが分かる。
+        SqlTemplate template = engine.getTemplate("classpath:employee.sql");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("salaryMin", 1000);
+        assertThat(template.process(new MapSqlTemplateContext(variables)).getSql())
+            .isEqualToIgnoringWhitespace("select * from employee where salary >= ?");
+
+        assertThat(engine.getTemplate("classpath:sub/address.sql").getSql()).startsWith("select * from address");
+
+    }
+
+    @Test
+    void testExecute_parseOptions(@TempDir Path dir) throws Exception {
+
+        Path outputFile = dir.resolve("templates.splate");
+        PrecompileMojo mojo = createMojo(Paths.get("src/test/resources/precompile/success"), outputFile);
+        setField(mojo, "stringLiteralMode", StringLiteralMode.STANDARD);
+        mojo.execute();
+
+        // 実行時の設定が異なる場合は読み込めない。
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        assertThatThrownBy(() -> engine.loadArchive(new FileSystemResource(outputFile)))
+            .isInstanceOf(SqlTemplateArchiveException.class);
+
+        engine.setStringLiteralMode(StringLiteralMode.STANDARD);
+        assertThat(engine.loadArchive(new FileSystemResource(outputFile))).isEqualTo(2);
+
+    }
+
+    @Test
+    void testExecute_parseError(@TempDir Path dir) throws Exception {
+
+        Path outputFile = dir.resolve("templates.splate");
+        PrecompileMojo mojo = createMojo(Paths.get("src/test/resources/precompile/failure"), outputFile);
+
+        assertThatThrownBy(() -> mojo.execute())
+            .isInstanceOf(MojoFailureException.class)
+            .hasMessage("Fail parsing 1 SQL template(s).");
+
+        // 失敗した場合は、アーカイブを作成しない。
+        assertThat(Files.exists(outputFile)).isFalse();
+
+    }
+
+    @Test
+    void testExecute_skip(@TempDir Path dir) throws Exception {
+
+        Path outputFile = dir.resolve("templates.splate");
+        PrecompileMojo mojo = createMojo(Paths.get("src/test/resources/precompile/failure"), outputFile);
+        setField(mojo, "skip", true);
+        mojo.execute();
+
+        assertThat(Files.exists(outputFile)).isFalse();
+
+    }
+
+    /**
+     * Mavenが注入するパラメータに、デフォルト値を設定したMojoを作成します。
+     * @param sourceDirectory SQLテンプレートを探すディレクトリ
+     * @param outputFile 作成するアーカイブのファイル
+     * @return 作成したMojo
+     */
+    private static PrecompileMojo createMojo(final Path sourceDirectory, final Path outputFile) throws Exception {
+
+        PrecompileMojo mojo = new PrecompileMojo();
+        setField(mojo, "sourceDirectory", sourceDirectory.toFile());
+        setField(mojo, "includes", "**.sql");
+        setField(mojo, "encoding", "UTF-8");
+        setField(mojo, "outputFile", outputFile.toFile());
+        setField(mojo, "inOperandExtracted", false);
+        setField(mojo, "stringLiteralMode", StringLiteralMode.IGNORED);
+        return mojo;
+    }
+
+    private static void setField(final PrecompileMojo mojo, final String name, final Object value) throws Exception {
+        Field field = PrecompileMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+}
@@ -0,0 +1,3 @@
+select * from employee
+/*IF salaryMin != null*/
+where salary >= /*salaryMin*/1000
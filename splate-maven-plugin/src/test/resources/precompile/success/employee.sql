@@ -0,0 +1,7 @@
+select * from employee
+/*BEGIN*/
+where
+/*IF salaryMin != null*/
+salary >= /*salaryMin*/1000
+/*END*/
+/*END*/
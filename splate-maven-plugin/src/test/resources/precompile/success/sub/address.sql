@@ -0,0 +1,7 @@
+select * from address
+/*BEGIN*/
+where
+/*IF telNumber != null*/
+tel_number = /*telNumber*/'090-xxx-xxx'
+/*END*/
+/*END*/
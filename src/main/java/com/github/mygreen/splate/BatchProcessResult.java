@@ -0,0 +1,232 @@
+package com.github.mygreen.splate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.style.ToStringCreator;
+
+import lombok.Getter;
+
+/**
+ * {@link SqlTemplate#processBatch(Iterable)} で、複数のコンテキストをまとめて評価した結果です。
+ * <p>評価結果を、組み立てたSQLが同じものごとにグループにまとめます。
+ *  グループごとに {@link java.sql.PreparedStatement} を作成し、{@code addBatch()} で登録することを想定しています。
+ * </p>
+ *
+ * <pre class="highlight"><code class="java">
+ * BatchProcessResult result = template.processBatch(contexts);
+ * for(BatchProcessResult.Group group : result.getGroups()) {
+ *     try(PreparedStatement ps = connection.prepareStatement(group.getSql())) {
+ *         for(int row=0; row &lt; group.getRowCount(); row++) {
+ *             for(int column=0; column &lt; group.getColumnCount(); column++) {
+ *                 ps.setObject(column + 1, group.getParameter(row, column));
+ *             }
+ *             ps.addBatch();
+ *         }
+ *         ps.executeBatch();
+ *     }
+ * }
+ * </code></pre>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class BatchProcessResult {
+
+    /**
+     * 評価したコンテキストの件数
+     */
+    @Getter
+    private final int rowCount;
+
+    /**
+     * SQLごとのグループ。最初に出現した順に並びます。
+     */
+    @Getter
+    private final List<Group> groups;
+
+    /**
+     * インスタンスを作成します。
+     *
+     * @param rowCount 評価したコンテキストの件数
+     * @param groups SQLごとのグループ
+     */
+    public BatchProcessResult(final int rowCount, final List<Group> groups) {
+        this.rowCount = rowCount;
+        this.groups = Collections.unmodifiableList(groups);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("rowCount", rowCount)
+                .append("groupCount", groups.size())
+                .toString();
+    }
+
+    /**
+     * 組み立てたSQLが同じ評価結果のグループです。
+     * <p>同じSQLであれば、バインドパラメータの個数も同じになるため、バインドパラメータを列ごとの配列で保持します。</p>
+     */
+    public static class Group {
+
+        /**
+         * 評価されたSQL
+         */
+        @Getter
+        private final String sql;
+
+        /**
+         * グループに含まれる評価結果の、元のコンテキストの順番（0から始まる）
+         */
+        private final int[] rowIndexes;
+
+        /**
+         * バインドパラメータ。{@code columns[列][行]} の順に格納します。
+         */
+        private final Object[][] columns;
+
+        /**
+         * インスタンスを作成します。
+         *
+         * @param sql 評価されたSQL
+         * @param rowIndexes 元のコンテキストの順番
+         * @param columns 列ごとのバインドパラメータ。各列の長さは、元のコンテキストの順番の個数と一致させます。
+         */
+        Group(final String sql, final int[] rowIndexes, final Object[][] columns) {
+            this.sql = sql;
+            this.rowIndexes = rowIndexes;
+            this.columns = columns;
+        }
+
+        /**
+         * グループに含まれる評価結果の件数を取得します。
+         * @return 評価結果の件数
+         */
+        public int getRowCount() {
+            return rowIndexes.length;
+        }
+
+        /**
+         * バインドパラメータの個数を取得します。
+         * @return バインドパラメータの個数
+         */
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        /**
+         * 評価結果の、元のコンテキストの順番を取得します。
+         *
+         * @param row グループ内の行番号（0から始まる）
+         * @return 元のコンテキストの順番（0から始まる）
+         */
+        public int getRowIndex(final int row) {
+            return rowIndexes[row];
+        }
+
+        /**
+         * バインドパラメータを取得します。
+         *
+         * @param row グループ内の行番号（0から始まる）
+         * @param column バインドパラメータの位置（0から始まる）
+         * @return バインドパラメータの値
+         */
+        public Object getParameter(final int row, final int column) {
+            return columns[column][row];
+        }
+
+        /**
+         * 1件分のバインドパラメータを取得します。
+         *
+         * @param row グループ内の行番号（0から始まる）
+         * @return バインドパラメータの一覧
+         */
+        public Object[] getRow(final int row) {
+            final Object[] values = new Object[columns.length];
+            for(int i=0; i < columns.length; i++) {
+                values[i] = columns[i][row];
+            }
+            return values;
+        }
+
+        /**
+         * 同じ位置のバインドパラメータを、全件分取得します。
+         *
+         * @param column バインドパラメータの位置（0から始まる）
+         * @return 読み取り専用のバインドパラメータの一覧。
+         */
+        public List<Object> getColumn(final int column) {
+            return Collections.unmodifiableList(Arrays.asList(columns[column]));
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringCreator(this)
+                    .append("sql", sql)
+                    .append("rowCount", getRowCount())
+                    .append("columnCount", getColumnCount())
+                    .toString();
+        }
+    }
+
+    /**
+     * {@link Group} を組み立てます。
+     * <p>行を追加するたびに、列ごとの配列に値を詰めます。配列は不足したときに2倍に拡張します。</p>
+     */
+    static class GroupBuilder {
+
+        private final String sql;
+
+        private int[] rowIndexes;
+
+        private final Object[][] columns;
+
+        private int size;
+
+        GroupBuilder(final String sql, final int columnCount) {
+            this.sql = sql;
+            this.rowIndexes = new int[8];
+            this.columns = new Object[columnCount][8];
+        }
+
+        /**
+         * 1件分の評価結果を追加します。
+         *
+         * @param rowIndex 元のコンテキストの順番
+         * @param parameters バインドパラメータ
+         * @throws IllegalStateException バインドパラメータの個数が、グループの最初の評価結果と異なる場合にスローされます。
+         */
+        void add(final int rowIndex, final List<Object> parameters) {
+
+            if(parameters.size() != columns.length) {
+                throw new IllegalStateException(String.format("Parameter count %d differs from %d for the same SQL : %s",
+                        parameters.size(), columns.length, sql));
+            }
+
+            if(size == rowIndexes.length) {
+                final int capacity = size * 2;
+                rowIndexes = Arrays.copyOf(rowIndexes, capacity);
+                for(int i=0; i < columns.length; i++) {
+                    columns[i] = Arrays.copyOf(columns[i], capacity);
+                }
+            }
+
+            rowIndexes[size] = rowIndex;
+            for(int i=0; i < columns.length; i++) {
+                columns[i][size] = parameters.get(i);
+            }
+            size++;
+        }
+
+        Group build() {
+            final Object[][] trimmed = new Object[columns.length][];
+            for(int i=0; i < columns.length; i++) {
+                trimmed[i] = columns[i].length == size ? columns[i] : Arrays.copyOf(columns[i], size);
+            }
+            return new Group(sql, rowIndexes.length == size ? rowIndexes : Arrays.copyOf(rowIndexes, size), trimmed);
+        }
+    }
+}
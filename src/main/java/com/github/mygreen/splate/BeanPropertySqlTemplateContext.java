@@ -14,7 +14,7 @@ import lombok.Setter;
  * SQLテンプレートのパラメータをJavaBean として渡すときのSQLテンプレートのコンテキスト。
  * SQLテンプレート中では、JavaBeanのプロパティ名で参照できます。
  *
- * @version 0.3
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
@@ -37,6 +37,18 @@ public class BeanPropertySqlTemplateContext extends SqlTemplateContext<StandardE
     @Getter
     private boolean ignoreNotFoundProperty;
 
+    /**
+     * EL式のプロパティアクセッサーを、SQLテンプレートの評価をまたがって共有するかどうか。
+     * <p>{@literal true} の場合、プロパティのアクセス方法のキャッシュが評価ごとに破棄されなくなります。</p>
+     *
+     * @since 0.4
+     * @param sharedPropertyAccessor EL式のプロパティアクセッサーを共有するかどうか設定します。
+     * @return EL式のプロパティアクセッサーを共有するかどうか返します。
+     */
+    @Setter
+    @Getter
+    private boolean sharedPropertyAccessor;
+
     /**
      * JavaBeanを指定するコンストラクタ。
      * @param object SQLテンプレート中のパラメータとして渡すJavaBeanのインスタンス
@@ -64,7 +76,11 @@ public class BeanPropertySqlTemplateContext extends SqlTemplateContext<StandardE
     @Override
     public StandardEvaluationContext createEvaluationContext() {
         final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
-        evaluationContext.setPropertyAccessors(List.of(new CustomReflectivePropertyAccessor(ignoreNotFoundProperty)));
+        if(sharedPropertyAccessor) {
+            evaluationContext.setPropertyAccessors(List.of(CustomReflectivePropertyAccessor.getSharedInstance(ignoreNotFoundProperty)));
+        } else {
+            evaluationContext.setPropertyAccessors(List.of(new CustomReflectivePropertyAccessor(ignoreNotFoundProperty)));
+        }
         evaluationContext.setRootObject(value);
         return evaluationContext;
     }
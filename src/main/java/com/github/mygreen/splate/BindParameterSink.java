@@ -0,0 +1,26 @@
+package com.github.mygreen.splate;
+
+/**
+ * SQLテンプレートを評価したときのバインドパラメータを、出現順に受け取る処理です。
+ * <p>{@link SqlTemplate#process(SqlTemplateContext, Appendable, BindParameterSink)} で使用します。</p>
+ *
+ * <pre class="highlight"><code class="java">
+ * List&lt;Object&gt; params = new ArrayList&lt;&gt;();
+ * template.process(context, writer, params::add);
+ * </code></pre>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@FunctionalInterface
+public interface BindParameterSink {
+
+    /**
+     * バインドパラメータを追加します。
+     *
+     * @param value バインドパラメータの値
+     */
+    void add(Object value);
+
+}
@@ -26,6 +26,28 @@ public class CustomMapAccessor extends MapAccessor {
      */
     private final boolean ignoreNotFoundProperty;
 
+    /**
+     * 共有インスタンス - 存在しないキーを無視しない場合。
+     */
+    private static final CustomMapAccessor SHARED_INSTANCE = new CustomMapAccessor(false);
+
+    /**
+     * 共有インスタンス - 存在しないキーを無視する場合。
+     */
+    private static final CustomMapAccessor SHARED_INSTANCE_IGNORE_NOT_FOUND = new CustomMapAccessor(true);
+
+    /**
+     * 共有インスタンスを取得します。
+     * <p>状態を持たないため、複数のSQLテンプレートの評価で共有できます。</p>
+     *
+     * @since 0.4
+     * @param ignoreNotFoundProperty 存在しないキーが指定された場合、無視するかどうか。
+     * @return 共有インスタンス
+     */
+    public static CustomMapAccessor getSharedInstance(final boolean ignoreNotFoundProperty) {
+        return ignoreNotFoundProperty ? SHARED_INSTANCE_IGNORE_NOT_FOUND : SHARED_INSTANCE;
+    }
+
     @Override
     public boolean canRead(EvaluationContext context, Object target, String name) throws AccessException {
         if(ignoreNotFoundProperty) {
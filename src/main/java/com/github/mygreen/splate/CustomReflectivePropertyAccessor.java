@@ -17,6 +17,28 @@ public class CustomReflectivePropertyAccessor extends ReflectivePropertyAccessor
 
     private static final String NOT_FOUNE_MESSAGE = "Neither getter method nor field found for property";
 
+    /**
+     * 共有インスタンス - 存在しないプロパティを無視しない場合。
+     */
+    private static final CustomReflectivePropertyAccessor SHARED_INSTANCE = new CustomReflectivePropertyAccessor(false);
+
+    /**
+     * 共有インスタンス - 存在しないプロパティを無視する場合。
+     */
+    private static final CustomReflectivePropertyAccessor SHARED_INSTANCE_IGNORE_NOT_FOUND = new CustomReflectivePropertyAccessor(true);
+
+    /**
+     * 共有インスタンスを取得します。
+     * <p>プロパティのアクセス方法のキャッシュはスレッドセーフであるため、複数のSQLテンプレートの評価で共有できます。</p>
+     *
+     * @since 0.4
+     * @param ignoreNotFoundProperty 存在しないプロパティが指定された場合、無視するかどうか。
+     * @return 共有インスタンス
+     */
+    public static CustomReflectivePropertyAccessor getSharedInstance(final boolean ignoreNotFoundProperty) {
+        return ignoreNotFoundProperty ? SHARED_INSTANCE_IGNORE_NOT_FOUND : SHARED_INSTANCE;
+    }
+
     @Override
     public boolean canRead(EvaluationContext context, Object target, String name) throws AccessException {
         if(ignoreNotFoundProperty) {
@@ -11,7 +11,7 @@ import lombok.Setter;
  * SQLテンプレートに渡すパラメータがないときのSQLテンプレートのコンテキスト。
  *
  *
- * @version 0.3
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
@@ -28,6 +28,18 @@ public class EmptyValueSqlTemplateContext extends SqlTemplateContext<StandardEva
     @Getter
     private boolean ignoreNotFoundProperty;
 
+    /**
+     * EL式のプロパティアクセッサーを、SQLテンプレートの評価をまたがって共有するかどうか。
+     * <p>{@literal true} の場合、プロパティのアクセス方法のキャッシュが評価ごとに破棄されなくなります。</p>
+     *
+     * @since 0.4
+     * @param sharedPropertyAccessor EL式のプロパティアクセッサーを共有するかどうか設定します。
+     * @return EL式のプロパティアクセッサーを共有するかどうか返します。
+     */
+    @Setter
+    @Getter
+    private boolean sharedPropertyAccessor;
+
     /**
      * {@inheritDoc}
      * @return {@link StandardEvaluationContext} のインスタンスを返します。
@@ -35,7 +47,11 @@ public class EmptyValueSqlTemplateContext extends SqlTemplateContext<StandardEva
     @Override
     public StandardEvaluationContext createEvaluationContext() {
         StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
-        evaluationContext.setPropertyAccessors(List.of(new CustomReflectivePropertyAccessor(ignoreNotFoundProperty)));
+        if(sharedPropertyAccessor) {
+            evaluationContext.setPropertyAccessors(List.of(CustomReflectivePropertyAccessor.getSharedInstance(ignoreNotFoundProperty)));
+        } else {
+            evaluationContext.setPropertyAccessors(List.of(new CustomReflectivePropertyAccessor(ignoreNotFoundProperty)));
+        }
         return evaluationContext;
     }
 }
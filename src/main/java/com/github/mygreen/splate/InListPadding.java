@@ -0,0 +1,179 @@
+package com.github.mygreen.splate;
+
+import java.util.Arrays;
+
+import org.springframework.core.style.ToStringCreator;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * {@code IN} 句のバインド変数（{@code /*ids*&#47;(1, 2)}）の要素数を、決められた段階の個数に切り上げる設定です。
+ * <p>要素数ごとに異なるSQLが組み立てられると、JDBCドライバのステートメントキャッシュやDBの実行計画のキャッシュが効かなくなります。
+ *  要素数を段階的な個数に切り上げ、不足分は最後の値を繰り返してバインドすることで、SQLの種類を抑えます。
+ * </p>
+ * <p>また、要素数の上限を設定すると、上限を超えた場合は {@code (id IN (...) OR id IN (...))} のように分割します。
+ *  Oracleの {@code IN} 句の要素数の上限（1000個）などを回避するために使用します。
+ *  {@code NOT IN} の場合は、{@code AND} で連結します。
+ * </p>
+ * <p>分割は、バインド変数の直前が {@code 列名 IN} の形式の場合のみ行います。</p>
+ *
+ * <pre class="highlight"><code class="java">
+ * SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+ *
+ * // 2の累乗に切り上げ、1000個を超える場合は分割する
+ * templateEngine.setInListPadding(InListPadding.powersOfTwo().withMaxElements(1000));
+ * </code></pre>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class InListPadding {
+
+    /**
+     * 切り上げる段階の個数。昇順に並びます。
+     * {@literal null} の場合は2の累乗、空の場合は切り上げません。
+     */
+    private final int[] ladder;
+
+    /**
+     * 1つの {@code IN} 句の要素数の上限。{@literal 0} の場合は分割しません。
+     */
+    @Getter
+    private final int maxElements;
+
+    private InListPadding(final int[] ladder, final int maxElements) {
+        this.ladder = ladder;
+        this.maxElements = maxElements;
+    }
+
+    /**
+     * 要素数を2の累乗（1, 2, 4, 8, ...）に切り上げる設定を作成します。
+     *
+     * @return 切り上げの設定
+     */
+    public static InListPadding powersOfTwo() {
+        return new InListPadding(null, 0);
+    }
+
+    /**
+     * 要素数を、指定した段階の個数に切り上げる設定を作成します。
+     * <p>最も大きい段階を超える場合は、最も大きい段階の倍数に切り上げます。</p>
+     *
+     * @param sizes 切り上げる段階の個数。昇順に指定します。
+     * @return 切り上げの設定
+     * @throws IllegalArgumentException 段階の個数が空、1未満、または昇順でない場合にスローされます。
+     */
+    public static InListPadding ladder(@NonNull final int... sizes) {
+        if(sizes.length == 0) {
+            throw new IllegalArgumentException("sizes should not be empty.");
+        }
+
+        for(int i=0; i < sizes.length; i++) {
+            if(sizes[i] < 1) {
+                throw new IllegalArgumentException(String.format("sizes should be greater than 0, but %d.", sizes[i]));
+            }
+            if(i > 0 && sizes[i] <= sizes[i-1]) {
+                throw new IllegalArgumentException("sizes should be in ascending order.");
+            }
+        }
+        return new InListPadding(sizes.clone(), 0);
+    }
+
+    /**
+     * 要素数を切り上げずに、要素数の上限による分割のみを行う設定を作成します。
+     *
+     * @param maxElements 1つの {@code IN} 句の要素数の上限
+     * @return 分割のみを行う設定
+     * @throws IllegalArgumentException 要素数の上限が1未満の場合にスローされます。
+     */
+    public static InListPadding splitOnly(final int maxElements) {
+        return new InListPadding(new int[0], 0).withMaxElements(maxElements);
+    }
+
+    /**
+     * 1つの {@code IN} 句の要素数の上限を指定した設定を作成します。
+     * <p>切り上げた要素数は上限を超えないようにし、上限を超える場合は上限の倍数に切り上げて分割します。
+     *  ただし、{@link #splitOnly(int)} の場合は切り上げずに、上限の個数ずつ分割します。
+     * </p>
+     *
+     * @param maxElements 1つの {@code IN} 句の要素数の上限
+     * @return 要素数の上限を指定した設定
+     * @throws IllegalArgumentException 要素数の上限が1未満の場合にスローされます。
+     */
+    public InListPadding withMaxElements(final int maxElements) {
+        if(maxElements < 1) {
+            throw new IllegalArgumentException("maxElements should be greater than 0.");
+        }
+        return new InListPadding(ladder, maxElements);
+    }
+
+    /**
+     * 切り上げた要素数を取得します。
+     *
+     * @param size 実際の要素数
+     * @return 切り上げた要素数。実際の要素数が {@literal 0} の場合は {@literal 0} です。
+     */
+    public int getPaddedSize(final int size) {
+
+        if(size <= 0) {
+            return size;
+        }
+
+        if(maxElements > 0 && size > maxElements) {
+            // 分割のみの場合は、最後のIN句の要素数が上限に満たないままにする。
+            // 切り上げる場合は、分割数のみが変わるように上限の倍数にする。
+            return isSplitOnly() ? size : roundUp(size, maxElements);
+        }
+
+        final int padded;
+        if(ladder == null) {
+            padded = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        } else if(isSplitOnly()) {
+            padded = size;
+        } else {
+            padded = findStep(size);
+        }
+
+        return maxElements > 0 ? Math.min(padded, maxElements) : padded;
+    }
+
+    /**
+     * 要素数を切り上げずに、分割のみを行う設定かどうか。
+     * @return 分割のみを行う場合は {@literal true} を返します。
+     */
+    private boolean isSplitOnly() {
+        return ladder != null && ladder.length == 0;
+    }
+
+    /**
+     * 要素数以上となる最小の段階を探します。
+     * @param size 実際の要素数
+     * @return 段階の個数
+     */
+    private int findStep(final int size) {
+        for(int step : ladder) {
+            if(step >= size) {
+                return step;
+            }
+        }
+        return roundUp(size, ladder[ladder.length - 1]);
+    }
+
+    /**
+     * 倍数に切り上げます。
+     */
+    private static int roundUp(final int value, final int unit) {
+        final long rounded = ((long) value + unit - 1) / unit * unit;
+        return (int) Math.min(rounded, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("ladder", ladder == null ? "powersOfTwo" : Arrays.toString(ladder))
+                .append("maxElements", maxElements)
+                .toString();
+    }
+}
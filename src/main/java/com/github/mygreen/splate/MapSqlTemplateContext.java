@@ -17,7 +17,7 @@ import lombok.Setter;
  * SQLテンプレート中では、マップのキー名で参照できます。
  *
  *
- * @version 0.3
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
@@ -36,6 +36,18 @@ public class MapSqlTemplateContext extends SqlTemplateContext<StandardEvaluation
     @Getter
     private boolean ignoreNotFoundProperty;
 
+    /**
+     * EL式のプロパティアクセッサーを、SQLテンプレートの評価をまたがって共有するかどうか。
+     * <p>{@literal true} の場合、プロパティのアクセス方法のキャッシュが評価ごとに破棄されなくなります。</p>
+     *
+     * @since 0.4
+     * @param sharedPropertyAccessor EL式のプロパティアクセッサーを共有するかどうか設定します。
+     * @return EL式のプロパティアクセッサーを共有するかどうか返します。
+     */
+    @Setter
+    @Getter
+    private boolean sharedPropertyAccessor;
+
     /**
      * コンストラクタ。
      */
@@ -77,9 +89,15 @@ public class MapSqlTemplateContext extends SqlTemplateContext<StandardEvaluation
     @Override
     public StandardEvaluationContext createEvaluationContext() {
         StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
-        evaluationContext.setPropertyAccessors(List.of(
-                new CustomMapAccessor(ignoreNotFoundProperty)
-                ,new CustomReflectivePropertyAccessor(ignoreNotFoundProperty)));
+        if(sharedPropertyAccessor) {
+            evaluationContext.setPropertyAccessors(List.of(
+                    CustomMapAccessor.getSharedInstance(ignoreNotFoundProperty)
+                    ,CustomReflectivePropertyAccessor.getSharedInstance(ignoreNotFoundProperty)));
+        } else {
+            evaluationContext.setPropertyAccessors(List.of(
+                    new CustomMapAccessor(ignoreNotFoundProperty)
+                    ,new CustomReflectivePropertyAccessor(ignoreNotFoundProperty)));
+        }
         evaluationContext.setRootObject(values);
         return evaluationContext;
     }
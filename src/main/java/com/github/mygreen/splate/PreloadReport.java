@@ -0,0 +1,133 @@
+package com.github.mygreen.splate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.lang.Nullable;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * {@link SqlTemplateEngine#preload(String)} で、SQLテンプレートを事前に読み込んだ結果です。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class PreloadReport {
+
+    /**
+     * 読み込み対象のリソースパスのパターン
+     */
+    @Getter
+    private final String locationPattern;
+
+    /**
+     * 全体の処理時間
+     */
+    @Getter
+    private final Duration elapsedTime;
+
+    /**
+     * SQLテンプレートごとの読み込み結果
+     */
+    @Getter
+    private final List<Entry> entries;
+
+    /**
+     * インスタンスを作成します。
+     *
+     * @param locationPattern 読み込み対象のリソースパスのパターン
+     * @param elapsedTime 全体の処理時間
+     * @param entries SQLテンプレートごとの読み込み結果
+     */
+    public PreloadReport(final String locationPattern, final Duration elapsedTime, final List<Entry> entries) {
+        this.locationPattern = locationPattern;
+        this.elapsedTime = elapsedTime;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 読み込みに成功したSQLテンプレートの件数を取得します。
+     * @return 読み込みに成功した件数。
+     */
+    public int getSuccessCount() {
+        return (int) entries.stream().filter(Entry::isSuccess).count();
+    }
+
+    /**
+     * 読み込みに失敗したSQLテンプレートの結果を取得します。
+     * @return 読み込みに失敗した結果。
+     */
+    public List<Entry> getFailures() {
+        return entries.stream()
+                .filter(entry -> !entry.isSuccess())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 読み込みに失敗したSQLテンプレートがあるかどうか。
+     * @return 失敗したSQLテンプレートがある場合は {@literal true} を返します。
+     */
+    public boolean hasFailures() {
+        return entries.stream().anyMatch(entry -> !entry.isSuccess());
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("locationPattern", locationPattern)
+                .append("elapsedTime", elapsedTime)
+                .append("templateCount", entries.size())
+                .append("failureCount", entries.size() - getSuccessCount())
+                .toString();
+    }
+
+    /**
+     * SQLテンプレートごとの読み込み結果です。
+     */
+    @RequiredArgsConstructor
+    public static class Entry {
+
+        /**
+         * SQLテンプレートのリソースパス。
+         * <p>キャッシュする場合は、このリソースパスで {@link SqlTemplateEngine#getTemplate(String)} を呼び出すと、キャッシュから取得します。</p>
+         */
+        @Getter
+        private final String location;
+
+        /**
+         * 読み込みとパースにかかった時間
+         */
+        @Getter
+        private final Duration elapsedTime;
+
+        /**
+         * 読み込みやパースに失敗したときのエラー。
+         */
+        @Getter
+        @Nullable
+        private final Throwable error;
+
+        /**
+         * 読み込みに成功したかどうか。
+         * @return 成功した場合は {@literal true} を返します。
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringCreator(this)
+                    .append("location", location)
+                    .append("elapsedTime", elapsedTime)
+                    .append("error", error)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.github.mygreen.splate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.style.ToStringCreator;
+
+import com.github.mygreen.splate.node.NodeProcessContext;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * SQLテンプレートを評価するときの、組み立てるSQLのバッファとバインドパラメータのリストの初期容量です。
+ * <p>パース時にSQLの固定部分の長さから見積もった値と、直近の評価結果から求めた値のうち、大きい方を初期容量にします。
+ *  同じテンプレートを繰り返し評価すると、評価中のバッファの拡張が発生しなくなります。
+ * </p>
+ * <p>直近の評価結果から求める値は、前回までの値より大きい結果の場合はその値に切り上げ、
+ *  小さい結果の場合は差分の {@literal 1/8} ずつ結果に近づけます。
+ *  1回だけ極端に大きな結果になった場合（大量の要素を {@code IN} 句に渡した場合など）でも、
+ *  以降の評価結果が小さければ初期容量も小さくなります。また、初期容量には上限を設けています。
+ * </p>
+ * <p>{@link #setMetricsEnabled(boolean)} で有効にした場合は、評価回数とバッファの拡張回数を、
+ *  デフォルトの初期容量で評価した場合の回数と合わせて集計します。拡張回数は、各バッファの拡張方式から計算した見積もりです。
+ *  集計は評価のたびに処理が増えるため、デフォルトでは無効です。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class ProcessCapacityHint {
+
+    /**
+     * SQLのバッファの初期容量の上限
+     */
+    static final int MAX_SQL_CAPACITY = 8 * 1024;
+
+    /**
+     * バインドパラメータのリストの初期容量の上限
+     */
+    static final int MAX_BIND_PARAM_CAPACITY = 256;
+
+    /**
+     * 直近の評価結果より小さい結果のときに、差分を縮める割合（右シフトする桁数）。
+     * {@literal 3} の場合は、差分の {@literal 1/8} ずつ近づけます。
+     */
+    private static final int DECAY_SHIFT = 3;
+
+    /**
+     * パース時に見積もったSQLの長さ
+     */
+    @Getter
+    private final int estimatedSqlLength;
+
+    /**
+     * パース時に見積もったバインドパラメータの個数
+     */
+    @Getter
+    private final int estimatedBindParamCount;
+
+    /**
+     * 直近の評価結果から求めたSQLの長さ
+     */
+    private final AtomicInteger recentSqlLength = new AtomicInteger();
+
+    /**
+     * 直近の評価結果から求めたバインドパラメータの個数
+     */
+    private final AtomicInteger recentBindParamCount = new AtomicInteger();
+
+    /**
+     * 評価回数とバッファの拡張回数を集計するかどうか。
+     * デフォルト値は、{@literal false} で集計しません。
+     */
+    @Getter
+    @Setter
+    private volatile boolean metricsEnabled = false;
+
+    /**
+     * 評価した回数
+     */
+    private final LongAdder processCount = new LongAdder();
+
+    /**
+     * SQLのバッファの拡張回数
+     */
+    private final LongAdder sqlResizeCount = new LongAdder();
+
+    /**
+     * バインドパラメータのリストの拡張回数
+     */
+    private final LongAdder bindParamResizeCount = new LongAdder();
+
+    /**
+     * デフォルトの初期容量で評価した場合の、SQLのバッファの拡張回数
+     */
+    private final LongAdder defaultSqlResizeCount = new LongAdder();
+
+    /**
+     * デフォルトの初期容量で評価した場合の、バインドパラメータのリストの拡張回数
+     */
+    private final LongAdder defaultBindParamResizeCount = new LongAdder();
+
+    /**
+     * パース時の見積もりを指定してインスタンスを作成します。
+     *
+     * @param estimatedSqlLength パース時に見積もったSQLの長さ
+     * @param estimatedBindParamCount パース時に見積もったバインドパラメータの個数
+     */
+    ProcessCapacityHint(final int estimatedSqlLength, final int estimatedBindParamCount) {
+        this.estimatedSqlLength = estimatedSqlLength;
+        this.estimatedBindParamCount = estimatedBindParamCount;
+    }
+
+    /**
+     * 組み立てるSQLのバッファの初期容量を取得します。
+     *
+     * @return 初期容量
+     */
+    public int getSqlCapacity() {
+        final int capacity = Math.max(estimatedSqlLength, recentSqlLength.get());
+        return capacity > 0 ? Math.min(capacity, MAX_SQL_CAPACITY) : NodeProcessContext.DEFAULT_SQL_CAPACITY;
+    }
+
+    /**
+     * バインドパラメータのリストの初期容量を取得します。
+     *
+     * @return 初期容量
+     */
+    public int getBindParamCapacity() {
+        final int capacity = Math.max(estimatedBindParamCount, recentBindParamCount.get());
+        return Math.min(capacity, MAX_BIND_PARAM_CAPACITY);
+    }
+
+    /**
+     * 評価結果を記録し、次回以降の初期容量に反映します。
+     * <p>集計が有効な場合は、評価回数とバッファの拡張回数も集計します。</p>
+     *
+     * @param processContext 評価が完了したコンテキスト
+     * @param sqlCapacity 評価開始時のSQLのバッファの初期容量
+     * @param bindParamCapacity 評価開始時のバインドパラメータのリストの初期容量
+     */
+    public void record(final NodeProcessContext processContext, final int sqlCapacity, final int bindParamCapacity) {
+
+        final int sqlLength = processContext.getProcessedSqlLength();
+        final int bindParamCount = processContext.getBindParams().size();
+
+        updateRecent(recentSqlLength, sqlLength);
+        updateRecent(recentBindParamCount, bindParamCount);
+
+        if(!metricsEnabled) {
+            return;
+        }
+
+        processCount.increment();
+        addIfPositive(sqlResizeCount, countSqlResizes(sqlCapacity, sqlLength));
+        addIfPositive(bindParamResizeCount, countBindParamResizes(bindParamCapacity, bindParamCount));
+        addIfPositive(defaultSqlResizeCount, countSqlResizes(NodeProcessContext.DEFAULT_SQL_CAPACITY, sqlLength));
+        addIfPositive(defaultBindParamResizeCount, countBindParamResizes(NodeProcessContext.DEFAULT_BIND_PARAM_CAPACITY, bindParamCount));
+
+    }
+
+    /**
+     * 直近の評価結果から求める値を更新します。
+     * <p>結果が大きい場合はその値に切り上げ、小さい場合は差分の一部だけ近づけます。
+     *  競合を避けるため、値が変わる場合のみ書き込みます。
+     * </p>
+     * @param recent 更新対象の値
+     * @param value 評価結果
+     */
+    static void updateRecent(final AtomicInteger recent, final int value) {
+        while(true) {
+            final int current = recent.get();
+            final int next = value >= current ? value : current - ((current - value) >> DECAY_SHIFT);
+            if(next == current || recent.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 拡張が発生した場合のみ加算します。
+     */
+    private static void addIfPositive(final LongAdder adder, final int value) {
+        if(value > 0) {
+            adder.add(value);
+        }
+    }
+
+    /**
+     * {@link StringBuilder} の拡張回数を計算します。容量が足りない場合は、{@code 容量 * 2 + 2} に拡張されます。
+     *
+     * @param capacity 初期容量
+     * @param length 最終的な長さ
+     * @return 拡張回数
+     */
+    static int countSqlResizes(final int capacity, final int length) {
+        int count = 0;
+        long current = capacity;
+        while(length > current) {
+            current = current * 2 + 2;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * {@link java.util.ArrayList} の拡張回数を計算します。容量が足りない場合は、1.5倍に拡張されます。
+     *
+     * @param capacity 初期容量
+     * @param size 最終的な要素数
+     * @return 拡張回数
+     */
+    static int countBindParamResizes(final int capacity, final int size) {
+        int count = 0;
+        long current = capacity;
+        while(size > current) {
+            current = current + Math.max(current >> 1, 1);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 評価した回数を取得します。
+     * <p>集計が無効な間に評価した回数は含みません。</p>
+     * @return 評価した回数
+     */
+    public long getProcessCount() {
+        return processCount.sum();
+    }
+
+    /**
+     * 評価中に発生した、SQLのバッファの拡張回数の合計を取得します。
+     * @return 拡張回数の合計
+     */
+    public long getSqlResizeCount() {
+        return sqlResizeCount.sum();
+    }
+
+    /**
+     * 評価中に発生した、バインドパラメータのリストの拡張回数の合計を取得します。
+     * @return 拡張回数の合計
+     */
+    public long getBindParamResizeCount() {
+        return bindParamResizeCount.sum();
+    }
+
+    /**
+     * デフォルトの初期容量で評価した場合の、SQLのバッファの拡張回数の合計を取得します。
+     * <p>{@link #getSqlResizeCount()} と比較して、初期容量の調整の効果を確認するために使用します。</p>
+     * @return 拡張回数の合計
+     */
+    public long getDefaultSqlResizeCount() {
+        return defaultSqlResizeCount.sum();
+    }
+
+    /**
+     * デフォルトの初期容量で評価した場合の、バインドパラメータのリストの拡張回数の合計を取得します。
+     * <p>{@link #getBindParamResizeCount()} と比較して、初期容量の調整の効果を確認するために使用します。</p>
+     * @return 拡張回数の合計
+     */
+    public long getDefaultBindParamResizeCount() {
+        return defaultBindParamResizeCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("sqlCapacity", getSqlCapacity())
+                .append("bindParamCapacity", getBindParamCapacity())
+                .append("processCount", getProcessCount())
+                .append("sqlResizeCount", getSqlResizeCount())
+                .append("defaultSqlResizeCount", getDefaultSqlResizeCount())
+                .append("bindParamResizeCount", getBindParamResizeCount())
+                .append("defaultBindParamResizeCount", getDefaultBindParamResizeCount())
+                .toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.mygreen.splate;
+
+import com.github.mygreen.splate.node.InstructionProgram;
+import com.github.mygreen.splate.node.Node;
+
+/**
+ * SQLテンプレートを評価する方式です。
+ * <p>どの方式で評価しても、評価結果は同じです。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public enum ProcessMode {
+
+    /**
+     * パースしたノードのツリーを、{@link Node#accept(com.github.mygreen.splate.node.NodeProcessContext)} で再帰的に巡回して評価します。
+     */
+    NODE_TREE,
+
+    /**
+     * パースしたノードのツリーを命令の配列 {@link InstructionProgram} に変換しておき、1つのループで評価します。
+     * <p>ノードの巡回や、{@code BEGIN} コメントごとのコンテキストの作成が不要になります。</p>
+     */
+    INSTRUCTION
+    ;
+
+}
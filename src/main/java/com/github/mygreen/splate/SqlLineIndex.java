@@ -0,0 +1,156 @@
+package com.github.mygreen.splate;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * SQL中の行の開始位置の一覧です。
+ * <p>SQL中の位置から行、列の位置を、行の開始位置の二分探索で解決します。
+ *  行の開始位置の一覧は、初めて解決するときに1度だけ作成します。
+ * </p>
+ * <p>解決結果は {@link SqlUtils#resolveSqlPosition(String, int)} と同じです。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class SqlLineIndex {
+
+    /**
+     * 対象のSQL
+     */
+    @Getter
+    private final String sql;
+
+    /**
+     * 各行の開始位置と終了位置（改行文字の位置）。
+     * {@code [開始位置0, 終了位置0, 開始位置1, 終了位置1, ...]} の形式で保持します。
+     */
+    private volatile int[] lineOffsets;
+
+    /**
+     * SQLを指定してインスタンスを作成します。
+     * @param sql 対象のSQL
+     */
+    public SqlLineIndex(@NonNull final String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * SQL中の位置として行、列の位置を解決します。
+     * @param position 位置
+     * @return テンプレートの位置情報
+     * @throws StringIndexOutOfBoundsException 位置がSQLの範囲外のときにスローされます。
+     */
+    public Position resolve(final int position) {
+
+        if(position < 0 || position > sql.length()) {
+            throw new StringIndexOutOfBoundsException(position);
+        }
+
+        if(position > 0 && position < sql.length()
+                && sql.charAt(position - 1) == '\r' && sql.charAt(position) == '\n') {
+            // 改行コード(CRLF)の途中を指している場合は、CRのみを改行とみなす従来の解決方法に従う。
+            return SqlUtils.resolveSqlPosition(sql, position);
+        }
+
+        final int[] offsets = getLineOffsets();
+        final int lineIndex = findLineIndex(offsets, position);
+
+        final int lineStart = offsets[lineIndex * 2];
+        final int lineEnd = offsets[lineIndex * 2 + 1];
+
+        int col = position - lineStart;
+        if(lineStart > 0) {
+            col--;
+        }
+
+        return new Position(lineIndex + 1, col, sql.substring(lineStart, lineEnd));
+
+    }
+
+    /**
+     * 行数を取得します。
+     * @return 行数
+     */
+    public int getLineCount() {
+        return getLineOffsets().length / 2;
+    }
+
+    /**
+     * 位置を含む行のインデックスを二分探索で取得します。
+     * @param offsets 行の開始位置と終了位置
+     * @param position 位置
+     * @return 行のインデックス（0から始まる）
+     */
+    private static int findLineIndex(final int[] offsets, final int position) {
+
+        int low = 0;
+        int high = offsets.length / 2 - 1;
+        while(low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if(offsets[mid * 2] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 行の開始位置と終了位置を取得します。初回の呼び出し時に作成します。
+     * @return 行の開始位置と終了位置
+     */
+    private int[] getLineOffsets() {
+        int[] offsets = this.lineOffsets;
+        if(offsets == null) {
+            offsets = createLineOffsets(sql);
+            this.lineOffsets = offsets;
+        }
+        return offsets;
+    }
+
+    /**
+     * 行の開始位置と終了位置を作成します。
+     * <p>改行コードは、CRLF、CR、LFのいずれも1つの改行として扱います。</p>
+     * @param sql 対象のSQL
+     * @return 行の開始位置と終了位置
+     */
+    private static int[] createLineOffsets(final String sql) {
+
+        int[] offsets = new int[16];
+        int size = 0;
+        int lineStart = 0;
+
+        final int length = sql.length();
+        for(int i=0; i < length; i++) {
+            final char c = sql.charAt(i);
+            if(c != '\r' && c != '\n') {
+                continue;
+            }
+
+            if(size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size++] = lineStart;
+            offsets[size++] = i;
+
+            if(c == '\r' && i + 1 < length && sql.charAt(i + 1) == '\n') {
+                i++;
+            }
+            lineStart = i + 1;
+        }
+
+        if(size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, size + 2);
+        }
+        offsets[size++] = lineStart;
+        offsets[size++] = length;
+
+        return Arrays.copyOf(offsets, size);
+    }
+
+}
@@ -1,20 +1,42 @@
 package com.github.mygreen.splate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.expression.Expression;
+
+import com.github.mygreen.splate.expression.CompilableExpression;
+import com.github.mygreen.splate.expression.PropertyPathExpression;
+import com.github.mygreen.splate.node.BeginNode;
+import com.github.mygreen.splate.node.BindVariableNode;
+import com.github.mygreen.splate.node.ContainerNode;
+import com.github.mygreen.splate.node.ElseNode;
+import com.github.mygreen.splate.node.EmbeddedValueNode;
+import com.github.mygreen.splate.node.ExpressionNode;
+import com.github.mygreen.splate.node.IfNode;
+import com.github.mygreen.splate.node.InstructionProgram;
 import com.github.mygreen.splate.node.Node;
 import com.github.mygreen.splate.node.NodeProcessContext;
+import com.github.mygreen.splate.node.ParenBindVariableNode;
+import com.github.mygreen.splate.node.PrefixSqlNode;
+import com.github.mygreen.splate.node.SqlNode;
+import com.github.mygreen.splate.node.SqlShapeRecorder;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import lombok.NonNull;
 
 /**
  * パースしたSQLテンプレート情報を保持します。
  *
  *
- * @version 0.2
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
-@RequiredArgsConstructor
 public class SqlTemplate {
 
     /**
@@ -30,6 +52,125 @@ public class SqlTemplate {
     @Getter
     private final Node node;
 
+    /**
+     * パースされたSQLの行の開始位置の一覧。
+     * <p>評価時のエラーの位置情報を解決するために使用します。</p>
+     *
+     * @since 0.4
+     */
+    @Getter
+    private final SqlLineIndex sqlLineIndex;
+
+    /**
+     * SQLテンプレートを評価する方式。
+     *
+     * @since 0.4
+     */
+    @Getter
+    private final ProcessMode processMode;
+
+    /**
+     * SQLノードを変換した命令の配列。
+     * 評価する方式が {@link ProcessMode#INSTRUCTION} 以外のときは {@literal null} です。
+     */
+    private final InstructionProgram program;
+
+    /**
+     * 評価するときのバッファの初期容量。
+     *
+     * @since 0.4
+     */
+    @Getter
+    private final ProcessCapacityHint capacityHint;
+
+    /**
+     * キャッシュするSQLの形の個数の上限。{@literal 0} の場合はキャッシュしません。
+     *
+     * @since 0.4
+     */
+    @Getter
+    private final int shapeCacheSize;
+
+    /**
+     * SQLの形ごとの、組み立て済みのSQL。
+     * SQLの形をキャッシュしない場合や、独自のノードを含む場合は {@literal null} です。
+     */
+    private final Map<Object, String> shapeCache;
+
+    /**
+     * ライブラリが提供するノードのみで構成され、SQLの形から組み立てたSQLが決まるかどうか。
+     */
+    private final boolean shapeCacheable;
+
+    /**
+     * {@code IN} 句のバインド変数の要素数を切り上げる設定。{@literal null} の場合は切り上げません。
+     *
+     * @since 0.4
+     */
+    @Getter
+    private final InListPadding inListPadding;
+
+    /**
+     * パースしたSQLテンプレート情報を作成します。
+     *
+     * @param sql パースされたSQL
+     * @param node SQLノード
+     */
+    public SqlTemplate(final String sql, final Node node) {
+        this(sql, node, ProcessMode.NODE_TREE);
+    }
+
+    /**
+     * 評価する方式を指定して、パースしたSQLテンプレート情報を作成します。
+     *
+     * @since 0.4
+     * @param sql パースされたSQL
+     * @param node SQLノード
+     * @param processMode SQLテンプレートを評価する方式
+     */
+    public SqlTemplate(final String sql, final Node node, @NonNull final ProcessMode processMode) {
+        this(sql, node, processMode, 0);
+    }
+
+    /**
+     * 評価する方式と、キャッシュするSQLの形の個数の上限を指定して、パースしたSQLテンプレート情報を作成します。
+     *
+     * @since 0.4
+     * @param sql パースされたSQL
+     * @param node SQLノード
+     * @param processMode SQLテンプレートを評価する方式
+     * @param shapeCacheSize キャッシュするSQLの形の個数の上限。{@literal 0} の場合はキャッシュしません。
+     * @see SqlTemplateEngine#setShapeCacheSize(int)
+     */
+    public SqlTemplate(final String sql, final Node node, @NonNull final ProcessMode processMode, final int shapeCacheSize) {
+        this(sql, node, processMode, shapeCacheSize, null);
+    }
+
+    /**
+     * 評価時の設定を全て指定して、パースしたSQLテンプレート情報を作成します。
+     *
+     * @since 0.4
+     * @param sql パースされたSQL
+     * @param node SQLノード
+     * @param processMode SQLテンプレートを評価する方式
+     * @param shapeCacheSize キャッシュするSQLの形の個数の上限。{@literal 0} の場合はキャッシュしません。
+     * @param inListPadding {@code IN} 句のバインド変数の要素数を切り上げる設定。{@literal null} の場合は切り上げません。
+     * @see SqlTemplateEngine#setInListPadding(InListPadding)
+     */
+    public SqlTemplate(final String sql, final Node node, @NonNull final ProcessMode processMode, final int shapeCacheSize,
+            final InListPadding inListPadding) {
+        this.sql = sql;
+        this.node = node;
+        this.sqlLineIndex = new SqlLineIndex(sql);
+        this.processMode = processMode;
+        this.program = processMode == ProcessMode.INSTRUCTION ? InstructionProgram.compile(node) : null;
+        this.capacityHint = estimateCapacity(node);
+        this.shapeCacheSize = shapeCacheSize;
+        this.shapeCacheable = isShapeCacheable(node);
+        this.shapeCache = shapeCacheSize > 0 && shapeCacheable ? new ConcurrentHashMap<>() : null;
+        this.inListPadding = inListPadding;
+    }
+
     /**
      * SQLテンプレートを評価します。
      *
@@ -38,12 +179,393 @@ public class SqlTemplate {
      */
     public ProcessResult process(final SqlTemplateContext<?> templateContext) {
 
-        final NodeProcessContext processContext = new NodeProcessContext(templateContext);
+        if(shapeCache != null) {
+            return processWithShapeCache(templateContext);
+        }
+
+        final int sqlCapacity = capacityHint.getSqlCapacity();
+        final int bindParamCapacity = capacityHint.getBindParamCapacity();
+
+        final NodeProcessContext processContext = new NodeProcessContext(templateContext, sqlCapacity, bindParamCapacity);
         processContext.setParsedSql(sql);
+        processContext.setSqlLineIndex(sqlLineIndex);
+        processContext.setInListPadding(inListPadding);
 
         // SQLテンプレートを評価します。
-        node.accept(processContext);
+        if(program != null) {
+            program.execute(processContext);
+        } else {
+            node.accept(processContext);
+        }
+
+        capacityHint.record(processContext, sqlCapacity, bindParamCapacity);
 
         return new ProcessResult(processContext.getProcessedSql(), processContext.getBindParams());
     }
+
+    /**
+     * 複数のコンテキストで、SQLテンプレートをまとめて評価します。
+     * <p>評価結果は、組み立てたSQLが同じものごとにグループにまとめ、バインドパラメータは列ごとの配列で保持します。
+     *  バッチ更新で、グループごとに {@link java.sql.PreparedStatement#addBatch()} を呼び出すために使用します。
+     * </p>
+     * <p>各行はSQLを組み立てずに、バインドパラメータとSQLの形のみを評価し、SQLの形ごとにグループにまとめます。
+     *  SQLは、初めての形の行でのみ組み立てます。
+     *  ただし、独自に定義したノードを含む場合は、SQLの形からSQLが決まらないため、行ごとにSQLを組み立てます。
+     * </p>
+     *
+     * @since 0.4
+     * @param templateContexts SQLテンプレートに渡すコンテキストの一覧。
+     * @return SQLごとにまとめた評価結果。グループは、最初に出現した順に並びます。
+     */
+    public BatchProcessResult processBatch(@NonNull final Iterable<? extends SqlTemplateContext<?>> templateContexts) {
+
+        final List<BatchProcessResult.GroupBuilder> groups = new ArrayList<>();
+        final Map<Object, BatchProcessResult.GroupBuilder> shapeGroups = new HashMap<>();
+        final Map<String, BatchProcessResult.GroupBuilder> sqlGroups = new HashMap<>();
+
+        int rowIndex = 0;
+        for(SqlTemplateContext<?> templateContext : templateContexts) {
+            if(!shapeCacheable) {
+                final ProcessResult result = process(templateContext);
+                findGroup(sqlGroups, groups, result.getSql(), result.getParameters().size())
+                    .add(rowIndex++, result.getParameters());
+                continue;
+            }
+
+            final NodeProcessContext shapeContext = createShapeContext(templateContext);
+            evaluate(shapeContext);
+
+            final Object key = shapeContext.getShapeRecorder().createKey();
+            BatchProcessResult.GroupBuilder group = shapeGroups.get(key);
+            if(group == null) {
+                final String cachedSql = shapeCache != null ? shapeCache.get(key) : null;
+                if(cachedSql != null) {
+                    group = findGroup(sqlGroups, groups, cachedSql, shapeContext.getBindParams().size());
+                    shapeGroups.put(key, group);
+                }
+            }
+
+            if(group != null) {
+                group.add(rowIndex++, shapeContext.getBindParams());
+                continue;
+            }
+
+            // 初めての形の場合のみ、SQLを組み立てる。形が異なっても、SQLが同じ場合は同じグループにする。
+            // 組み立てたSQLと一致させるために、バインドパラメータも組み立てたときの評価結果を使用する。
+            final NodeProcessContext buildContext = evaluateWithShape(templateContext);
+            group = findGroup(sqlGroups, groups, putShapeCache(key, buildContext), buildContext.getBindParams().size());
+            shapeGroups.put(buildContext.getShapeRecorder().createKey(), group);
+            group.add(rowIndex++, buildContext.getBindParams());
+        }
+
+        final List<BatchProcessResult.Group> builtGroups = new ArrayList<>(groups.size());
+        for(BatchProcessResult.GroupBuilder group : groups) {
+            builtGroups.add(group.build());
+        }
+        return new BatchProcessResult(rowIndex, builtGroups);
+    }
+
+    /**
+     * SQLに対応するグループを取得します。存在しない場合は作成します。
+     *
+     * @param sqlGroups SQLごとのグループ
+     * @param groups 作成した順のグループ
+     * @param processedSql 組み立てたSQL
+     * @param columnCount バインドパラメータの個数
+     * @return SQLに対応するグループ
+     */
+    private static BatchProcessResult.GroupBuilder findGroup(final Map<String, BatchProcessResult.GroupBuilder> sqlGroups,
+            final List<BatchProcessResult.GroupBuilder> groups, final String processedSql, final int columnCount) {
+
+        BatchProcessResult.GroupBuilder group = sqlGroups.get(processedSql);
+        if(group == null) {
+            group = new BatchProcessResult.GroupBuilder(processedSql, columnCount);
+            sqlGroups.put(processedSql, group);
+            groups.add(group);
+        }
+        return group;
+    }
+
+    /**
+     * SQLを組み立てながら、SQLの形も記録して評価します。
+     *
+     * @param templateContext SQLテンプレートに渡すコンテキスト。
+     * @return 評価したコンテキスト
+     */
+    private NodeProcessContext evaluateWithShape(final SqlTemplateContext<?> templateContext) {
+
+        final int sqlCapacity = capacityHint.getSqlCapacity();
+        final int bindParamCapacity = capacityHint.getBindParamCapacity();
+
+        final NodeProcessContext processContext = new NodeProcessContext(templateContext, sqlCapacity, bindParamCapacity);
+        processContext.setParsedSql(sql);
+        processContext.setSqlLineIndex(sqlLineIndex);
+        processContext.setInListPadding(inListPadding);
+        processContext.setShapeRecorder(new SqlShapeRecorder());
+        evaluate(processContext);
+
+        capacityHint.record(processContext, sqlCapacity, bindParamCapacity);
+
+        return processContext;
+    }
+
+    /**
+     * 組み立てたSQLを、評価したときのSQLの形でキャッシュに追加します。
+     * <p>同じ形のSQLがキャッシュにある場合は、キャッシュしたSQLの文字列のインスタンスを返します。
+     *  キャッシュが上限に達している場合は追加しません。
+     * </p>
+     * <p>評価するたびに値が変わる式などで、先に集めたSQLの形と組み立てたときの形が異なる場合は、
+     *  どちらの形に対応するSQLか決まらないため、キャッシュを参照も追加もせずに組み立てたSQLを返します。
+     * </p>
+     *
+     * @param expectedKey 先に集めたSQLの形を表すキー。先に集めていない場合は {@literal null} を指定します。
+     * @param buildContext {@link #evaluateWithShape(SqlTemplateContext)} で評価したコンテキスト
+     * @return 組み立てたSQL
+     */
+    private String putShapeCache(final Object expectedKey, final NodeProcessContext buildContext) {
+
+        final String processedSql = buildContext.getProcessedSql();
+        if(shapeCache == null) {
+            return processedSql;
+        }
+
+        final Object key = buildContext.getShapeRecorder().createKey();
+        if(expectedKey != null && !expectedKey.equals(key)) {
+            return processedSql;
+        }
+
+        final String cachedSql = shapeCache.get(key);
+        if(cachedSql != null) {
+            return cachedSql;
+        }
+
+        if(shapeCache.size() < shapeCacheSize) {
+            final String existing = shapeCache.putIfAbsent(key, processedSql);
+            if(existing != null) {
+                return existing;
+            }
+        }
+        return processedSql;
+    }
+
+    /**
+     * SQLを組み立てずに、バインドパラメータとSQLの形のみを集めるコンテキストを作成します。
+     *
+     * @param templateContext SQLテンプレートに渡すコンテキスト。
+     * @return 評価用のコンテキスト
+     */
+    private NodeProcessContext createShapeContext(final SqlTemplateContext<?> templateContext) {
+        final NodeProcessContext shapeContext = new NodeProcessContext(templateContext, 0, capacityHint.getBindParamCapacity());
+        shapeContext.setParsedSql(sql);
+        shapeContext.setSqlLineIndex(sqlLineIndex);
+        shapeContext.setInListPadding(inListPadding);
+        shapeContext.setShapeRecorder(new SqlShapeRecorder());
+        shapeContext.setSqlSkipped(true);
+        return shapeContext;
+    }
+
+    /**
+     * SQLの形のキャッシュを使用して、SQLテンプレートを評価します。
+     * <p>最初にSQLを組み立てずにバインドパラメータとSQLの形のみを集め、
+     *  同じ形のSQLがキャッシュにある場合は、そのSQLの文字列のインスタンスを再利用します。
+     *  キャッシュにない場合は、SQLを組み立てて評価し直し、組み立てたときの評価結果を返します。
+     * </p>
+     * <p>キャッシュが上限に達した後は、形のみを集める評価を省略し、1回の評価でSQLを組み立てます。
+     *  キャッシュした形と同じ場合は、キャッシュしたSQLの文字列のインスタンスを返します。
+     * </p>
+     *
+     * @param templateContext SQLテンプレートに渡すコンテキスト。
+     * @return SQLテンプレートを評価した結果。
+     */
+    private ProcessResult processWithShapeCache(final SqlTemplateContext<?> templateContext) {
+
+        if(shapeCache.size() >= shapeCacheSize) {
+            final NodeProcessContext buildContext = evaluateWithShape(templateContext);
+            return new ProcessResult(putShapeCache(null, buildContext), buildContext.getBindParams());
+        }
+
+        final NodeProcessContext shapeContext = createShapeContext(templateContext);
+        evaluate(shapeContext);
+
+        final Object key = shapeContext.getShapeRecorder().createKey();
+        final String cachedSql = shapeCache.get(key);
+        if(cachedSql != null) {
+            return new ProcessResult(cachedSql, shapeContext.getBindParams());
+        }
+
+        // 初めての形の場合は、SQLを組み立てて評価し直す。
+        final NodeProcessContext buildContext = evaluateWithShape(templateContext);
+        return new ProcessResult(putShapeCache(key, buildContext), buildContext.getBindParams());
+    }
+
+    /**
+     * ノードを評価します。
+     * @param processContext 評価用のコンテキスト
+     */
+    private void evaluate(final NodeProcessContext processContext) {
+        if(program != null) {
+            program.execute(processContext);
+        } else {
+            node.accept(processContext);
+        }
+    }
+
+    /**
+     * キャッシュしているSQLの形の個数を取得します。
+     *
+     * @since 0.4
+     * @return SQLの形の個数。キャッシュしない場合は {@literal 0} です。
+     */
+    public int getCachedShapeCount() {
+        return shapeCache == null ? 0 : shapeCache.size();
+    }
+
+    /**
+     * SQLテンプレートを評価し、組み立てたSQLとバインドパラメータを直接出力します。
+     * <p>{@link #process(SqlTemplateContext)} と異なり、SQL全体の文字列を作成せずに、評価した部分から順に出力先に書き込みます。
+     *  {@code BEGIN} コメントの範囲は、出力するかどうか決まるまでバッファに蓄積します。
+     * </p>
+     * <p>評価中に例外がスローされた場合は、途中まで出力された状態になります。</p>
+     *
+     * @since 0.4
+     * @param templateContext SQLテンプレートに渡すコンテキスト。
+     * @param sqlSink 組み立てたSQLの出力先。
+     * @param bindParameterSink バインドパラメータの出力先。
+     * @throws TwoWaySqlException SQLの出力に失敗した場合にスローされます。
+     */
+    public void process(final SqlTemplateContext<?> templateContext, @NonNull final Appendable sqlSink,
+            @NonNull final BindParameterSink bindParameterSink) {
+
+        final NodeProcessContext processContext = new NodeProcessContext(templateContext, sqlSink, bindParameterSink);
+        processContext.setParsedSql(sql);
+        processContext.setSqlLineIndex(sqlLineIndex);
+        processContext.setInListPadding(inListPadding);
+
+        // SQLテンプレートを評価します。
+        if(program != null) {
+            program.execute(processContext);
+        } else {
+            node.accept(processContext);
+        }
+    }
+
+    /**
+     * SQLノードの個数を取得します。
+     * <p>{@code ELSE} コメントのノードも含めた、全てのノードの個数です。</p>
+     *
+     * @since 0.4
+     * @return SQLノードの個数。
+     */
+    public int getNodeCount() {
+        final int[] count = {0};
+        walkNodes(node, n -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * SQLノードのツリーが占有するヒープサイズの見積もりを取得します。
+     * <p>キャッシュしているテンプレートのメモリ使用量を確認するために使用します。</p>
+     *
+     * @since 0.4
+     * @return ヒープサイズの見積もり。
+     */
+    public SqlTemplateFootprint getFootprint() {
+        return SqlTemplateFootprint.of(node);
+    }
+
+    /**
+     * バイトコードへのコンパイルに成功したEL式を取得します。
+     * <p>{@link SqlTemplateEngine#setExpressionCompilerMode(org.springframework.expression.spel.SpelCompilerMode)} で、
+     *  コンパイルモードを有効にしている場合に、コンパイル済みの式が返されます。
+     * </p>
+     * <p>単純なプロパティパスの式（{@link PropertyPathExpression}）は、SpELで評価するときの式がコンパイル済みの場合に含みます。</p>
+     *
+     * @since 0.4
+     * @return コンパイル済みのEL式の文字列。
+     */
+    public List<String> getCompiledExpressions() {
+        final List<String> expressions = new ArrayList<>();
+        walkNodes(node, n -> {
+            if(!(n instanceof ExpressionNode)) {
+                return;
+            }
+
+            Expression parsedExpression = ((ExpressionNode) n).getParsedExpression();
+            if(parsedExpression instanceof PropertyPathExpression) {
+                parsedExpression = ((PropertyPathExpression) parsedExpression).getFallback();
+            }
+
+            if(parsedExpression instanceof CompilableExpression && ((CompilableExpression) parsedExpression).isCompiled()) {
+                expressions.add(((ExpressionNode) n).getExpression());
+            }
+        });
+        return expressions;
+    }
+
+    /**
+     * SQLノードから、評価結果のSQLの長さとバインドパラメータの個数を見積もります。
+     * <p>SQLの固定部分の長さと、バインド変数ごとのプレースホルダ({@literal ?})の合計です。
+     *  {@code IF} / {@code ELSE} コメントは、全ての分岐を合計します。
+     * </p>
+     * @param root ルートノード
+     * @return バッファの初期容量
+     */
+    private static ProcessCapacityHint estimateCapacity(final Node root) {
+        final int[] sqlLength = {0};
+        final int[] bindParamCount = {0};
+        walkNodes(root, n -> {
+            if(n instanceof SqlNode) {
+                sqlLength[0] += ((SqlNode) n).getSql().length();
+            } else if(n instanceof PrefixSqlNode) {
+                sqlLength[0] += ((PrefixSqlNode) n).getPrefix().length() + ((PrefixSqlNode) n).getSql().length();
+            } else if(n instanceof BindVariableNode) {
+                sqlLength[0] += 1;
+                bindParamCount[0]++;
+            } else if(n instanceof ParenBindVariableNode) {
+                final String operand = ((ParenBindVariableNode) n).getOperand();
+                sqlLength[0] += 3 + (operand == null ? 0 : operand.length());
+                bindParamCount[0]++;
+            }
+        });
+        return new ProcessCapacityHint(sqlLength[0], bindParamCount[0]);
+    }
+
+    /**
+     * SQLの形から、組み立てたSQLを再利用できるか判定します。
+     * <p>独自に定義したノードは、SQLの形として記録していない情報でSQLを組み立てる可能性があるため、
+     *  ライブラリが提供するノードのみで構成される場合に再利用します。
+     * </p>
+     * @param root ルートノード
+     * @return 再利用できる場合は {@literal true} を返します。
+     */
+    private static boolean isShapeCacheable(final Node root) {
+        final boolean[] cacheable = {true};
+        walkNodes(root, n -> {
+            final Class<?> type = n.getClass();
+            if(type != ContainerNode.class && type != SqlNode.class && type != PrefixSqlNode.class
+                    && type != BindVariableNode.class && type != ParenBindVariableNode.class
+                    && type != EmbeddedValueNode.class && type != IfNode.class && type != ElseNode.class
+                    && type != BeginNode.class) {
+                cacheable[0] = false;
+            }
+        });
+        return cacheable[0];
+    }
+
+    /**
+     * 子ノードを含めた全てのノードを巡回します。
+     * @param target 巡回対象のノード
+     * @param action 各ノードに対する処理
+     */
+    private static void walkNodes(final Node target, final Consumer<Node> action) {
+
+        action.accept(target);
+        for(int i=0; i < target.getChildSize(); i++) {
+            walkNodes(target.getChild(i), action);
+        }
+
+        if(target instanceof IfNode && ((IfNode) target).getElseNode() != null) {
+            walkNodes(((IfNode) target).getElseNode(), action);
+        }
+    }
 }
@@ -14,7 +14,7 @@ import lombok.NonNull;
 /**
  * SQLテンプレートを実行し評価する際に渡すパラメータなどを保持するコンテキスト。
  *
- * @version 0.3
+ * @version 0.4
  * @author T.TSUCHIE
  *
  * @param <C> EL式を評価するときのコンテキストのタイプ。
@@ -24,10 +24,13 @@ public abstract class SqlTemplateContext<C extends EvaluationContext> {
 
     /**
      * SQLテンプレートのパラメータの変換処理を管理する処理。
+     * <p>コンストラクタで変更できないインスタンスを渡した場合は、{@link #registerValueType(Class, SqlTemplateValueType)} などで
+     *  登録するまで、渡したインスタンスをそのまま返します。
+     * </p>
      * @return SQLテンプレートのパラメータの変換処理を管理する処理を返します。
      */
     @Getter
-    private final SqlTemplateValueTypeRegistry valueTypeRegistry;
+    private SqlTemplateValueTypeRegistry valueTypeRegistry;
 
     /**
      * {@link EvaluationContext}を編集する処理。
@@ -42,11 +45,14 @@ public abstract class SqlTemplateContext<C extends EvaluationContext> {
 
     /**
      * {@link SqlTemplateValueTypeRegistry} を指定してインスタンスを作成します。
+     * <p>{@link SqlTemplateValueTypeRegistry#freeze()} で作成した変更できないインスタンスの場合は、コピーせずに参照します。
+     *  それ以外の場合は、コピーして使用します。
+     * </p>
      *
      * @param valueTypeRegistry SQLテンプレートのパラメータの変換処理を管理する処理。
      */
     public SqlTemplateContext(@NonNull SqlTemplateValueTypeRegistry valueTypeRegistry) {
-        this.valueTypeRegistry = new SqlTemplateValueTypeRegistry(valueTypeRegistry);
+        this.valueTypeRegistry = valueTypeRegistry.isFrozen() ? valueTypeRegistry : new SqlTemplateValueTypeRegistry(valueTypeRegistry);
     }
 
     /**
@@ -56,7 +62,7 @@ public abstract class SqlTemplateContext<C extends EvaluationContext> {
      * @param valueType {@link SqlTemplateValueType}の実装
      */
     public <T> void registerValueType(@NonNull Class<T> type, @NonNull SqlTemplateValueType<T> valueType) {
-        valueTypeRegistry.register(type, valueType);
+        getWritableValueTypeRegistry().register(type, valueType);
     }
 
     /**
@@ -69,7 +75,19 @@ public abstract class SqlTemplateContext<C extends EvaluationContext> {
      * @param valueType {@link SqlTemplateValueType}の実装
      */
     public <T> void registerValueType(@NonNull String propertyPath, @NonNull Class<T> type, @NonNull SqlTemplateValueType<T> valueType) {
-        valueTypeRegistry.register(propertyPath, type, valueType);
+        getWritableValueTypeRegistry().register(propertyPath, type, valueType);
+    }
+
+    /**
+     * 登録可能な {@link SqlTemplateValueTypeRegistry} を取得します。
+     * <p>変更できないインスタンスを参照している場合は、上書きして登録するためのインスタンスに切り替えます。</p>
+     * @return 登録可能な {@link SqlTemplateValueTypeRegistry}
+     */
+    private SqlTemplateValueTypeRegistry getWritableValueTypeRegistry() {
+        if(valueTypeRegistry.isFrozen()) {
+            this.valueTypeRegistry = valueTypeRegistry.createOverlay();
+        }
+        return valueTypeRegistry;
     }
 
     /**
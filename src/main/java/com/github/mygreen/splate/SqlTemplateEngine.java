@@ -1,16 +1,38 @@
 package com.github.mygreen.splate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.expression.spel.SpelCompilerMode;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 
+import com.github.mygreen.splate.archive.ArchiveParseOptions;
+import com.github.mygreen.splate.archive.ArchivedTemplate;
+import com.github.mygreen.splate.archive.SqlTemplateArchive;
+import com.github.mygreen.splate.archive.SqlTemplateArchiveException;
+import com.github.mygreen.splate.cache.ConcurrentMapSqlTemplateCache;
+import com.github.mygreen.splate.cache.SqlTemplateCache;
 import com.github.mygreen.splate.node.Node;
 import com.github.mygreen.splate.parser.SqlParser;
+import com.github.mygreen.splate.parser.StringLiteralMode;
 
 import lombok.Getter;
 import lombok.NonNull;
@@ -18,11 +40,15 @@ import lombok.Setter;
 
 /**
  * SQLテンプレートを管理します。
+ * <p>{@link #setReloadInterval(Duration)} でファイルの更新を監視した場合は、使用後に {@link #close()} で監視を終了してください。
+ *  Springのコンテナに登録した場合は、コンテナの終了時に {@link #close()} が呼び出されます。
+ * </p>
  *
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
-public class SqlTemplateEngine {
+public class SqlTemplateEngine implements AutoCloseable {
 
     /**
      * SQLテンプレートファイルの文字コード名。
@@ -60,13 +86,141 @@ public class SqlTemplateEngine {
      * EL式のパーサ
      */
     @Getter
-    @Setter
     private SpelExpressionParser expressionParser = new SpelExpressionParser();
 
+    /**
+     * EL式のコンパイルモード。
+     * デフォルト値は、{@link SpelCompilerMode#OFF} で、コンパイルせずにインタプリタ方式で評価します。
+     *
+     * @since 0.4
+     */
+    @Getter
+    private SpelCompilerMode expressionCompilerMode = SpelCompilerMode.OFF;
+
+    /**
+     * 単純なプロパティパスの式を、SpELを介さずに評価するかどうか。
+     * <p>{@literal name} / {@literal dept.name} / {@literal list[0]} / {@literal name != null} のような式を
+     *  {@link com.github.mygreen.splate.expression.PropertyPathExpression} として評価します。
+     *  SpELと結果が異なる可能性がある場合は、SpELで評価します。
+     * </p>
+     * デフォルト値は、{@literal true} です。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private boolean simpleExpressionOptimized = true;
+
+    /**
+     * SQLテンプレートを評価する方式。
+     * <p>{@link ProcessMode#INSTRUCTION} を指定すると、パース時にノードのツリーを命令の配列に変換しておき、
+     *  評価時は1つのループで評価します。評価結果はどちらの方式でも同じです。
+     * </p>
+     * デフォルト値は、{@link ProcessMode#NODE_TREE} です。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private ProcessMode processMode = ProcessMode.NODE_TREE;
+
+    /**
+     * SQLテンプレートごとに、キャッシュするSQLの形の個数の上限。
+     * <p>{@literal 1} 以上を指定すると、{@code IF} コメントの評価結果や {@code IN} 句の要素数などから決まるSQLの形ごとに、
+     *  組み立てたSQLの文字列をキャッシュします。同じ形の場合はSQLを組み立てずにバインドパラメータのみを集め、
+     *  キャッシュした文字列のインスタンスを再利用します。
+     * </p>
+     * <p>初めての形の場合は、式を2回評価します。形の種類が上限に達したテンプレートは、以降は新しい形を追加せずに、
+     *  キャッシュした形のみを再利用します。
+     * </p>
+     * デフォルト値は、{@literal 0} でキャッシュしません。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private int shapeCacheSize = 0;
+
+    /**
+     * {@code IN} 句のバインド変数の要素数を切り上げる設定。
+     * <p>要素数を段階的な個数に切り上げて、JDBCドライバや DBのキャッシュに登録されるSQLの種類を抑えます。
+     *  また、要素数の上限を超える場合は {@code IN} 句を分割します。
+     * </p>
+     * <p>要素数の上限を指定する場合、{@code IN} 句を分割するための情報をパース時に作成するため、
+     *  SQLテンプレートをパースする前に設定する必要があります。
+     * </p>
+     * デフォルト値は、{@literal null} で切り上げません。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private InListPadding inListPadding;
+
+    /**
+     * SQLテンプレートをパースするときの、文字列リテラルの扱い。
+     * <p>文字列リテラルを区別すると、リテラル中の {@literal ?} や {@literal /*} を、バインド変数やコメントとみなしません。
+     *  引用符のエスケープの方式は、使用するデータベースに合わせて指定します。
+     * </p>
+     * デフォルト値は、{@link StringLiteralMode#IGNORED} で文字列リテラルを区別しません。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private StringLiteralMode stringLiteralMode = StringLiteralMode.IGNORED;
+
+    /**
+     * SQLテンプレートの評価回数とバッファの拡張回数を集計するかどうか。
+     * <p>集計結果は、{@link SqlTemplate#getCapacityHint()} で取得できます。
+     *  設定は、設定後に作成した {@link SqlTemplate} に反映されます。
+     * </p>
+     * デフォルト値は、{@literal false} で集計しません。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private boolean capacityMetricsEnabled = false;
+
     /**
      * パースしたSQLテンプレートのキャッシュ。
+     * デフォルト値は、件数の上限がない {@link ConcurrentMapSqlTemplateCache} のインスタンスです。
+     * <p>件数や重みの上限を設ける場合は、{@link com.github.mygreen.splate.cache.LruSqlTemplateCache} を設定します。</p>
+     *
+     * @since 0.4
      */
-    private final Map<Object, SqlTemplate> templateCache = new ConcurrentHashMap<>();
+    @Getter
+    @Setter
+    @NonNull
+    private SqlTemplateCache templateCache = new ConcurrentMapSqlTemplateCache();
+
+    /**
+     * {@link #preload(String)} で、SQLテンプレートを並列に読み込むときのスレッドプール。
+     * デフォルト値は、{@link ForkJoinPool#commonPool()} です。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private Executor preloadExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * キャッシュしたSQLテンプレートのファイルの更新を確認する間隔。
+     * デフォルト値は、{@literal null} で確認しません。
+     *
+     * @since 0.4
+     */
+    @Getter
+    private Duration reloadInterval;
+
+    /**
+     * ファイルの更新を監視する処理。
+     */
+    private volatile TemplateReloader reloader;
 
     /**
      * パースしたプレートをキャッシュするかどうか。
@@ -76,6 +230,19 @@ public class SqlTemplateEngine {
     @Setter
     private boolean cached;
 
+    /**
+     * ビルド時にパースしたSQLテンプレートのアーカイブのデフォルトのリソースパス。
+     *
+     * @since 0.4
+     */
+    public static final String DEFAULT_ARCHIVE_LOCATION = "classpath:/" + SqlTemplateArchive.DEFAULT_PATH;
+
+    /**
+     * アーカイブから読み込んだSQLテンプレート。キーはクラスパスのルートからの相対パスです。
+     * <p>評価方式などの設定は、取得するときの設定を反映するため、パース済みのノードのまま保持します。</p>
+     */
+    private final Map<String, ArchivedTemplate> archivedTemplates = new ConcurrentHashMap<>();
+
     /**
      * SQLファイルのリソースパスを指定して、SQLテンプレートを取得します。
      * <p>SQLファイルのリソースは、Springの {@link ResourceLoader} 経由で取得するため、
@@ -87,6 +254,10 @@ public class SqlTemplateEngine {
      *  <li>{@literal file:} - システムファイルから取得します。ex){@literal file:c:/sql/hoge.sql} </li>
      *  <li>{@literal http:} - URLからファイルを取得します。ex){@literal http://hoge.com/sql/hoge.sql} </li>
      * </ul>
+     * <p>{@link #loadArchive(String)} でアーカイブを読み込んでいる場合、クラスパス上のSQLファイルは
+     *  ファイルを読み込まずにアーカイブ内のパース済みのSQLテンプレートを使用します。
+     *  ただし、{@link #setReloadInterval(Duration)} でファイルの更新を監視している間は、アーカイブを使用せずにファイルを読み込みます。
+     * </p>
      *
      * @param location SQLファイルのリソースパス。
      * @return パースしたSQLテンプレート
@@ -95,7 +266,7 @@ public class SqlTemplateEngine {
     public SqlTemplate getTemplate(@NonNull final String location) {
 
         if(cached) {
-            return templateCache.computeIfAbsent(location, k -> parseTemplateByLocation(location));
+            return templateCache.get(location, k -> parseTemplateByLocation(location));
         } else {
             return parseTemplateByLocation(location);
         }
@@ -103,10 +274,322 @@ public class SqlTemplateEngine {
     }
 
     private SqlTemplate parseTemplateByLocation(final String location) {
+        final TemplateReloader currentReloader = this.reloader;
+        if(cached && currentReloader != null) {
+            // 更新を監視している間は、編集したファイルを反映するため、アーカイブは使用しない。
+            // 更新を監視するため、読み込むリソースを先に決定する。
+            final Resource resource = templateLoader.resolveByLocation(location, resourceLoader, Optional.ofNullable(suffixName));
+            currentReloader.watch(location, location, resource, findPreferredResources(location, resource));
+            return parseTemplateByText(templateLoader.loadByResource(resource, encoding));
+        }
+
+        final ArchivedTemplate archived = findArchivedTemplate(location);
+        if(archived != null) {
+            return createSqlTemplate(archived.getSql(), archived.getNode());
+        }
+
         final String sqlText = templateLoader.loadByLocation(location, resourceLoader, encoding, Optional.ofNullable(suffixName));
         return parseTemplateByText(sqlText);
     }
 
+    /**
+     * リソースパスのパターンに一致するSQLファイルを、並列に読み込んでパースします。
+     * <p>パターンは、Springの {@link ResourcePatternResolver} の形式で指定します。ex){@literal classpath*:sql/**}{@literal /*.sql}</p>
+     * <p>キャッシュが有効な場合、パースしたSQLテンプレートをキャッシュに登録します。
+     *  キャッシュのキーは、パターンのワイルドカードより前の部分に、一致したリソースの相対パスを連結したリソースパスです。
+     *  {@literal classpath*:} は {@literal classpath:} に置き換えます。
+     *  そのため、同じ形式のリソースパスで {@link #getTemplate(String)} を呼び出すと、キャッシュから取得します。
+     * </p>
+     * <p>キャッシュが無効な場合は、パースのみ行い、SQLテンプレートの構文を検証します。</p>
+     * <p>読み込みやパースに失敗しても例外はスローせず、結果のレポートに失敗として記録します。</p>
+     *
+     * @since 0.4
+     * @param locationPattern SQLファイルのリソースパスのパターン。
+     * @return 読み込んだ結果のレポート。
+     * @throws TwoWaySqlException パターンに一致するリソースの検索に失敗した場合にスローされます。
+     */
+    public PreloadReport preload(@NonNull final String locationPattern) {
+
+        final long start = System.nanoTime();
+        final ResourcePatternResolver resolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+
+        final Resource[] resources;
+        final List<String> rootUrls = new ArrayList<>();
+        final String rootLocation = getPreloadRootLocation(locationPattern);
+        try {
+            resources = resolver.getResources(locationPattern);
+            if(rootLocation != null) {
+                for(Resource root : resolver.getResources(rootLocation)) {
+                    rootUrls.add(root.getURL().toString());
+                }
+            }
+        } catch(IOException e) {
+            throw new TwoWaySqlException(String.format("Fail resolve resources : %s", locationPattern), e);
+        }
+
+        final List<CompletableFuture<PreloadReport.Entry>> futures = new ArrayList<>(resources.length);
+        for(Resource resource : resources) {
+            final String location = resolvePreloadLocation(locationPattern, rootLocation, rootUrls, resource);
+            futures.add(CompletableFuture.supplyAsync(() -> preloadTemplate(location, resource), preloadExecutor));
+        }
+
+        final List<PreloadReport.Entry> entries = futures.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+
+        return new PreloadReport(locationPattern, Duration.ofNanos(System.nanoTime() - start), entries);
+    }
+
+    /**
+     * パターンから、ワイルドカードを含まない親ディレクトリのリソースパスを取得します。
+     * @param locationPattern リソースパスのパターン。
+     * @return ワイルドカードを含まない場合は {@literal null} を返します。
+     */
+    private static String getPreloadRootLocation(final String locationPattern) {
+
+        final int prefixEnd = locationPattern.indexOf(':') + 1;
+        int wildcard = -1;
+        for(int i=prefixEnd; i < locationPattern.length(); i++) {
+            final char c = locationPattern.charAt(i);
+            if(c == '*' || c == '?' || c == '{') {
+                wildcard = i;
+                break;
+            }
+        }
+
+        if(wildcard < 0) {
+            return null;
+        }
+
+        final int rootEnd = Math.max(locationPattern.lastIndexOf('/', wildcard) + 1, prefixEnd);
+        return locationPattern.substring(0, rootEnd);
+    }
+
+    /**
+     * パターンに一致したリソースの、キャッシュのキーとなるリソースパスを決定します。
+     * @param locationPattern リソースパスのパターン。
+     * @param rootLocation ワイルドカードを含まない親ディレクトリのリソースパス。
+     * @param rootUrls 親ディレクトリのリソースのURL。
+     * @param resource パターンに一致したリソース。
+     * @return リソースパス。決定できない場合は {@literal null} を返します。
+     */
+    private static String resolvePreloadLocation(final String locationPattern, final String rootLocation,
+            final List<String> rootUrls, final Resource resource) {
+
+        final String location = rootLocation != null ? rootLocation : locationPattern;
+        final String normalized = location.startsWith(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX)
+                ? ResourceLoader.CLASSPATH_URL_PREFIX + location.substring(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX.length())
+                : location;
+
+        if(rootLocation == null) {
+            return normalized;
+        }
+
+        final String url;
+        try {
+            url = resource.getURL().toString();
+        } catch(IOException e) {
+            return null;
+        }
+
+        for(String rootUrl : rootUrls) {
+            final String base = rootUrl.endsWith("/") ? rootUrl : rootUrl + "/";
+            if(url.startsWith(base)) {
+                final String separator = normalized.isEmpty() || normalized.endsWith("/") || normalized.endsWith(":") ? "" : "/";
+                return normalized + separator + url.substring(base.length());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 1つのSQLテンプレートを読み込んで、キャッシュが有効な場合はキャッシュに登録します。
+     * @param location キャッシュのキーとなるリソースパス。{@literal null} の場合はリソースから直接読み込みます。
+     * @param resource SQLファイルのリソース。
+     * @return 読み込んだ結果
+     */
+    private PreloadReport.Entry preloadTemplate(final String location, final Resource resource) {
+
+        final long start = System.nanoTime();
+        final String key = location != null ? location : resource.getDescription();
+        try {
+            final SqlTemplate template = location != null ? parseTemplateByLocation(location) : parseTemplateByResource(resource);
+            if(cached) {
+                templateCache.put(key, template);
+            }
+            return new PreloadReport.Entry(key, Duration.ofNanos(System.nanoTime() - start), null);
+
+        } catch(RuntimeException e) {
+            return new PreloadReport.Entry(key, Duration.ofNanos(System.nanoTime() - start), e);
+        }
+
+    }
+
+    /**
+     * アーカイブから読み込んだSQLテンプレートを探します。
+     * <p>{@literal suffixName} が指定されている場合、接尾語付きのパスを優先します。</p>
+     * <p>アーカイブを読み込んだ後にパースに関する設定を変更した場合は、ノードのツリーが異なるため使用しません。</p>
+     * @param location SQLファイルのリソースパス。
+     * @return 該当するSQLテンプレートがない場合、またはパース時の設定が異なる場合は {@literal null} を返します。
+     */
+    private ArchivedTemplate findArchivedTemplate(final String location) {
+
+        if(archivedTemplates.isEmpty()) {
+            return null;
+        }
+
+        final String path = toArchivePath(location);
+        if(path == null) {
+            return null;
+        }
+
+        ArchivedTemplate archived = null;
+        if(suffixName != null) {
+            archived = archivedTemplates.get(templateLoader.convertPathWithSuffixed(path, suffixName));
+        }
+        if(archived == null) {
+            archived = archivedTemplates.get(path);
+        }
+
+        if(archived == null || !archived.getParseOptions().equals(createArchiveParseOptions())) {
+            return null;
+        }
+
+        return archived;
+    }
+
+    /**
+     * 現在の設定から、アーカイブのパース時の設定を作成します。
+     * @return アーカイブのパース時の設定
+     */
+    private ArchiveParseOptions createArchiveParseOptions() {
+        return new ArchiveParseOptions(inListPadding != null && inListPadding.getMaxElements() > 0, stringLiteralMode);
+    }
+
+    /**
+     * リソースパスを、アーカイブ内のパスに変換します。
+     * <p>接頭語がないリソースパスの解決方法は {@link ResourceLoader} の実装によって異なるため、
+     *  {@link #getResourceLoader()} で解決したリソースがクラスパス上のリソースの場合のみ変換します。
+     * </p>
+     * @param location SQLファイルのリソースパス。
+     * @return クラスパス以外のリソースパスの場合は {@literal null} を返します。
+     */
+    private String toArchivePath(final String location) {
+
+        final Resource resource = resourceLoader.getResource(location);
+        if(!(resource instanceof ClassPathResource)) {
+            // file: や http: などのリソース
+            return null;
+        }
+
+        return ((ClassPathResource) resource).getPath();
+    }
+
+    /**
+     * ビルド時にパースしたSQLテンプレートのアーカイブを読み込みます。
+     * <p>リソースパスは、{@link #getResourceLoader()} で解決します。
+     *  アーカイブが存在しない場合は何もしません。
+     * </p>
+     * <p>アーカイブ内のEL式は、このインスタンスの設定でパースします。
+     *  そのため、EL式に関する設定を変更した後に呼び出す必要があります。
+     *  評価方式などのその他の設定は、SQLテンプレートを取得するときの設定を反映します。
+     * </p>
+     * <p>{@link #setReloadInterval(Duration)} でファイルの更新を監視している間は、読み込んだアーカイブを使用しません。</p>
+     *
+     * @since 0.4
+     * @param location アーカイブのリソースパス。
+     * @return 読み込んだSQLテンプレートの件数。
+     * @throws SqlTemplateArchiveException アーカイブの読み込みに失敗した場合にスローされます。
+     */
+    public int loadArchive(@NonNull final String location) {
+        final Resource resource = resourceLoader.getResource(location);
+        if(!resource.exists()) {
+            return 0;
+        }
+        return loadArchive(resource);
+    }
+
+    /**
+     * ビルド時にパースしたSQLテンプレートのアーカイブを読み込みます。
+     * <p>アーカイブ内のEL式は、このインスタンスの設定でパースします。
+     *  そのため、EL式に関する設定を変更した後に呼び出す必要があります。
+     *  評価方式などのその他の設定は、SQLテンプレートを取得するときの設定を反映します。
+     * </p>
+     * <p>{@link #setReloadInterval(Duration)} でファイルの更新を監視している間は、読み込んだアーカイブを使用しません。</p>
+     * <p>アーカイブを作成したときの {@code IN} 句やリテラルに関するパースの設定が、このインスタンスの設定と異なる場合は例外をスローします。</p>
+     *
+     * @since 0.4
+     * @param resource アーカイブのリソース。
+     * @return 読み込んだSQLテンプレートの件数。
+     * @throws SqlTemplateArchiveException アーカイブの読み込みに失敗した場合にスローされます。
+     */
+    public int loadArchive(@NonNull final Resource resource) {
+
+        final List<ArchivedTemplate> templates;
+        if(resource.isFile()) {
+            // ファイルの場合は、メモリマップして読み込む。
+            try {
+                templates = SqlTemplateArchive.read(resource.getFile().toPath(), this::createSqlParser);
+            } catch(IOException e) {
+                throw new SqlTemplateArchiveException(String.format("Fail load archive : %s", resource.getDescription()), e);
+            }
+
+        } else {
+            try(InputStream in = resource.getInputStream()) {
+                templates = SqlTemplateArchive.read(in, this::createSqlParser);
+            } catch(IOException e) {
+                throw new SqlTemplateArchiveException(String.format("Fail load archive : %s", resource.getDescription()), e);
+            }
+        }
+
+        for(ArchivedTemplate template : templates) {
+            archivedTemplates.put(template.getPath(), template);
+        }
+
+        return templates.size();
+    }
+
+    /**
+     * SQLファイルのリソースパスを指定して、SQLテンプレートをパースし、アーカイブとして書き込みます。
+     * <p>アーカイブ内のパスは、{@link #getResourceLoader()} で解決したクラスパス上のリソースの、クラスパスのルートからの相対パスになります。
+     *  そのため、クラスパス上のリソースパスのみ指定できます。
+     * </p>
+     * <p>出力先のストリームは閉じません。</p>
+     *
+     * @since 0.4
+     * @param output 出力先
+     * @param locations SQLファイルのリソースパス。
+     * @throws TwoWaySqlException SQLファイルの読み込みやパースに失敗した場合にスローされます。
+     * @throws SqlTemplateArchiveException クラスパス以外のリソースパスを指定した場合、または書き込みに失敗した場合にスローされます。
+     */
+    public void writeArchive(@NonNull final OutputStream output, @NonNull final Collection<String> locations) {
+
+        final List<ArchivedTemplate> templates = new ArrayList<>(locations.size());
+        for(String location : locations) {
+            final String path = toArchivePath(location);
+            if(path == null) {
+                throw new SqlTemplateArchiveException(String.format("Not classpath resource : %s", location));
+            }
+
+            // 接尾語付きのファイルは、別のパスとして格納するため、指定されたパスのファイルをそのまま読み込む。
+            final String sqlText = templateLoader.loadByLocation(location, resourceLoader, encoding, Optional.empty());
+            final SqlParser parser = createSqlParser(sqlText);
+            templates.add(new ArchivedTemplate(path, parser.getSql(), parser.parse(), ArchiveParseOptions.of(parser)));
+        }
+
+        SqlTemplateArchive.write(output, templates);
+    }
+
+    /**
+     * アーカイブから読み込んだSQLテンプレートを破棄します。
+     *
+     * @since 0.4
+     */
+    public void clearArchive() {
+        this.archivedTemplates.clear();
+    }
+
     /**
      * SQLファイルのリソースを指定して、SQLテンプレートを取得します。
      *
@@ -117,7 +600,7 @@ public class SqlTemplateEngine {
     public SqlTemplate getTemplate(@NonNull final Resource resource) {
 
         if(cached) {
-            return templateCache.computeIfAbsent(resource.getDescription(), k -> parseTemplateByResource(resource));
+            return templateCache.get(resource.getDescription(), k -> parseTemplateByResource(resource));
         } else {
             return parseTemplateByResource(resource);
         }
@@ -125,12 +608,18 @@ public class SqlTemplateEngine {
     }
 
     private SqlTemplate parseTemplateByResource(final Resource resource) {
+        final TemplateReloader currentReloader = this.reloader;
+        if(cached && currentReloader != null) {
+            currentReloader.watch(resource.getDescription(), null, resource, List.of());
+        }
+
         final String sqlText = templateLoader.loadByResource(resource, encoding);
         return parseTemplateByText(sqlText);
     }
 
     /**
      * SQLを文字列として直接指定し、SQLテンプレートを取得します。
+     * <p>キャッシュのキーは、SQLの文字列から作成した {@link TextTemplateKey} です。</p>
      *
      * @param sql SQLの文字列
      * @return パースしたSQLテンプレート
@@ -139,8 +628,7 @@ public class SqlTemplateEngine {
     public SqlTemplate getTemplateByText(@NonNull final String sql) {
 
         if(cached) {
-            final String key = SqlUtils.getMessageDigest(sql);
-            return templateCache.computeIfAbsent(key, k ->  parseTemplateByText(sql));
+            return templateCache.get(TextTemplateKey.of(sql), k ->  parseTemplateByText(sql));
         } else {
             return parseTemplateByText(sql);
         }
@@ -155,7 +643,19 @@ public class SqlTemplateEngine {
     private SqlTemplate parseTemplateByText(final String sql) {
         SqlParser parser = createSqlParser(sql);
         Node node = parser.parse();
-        return new SqlTemplate(parser.getSql(), node);
+        return createSqlTemplate(parser.getSql(), node);
+    }
+
+    /**
+     * パース済みのノードから、現在の設定で {@link SqlTemplate} を作成します。
+     * @param sql パースしたSQL
+     * @param node パースしたノード
+     * @return SQLテンプレート
+     */
+    private SqlTemplate createSqlTemplate(final String sql, final Node node) {
+        final SqlTemplate template = new SqlTemplate(sql, node, processMode, shapeCacheSize, inListPadding);
+        template.getCapacityHint().setMetricsEnabled(capacityMetricsEnabled);
+        return template;
     }
 
     /**
@@ -164,14 +664,219 @@ public class SqlTemplateEngine {
      * @return {@link SqlParser} のインスタンス
      */
     protected SqlParser createSqlParser(final String sql) {
-        return new SqlParser(sql, expressionParser);
+        SqlParser parser = new SqlParser(sql, expressionParser);
+        parser.setExpressionCompilerMode(expressionCompilerMode);
+        parser.setSimpleExpressionOptimized(simpleExpressionOptimized);
+        final ArchiveParseOptions parseOptions = createArchiveParseOptions();
+        parser.setInOperandExtracted(parseOptions.isInOperandExtracted());
+        parser.setStringLiteralMode(parseOptions.getStringLiteralMode());
+        return parser;
+    }
+
+    /**
+     * EL式のコンパイルモードを設定します。
+     * <p>{@link SpelCompilerMode#OFF} 以外を指定すると、{@literal IF} コメントの条件式やバインド変数の式を
+     *  バイトコードにコンパイルして評価します。コンパイルできない式は、インタプリタ方式で評価します。
+     * </p>
+     * <p>コンパイルは、パースした式をラップする {@link com.github.mygreen.splate.expression.CompilableExpression} が行います。
+     *  SpEL自身がコンパイルしないように、EL式のパーサ {@link #setExpressionParser(SpelExpressionParser)} には、
+     *  コンパイルモードを設定しません。
+     * </p>
+     *
+     * @since 0.4
+     * @param expressionCompilerMode EL式のコンパイルモード。
+     */
+    public void setExpressionCompilerMode(@NonNull final SpelCompilerMode expressionCompilerMode) {
+        this.expressionCompilerMode = expressionCompilerMode;
+    }
+
+    /**
+     * EL式のパーサを設定します。
+     * <p>{@link #setExpressionCompilerMode(SpelCompilerMode)} で設定したコンパイルモードは引き継がれ、
+     *  パースした式は、そのコンパイルモードでコンパイルされます。
+     *  コンパイルは二重に行わないため、指定するパーサのコンパイルモードは {@link SpelCompilerMode#OFF} にします。
+     * </p>
+     *
+     * @param expressionParser EL式のパーサ
+     */
+    public void setExpressionParser(@NonNull final SpelExpressionParser expressionParser) {
+        this.expressionParser = expressionParser;
+    }
+
+    /**
+     * キャッシュしたSQLテンプレートのファイルの更新を確認する間隔を設定します。
+     * <p>キャッシュが有効な場合に、ファイルシステム上のSQLファイルの更新日時を指定した間隔で確認し、
+     *  更新されたSQLテンプレートのみをバックグラウンドでパースし直して、キャッシュを置き換えます。
+     *  パースに失敗した場合は、更新前のSQLテンプレートを使い続けます。
+     * </p>
+     * <p>{@link #setSuffixName(String)} を指定している場合は、接尾語付きのファイルが後から追加されたときも読み込み直します。
+     *  ファイルが削除された場合は、キャッシュから破棄して監視を終了し、次に取得するときに読み込み対象のファイルを決定し直します。
+     * </p>
+     * <p>監視を開始した後に読み込んだSQLテンプレートが対象です。開発時や負荷試験時の利用を想定しています。</p>
+     * <p>監視している間は、{@link #loadArchive(String)} で読み込んだアーカイブを使用せずに、SQLファイルを読み込みます。</p>
+     *
+     * @since 0.4
+     * @param reloadInterval 更新を確認する間隔。{@literal null} を指定すると、監視を終了します。
+     * @throws IllegalArgumentException 間隔が0以下の場合にスローされます。
+     */
+    public synchronized void setReloadInterval(final Duration reloadInterval) {
+
+        if(reloadInterval != null && (reloadInterval.isZero() || reloadInterval.isNegative())) {
+            throw new IllegalArgumentException("reloadInterval should be positive.");
+        }
+
+        if(reloader != null) {
+            reloader.stop();
+            reloader = null;
+        }
+
+        this.reloadInterval = reloadInterval;
+        if(reloadInterval != null) {
+            this.reloader = new TemplateReloader(reloadInterval, this::reloadTemplate, this::evictTemplate);
+        }
+    }
+
+    /**
+     * 更新されたSQLファイルを読み込み直し、キャッシュを置き換えます。
+     * <p>リソースパスを指定して読み込んだ場合は、接尾語付きのファイルが追加・削除されている可能性があるため、
+     *  読み込み対象のリソースを {@link TemplateLoader} で決定し直します。
+     * </p>
+     * <p>読み込んでいる間にキャッシュが破棄または置き換えられた場合は、読み込んだ結果を登録しません。</p>
+     *
+     * @param key キャッシュのキー
+     * @param location SQLファイルのリソースパス。リソースを直接指定して読み込んだ場合は {@literal null} です。
+     * @param resource 更新されたSQLファイルのリソース
+     * @return 既にキャッシュされていない場合は {@literal false} を返します。
+     */
+    private boolean reloadTemplate(final Object key, final String location, final Resource resource) {
+
+        final SqlTemplate current = templateCache.getIfPresent(key);
+        if(current == null) {
+            return false;
+        }
+
+        Resource target = resource;
+        if(location != null) {
+            templateLoader.invalidateResolution(location);
+            target = templateLoader.resolveByLocation(location, resourceLoader, Optional.ofNullable(suffixName));
+
+            final TemplateReloader currentReloader = this.reloader;
+            if(currentReloader != null && !target.equals(resource)) {
+                currentReloader.watch(key, location, target, findPreferredResources(location, target));
+            }
+        }
+
+        final SqlTemplate template = parseTemplateByText(templateLoader.loadByResource(target, encoding));
+        if(!templateCache.replace(key, current, template)) {
+            return templateCache.getIfPresent(key) != null;
+        }
+        return true;
+    }
+
+    /**
+     * 削除されたSQLファイルのSQLテンプレートを、キャッシュから破棄します。
+     * <p>次に取得するときに、読み込み対象のリソースを決定し直します。</p>
+     *
+     * @param key キャッシュのキー
+     * @param location SQLファイルのリソースパス。リソースを直接指定して読み込んだ場合は {@literal null} です。
+     */
+    private void evictTemplate(final Object key, final String location) {
+        if(location != null) {
+            templateLoader.invalidateResolution(location);
+        }
+        templateCache.invalidate(key);
+    }
+
+    /**
+     * 読み込み対象のリソースより優先される、接尾語付きのリソースを取得します。
+     * <p>ファイルの更新を監視するときに、接尾語付きのファイルが後から追加されたことを検知するために使用します。</p>
+     *
+     * @param location SQLファイルのリソースパス
+     * @param resource 読み込み対象のリソース
+     * @return 優先されるリソース。読み込み対象のリソースが接尾語付きの場合は空です。
+     */
+    private List<Resource> findPreferredResources(final String location, final Resource resource) {
+
+        if(suffixName == null) {
+            return List.of();
+        }
+
+        final Resource suffixed = resourceLoader.getResource(templateLoader.convertPathWithSuffixed(location, suffixName));
+        return suffixed.equals(resource) ? List.of() : List.of(suffixed);
+    }
+
+    /**
+     * 監視しているSQLファイルの更新を、すぐに確認します。
+     * <p>テスト用のメソッドです。</p>
+     */
+    void checkModifiedTemplates() {
+        final TemplateReloader currentReloader = this.reloader;
+        if(currentReloader != null) {
+            currentReloader.checkModified();
+        }
+    }
+
+    /**
+     * 更新を監視しているSQLファイルの件数を取得します。
+     * <p>テスト用のメソッドです。</p>
+     * @return 監視しているSQLファイルの件数。監視していない場合は {@literal 0} を返します。
+     */
+    int getWatchedTemplateCount() {
+        final TemplateReloader currentReloader = this.reloader;
+        return currentReloader != null ? currentReloader.getWatchedCount() : 0;
+    }
+
+    /**
+     * ファイルの更新の監視を終了し、監視用のスレッドを停止します。
+     * <p>{@link #setReloadInterval(Duration)} に {@literal null} を指定した場合と同じです。
+     *  終了後も、SQLテンプレートの取得は行えます。
+     * </p>
+     *
+     * @since 0.4
+     */
+    @Override
+    public void close() {
+        setReloadInterval(null);
     }
 
     /**
      * 現在キャッシュしている情報をクリアします。
+     * <p>{@link TemplateLoader} が記録している、リソースパスごとの読み込み対象のリソースもクリアします。</p>
      */
     public void clearCache() {
         this.templateCache.clear();
+        this.templateLoader.clearResolutionCache();
+    }
+
+    /**
+     * SQLファイルのリソースパスを指定して、キャッシュしている情報をクリアします。
+     *
+     * @since 0.4
+     * @param location SQLファイルのリソースパス。
+     */
+    public void clearCache(@NonNull final String location) {
+        this.templateCache.invalidate(location);
+        this.templateLoader.invalidateResolution(location);
+    }
+
+    /**
+     * SQLファイルのリソースを指定して、キャッシュしている情報をクリアします。
+     *
+     * @since 0.4
+     * @param resource SQLファイルのリソース。
+     */
+    public void clearCache(@NonNull final Resource resource) {
+        this.templateCache.invalidate(resource.getDescription());
+    }
+
+    /**
+     * SQLの文字列を指定して、キャッシュしている情報をクリアします。
+     *
+     * @since 0.4
+     * @param sql SQLの文字列
+     */
+    public void clearCacheByText(@NonNull final String sql) {
+        this.templateCache.invalidate(TextTemplateKey.of(sql));
     }
 
 }
@@ -0,0 +1,202 @@
+package com.github.mygreen.splate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.springframework.core.style.ToStringCreator;
+
+import com.github.mygreen.splate.node.ContainerNode;
+import com.github.mygreen.splate.node.IfNode;
+import com.github.mygreen.splate.node.Node;
+
+import lombok.Getter;
+
+/**
+ * {@link SqlTemplate} のノードのツリーが占有するヒープサイズの見積もりです。
+ * <p>ノード自身と、子ノードを保持する配列のシャローサイズを、
+ *  64bitのJVMで圧縮参照（Compressed Oops）が有効な場合のレイアウトとして見積もります。
+ * </p>
+ * <p>ノードが参照するSQLの文字列やEL式のインスタンスは、見積もりに含みません。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class SqlTemplateFootprint {
+
+    /**
+     * オブジェクトヘッダのサイズ
+     */
+    private static final int OBJECT_HEADER_BYTES = 12;
+
+    /**
+     * 配列のヘッダのサイズ
+     */
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * 参照のサイズ
+     */
+    private static final int REFERENCE_BYTES = 4;
+
+    /**
+     * オブジェクトのアライメント
+     */
+    private static final int OBJECT_ALIGNMENT = 8;
+
+    /**
+     * クラスごとのインスタンスのシャローサイズ
+     */
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<>() {
+
+        @Override
+        protected Long computeValue(final Class<?> type) {
+            return estimateShallowSize(type);
+        }
+    };
+
+    /**
+     * 全てのノードの個数。{@code ELSE} コメントのノードも含みます。
+     */
+    @Getter
+    private int nodeCount;
+
+    /**
+     * 子ノードを持つことができるノードの個数
+     */
+    @Getter
+    private int containerNodeCount;
+
+    /**
+     * 子ノードへの参照の個数
+     */
+    @Getter
+    private int childReferenceCount;
+
+    /**
+     * 子ノードを保持する配列のうち、使用されていない要素の個数。
+     * <p>パースが完了したテンプレートでは {@literal 0} になります。</p>
+     */
+    @Getter
+    private int unusedChildSlotCount;
+
+    /**
+     * ノードのインスタンスのシャローサイズの合計（バイト）
+     */
+    @Getter
+    private long nodeBytes;
+
+    /**
+     * 子ノードを保持する配列のサイズの合計（バイト）
+     */
+    @Getter
+    private long childArrayBytes;
+
+    /**
+     * ノードのツリーを元に、ヒープサイズを見積もります。
+     *
+     * @param root ルートノード
+     * @return ヒープサイズの見積もり
+     */
+    static SqlTemplateFootprint of(final Node root) {
+        final SqlTemplateFootprint footprint = new SqlTemplateFootprint();
+        footprint.visit(root);
+        return footprint;
+    }
+
+    /**
+     * ノードのツリーが占有するヒープサイズの合計（バイト）を取得します。
+     * @return ノードのインスタンスと、子ノードを保持する配列のサイズの合計
+     */
+    public long getTotalBytes() {
+        return nodeBytes + childArrayBytes;
+    }
+
+    /**
+     * 子ノードも含めてノードを集計します。
+     * @param node 集計対象のノード
+     */
+    private void visit(final Node node) {
+
+        nodeCount++;
+        nodeBytes += SHALLOW_SIZES.get(node.getClass());
+
+        final int childSize = node.getChildSize();
+        if(node instanceof ContainerNode) {
+            final int capacity = ((ContainerNode) node).getChildCapacity();
+            containerNodeCount++;
+            unusedChildSlotCount += capacity - childSize;
+            childArrayBytes += align(ARRAY_HEADER_BYTES + (long)REFERENCE_BYTES * capacity);
+        }
+
+        childReferenceCount += childSize;
+        for(int i=0; i < childSize; i++) {
+            visit(node.getChild(i));
+        }
+
+        if(node instanceof IfNode && ((IfNode) node).getElseNode() != null) {
+            visit(((IfNode) node).getElseNode());
+        }
+
+    }
+
+    /**
+     * インスタンスのシャローサイズを見積もります。
+     * @param type 見積もり対象のクラス
+     * @return シャローサイズ（バイト）
+     */
+    private static long estimateShallowSize(final Class<?> type) {
+
+        long size = OBJECT_HEADER_BYTES;
+        for(Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            for(Field field : clazz.getDeclaredFields()) {
+                if(Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                size += getFieldSize(field.getType());
+            }
+        }
+
+        return align(size);
+    }
+
+    /**
+     * フィールドのサイズを取得します。
+     * @param fieldType フィールドのタイプ
+     * @return フィールドのサイズ（バイト）
+     */
+    private static int getFieldSize(final Class<?> fieldType) {
+        if(fieldType == long.class || fieldType == double.class) {
+            return 8;
+        } else if(fieldType == int.class || fieldType == float.class) {
+            return 4;
+        } else if(fieldType == short.class || fieldType == char.class) {
+            return 2;
+        } else if(fieldType == byte.class || fieldType == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_BYTES;
+    }
+
+    /**
+     * オブジェクトのアライメントに合わせて切り上げます。
+     * @param size サイズ
+     * @return 切り上げたサイズ
+     */
+    private static long align(final long size) {
+        return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringCreator(this)
+                .append("nodeCount", nodeCount)
+                .append("containerNodeCount", containerNodeCount)
+                .append("childReferenceCount", childReferenceCount)
+                .append("unusedChildSlotCount", unusedChildSlotCount)
+                .append("nodeBytes", nodeBytes)
+                .append("childArrayBytes", childArrayBytes)
+                .append("totalBytes", getTotalBytes())
+                .toString();
+    }
+}
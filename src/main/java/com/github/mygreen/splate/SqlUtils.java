@@ -16,13 +16,18 @@ import lombok.NonNull;
  * 2Way-SQL機能の中で提供されるユーティリティクラス。
  * <p>MirageSQL/Seaser2からの持ち込みなので、既存のユーティリティクラスとは分けて定義する。</p>
  *
- * @version 0.2
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class SqlUtils {
 
+    /**
+     * 16進数の文字
+     */
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
     /**
      * 空の文字列の配列です。
      */
@@ -107,12 +112,13 @@ public class SqlUtils {
             md.update(text.getBytes(StandardCharsets.UTF_8));
 
             byte[] hash = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
+            char[] hex = new char[hash.length * 2];
+            for (int i=0; i < hash.length; i++) {
+                hex[i * 2] = HEX_CHARS[(hash[i] >> 4) & 0x0F];
+                hex[i * 2 + 1] = HEX_CHARS[hash[i] & 0x0F];
             }
 
-            return sb.toString();
+            return new String(hex);
 
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalArgumentException("not such algorithm name.", e);
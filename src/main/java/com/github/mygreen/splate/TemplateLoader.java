@@ -1,22 +1,55 @@
 package com.github.mygreen.splate;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.util.StringUtils;
 
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
 /**
  * SQLテンプレートのファイルを読み込む処理です。
  * <p>{@literal suffixName} が指定されている場合、接尾語がついているリソースを優先して読み込みます。</p>
+ * <p>{@link #setResolutionCached(boolean)} で有効にすると、リソースパスごとに、接尾語付きと元々のパスの
+ *  どちらのリソースを読み込んだかを記録しておき、2回目以降はリソースの存在確認を省略します。
+ * </p>
  *
  *
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
 public class TemplateLoader {
 
+    /**
+     * リソースパスごとに、読み込み対象として決定したリソースを記録するかどうか。
+     * <p>{@literal false} の場合、読み込むたびに接尾語付きのリソースの存在を確認するため、
+     *  実行中に接尾語付きのファイルを追加・削除すると、次の読み込みから反映されます。
+     * </p>
+     * <p>記録した内容は、{@link #invalidateResolution(String)} などで破棄するまで使い続けるため、
+     *  ファイルを追加・削除しない本番環境などで有効にします。
+     * </p>
+     * デフォルト値は、{@literal false} です。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private boolean resolutionCached = false;
+
+    /**
+     * リソースパスごとに、読み込み対象として決定したリソース。
+     * 接尾語付きのリソースが存在しない場合は、元々のパスのリソースを記録します。
+     */
+    private final Map<ResolutionKey, ResolvedResource> resolvedResources = new ConcurrentHashMap<>();
+
     /**
      * リソースを指定して読み込む。
      * @param resource リソース
@@ -46,32 +79,70 @@ public class TemplateLoader {
     public String loadByLocation(final String location,
             final ResourceLoader resourceLoader, final String encoding, final Optional<String> suffixName) {
 
-        if(suffixName.isPresent()) {
-            // 接尾語付きパスの読み込み
-            String suffixedPath = convertPathWithSuffixed(location, suffixName.get());
-            try {
-                Resource resource = resourceLoader.getResource(suffixedPath);
-                if(resource.isReadable()) {
-                    return SqlUtils.readStream(resource.getInputStream(), encoding);
-                }
-            } catch(IOException e) {
-                // 読み込めない場合
-                throw new TwoWaySqlException(String.format("Fail load file : %s", suffixedPath), e);
+        final Resource resource = resolveByLocation(location, resourceLoader, suffixName);
+        try {
+            return SqlUtils.readStream(resource.getInputStream(), encoding);
+        } catch(IOException e) {
+            // 読み込めない場合は、ファイルが削除された可能性があるため、次回はリソースを決定し直す。
+            invalidateResolution(location);
+            throw new TwoWaySqlException(String.format("Fail load file : %s", resource.getDescription()), e);
+        }
 
-            }
+    }
+
+    /**
+     * リソースパスを指定して、読み込み対象のリソースを決定します。
+     * {@literal suffixName} が指定されている場合、接尾語付きのリソースを優先します。
+     *
+     * @since 0.4
+     * @param location リロースパス
+     * @param resourceLoader リロースローダー。
+     * @param suffixName リロースの接尾語
+     * @return 読み込み対象のリソース
+     * @throws TwoWaySqlException 読み込み対象のリソースが見つからない場合にスローされます。
+     */
+    public Resource resolveByLocation(final String location,
+            final ResourceLoader resourceLoader, final Optional<String> suffixName) {
+
+        if(!resolutionCached) {
+            return doResolveByLocation(location, resourceLoader, suffixName);
         }
 
-        // 元々のパスでの読み込み
-        try {
-            Resource resource = resourceLoader.getResource(location);
+        final ResolutionKey key = new ResolutionKey(location, suffixName.orElse(null));
+        final ResolvedResource resolved = resolvedResources.get(key);
+        if(resolved != null && resolved.resourceLoader == resourceLoader) {
+            return resolved.resource;
+        }
+
+        final Resource resource = doResolveByLocation(location, resourceLoader, suffixName);
+        resolvedResources.put(key, new ResolvedResource(resourceLoader, resource));
+        return resource;
+    }
+
+    /**
+     * リソースの存在を確認して、読み込み対象のリソースを決定します。
+     *
+     * @param location リロースパス
+     * @param resourceLoader リロースローダー。
+     * @param suffixName リロースの接尾語
+     * @return 読み込み対象のリソース
+     * @throws TwoWaySqlException 読み込み対象のリソースが見つからない場合にスローされます。
+     */
+    protected Resource doResolveByLocation(final String location,
+            final ResourceLoader resourceLoader, final Optional<String> suffixName) {
+
+        if(suffixName.isPresent()) {
+            // 接尾語付きパスのリソース
+            final Resource resource = resourceLoader.getResource(convertPathWithSuffixed(location, suffixName.get()));
             if(resource.isReadable()) {
-                return SqlUtils.readStream(resource.getInputStream(), encoding);
+                return resource;
             }
+        }
 
-        } catch(IOException e) {
-            // 読み込めない場合
-            throw new TwoWaySqlException(String.format("Fail load file : %s", location), e);
-
+        // 元々のパスのリソース
+        final Resource resource = resourceLoader.getResource(location);
+        if(resource.isReadable()) {
+            return resource;
         }
 
         // 読み込み対象のファイルが見つからない場合
@@ -79,6 +150,26 @@ public class TemplateLoader {
 
     }
 
+    /**
+     * リソースパスを指定して、記録している読み込み対象のリソースを破棄します。
+     * <p>接尾語付きのファイルを追加・削除した場合など、読み込み対象のリソースを決定し直すときに呼び出します。</p>
+     *
+     * @since 0.4
+     * @param location リロースパス
+     */
+    public void invalidateResolution(final String location) {
+        resolvedResources.keySet().removeIf(key -> key.location.equals(location));
+    }
+
+    /**
+     * 記録している読み込み対象のリソースを全て破棄します。
+     *
+     * @since 0.4
+     */
+    public void clearResolutionCache() {
+        resolvedResources.clear();
+    }
+
     /**
      * SQLのパスを接尾語付きのパスに変換する。
      * @param location 変換対象のパス
@@ -103,4 +194,27 @@ public class TemplateLoader {
         return sb.toString();
 
     }
+
+    /**
+     * 読み込み対象のリソースを記録するときのキー
+     */
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    private static class ResolutionKey {
+
+        private final String location;
+
+        private final String suffixName;
+    }
+
+    /**
+     * 読み込み対象として決定したリソースと、決定に使用したリソースローダー
+     */
+    @RequiredArgsConstructor
+    private static class ResolvedResource {
+
+        private final ResourceLoader resourceLoader;
+
+        private final Resource resource;
+    }
 }
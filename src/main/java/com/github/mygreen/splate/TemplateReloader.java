@@ -0,0 +1,239 @@
+package com.github.mygreen.splate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.io.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * キャッシュしたSQLテンプレートのファイルの更新を監視し、更新されたものだけを再読み込みします。
+ * <p>一定の間隔で {@link Resource#lastModified()} を確認し、更新日時が変わったファイルを、監視用のスレッドで読み込み直します。
+ *  ファイルシステム上のリソースのみ監視します。
+ * </p>
+ * <p>接尾語付きのファイルなど、読み込んだファイルより優先されるファイルが追加された場合も、読み込み直します。
+ *  ファイルが削除された場合は、キャッシュから破棄して監視を終了します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@Slf4j
+class TemplateReloader {
+
+    /**
+     * 監視しているリソース。キーはキャッシュのキーです。
+     */
+    private final Map<Object, WatchedResource> watchedResources = new ConcurrentHashMap<>();
+
+    /**
+     * 再読み込みする処理
+     */
+    private final ReloadAction reloadAction;
+
+    /**
+     * キャッシュから破棄する処理
+     */
+    private final EvictAction evictAction;
+
+    /**
+     * 更新を確認するスレッド
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * インスタンスを作成し、監視を開始します。
+     *
+     * @param interval 更新を確認する間隔
+     * @param reloadAction 再読み込みする処理
+     * @param evictAction 監視しているファイルが削除されたときに、キャッシュから破棄する処理
+     */
+    TemplateReloader(final Duration interval, final ReloadAction reloadAction, final EvictAction evictAction) {
+        this.reloadAction = reloadAction;
+        this.evictAction = evictAction;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "splate-template-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final long intervalNanos = interval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::checkModified, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * リソースの監視を開始します。
+     * <p>リソースを読み込む前に呼び出します。既に監視している場合は、更新日時を記録し直します。</p>
+     *
+     * @param key キャッシュのキー
+     * @param location リソースの読み込み元のリソースパス。リソースを直接指定して読み込んだ場合は {@literal null} です。
+     * @param resource 監視対象のリソース。ファイルシステム上のリソースでない場合は監視しません。
+     * @param candidates 監視対象のリソースより優先されるリソース。追加された場合に読み込み直します。
+     */
+    void watch(final Object key, final String location, final Resource resource, final List<Resource> candidates) {
+
+        if(!resource.isFile()) {
+            return;
+        }
+
+        try {
+            watchedResources.put(key, new WatchedResource(location, resource, resource.lastModified(), candidates));
+        } catch(IOException e) {
+            // 更新日時を取得できない場合は監視しない。
+            watchedResources.remove(key);
+        }
+    }
+
+    /**
+     * 監視しているリソースの件数を取得します。
+     * @return 監視しているリソースの件数
+     */
+    int getWatchedCount() {
+        return watchedResources.size();
+    }
+
+    /**
+     * 監視しているリソースの更新を確認し、更新されたものを再読み込みします。
+     */
+    void checkModified() {
+
+        for(Map.Entry<Object, WatchedResource> entry : watchedResources.entrySet()) {
+            final Object key = entry.getKey();
+            final WatchedResource watched = entry.getValue();
+
+            final long lastModified;
+            try {
+                lastModified = watched.resource.lastModified();
+            } catch(IOException e) {
+                if(watched.resource.exists()) {
+                    // 一時的に更新日時を取得できない場合は、次の確認まで待つ。
+                    continue;
+                }
+
+                // ファイルが削除された場合は、キャッシュから破棄して監視を終了する。
+                if(watchedResources.remove(key, watched)) {
+                    evict(key, watched);
+                }
+                continue;
+            }
+
+            if(lastModified == watched.lastModified && !isCandidateAdded(watched)) {
+                continue;
+            }
+
+            // 再読み込みに失敗しても、次にファイルが更新されるまでは再試行しない。
+            if(!watchedResources.replace(key, watched, new WatchedResource(watched.location, watched.resource, lastModified, watched.candidates))) {
+                // 確認中に、他のスレッドで読み込み直された場合
+                continue;
+            }
+
+            try {
+                if(!reloadAction.reload(key, watched.location, watched.resource)) {
+                    watchedResources.remove(key);
+                }
+            } catch(RuntimeException e) {
+                log.warn("Fail reloading SQL template : {}", watched.resource.getDescription(), e);
+            }
+        }
+
+    }
+
+    /**
+     * 監視しているリソースより優先されるリソースが、追加されたかどうか判定します。
+     * @param watched 監視しているリソース
+     * @return 優先されるリソースが存在するとき {@literal true} を返します。
+     */
+    private boolean isCandidateAdded(final WatchedResource watched) {
+        for(Resource candidate : watched.candidates) {
+            if(candidate.isReadable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 削除されたリソースのSQLテンプレートを、キャッシュから破棄します。
+     * @param key キャッシュのキー
+     * @param watched 監視していたリソース
+     */
+    private void evict(final Object key, final WatchedResource watched) {
+        try {
+            evictAction.evict(key, watched.location);
+        } catch(RuntimeException e) {
+            log.warn("Fail evicting SQL template : {}", watched.resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * 監視を終了します。
+     */
+    void stop() {
+        scheduler.shutdownNow();
+        watchedResources.clear();
+    }
+
+    /**
+     * 再読み込みする処理
+     */
+    @FunctionalInterface
+    interface ReloadAction {
+
+        /**
+         * 更新されたリソースを再読み込みします。
+         *
+         * @param key キャッシュのキー
+         * @param location リソースの読み込み元のリソースパス。リソースを直接指定して読み込んだ場合は {@literal null} です。
+         * @param resource 更新されたリソース
+         * @return 既にキャッシュされておらず、監視が不要な場合は {@literal false} を返します。
+         */
+        boolean reload(Object key, String location, Resource resource);
+    }
+
+    /**
+     * 監視しているファイルが削除されたときに、キャッシュから破棄する処理
+     */
+    @FunctionalInterface
+    interface EvictAction {
+
+        /**
+         * 削除されたリソースのSQLテンプレートを、キャッシュから破棄します。
+         *
+         * @param key キャッシュのキー
+         * @param location リソースの読み込み元のリソースパス。リソースを直接指定して読み込んだ場合は {@literal null} です。
+         */
+        void evict(Object key, String location);
+    }
+
+    /**
+     * 監視しているリソースと、そのリソースを読み込んだ時点の更新日時
+     */
+    private static class WatchedResource {
+
+        private final String location;
+
+        private final Resource resource;
+
+        private final long lastModified;
+
+        /**
+         * 監視しているリソースより優先されるリソース
+         */
+        private final List<Resource> candidates;
+
+        WatchedResource(final String location, final Resource resource, final long lastModified, final List<Resource> candidates) {
+            this.location = location;
+            this.resource = resource;
+            this.lastModified = lastModified;
+            this.candidates = candidates;
+        }
+    }
+}
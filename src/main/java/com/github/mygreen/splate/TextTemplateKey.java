@@ -0,0 +1,62 @@
+package com.github.mygreen.splate;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * {@link SqlTemplateEngine#getTemplateByText(String)} で、SQLの文字列をキャッシュするときのキーです。
+ * <p>SQLの文字列そのものをキーとして比較します。
+ *  ハッシュ値は {@link String#hashCode()} で、文字列のインスタンスにキャッシュされるため、
+ *  定数など同じインスタンスの文字列で繰り返し呼び出す場合は再計算しません。
+ * </p>
+ * <p>リソースパスをキーとするSQLテンプレートと区別するため、文字列をこのクラスで包んでキャッシュに格納します。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public final class TextTemplateKey {
+
+    /**
+     * キーの元となったSQLの文字列
+     */
+    @Getter
+    private final String text;
+
+    private TextTemplateKey(final String text) {
+        this.text = text;
+    }
+
+    /**
+     * SQLの文字列を元にキーを作成します。
+     *
+     * @param text SQLの文字列
+     * @return キャッシュのキー
+     */
+    public static TextTemplateKey of(@NonNull final String text) {
+        return new TextTemplateKey(text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if(this == obj) {
+            return true;
+        }
+
+        if(!(obj instanceof TextTemplateKey)) {
+            return false;
+        }
+
+        return text.equals(((TextTemplateKey) obj).text);
+    }
+
+    @Override
+    public String toString() {
+        return "TextTemplateKey[" + text + "]";
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.mygreen.splate.archive;
+
+import com.github.mygreen.splate.parser.SqlParser;
+import com.github.mygreen.splate.parser.StringLiteralMode;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * アーカイブに格納したノードのツリーが依存する、パース時の設定です。
+ * <p>同じSQLテンプレートでも、これらの設定が異なるとノードのツリーが変わるため、アーカイブのヘッダに格納し、
+ *  読み込むときに実行時の設定と一致するか確認します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@RequiredArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class ArchiveParseOptions {
+
+    /**
+     * {@link SqlParser} のデフォルトの設定。
+     */
+    public static final ArchiveParseOptions DEFAULT = new ArchiveParseOptions(false, StringLiteralMode.IGNORED);
+
+    /**
+     * {@code IN} 句を分割するための情報を作成したかどうか。
+     * @see SqlParser#setInOperandExtracted(boolean)
+     */
+    @Getter
+    private final boolean inOperandExtracted;
+
+    /**
+     * 文字列リテラルの扱い。
+     * @see SqlParser#setStringLiteralMode(StringLiteralMode)
+     */
+    @Getter
+    @NonNull
+    private final StringLiteralMode stringLiteralMode;
+
+    /**
+     * パーサの設定から作成します。
+     *
+     * @param parser SQLテンプレートのパーサ
+     * @return パース時の設定
+     */
+    public static ArchiveParseOptions of(@NonNull final SqlParser parser) {
+        return new ArchiveParseOptions(parser.isInOperandExtracted(), parser.getStringLiteralMode());
+    }
+}
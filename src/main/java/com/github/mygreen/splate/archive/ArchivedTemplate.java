@@ -0,0 +1,60 @@
+package com.github.mygreen.splate.archive;
+
+import com.github.mygreen.splate.node.Node;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * アーカイブに格納する、パース済みのSQLテンプレートです。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@AllArgsConstructor
+public class ArchivedTemplate {
+
+    /**
+     * SQLテンプレートのパス。
+     * <p>クラスパスのルートからの相対パスで、区切り文字は {@literal /} です。例) {@literal sql/employee.sql}</p>
+     */
+    @Getter
+    @NonNull
+    private final String path;
+
+    /**
+     * パースされたSQL。
+     */
+    @Getter
+    @NonNull
+    private final String sql;
+
+    /**
+     * SQLノード
+     */
+    @Getter
+    @NonNull
+    private final Node node;
+
+    /**
+     * ノードのツリーを作成したときの、パース時の設定。
+     * <p>アーカイブに格納する全てのSQLテンプレートで、同じ設定である必要があります。</p>
+     */
+    @Getter
+    @NonNull
+    private final ArchiveParseOptions parseOptions;
+
+    /**
+     * デフォルトの設定でパースしたSQLテンプレートとして、インスタンスを作成します。
+     *
+     * @param path SQLテンプレートのパス
+     * @param sql パースされたSQL
+     * @param node SQLノード
+     */
+    public ArchivedTemplate(final String path, final String sql, final Node node) {
+        this(path, sql, node, ArchiveParseOptions.DEFAULT);
+    }
+
+}
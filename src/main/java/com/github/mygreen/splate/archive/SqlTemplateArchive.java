@@ -0,0 +1,556 @@
+package com.github.mygreen.splate.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.github.mygreen.splate.TwoWaySqlException;
+import com.github.mygreen.splate.node.BeginNode;
+import com.github.mygreen.splate.node.BindVariableNode;
+import com.github.mygreen.splate.node.ContainerNode;
+import com.github.mygreen.splate.node.ElseNode;
+import com.github.mygreen.splate.node.EmbeddedValueNode;
+import com.github.mygreen.splate.node.IfNode;
+import com.github.mygreen.splate.node.Node;
+import com.github.mygreen.splate.node.ParenBindVariableNode;
+import com.github.mygreen.splate.node.PrefixSqlNode;
+import com.github.mygreen.splate.node.SqlNode;
+import com.github.mygreen.splate.parser.SqlParser;
+import com.github.mygreen.splate.parser.StringLiteralMode;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * パース済みのSQLテンプレートのアーカイブを読み書きします。
+ * <p>アーカイブには、SQLテンプレートのパスと、パースされたSQLと、ノードのツリーの構造を格納します。
+ *  EL式はパースせずに文字列として格納し、読み込み時にパースします。
+ * </p>
+ * <p>アーカイブの形式は次の通りです。数値は、負の値を除いて可変長（7bit単位）で格納します。
+ *  SQLの断片やEL式などの文字列は、先頭の文字列テーブルにまとめて重複を除いて格納し、ノードからはインデックスで参照します。
+ * </p>
+ * <pre>
+ * header    : magic(int) version(short) options
+ * options   : flags(byte: bit0=inOperandExtracted) string-literal-mode(byte)
+ * strings   : count { length utf8-bytes }*
+ * templates : count { path-index sql-index node }*
+ * node      : kind(byte) position (kind-specific string indexes) (child-count node*) (has-else(byte) node)
+ * </pre>
+ * <p>ノードのツリーはパース時の設定によって変わるため、設定（{@link ArchiveParseOptions}）をヘッダに格納し、
+ *  読み込むときにEL式をパースするパーサの設定と一致しない場合は、例外をスローします。
+ * </p>
+ * <p>アーカイブは、ビルド時に {@literal splate-maven-plugin} や {@link com.github.mygreen.splate.SqlTemplateEngine#writeArchive(OutputStream, Collection)}
+ *  で作成し、実行時に {@link com.github.mygreen.splate.SqlTemplateEngine#loadArchive(String)} で読み込みます。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@NoArgsConstructor(access=AccessLevel.PRIVATE)
+public class SqlTemplateArchive {
+
+    /**
+     * アーカイブを格納するクラスパス上のデフォルトのパス。
+     */
+    public static final String DEFAULT_PATH = "META-INF/splate/templates.splate";
+
+    /**
+     * アーカイブのファイルの先頭を表す値。{@literal SPLT} のASCIIコードです。
+     */
+    private static final int MAGIC = 0x53504C54;
+
+    /**
+     * アーカイブの形式のバージョン。
+     */
+    private static final int FORMAT_VERSION = 4;
+
+    /**
+     * パース時の設定のフラグ : {@code IN} 句を分割するための情報を作成したかどうか。
+     */
+    private static final int OPTION_IN_OPERAND_EXTRACTED = 0x01;
+
+    /**
+     * ノードのツリーの深さの上限。壊れたアーカイブでスタックを使い切らないように制限します。
+     */
+    private static final int MAX_NODE_DEPTH = 1024;
+
+    private static final byte KIND_CONTAINER = 0;
+
+    private static final byte KIND_BEGIN = 1;
+
+    private static final byte KIND_IF = 2;
+
+    private static final byte KIND_ELSE = 3;
+
+    private static final byte KIND_SQL = 4;
+
+    private static final byte KIND_PREFIX_SQL = 5;
+
+    private static final byte KIND_BIND_VARIABLE = 6;
+
+    private static final byte KIND_PAREN_BIND_VARIABLE = 7;
+
+    private static final byte KIND_EMBEDDED_VALUE = 8;
+
+    /**
+     * パース済みのSQLテンプレートをアーカイブとして書き込みます。
+     * <p>出力先のストリームは閉じません。</p>
+     *
+     * <p>パース時の設定は、SQLテンプレートの {@link ArchivedTemplate#getParseOptions()} をヘッダに格納します。</p>
+     *
+     * @param output 出力先
+     * @param templates パース済みのSQLテンプレート
+     * @throws SqlTemplateArchiveException 書き込みに失敗した場合、アーカイブに格納できないノードが含まれる場合、
+     *          またはパース時の設定が異なるSQLテンプレートが含まれる場合にスローされます。
+     */
+    public static void write(@NonNull final OutputStream output, @NonNull final Collection<ArchivedTemplate> templates) {
+
+        final ArchiveParseOptions options = templates.isEmpty()
+                ? ArchiveParseOptions.DEFAULT : templates.iterator().next().getParseOptions();
+        for(ArchivedTemplate template : templates) {
+            if(!options.equals(template.getParseOptions())) {
+                throw new SqlTemplateArchiveException(String.format("Mismatched parse options in template '%s' : expected=%s, actual=%s",
+                        template.getPath(), options, template.getParseOptions()));
+            }
+        }
+
+        // 文字列テーブルを先頭に出力するため、ノードの部分を先に組み立てる。
+        final Encoder encoder = new Encoder();
+        encoder.writeVarint(templates.size());
+        for(ArchivedTemplate template : templates) {
+            encoder.writeString(template.getPath());
+            encoder.writeString(template.getSql());
+            encoder.writeNode(template.getNode(), template.getPath(), 0);
+        }
+
+        try {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            header.write(MAGIC >>> 24);
+            header.write(MAGIC >>> 16);
+            header.write(MAGIC >>> 8);
+            header.write(MAGIC);
+            header.write(FORMAT_VERSION >>> 8);
+            header.write(FORMAT_VERSION);
+            header.write(options.isInOperandExtracted() ? OPTION_IN_OPERAND_EXTRACTED : 0);
+            header.write(options.getStringLiteralMode().ordinal());
+
+            writeVarint(header, encoder.strings.size());
+            for(String value : encoder.strings.keySet()) {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarint(header, bytes.length);
+                header.write(bytes);
+            }
+
+            header.writeTo(output);
+            encoder.body.writeTo(output);
+            output.flush();
+
+        } catch(IOException e) {
+            throw new SqlTemplateArchiveException("Fail writing template archive.", e);
+        }
+
+    }
+
+    /**
+     * アーカイブを読み込みます。
+     * <p>入力元のストリームは閉じません。</p>
+     *
+     * @param input 入力元
+     * @param parserFactory SQLテンプレートごとに、EL式をパースするための {@link SqlParser} を作成する処理。
+     *          引数にはパースされたSQLが渡されます。
+     * @return 読み込んだSQLテンプレート
+     * @throws SqlTemplateArchiveException 読み込みに失敗した場合、アーカイブの形式が異なる場合、
+     *          またはアーカイブのパース時の設定がパーサの設定と異なる場合にスローされます。
+     * @throws com.github.mygreen.splate.parser.SqlParseException EL式のパースに失敗した場合にスローされます。
+     */
+    public static List<ArchivedTemplate> read(@NonNull final InputStream input,
+            @NonNull final Function<String, SqlParser> parserFactory) {
+
+        final byte[] bytes;
+        try {
+            bytes = input.readAllBytes();
+        } catch(IOException e) {
+            throw new SqlTemplateArchiveException("Fail reading template archive.", e);
+        }
+
+        return read(ByteBuffer.wrap(bytes), parserFactory);
+    }
+
+    /**
+     * ファイルをメモリマップして、アーカイブを読み込みます。
+     *
+     * @param file アーカイブのファイル
+     * @param parserFactory SQLテンプレートごとに、EL式をパースするための {@link SqlParser} を作成する処理。
+     *          引数にはパースされたSQLが渡されます。
+     * @return 読み込んだSQLテンプレート
+     * @throws SqlTemplateArchiveException 読み込みに失敗した場合、アーカイブの形式が異なる場合、
+     *          またはアーカイブのパース時の設定がパーサの設定と異なる場合にスローされます。
+     * @throws com.github.mygreen.splate.parser.SqlParseException EL式のパースに失敗した場合にスローされます。
+     */
+    public static List<ArchivedTemplate> read(@NonNull final Path file,
+            @NonNull final Function<String, SqlParser> parserFactory) {
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), parserFactory);
+        } catch(IOException e) {
+            throw new SqlTemplateArchiveException(String.format("Fail reading template archive : %s", file), e);
+        }
+
+    }
+
+    /**
+     * バッファの現在位置から、アーカイブを読み込みます。
+     *
+     * @param buffer アーカイブの内容
+     * @param parserFactory SQLテンプレートごとに、EL式をパースするための {@link SqlParser} を作成する処理。
+     *          引数にはパースされたSQLが渡されます。
+     * @return 読み込んだSQLテンプレート
+     * @throws SqlTemplateArchiveException アーカイブの形式が異なる場合、アーカイブが壊れている場合、
+     *          またはアーカイブのパース時の設定がパーサの設定と異なる場合にスローされます。
+     * @throws com.github.mygreen.splate.parser.SqlParseException EL式のパースに失敗した場合にスローされます。
+     */
+    public static List<ArchivedTemplate> read(@NonNull final ByteBuffer buffer,
+            @NonNull final Function<String, SqlParser> parserFactory) {
+
+        try {
+            if(buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+                throw new SqlTemplateArchiveException("Not template archive.");
+            }
+
+            final int version = Short.toUnsignedInt(buffer.getShort());
+            if(version != FORMAT_VERSION) {
+                throw new SqlTemplateArchiveException(String.format("Unsupported archive version : %d", version));
+            }
+
+            final ArchiveParseOptions options = readOptions(buffer);
+
+            final Decoder decoder = new Decoder(buffer);
+            final int size = decoder.readLength();
+            final List<ArchivedTemplate> templates = new ArrayList<>(size);
+            for(int i=0; i < size; i++) {
+                final String path = decoder.readString();
+                final String sql = decoder.readString();
+                decoder.parser = parserFactory.apply(sql);
+
+                // パース時の設定が異なると、ノードのツリーが異なるため使用できない。
+                final ArchiveParseOptions parserOptions = ArchiveParseOptions.of(decoder.parser);
+                if(!options.equals(parserOptions)) {
+                    throw new SqlTemplateArchiveException(String.format("Mismatched parse options : archive=%s, parser=%s",
+                            options, parserOptions));
+                }
+
+                final Node node = decoder.readNode(0);
+                node.freeze();
+                templates.add(new ArchivedTemplate(path, sql, node, options));
+            }
+            return templates;
+
+        } catch(TwoWaySqlException e) {
+            throw e;
+
+        } catch(RuntimeException e) {
+            // 壊れたアーカイブで発生する、想定外の例外もまとめてラップする。
+            throw new SqlTemplateArchiveException("Broken template archive.", e);
+        }
+
+    }
+
+    /**
+     * ヘッダから、パース時の設定を読み込みます。
+     * @param buffer アーカイブの内容
+     * @return パース時の設定
+     * @throws SqlTemplateArchiveException 設定の値が不正な場合にスローされます。
+     */
+    private static ArchiveParseOptions readOptions(final ByteBuffer buffer) {
+
+        final int flags = Byte.toUnsignedInt(buffer.get());
+        if((flags & ~OPTION_IN_OPERAND_EXTRACTED) != 0) {
+            throw new SqlTemplateArchiveException(String.format("Unknown parse options : %d", flags));
+        }
+
+        final int mode = Byte.toUnsignedInt(buffer.get());
+        final StringLiteralMode[] modes = StringLiteralMode.values();
+        if(mode >= modes.length) {
+            throw new SqlTemplateArchiveException(String.format("Unknown string literal mode : %d", mode));
+        }
+
+        return new ArchiveParseOptions((flags & OPTION_IN_OPERAND_EXTRACTED) != 0, modes[mode]);
+    }
+
+    /**
+     * 0以上の数値を、7bit単位の可変長で書き込みます。
+     * @param out 出力先
+     * @param value 書き込む値。
+     */
+    private static void writeVarint(final ByteArrayOutputStream out, final int value) {
+        int v = value;
+        while((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    /**
+     * ノードのツリーを書き込みます。
+     * <p>文字列は、出現順にインデックスを割り当てて、文字列テーブルに登録します。</p>
+     */
+    private static class Encoder {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        void writeVarint(final int value) {
+            SqlTemplateArchive.writeVarint(body, value);
+        }
+
+        void writeString(final String value) {
+            Integer index = strings.get(value);
+            if(index == null) {
+                index = strings.size();
+                strings.put(value, index);
+            }
+            writeVarint(index);
+        }
+
+        /**
+         * ノードを子ノードも含めて書き込みます。
+         * @param node ノード
+         * @param path SQLテンプレートのパス。エラーメッセージに使用します。
+         * @param depth ノードの深さ
+         */
+        void writeNode(final Node node, final String path, final int depth) {
+
+            if(depth > MAX_NODE_DEPTH) {
+                throw new SqlTemplateArchiveException(String.format("Too deep nodes in template '%s'.", path));
+            }
+
+            final Class<?> type = node.getClass();
+            if(type == SqlNode.class) {
+                writeHeader(KIND_SQL, node);
+                writeString(((SqlNode) node).getSql());
+
+            } else if(type == PrefixSqlNode.class) {
+                writeHeader(KIND_PREFIX_SQL, node);
+                writeString(((PrefixSqlNode) node).getPrefix());
+                writeString(((PrefixSqlNode) node).getSql());
+
+            } else if(type == BindVariableNode.class) {
+                writeHeader(KIND_BIND_VARIABLE, node);
+                writeString(((BindVariableNode) node).getExpression());
+
+            } else if(type == ParenBindVariableNode.class) {
+                writeHeader(KIND_PAREN_BIND_VARIABLE, node);
+                writeString(((ParenBindVariableNode) node).getExpression());
+                final String operand = ((ParenBindVariableNode) node).getOperand();
+                writeString(operand == null ? "" : operand);
+
+            } else if(type == EmbeddedValueNode.class) {
+                writeHeader(KIND_EMBEDDED_VALUE, node);
+                writeString(((EmbeddedValueNode) node).getExpression());
+
+            } else if(type == ContainerNode.class) {
+                writeHeader(KIND_CONTAINER, node);
+                writeChildren(node, path, depth);
+
+            } else if(type == BeginNode.class) {
+                writeHeader(KIND_BEGIN, node);
+                writeChildren(node, path, depth);
+
+            } else if(type == ElseNode.class) {
+                writeHeader(KIND_ELSE, node);
+                writeChildren(node, path, depth);
+
+            } else if(type == IfNode.class) {
+                final IfNode ifNode = (IfNode) node;
+                writeHeader(KIND_IF, node);
+                writeString(ifNode.getExpression());
+                writeChildren(node, path, depth);
+
+                body.write(ifNode.getElseNode() != null ? 1 : 0);
+                if(ifNode.getElseNode() != null) {
+                    writeNode(ifNode.getElseNode(), path, depth + 1);
+                }
+
+            } else {
+                throw new SqlTemplateArchiveException(String.format("Not supported node '%s' in template '%s'.",
+                        type.getName(), path));
+            }
+
+        }
+
+        private void writeHeader(final byte kind, final Node node) {
+            body.write(kind);
+            writeVarint(node.getPosition());
+        }
+
+        private void writeChildren(final Node node, final String path, final int depth) {
+            final int childSize = node.getChildSize();
+            writeVarint(childSize);
+            for(int i=0; i < childSize; i++) {
+                writeNode(node.getChild(i), path, depth + 1);
+            }
+        }
+
+    }
+
+    /**
+     * ノードのツリーを読み込みます。
+     * <p>文字列テーブルの文字列は、最初に全てデコードしておき、同じ内容の断片は同じインスタンスを共有します。</p>
+     */
+    private static class Decoder {
+
+        private final ByteBuffer buffer;
+
+        private final String[] strings;
+
+        /**
+         * 読み込み中のSQLテンプレートのEL式をパースするパーサ
+         */
+        private SqlParser parser;
+
+        Decoder(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.strings = new String[readLength()];
+
+            for(int i=0; i < strings.length; i++) {
+                final byte[] bytes = new byte[readLength()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        int readVarint() {
+            int value = 0;
+            for(int shift=0; shift < 32; shift += 7) {
+                final byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    if(value < 0) {
+                        throw new SqlTemplateArchiveException("Broken template archive : negative value.");
+                    }
+                    return value;
+                }
+            }
+            throw new SqlTemplateArchiveException("Broken template archive.");
+        }
+
+        /**
+         * 要素数やバイト数を読み込みます。
+         * <p>各要素は1バイト以上のため、残りのバイト数を超える値は壊れているとみなします。</p>
+         * @return 読み込んだ値
+         */
+        int readLength() {
+            final int length = readVarint();
+            if(length > buffer.remaining()) {
+                throw new SqlTemplateArchiveException(String.format("Broken template archive : length %d exceeds remaining %d bytes.",
+                        length, buffer.remaining()));
+            }
+            return length;
+        }
+
+        String readString() {
+            final int index = readVarint();
+            if(index >= strings.length) {
+                throw new SqlTemplateArchiveException(String.format("Broken template archive : string index %d out of %d.",
+                        index, strings.length));
+            }
+            return strings[index];
+        }
+
+        /**
+         * ノードを子ノードも含めて読み込みます。
+         * @param depth ノードの深さ
+         * @return 読み込んだノード
+         */
+        Node readNode(final int depth) {
+
+            if(depth > MAX_NODE_DEPTH) {
+                throw new SqlTemplateArchiveException("Broken template archive : too deep nodes.");
+            }
+
+            final byte kind = buffer.get();
+            final int position = readVarint();
+
+            switch(kind) {
+                case KIND_SQL:
+                    return new SqlNode(position, readString());
+
+                case KIND_PREFIX_SQL: {
+                    final String prefix = readString();
+                    return new PrefixSqlNode(position, prefix, readString());
+                }
+
+                case KIND_BIND_VARIABLE: {
+                    final String expression = readString();
+                    return new BindVariableNode(position, expression, parser.createExpression(expression, position));
+                }
+
+                case KIND_PAREN_BIND_VARIABLE: {
+                    final String expression = readString();
+                    final String operand = readString();
+                    return new ParenBindVariableNode(position, expression, parser.createExpression(expression, position),
+                            operand.isEmpty() ? null : operand);
+                }
+
+                case KIND_EMBEDDED_VALUE: {
+                    final String expression = readString();
+                    return new EmbeddedValueNode(position, expression, parser.createExpression(expression, position));
+                }
+
+                case KIND_CONTAINER:
+                    return readChildren(new ContainerNode(position), depth);
+
+                case KIND_BEGIN:
+                    return readChildren(new BeginNode(position), depth);
+
+                case KIND_ELSE:
+                    return readChildren(new ElseNode(position), depth);
+
+                case KIND_IF: {
+                    final String expression = readString();
+                    final IfNode ifNode = new IfNode(position, expression, parser.createExpression(expression, position));
+                    readChildren(ifNode, depth);
+                    if(buffer.get() != 0) {
+                        final Node elseNode = readNode(depth + 1);
+                        if(!(elseNode instanceof ElseNode)) {
+                            throw new SqlTemplateArchiveException(String.format("Broken template archive : unexpected else node %s.",
+                                    elseNode.getClass().getSimpleName()));
+                        }
+                        ifNode.setElseNode((ElseNode) elseNode);
+                    }
+                    return ifNode;
+                }
+
+                default:
+                    throw new SqlTemplateArchiveException(String.format("Unknown node kind : %d", kind));
+            }
+
+        }
+
+        private Node readChildren(final Node node, final int depth) {
+            final int childSize = readLength();
+            for(int i=0; i < childSize; i++) {
+                node.addChild(readNode(depth + 1));
+            }
+            return node;
+        }
+
+    }
+
+}
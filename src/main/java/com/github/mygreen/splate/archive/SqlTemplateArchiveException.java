@@ -0,0 +1,31 @@
+package com.github.mygreen.splate.archive;
+
+import com.github.mygreen.splate.TwoWaySqlException;
+
+/**
+ * SQLテンプレートのアーカイブの読み書きに失敗したときの例外です。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class SqlTemplateArchiveException extends TwoWaySqlException {
+
+    /**
+     * メッセージと原因となったエラーを指定しインスタンスを作成します。
+     *
+     * @param message メッセージ。
+     * @param cause 原因となったエラー。
+     */
+    public SqlTemplateArchiveException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * メッセージを指定しインスタンスを作成します。
+     * @param message メッセージ。
+     */
+    public SqlTemplateArchiveException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * ビルド時にパースしたSQLテンプレートを、アーカイブとして保存、読み込みする機能を提供します。
+ */
+package com.github.mygreen.splate.archive;
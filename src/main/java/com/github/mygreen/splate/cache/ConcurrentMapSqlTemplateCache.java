@@ -0,0 +1,91 @@
+package com.github.mygreen.splate.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.github.mygreen.splate.SqlTemplate;
+
+import lombok.NonNull;
+
+/**
+ * {@link ConcurrentHashMap} によるSQLテンプレートのキャッシュです。
+ * <p>件数の上限がないため、SQLファイルなど種類が限られたテンプレートのキャッシュに向いています。</p>
+ * <p>{@link com.github.mygreen.splate.SqlTemplateEngine} のデフォルトのキャッシュです。</p>
+ * <p>SQLテンプレートの読み込みは {@link ConcurrentHashMap} のロックの外で行い、同じキーの読み込みは1つのスレッドのみで実行します。
+ *  読み込みに失敗した結果はキャッシュしません。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class ConcurrentMapSqlTemplateCache implements SqlTemplateCache {
+
+    /**
+     * キャッシュの本体
+     */
+    private final Map<Object, SqlTemplate> store = new ConcurrentHashMap<>();
+
+    /**
+     * 実行中の読み込み処理
+     */
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Override
+    public SqlTemplate get(@NonNull final Object key, @NonNull final Function<Object, SqlTemplate> loader) {
+
+        final SqlTemplate template = store.get(key);
+        if(template != null) {
+            return template;
+        }
+
+        return singleFlight.execute(key, call -> {
+            // 他のスレッドの読み込みが、直前に完了している場合
+            final SqlTemplate existing = store.get(key);
+            if(existing != null) {
+                return existing;
+            }
+
+            final SqlTemplate loaded = loader.apply(key);
+            store.put(key, loaded);
+            if(call.isInvalidated()) {
+                // 読み込み中に破棄された場合は、登録を取り消す。
+                store.remove(key, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    @Override
+    public SqlTemplate getIfPresent(@NonNull final Object key) {
+        return store.get(key);
+    }
+
+    @Override
+    public void put(@NonNull final Object key, @NonNull final SqlTemplate template) {
+        store.put(key, template);
+    }
+
+    @Override
+    public boolean replace(@NonNull final Object key, @NonNull final SqlTemplate oldTemplate, @NonNull final SqlTemplate newTemplate) {
+        return store.replace(key, oldTemplate, newTemplate);
+    }
+
+    @Override
+    public void invalidate(@NonNull final Object key) {
+        singleFlight.invalidate(key);
+        store.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        singleFlight.invalidateAll();
+        store.clear();
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+}
@@ -0,0 +1,382 @@
+package com.github.mygreen.splate.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import com.github.mygreen.splate.SqlTemplate;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * 件数と重みの上限を持つ、LRU(Least Recently Used)方式のSQLテンプレートのキャッシュです。
+ * <p>上限を超えた場合は、最も長い間参照されていないSQLテンプレートから破棄します。</p>
+ * <p>また、登録からの経過時間、最後に参照されてからの経過時間による有効期限を設定できます。</p>
+ * <p>{@link com.github.mygreen.splate.SqlTemplateEngine#getTemplateByText(String)} のように、
+ *  動的に組み立てたSQLをキャッシュする場合に向いています。
+ * </p>
+ *
+ * <pre class="highlight"><code class="java">
+ * LruSqlTemplateCache cache = new LruSqlTemplateCache(1000);
+ * cache.setMaximumWeight(1_000_000L);
+ * cache.setExpireAfterAccess(Duration.ofMinutes(30));
+ *
+ * SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+ * templateEngine.setCached(true);
+ * templateEngine.setTemplateCache(cache);
+ * </code></pre>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class LruSqlTemplateCache implements SqlTemplateCache {
+
+    /**
+     * キャッシュする件数の上限。
+     */
+    @Getter
+    private final int maximumSize;
+
+    /**
+     * キャッシュ全体の重みの上限。
+     * デフォルト値は、{@link Long#MAX_VALUE} で重みによる制限はありません。
+     */
+    @Getter
+    @Setter
+    private long maximumWeight = Long.MAX_VALUE;
+
+    /**
+     * SQLテンプレートの重みを計算する処理。
+     * デフォルト値は、{@link SqlTemplateWeigher#DEFAULT} です。
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private SqlTemplateWeigher weigher = SqlTemplateWeigher.DEFAULT;
+
+    /**
+     * キャッシュに登録してからの有効期限。
+     * デフォルト値は、{@literal null} で有効期限はありません。
+     */
+    @Getter
+    @Setter
+    private Duration expireAfterWrite;
+
+    /**
+     * 最後に参照されてからの有効期限。
+     * デフォルト値は、{@literal null} で有効期限はありません。
+     */
+    @Getter
+    @Setter
+    private Duration expireAfterAccess;
+
+    /**
+     * 現在時刻（ナノ秒）を取得する処理。テスト用に切り替え可能にしています。
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private LongSupplier ticker = System::nanoTime;
+
+    /**
+     * キャッシュの本体。参照順に並びます。
+     */
+    private final LinkedHashMap<Object, CacheEntry> store = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * キャッシュの本体を操作するときのロック。
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 実行中の読み込み処理
+     */
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * 現在キャッシュしている重みの合計。
+     */
+    private long totalWeight;
+
+    /**
+     * キャッシュする件数の上限を指定してインスタンスを作成します。
+     *
+     * @param maximumSize キャッシュする件数の上限。
+     * @throws IllegalArgumentException 件数の上限が1未満のときにスローされます。
+     */
+    public LruSqlTemplateCache(final int maximumSize) {
+        if(maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize should be greater than 0.");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public SqlTemplate get(@NonNull final Object key, @NonNull final Function<Object, SqlTemplate> loader) {
+
+        final SqlTemplate template = getIfPresent(key);
+        if(template != null) {
+            return template;
+        }
+
+        // パース処理はロックの外で行い、同じキーのパースは1つのスレッドのみで実行する。
+        return singleFlight.execute(key, call -> {
+            final SqlTemplate existing = getIfPresent(key);
+            if(existing != null) {
+                return existing;
+            }
+
+            final SqlTemplate loaded = loader.apply(key);
+
+            lock.lock();
+            try {
+                // 読み込み中に put(...) で登録されている場合は、そちらを優先する。
+                final long now = ticker.getAsLong();
+                final CacheEntry registered = store.get(key);
+                if(registered != null && !isExpired(registered, now)) {
+                    registered.accessTime = now;
+                    return registered.template;
+                }
+
+                if(!call.isInvalidated()) {
+                    putEntry(key, loaded, now);
+                }
+                return loaded;
+
+            } finally {
+                lock.unlock();
+            }
+        });
+
+    }
+
+    @Override
+    public SqlTemplate getIfPresent(@NonNull final Object key) {
+
+        lock.lock();
+        try {
+            final CacheEntry entry = store.get(key);
+            if(entry == null) {
+                return null;
+            }
+
+            final long now = ticker.getAsLong();
+            if(isExpired(entry, now)) {
+                removeEntry(key);
+                return null;
+            }
+
+            entry.accessTime = now;
+            return entry.template;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(@NonNull final Object key, @NonNull final SqlTemplate template) {
+        lock.lock();
+        try {
+            putEntry(key, template, ticker.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(@NonNull final Object key, @NonNull final SqlTemplate oldTemplate, @NonNull final SqlTemplate newTemplate) {
+        lock.lock();
+        try {
+            final CacheEntry entry = store.get(key);
+            final long now = ticker.getAsLong();
+            if(entry == null || entry.template != oldTemplate || isExpired(entry, now)) {
+                return false;
+            }
+
+            putEntry(key, newTemplate, now);
+            return true;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(@NonNull final Object key) {
+        lock.lock();
+        try {
+            singleFlight.invalidate(key);
+            removeEntry(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            singleFlight.invalidateAll();
+            store.clear();
+            totalWeight = 0L;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return store.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 現在キャッシュしている重みの合計を取得します。
+     *
+     * @return 重みの合計。
+     */
+    public long getTotalWeight() {
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 有効期限切れのSQLテンプレートを破棄します。
+     * <p>有効期限切れの判定は参照時と登録時にも行われるため、通常は明示的に呼び出す必要はありません。</p>
+     */
+    public void cleanUp() {
+        lock.lock();
+        try {
+            removeExpiredEntries(ticker.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * ロックを取得した状態で、キャッシュに登録します。
+     * @param key キャッシュのキー
+     * @param template SQLテンプレート
+     * @param now 現在時刻
+     */
+    private void putEntry(final Object key, final SqlTemplate template, final long now) {
+
+        final int weight = weigher.weigh(template);
+        if(weight < 0) {
+            throw new IllegalStateException(String.format("weight should be positive or zero, but %d.", weight));
+        }
+
+        removeEntry(key);
+
+        if(weight > maximumWeight) {
+            // 単体で上限を超える場合はキャッシュしない。
+            return;
+        }
+
+        store.put(key, new CacheEntry(template, weight, now));
+        totalWeight += weight;
+
+        removeExpiredEntries(now);
+        evictEntries();
+
+    }
+
+    /**
+     * ロックを取得した状態で、キャッシュを破棄します。
+     * @param key キャッシュのキー
+     */
+    private void removeEntry(final Object key) {
+        final CacheEntry removed = store.remove(key);
+        if(removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    /**
+     * ロックを取得した状態で、上限を超えた分を参照されていない順に破棄します。
+     */
+    private void evictEntries() {
+
+        final Iterator<CacheEntry> itr = store.values().iterator();
+        while(itr.hasNext() && (store.size() > maximumSize || totalWeight > maximumWeight)) {
+            final CacheEntry eldest = itr.next();
+            itr.remove();
+            totalWeight -= eldest.weight;
+        }
+    }
+
+    /**
+     * ロックを取得した状態で、有効期限切れのエントリを破棄します。
+     * @param now 現在時刻
+     */
+    private void removeExpiredEntries(final long now) {
+
+        if(expireAfterWrite == null && expireAfterAccess == null) {
+            return;
+        }
+
+        final Iterator<Map.Entry<Object, CacheEntry>> itr = store.entrySet().iterator();
+        while(itr.hasNext()) {
+            final CacheEntry entry = itr.next().getValue();
+            if(isExpired(entry, now)) {
+                itr.remove();
+                totalWeight -= entry.weight;
+            }
+        }
+    }
+
+    /**
+     * エントリが有効期限切れかどうか判定します。
+     * @param entry 判定対象のエントリ
+     * @param now 現在時刻
+     * @return 有効期限切れのとき {@literal true} を返します。
+     */
+    private boolean isExpired(final CacheEntry entry, final long now) {
+
+        if(expireAfterWrite != null && now - entry.writeTime >= expireAfterWrite.toNanos()) {
+            return true;
+        }
+
+        if(expireAfterAccess != null && now - entry.accessTime >= expireAfterAccess.toNanos()) {
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * キャッシュのエントリ
+     */
+    private static class CacheEntry {
+
+        private final SqlTemplate template;
+
+        private final int weight;
+
+        private final long writeTime;
+
+        private long accessTime;
+
+        CacheEntry(final SqlTemplate template, final int weight, final long now) {
+            this.template = template;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.mygreen.splate.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 同じキーのSQLテンプレートの読み込みを、1つのスレッドのみで実行するための処理です。
+ * <p>最初に呼び出したスレッドが読み込み、同時に呼び出した他のスレッドはその結果を待ちます。
+ *  読み込み中もキャッシュの本体はロックしないため、異なるキーの処理は待たされません。
+ * </p>
+ * <p>読み込みに失敗した場合は、待っていたスレッドにも同じ例外をスローし、結果は保持しません。
+ *  次に呼び出されたときに、改めて読み込みます。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class SingleFlight {
+
+    /**
+     * 読み込み中の処理。キーはキャッシュのキーです。
+     */
+    private final ConcurrentHashMap<Object, Call> calls = new ConcurrentHashMap<>();
+
+    /**
+     * 読み込み処理を実行します。同じキーの読み込みが実行中の場合は、その結果を待ちます。
+     *
+     * @param <T> 読み込み結果のタイプ
+     * @param key キャッシュのキー
+     * @param task 読み込み処理。引数には、実行中の読み込み処理の状態が渡されます。
+     * @return 読み込み結果
+     * @throws IllegalStateException 読み込み処理の中で、同じキーの読み込みを呼び出した場合にスローされます。
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(final Object key, final Function<Call, T> task) {
+
+        final Call call = new Call(Thread.currentThread());
+        final Call existing = calls.putIfAbsent(key, call);
+        if(existing != null) {
+            if(existing.owner == Thread.currentThread()) {
+                throw new IllegalStateException(String.format("Recursive load for key '%s'.", key));
+            }
+            return (T) existing.await();
+        }
+
+        try {
+            final T result = task.apply(call);
+            call.future.complete(result);
+            return result;
+
+        } catch(RuntimeException | Error e) {
+            call.future.completeExceptionally(e);
+            throw e;
+
+        } finally {
+            calls.remove(key, call);
+        }
+
+    }
+
+    /**
+     * 実行中の読み込み処理を無効にします。
+     * <p>待っているスレッドには結果を返しますが、読み込んだ結果はキャッシュに登録しません。</p>
+     *
+     * @param key キャッシュのキー
+     */
+    void invalidate(final Object key) {
+        final Call call = calls.remove(key);
+        if(call != null) {
+            call.invalidated = true;
+        }
+    }
+
+    /**
+     * 実行中の全ての読み込み処理を無効にします。
+     */
+    void invalidateAll() {
+        calls.keySet().forEach(this::invalidate);
+    }
+
+    /**
+     * 実行中の読み込み処理の状態です。
+     */
+    static class Call {
+
+        /**
+         * 読み込みを実行しているスレッド
+         */
+        private final Thread owner;
+
+        /**
+         * 読み込み結果
+         */
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        /**
+         * 読み込み中にキャッシュが破棄されたかどうか
+         */
+        private volatile boolean invalidated;
+
+        Call(final Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * 読み込み中にキャッシュが破棄されたかどうか判定します。
+         * @return 破棄された場合は {@literal true} を返します。
+         */
+        boolean isInvalidated() {
+            return invalidated;
+        }
+
+        /**
+         * 読み込みの完了を待ちます。
+         * @return 読み込み結果
+         */
+        private Object await() {
+            try {
+                return future.join();
+            } catch(CompletionException e) {
+                final Throwable cause = e.getCause();
+                if(cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if(cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
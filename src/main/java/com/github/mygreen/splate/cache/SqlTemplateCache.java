@@ -0,0 +1,84 @@
+package com.github.mygreen.splate.cache;
+
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+
+import com.github.mygreen.splate.SqlTemplate;
+
+/**
+ * パースしたSQLテンプレートをキャッシュする処理のインタフェースです。
+ * <p>{@link com.github.mygreen.splate.SqlTemplateEngine} から複数のスレッドで同時に呼び出されるため、
+ *  実装クラスはスレッドセーフである必要があります。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public interface SqlTemplateCache {
+
+    /**
+     * キャッシュからSQLテンプレートを取得します。
+     * <p>キャッシュに存在しない場合は、引数で指定した処理でSQLテンプレートを作成しキャッシュに登録します。</p>
+     * <p>作成する処理はファイルの読み込みやパースを伴うため、実装クラスは、他のキーの処理を待たせるロックを保持したまま呼び出さないでください。
+     *  また、作成に失敗した場合は、その結果をキャッシュしないでください。
+     * </p>
+     *
+     * @param key キャッシュのキー
+     * @param loader キャッシュに存在しない場合に、SQLテンプレートを作成する処理。
+     * @return キャッシュしているSQLテンプレート。
+     */
+    SqlTemplate get(Object key, Function<Object, SqlTemplate> loader);
+
+    /**
+     * キャッシュに存在する場合のみ、SQLテンプレートを取得します。
+     *
+     * @param key キャッシュのキー
+     * @return キャッシュしているSQLテンプレート。存在しない場合は {@literal null} を返します。
+     */
+    @Nullable
+    SqlTemplate getIfPresent(Object key);
+
+    /**
+     * SQLテンプレートをキャッシュに登録します。
+     * <p>既に登録されている場合は置き換えます。</p>
+     *
+     * @param key キャッシュのキー
+     * @param template 登録するSQLテンプレート
+     */
+    void put(Object key, SqlTemplate template);
+
+    /**
+     * 指定したSQLテンプレートがキャッシュされている場合のみ、新しいSQLテンプレートに置き換えます。
+     * <p>置き換えるSQLテンプレートを作成している間に、他のスレッドで破棄や置き換えが行われた場合に、
+     *  古い情報で上書きしないために使用します。
+     * </p>
+     *
+     * @param key キャッシュのキー
+     * @param oldTemplate 現在キャッシュされているはずのSQLテンプレート
+     * @param newTemplate 新しく登録するSQLテンプレート
+     * @return 置き換えた場合は {@literal true} を返します。
+     */
+    boolean replace(Object key, SqlTemplate oldTemplate, SqlTemplate newTemplate);
+
+    /**
+     * 指定したキーのキャッシュを破棄します。
+     *
+     * @param key キャッシュのキー
+     */
+    void invalidate(Object key);
+
+    /**
+     * キャッシュしている情報を全て破棄します。
+     */
+    void clear();
+
+    /**
+     * 現在キャッシュしている件数を取得します。
+     *
+     * @return キャッシュしている件数。
+     */
+    int size();
+
+}
@@ -0,0 +1,29 @@
+package com.github.mygreen.splate.cache;
+
+import com.github.mygreen.splate.SqlTemplate;
+
+/**
+ * キャッシュするSQLテンプレートの重みを計算する処理です。
+ * <p>{@link LruSqlTemplateCache} で、キャッシュ全体の重みの上限を判定するときに使用します。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+@FunctionalInterface
+public interface SqlTemplateWeigher {
+
+    /**
+     * パースしたSQLの文字数とノード数の合計を重みとする実装です。
+     */
+    SqlTemplateWeigher DEFAULT = template -> template.getSql().length() + template.getNodeCount();
+
+    /**
+     * SQLテンプレートの重みを計算します。
+     *
+     * @param template 計算対象のSQLテンプレート
+     * @return 重み。0以上の値を返す必要があります。
+     */
+    int weigh(SqlTemplate template);
+
+}
@@ -0,0 +1,4 @@
+/**
+ * パースしたSQLテンプレートのキャッシュ機能を提供します。
+ */
+package com.github.mygreen.splate.cache;
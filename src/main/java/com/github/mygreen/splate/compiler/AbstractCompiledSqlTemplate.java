@@ -0,0 +1,146 @@
+package com.github.mygreen.splate.compiler;
+
+import com.github.mygreen.splate.BeanPropertySqlTemplateContext;
+import com.github.mygreen.splate.ProcessCapacityHint;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateContext;
+import com.github.mygreen.splate.node.BindVariableNode;
+import com.github.mygreen.splate.node.IfNode;
+import com.github.mygreen.splate.node.Node;
+import com.github.mygreen.splate.node.NodeProcessContext;
+
+import lombok.Getter;
+
+/**
+ * {@link SqlTemplateCompiler} が生成するクラスの親クラスです。
+ * <p>生成したクラスから呼び出す共通処理を提供します。</p>
+ * <p>コンテキストが {@link BeanPropertySqlTemplateContext} で、そのJavaBeanのクラスタイプが変換時に指定したものと一致する場合に、
+ *  生成したコードで評価します。それ以外の場合は、変換元の {@link SqlTemplate} で評価します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public abstract class AbstractCompiledSqlTemplate implements CompiledSqlTemplate {
+
+    /**
+     * 変換元のSQLテンプレート
+     */
+    @Getter
+    private final SqlTemplate template;
+
+    /**
+     * JavaBeanのクラスタイプ
+     */
+    @Getter
+    private final Class<?> beanType;
+
+    /**
+     * 生成したコードから参照するノード
+     */
+    private final Node[] nodes;
+
+    /**
+     * 生成したコードから直接参照するプロパティの、getterメソッドの戻り値のタイプ。
+     * インデックスは {@link #nodes} と対応します。
+     */
+    private final Class<?>[] propertyTypes;
+
+    /**
+     * インスタンスを作成します。
+     *
+     * @param template 変換元のSQLテンプレート
+     * @param beanType JavaBeanのクラスタイプ
+     * @param nodes 生成したコードから参照するノード
+     * @param propertyTypes 生成したコードから直接参照するプロパティの、getterメソッドの戻り値のタイプ
+     */
+    protected AbstractCompiledSqlTemplate(final SqlTemplate template, final Class<?> beanType,
+            final Node[] nodes, final Class<?>[] propertyTypes) {
+        this.template = template;
+        this.beanType = beanType;
+        this.nodes = nodes;
+        this.propertyTypes = propertyTypes;
+    }
+
+    @Override
+    public ProcessResult process(final SqlTemplateContext<?> templateContext) {
+
+        if(!isDirectAccessible(templateContext)) {
+            return template.process(templateContext);
+        }
+
+        final ProcessCapacityHint capacityHint = template.getCapacityHint();
+        final int sqlCapacity = capacityHint.getSqlCapacity();
+        final int bindParamCapacity = capacityHint.getBindParamCapacity();
+
+        final NodeProcessContext processContext = new NodeProcessContext(templateContext, sqlCapacity, bindParamCapacity);
+        processContext.setParsedSql(template.getSql());
+        processContext.setSqlLineIndex(template.getSqlLineIndex());
+        processContext.setInListPadding(template.getInListPadding());
+
+        execute(processContext, ((BeanPropertySqlTemplateContext) templateContext).getValue());
+
+        capacityHint.record(processContext, sqlCapacity, bindParamCapacity);
+
+        return new ProcessResult(processContext.getProcessedSql(), processContext.getBindParams());
+    }
+
+    /**
+     * JavaBeanのプロパティを、getterメソッドで直接参照できるか判定します。
+     * <p>コンテキストを継承したクラスや、{@link org.springframework.expression.EvaluationContext} を編集している場合は、
+     *  プロパティの参照方法が変更されている可能性があるため、直接参照しません。
+     * </p>
+     * @param templateContext SQLテンプレートに渡すコンテキスト。
+     * @return 直接参照できる場合は {@literal true} を返します。
+     */
+    private boolean isDirectAccessible(final SqlTemplateContext<?> templateContext) {
+        return templateContext.getClass() == BeanPropertySqlTemplateContext.class
+                && ((BeanPropertySqlTemplateContext) templateContext).getValue().getClass() == beanType
+                && templateContext.getEvaluationContextEditor().isEmpty();
+    }
+
+    /**
+     * 生成したコードで、SQLテンプレートを評価します。
+     *
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @param bean JavaBeanのインスタンス。クラスタイプは {@link #getBeanType()} と一致します。
+     */
+    protected abstract void execute(NodeProcessContext ctx, Object bean);
+
+    /**
+     * ノードを評価します。
+     *
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @param index ノードのインデックス
+     */
+    protected final void accept(final NodeProcessContext ctx, final int index) {
+        nodes[index].accept(ctx);
+    }
+
+    /**
+     * {@code IF} コメントの条件式を評価します。
+     *
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @param index {@link IfNode} のインデックス
+     * @return 条件式の評価結果
+     */
+    protected final boolean evaluateCondition(final NodeProcessContext ctx, final int index) {
+        return ((IfNode) nodes[index]).evaluateCondition(ctx);
+    }
+
+    /**
+     * getterメソッドで取得したプロパティの値を、バインド変数として追加します。
+     * <p>値のクラスタイプは、EL式で評価したときと同じく、値が {@literal null} の場合のみgetterメソッドの戻り値のタイプとします。</p>
+     *
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @param value プロパティの値
+     * @param index {@link BindVariableNode} のインデックス
+     */
+    protected final void bindProperty(final NodeProcessContext ctx, final Object value, final int index) {
+        final Class<?> valueClass = value != null ? value.getClass() : propertyTypes[index];
+        ((BindVariableNode) nodes[index]).bindValue(ctx, value, valueClass);
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.github.mygreen.splate.compiler;
+
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateContext;
+
+/**
+ * Javaのクラスに変換したSQLテンプレートです。
+ * <p>{@link SqlTemplateCompiler} により作成します。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public interface CompiledSqlTemplate {
+
+    /**
+     * 変換元のSQLテンプレートを取得します。
+     *
+     * @return 変換元のSQLテンプレート
+     */
+    SqlTemplate getTemplate();
+
+    /**
+     * 変換時に指定したJavaBeanのクラスタイプを取得します。
+     * <p>このクラスのプロパティは、getterメソッドを直接呼び出して参照します。</p>
+     *
+     * @return JavaBeanのクラスタイプ
+     */
+    Class<?> getBeanType();
+
+    /**
+     * SQLテンプレートを評価します。
+     * <p>評価結果は {@link SqlTemplate#process(SqlTemplateContext)} と同じです。</p>
+     *
+     * @param templateContext SQLテンプレートに渡すコンテキスト。
+     * @return SQLテンプレートを評価した結果。
+     */
+    ProcessResult process(SqlTemplateContext<?> templateContext);
+
+}
@@ -0,0 +1,31 @@
+package com.github.mygreen.splate.compiler;
+
+import com.github.mygreen.splate.TwoWaySqlException;
+
+/**
+ * SQLテンプレートのクラスへの変換に失敗したときの例外です。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class SqlTemplateCompileException extends TwoWaySqlException {
+
+    /**
+     * メッセージと原因となったエラーを指定しインスタンスを作成します。
+     *
+     * @param message メッセージ。
+     * @param cause 原因となったエラー。
+     */
+    public SqlTemplateCompileException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * メッセージを指定しインスタンスを作成します。
+     * @param message メッセージ。
+     */
+    public SqlTemplateCompileException(String message) {
+        super(message);
+    }
+}
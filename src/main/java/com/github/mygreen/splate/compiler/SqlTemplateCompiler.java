@@ -0,0 +1,647 @@
+package com.github.mygreen.splate.compiler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.expression.PropertyPathExpression;
+import com.github.mygreen.splate.node.BindVariableNode;
+import com.github.mygreen.splate.node.IfNode;
+import com.github.mygreen.splate.node.InstructionProgram;
+import com.github.mygreen.splate.node.InstructionVisitor;
+import com.github.mygreen.splate.node.Node;
+import com.github.mygreen.splate.node.NodeProcessContext;
+import com.github.mygreen.splate.node.PrefixSqlNode;
+
+import lombok.NonNull;
+
+/**
+ * パースしたSQLテンプレートを、実行時にJavaのクラスに変換します。
+ * <p>{@link InstructionProgram} で命令の配列に変換した後、各命令をJavaのバイトコードに変換します。
+ *  SQLテンプレートの固定部分は文字列定数とし、{@code IF} / {@code BEGIN} コメントは分岐命令に変換します。
+ *  {@literal name} や {@literal name != null} のように、JavaBeanのプロパティを1つだけ参照する式は、
+ *  getterメソッドを直接呼び出します。それ以外の式は、SQLテンプレートのノードで評価します。
+ * </p>
+ * <p>生成したクラスは、JavaBeanのクラスと同じパッケージに定義します。
+ *  Java15以降では、参照されなくなったときにアンロードできるhidden classとして定義します。
+ *  hidden classを使用できない場合は通常のクラスとして定義し、同じ内容のクラスは再利用します。
+ *  ビルド時の処理は不要です。
+ * </p>
+ * <p>getterメソッドを直接呼び出したときに例外が発生した場合は、EL式の評価時のように
+ *  {@link com.github.mygreen.splate.node.NodeProcessException} でラップせずにそのままスローします。
+ * </p>
+ *
+ * <pre class="highlight"><code class="java">
+ * SqlTemplate template = templateEngine.getTemplate("/sql/employee.sql");
+ * CompiledSqlTemplate compiled = new SqlTemplateCompiler().compile(template, EmployeeParam.class);
+ *
+ * ProcessResult result = compiled.process(new BeanPropertySqlTemplateContext(param));
+ * </code></pre>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class SqlTemplateCompiler {
+
+    /**
+     * 1つの定数として出力する、SQLの最大の長さ。
+     * クラスファイルの文字列定数の上限を超えないように分割します。
+     */
+    private static final int MAX_CONSTANT_LENGTH = 8192;
+
+    /**
+     * 生成するクラス名の連番
+     */
+    private static final AtomicLong CLASS_SEQUENCE = new AtomicLong();
+
+    /**
+     * hidden classとして定義できなかったときに定義したクラス。
+     * <p>通常のクラスはアンロードされないため、JavaBeanのクラスごとに、生成したクラスの内容が同じであれば再利用します。</p>
+     */
+    private static final ClassValue<Map<GeneratedClassKey, Class<?>>> DEFINED_CLASSES = new ClassValue<>() {
+
+        @Override
+        protected Map<GeneratedClassKey, Class<?>> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final String SUPER_CLASS = Type.getInternalName(AbstractCompiledSqlTemplate.class);
+
+    private static final String PROCESS_CONTEXT = Type.getInternalName(NodeProcessContext.class);
+
+    private static final String CONSTRUCTOR_DESC = Type.getMethodDescriptor(Type.VOID_TYPE,
+            Type.getType(SqlTemplate.class), Type.getType(Class.class), Type.getType(Node[].class), Type.getType(Class[].class));
+
+    /**
+     * ローカル変数 - {@literal this}
+     */
+    private static final int LOCAL_THIS = 0;
+
+    /**
+     * ローカル変数 - {@link NodeProcessContext}
+     */
+    private static final int LOCAL_CONTEXT = 1;
+
+    /**
+     * ローカル変数 - JavaBeanのクラスにキャストしたインスタンス
+     */
+    private static final int LOCAL_BEAN = 3;
+
+    /**
+     * ローカル変数 - {@code BEGIN} コメントの範囲の状態を保存する変数の開始位置
+     */
+    private static final int LOCAL_SCOPE_START = 4;
+
+    /**
+     * SQLテンプレートをJavaのクラスに変換します。
+     *
+     * @param template 変換対象のSQLテンプレート
+     * @param beanType SQLテンプレートのパラメータとして渡すJavaBeanのクラスタイプ
+     * @return 変換したSQLテンプレート
+     * @throws IllegalArgumentException JavaBeanのクラスタイプが、インタフェースや配列などのクラスでない場合にスローされます。
+     * @throws SqlTemplateCompileException クラスの生成、定義に失敗した場合にスローされます。
+     */
+    public CompiledSqlTemplate compile(@NonNull final SqlTemplate template, @NonNull final Class<?> beanType) {
+
+        if(beanType.isInterface() || beanType.isArray() || beanType.isPrimitive()) {
+            throw new IllegalArgumentException("beanType should be class : " + beanType.getName());
+        }
+
+        final InstructionProgram program = InstructionProgram.compile(template.getNode());
+        final String className = Type.getInternalName(beanType) + "$$SplateTemplate";
+        final Generator generator = new Generator(className, beanType);
+        final byte[] bytes = generate(generator, program);
+
+        final Class<?> generatedClass = defineClass(beanType, bytes, program);
+        try {
+            return (CompiledSqlTemplate) generatedClass
+                    .getConstructor(SqlTemplate.class, Class.class, Node[].class, Class[].class)
+                    .newInstance(template, beanType, generator.nodes.toArray(new Node[0]), generator.propertyTypes.toArray(new Class[0]));
+
+        } catch(ReflectiveOperationException e) {
+            throw new SqlTemplateCompileException("Fail creating instance of generated class : " + generatedClass.getName(), e);
+        }
+
+    }
+
+    /**
+     * 命令の配列からクラスを生成します。
+     *
+     * @param generator クラスの生成処理
+     * @param program 命令の配列
+     * @return 生成したクラス
+     * @throws SqlTemplateCompileException クラスの生成に失敗した場合にスローされます。
+     */
+    private static byte[] generate(final Generator generator, final InstructionProgram program) {
+        try {
+            return generator.generate(program);
+        } catch(RuntimeException e) {
+            // 命令数がメソッドのサイズの上限を超えた場合など
+            throw new SqlTemplateCompileException("Fail generating class for template : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 生成したクラスを、JavaBeanのクラスと同じパッケージに定義します。
+     * <p>hidden classが定義できる場合は、hidden classとして定義します。
+     *  定義できない場合は、クラス名に連番を付けて生成し直して、通常のクラスとして定義します。
+     *  既に同じ内容のクラスを定義している場合は、そのクラスを返します。
+     * </p>
+     *
+     * @param beanType JavaBeanのクラスタイプ
+     * @param bytes 生成したクラス
+     * @param program 生成元の命令の配列
+     * @return 定義したクラス
+     */
+    private static Class<?> defineClass(final Class<?> beanType, final byte[] bytes, final InstructionProgram program) {
+
+        final Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(beanType, MethodHandles.lookup());
+        } catch(IllegalAccessException e) {
+            throw new SqlTemplateCompileException("Not accessible package of bean : " + beanType.getName(), e);
+        }
+
+        final Class<?> hiddenClass = defineHiddenClass(lookup, bytes);
+        if(hiddenClass != null) {
+            return hiddenClass;
+        }
+
+        return DEFINED_CLASSES.get(beanType).computeIfAbsent(new GeneratedClassKey(bytes), key -> {
+            final String className = Type.getInternalName(beanType) + "$$SplateTemplate" + CLASS_SEQUENCE.incrementAndGet();
+            try {
+                return lookup.defineClass(generate(new Generator(className, beanType), program));
+
+            } catch(IllegalAccessException | LinkageError e) {
+                throw new SqlTemplateCompileException("Fail defining generated class for bean : " + beanType.getName(), e);
+            }
+        });
+
+    }
+
+    /**
+     * Java15以降で使用できる {@code Lookup#defineHiddenClass} で、hidden classとして定義します。
+     * <p>Java11でもコンパイルできるように、リフレクションで呼び出します。</p>
+     *
+     * @param lookup JavaBeanのクラスの {@link Lookup}
+     * @param bytes 生成したクラス
+     * @return 定義したクラス。hidden classが使用できない場合は {@literal null} を返します。
+     */
+    private static Class<?> defineHiddenClass(final Lookup lookup, final byte[] bytes) {
+
+        final Method method;
+        try {
+            final Class<?> optionType = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            method = Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class,
+                    Array.newInstance(optionType, 0).getClass());
+        } catch(ClassNotFoundException | NoSuchMethodException e) {
+            return null;
+        }
+
+        try {
+            final Object options = Array.newInstance(method.getParameterTypes()[2].getComponentType(), 0);
+            return ((Lookup) method.invoke(lookup, bytes, true, options)).lookupClass();
+
+        } catch(InvocationTargetException e) {
+            if(e.getCause() instanceof IllegalAccessException) {
+                // JavaBeanのクラスが異なるモジュールの場合は、通常のクラスとして定義する。
+                return null;
+            }
+            throw new SqlTemplateCompileException("Fail defining hidden class.", e.getCause());
+
+        } catch(IllegalAccessException e) {
+            return null;
+        }
+
+    }
+
+    /**
+     * 命令の配列からクラスを生成します。
+     * <p>{@link InstructionProgram} の命令を、同じ処理を行うバイトコードに変換します。</p>
+     */
+    private static class Generator implements InstructionVisitor {
+
+        private final String className;
+
+        private final Class<?> beanType;
+
+        private final String beanInternalName;
+
+        /**
+         * 生成したコードから参照するノード
+         */
+        private final List<Node> nodes = new ArrayList<>();
+
+        /**
+         * 直接参照するプロパティの戻り値のタイプ
+         */
+        private final List<Class<?>> propertyTypes = new ArrayList<>();
+
+        /**
+         * プロパティ名ごとのgetterメソッド。直接呼び出せない場合はnullを格納します。
+         */
+        private final Map<String, Method> getters = new HashMap<>();
+
+        /**
+         * まだ出力していないSQLの固定部分
+         */
+        private final StringBuilder pendingSql = new StringBuilder();
+
+        private MethodVisitor mv;
+
+        /**
+         * 命令の位置ごとの分岐先
+         */
+        private Label[] labels;
+
+        private int scopeDepth;
+
+        Generator(final String className, final Class<?> beanType) {
+            this.className = className;
+            this.beanType = beanType;
+            this.beanInternalName = Type.getInternalName(beanType);
+        }
+
+        byte[] generate(final InstructionProgram program) {
+
+            this.labels = new Label[program.getInstructionCount() + 1];
+
+            final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+
+                @Override
+                protected String getCommonSuperClass(final String type1, final String type2) {
+                    // 生成するコードで、異なる型の値が合流することはない。
+                    return "java/lang/Object";
+                }
+            };
+
+            cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, SUPER_CLASS, null);
+
+            // コンストラクタ
+            MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+            init.visitCode();
+            for(int i=0; i <= 4; i++) {
+                init.visitVarInsn(Opcodes.ALOAD, i);
+            }
+            init.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER_CLASS, "<init>", CONSTRUCTOR_DESC, false);
+            init.visitInsn(Opcodes.RETURN);
+            init.visitMaxs(0, 0);
+            init.visitEnd();
+
+            // 評価処理
+            this.mv = cw.visitMethod(Opcodes.ACC_PROTECTED, "execute",
+                    Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(NodeProcessContext.class), Type.getType(Object.class)),
+                    null, null);
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, beanInternalName);
+            mv.visitVarInsn(Opcodes.ASTORE, LOCAL_BEAN);
+
+            program.accept(this);
+            flushSql();
+
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+
+        @Override
+        public void visitLabel(final int index) {
+            flushSql();
+            mv.visitLabel(label(index));
+        }
+
+        @Override
+        public void visitEmitSql(final String sql) {
+            pendingSql.append(sql);
+        }
+
+        @Override
+        public void visitEmitPrefix(final PrefixSqlNode node) {
+            flushSql();
+
+            final Label skip = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "isEnabled", "()Z", false);
+            mv.visitJumpInsn(Opcodes.IFEQ, skip);
+            generateAddSql(node.getPrefix());
+            mv.visitLabel(skip);
+
+            pendingSql.append(node.getSql());
+        }
+
+        @Override
+        public void visitAccept(final Node node) {
+            flushSql();
+
+            if(node.getClass() == BindVariableNode.class) {
+                generateBind((BindVariableNode) node);
+                return;
+            }
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_THIS);
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            pushInt(registerNode(node, null));
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SUPER_CLASS, "accept",
+                    "(L" + PROCESS_CONTEXT + ";I)V", false);
+        }
+
+        @Override
+        public void visitJumpIfFalse(final IfNode node, final int target) {
+            flushSql();
+            generateCondition(node, label(target));
+        }
+
+        @Override
+        public void visitJump(final int target) {
+            flushSql();
+            mv.visitJumpInsn(Opcodes.GOTO, label(target));
+        }
+
+        @Override
+        public void visitEnable() {
+            flushSql();
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitInsn(Opcodes.ICONST_1);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "setEnabled", "(Z)V", false);
+        }
+
+        @Override
+        public void visitBeginScope() {
+            flushSql();
+
+            final int localSqlLength = LOCAL_SCOPE_START + scopeDepth * 3;
+            scopeDepth++;
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "startBuffering", "()V", false);
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "getProcessedSqlLength", "()I", false);
+            mv.visitVarInsn(Opcodes.ISTORE, localSqlLength);
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "getBindParams", "()Ljava/util/List;", false);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/List", "size", "()I", true);
+            mv.visitVarInsn(Opcodes.ISTORE, localSqlLength + 1);
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "isEnabled", "()Z", false);
+            mv.visitVarInsn(Opcodes.ISTORE, localSqlLength + 2);
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitInsn(Opcodes.ICONST_0);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "setEnabled", "(Z)V", false);
+        }
+
+        @Override
+        public void visitEndScope() {
+            flushSql();
+
+            scopeDepth--;
+            final int localSqlLength = LOCAL_SCOPE_START + scopeDepth * 3;
+
+            final Label enabled = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "isEnabled", "()Z", false);
+            mv.visitJumpInsn(Opcodes.IFNE, enabled);
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitVarInsn(Opcodes.ILOAD, localSqlLength);
+            mv.visitVarInsn(Opcodes.ILOAD, localSqlLength + 1);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "truncate", "(II)V", false);
+            mv.visitLabel(enabled);
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitVarInsn(Opcodes.ILOAD, localSqlLength + 2);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "setEnabled", "(Z)V", false);
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "endBuffering", "()V", false);
+        }
+
+        /**
+         * 命令の位置に対応する分岐先を取得します。
+         * @param index 命令の位置
+         * @return 分岐先
+         */
+        private Label label(final int index) {
+            if(labels[index] == null) {
+                labels[index] = new Label();
+            }
+            return labels[index];
+        }
+
+        /**
+         * {@code IF} コメントの条件式が成立しない場合に分岐するコードを生成します。
+         * @param node {@code IF} コメントのノード
+         * @param falseLabel 条件式が成立しない場合の分岐先
+         */
+        private void generateCondition(final IfNode node, final Label falseLabel) {
+
+            final PropertyPathExpression expression = PropertyPathExpression.parse(node.getExpression(), node.getParsedExpression());
+            final Method getter = expression != null && expression.isNullCheck()
+                    ? findGetter(expression.getSinglePropertyName()) : null;
+
+            if(getter == null) {
+                mv.visitVarInsn(Opcodes.ALOAD, LOCAL_THIS);
+                mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+                pushInt(registerNode(node, null));
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SUPER_CLASS, "evaluateCondition",
+                        "(L" + PROCESS_CONTEXT + ";I)Z", false);
+                mv.visitJumpInsn(Opcodes.IFEQ, falseLabel);
+                return;
+            }
+
+            if(getter.getReturnType().isPrimitive()) {
+                // プリミティブ型はnullにならない。
+                if(!expression.isNotNullCheck()) {
+                    mv.visitJumpInsn(Opcodes.GOTO, falseLabel);
+                }
+                return;
+            }
+
+            invokeGetter(getter);
+            mv.visitJumpInsn(expression.isNotNullCheck() ? Opcodes.IFNULL : Opcodes.IFNONNULL, falseLabel);
+        }
+
+        /**
+         * バインド変数のコードを生成します。
+         * @param node バインド変数のノード
+         */
+        private void generateBind(final BindVariableNode node) {
+
+            final PropertyPathExpression expression = PropertyPathExpression.parse(node.getExpression(), node.getParsedExpression());
+            final Method getter = expression != null && !expression.isNullCheck()
+                    ? findGetter(expression.getSinglePropertyName()) : null;
+
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_THIS);
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+
+            if(getter == null) {
+                pushInt(registerNode(node, null));
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SUPER_CLASS, "accept",
+                        "(L" + PROCESS_CONTEXT + ";I)V", false);
+                return;
+            }
+
+            invokeGetter(getter);
+            pushInt(registerNode(node, getter.getReturnType()));
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SUPER_CLASS, "bindProperty",
+                    "(L" + PROCESS_CONTEXT + ";Ljava/lang/Object;I)V", false);
+        }
+
+        /**
+         * まだ出力していないSQLの固定部分を出力するコードを生成します。
+         */
+        private void flushSql() {
+            if(pendingSql.length() == 0) {
+                return;
+            }
+
+            for(int start=0; start < pendingSql.length(); start += MAX_CONSTANT_LENGTH) {
+                generateAddSql(pendingSql.substring(start, Math.min(pendingSql.length(), start + MAX_CONSTANT_LENGTH)));
+            }
+            pendingSql.setLength(0);
+        }
+
+        private void generateAddSql(final String sql) {
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_CONTEXT);
+            mv.visitLdcInsn(sql);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROCESS_CONTEXT, "addSql", "(Ljava/lang/String;)V", false);
+        }
+
+        /**
+         * getterメソッドを呼び出し、戻り値をオブジェクト型でスタックに積むコードを生成します。
+         * @param getter getterメソッド
+         */
+        private void invokeGetter(final Method getter) {
+            mv.visitVarInsn(Opcodes.ALOAD, LOCAL_BEAN);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, beanInternalName, getter.getName(),
+                    Type.getMethodDescriptor(getter), false);
+
+            final Class<?> returnType = getter.getReturnType();
+            if(returnType.isPrimitive()) {
+                final Type primitive = Type.getType(returnType);
+                final Type wrapper = Type.getType(toWrapperType(returnType));
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper.getInternalName(), "valueOf",
+                        Type.getMethodDescriptor(wrapper, primitive), false);
+            }
+        }
+
+        /**
+         * 直接呼び出せるgetterメソッドを探します。
+         * @param propertyName プロパティ名
+         * @return getterメソッド。直接呼び出せない場合は {@literal null} を返します。
+         */
+        private Method findGetter(final String propertyName) {
+            if(propertyName == null) {
+                return null;
+            }
+
+            return getters.computeIfAbsent(propertyName, name -> {
+                final Method method = PropertyPathExpression.findGetterMethod(beanType, name);
+                if(method == null || !Modifier.isPublic(method.getModifiers())) {
+                    return null;
+                }
+                return method;
+            });
+        }
+
+        /**
+         * 生成したコードから参照するノードを登録します。
+         * @param node ノード
+         * @param propertyType 直接参照するプロパティの戻り値のタイプ
+         * @return ノードのインデックス
+         */
+        private int registerNode(final Node node, final Class<?> propertyType) {
+            nodes.add(node);
+            propertyTypes.add(propertyType);
+            return nodes.size() - 1;
+        }
+
+        private void pushInt(final int value) {
+            if(value <= 5) {
+                mv.visitInsn(Opcodes.ICONST_0 + value);
+            } else if(value <= Byte.MAX_VALUE) {
+                mv.visitIntInsn(Opcodes.BIPUSH, value);
+            } else if(value <= Short.MAX_VALUE) {
+                mv.visitIntInsn(Opcodes.SIPUSH, value);
+            } else {
+                mv.visitLdcInsn(value);
+            }
+        }
+
+        private static Class<?> toWrapperType(final Class<?> primitiveType) {
+            if(primitiveType == int.class) {
+                return Integer.class;
+            } else if(primitiveType == long.class) {
+                return Long.class;
+            } else if(primitiveType == boolean.class) {
+                return Boolean.class;
+            } else if(primitiveType == double.class) {
+                return Double.class;
+            } else if(primitiveType == float.class) {
+                return Float.class;
+            } else if(primitiveType == short.class) {
+                return Short.class;
+            } else if(primitiveType == byte.class) {
+                return Byte.class;
+            } else {
+                return Character.class;
+            }
+        }
+    }
+
+    /**
+     * 生成したクラスの内容を比較するためのキー。
+     */
+    private static class GeneratedClassKey {
+
+        private final byte[] bytes;
+
+        private final int hashCode;
+
+        GeneratedClassKey(final byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof GeneratedClassKey)) {
+                return false;
+            }
+            return Arrays.equals(bytes, ((GeneratedClassKey) obj).bytes);
+        }
+    }
+}
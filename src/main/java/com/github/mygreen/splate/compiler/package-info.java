@@ -0,0 +1,4 @@
+/**
+ * パースしたSQLテンプレートを、実行時にJavaのクラスに変換する機能を提供します。
+ */
+package com.github.mygreen.splate.compiler;
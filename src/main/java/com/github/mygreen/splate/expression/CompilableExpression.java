@@ -0,0 +1,348 @@
+package com.github.mygreen.splate.expression;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ReflectionUtils;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * SpELのコンパイルモードに対応した式です。
+ * <p>評価回数がしきい値に達したときにバイトコードへのコンパイルを試み、コンパイルできたかどうかを記録します。</p>
+ * <p>コンパイルがサポートされていない式や、コンパイルしたコードの実行に失敗した式は、
+ *  以降はインタプリタ方式で評価します。
+ * </p>
+ * <p>SpELの {@link SpelCompilerMode#MIXED} は、コンパイルできない式も評価のたびにコンパイルを試み続けるため、
+ *  コンパイルはこのクラスのみで行います。そのため、ラップする式は、コンパイルモードが {@link SpelCompilerMode#OFF} の
+ *  パーサでパースしたものを指定します。
+ * </p>
+ * <p>コンパイル済みかどうかは、ラップした {@link SpelExpression} の状態から判定します。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class CompilableExpression implements Expression {
+
+    /**
+     * {@link SpelCompilerMode#MIXED} のときに、コンパイルを試みるまでの評価回数。
+     */
+    private static final int MIXED_COMPILE_THRESHOLD = 100;
+
+    /**
+     * コンパイルを諦めるまでの失敗回数。
+     */
+    private static final int MAX_FAILED_ATTEMPTS = 100;
+
+    /**
+     * インタプリタ方式で評価するときの式のパーサ。
+     */
+    private static final SpelExpressionParser INTERPRETED_PARSER = new SpelExpressionParser();
+
+    /**
+     * {@link SpelExpression} の、コンパイル済みの式を保持するフィールド。
+     * <p>SpELにはコンパイル済みかどうかを参照するAPIがないため、フィールドを直接参照します。
+     *  参照できない場合は {@literal null} となり、コンパイルに成功したかどうかの記録で判定します。
+     * </p>
+     */
+    @Nullable
+    private static final Field COMPILED_AST_FIELD = findCompiledAstField();
+
+    /**
+     * コンパイル対象の式。
+     */
+    private final SpelExpression delegate;
+
+    /**
+     * コンパイルモード。
+     */
+    @Getter
+    private final SpelCompilerMode compilerMode;
+
+    /**
+     * コンパイルを試みるまでの評価回数。
+     */
+    private final int compileThreshold;
+
+    /**
+     * インタプリタ方式にフォールバックしたときの式。
+     */
+    private volatile SpelExpression interpreted;
+
+    /**
+     * バイトコードへのコンパイルに成功し、コンパイルを試みるのを止めたかどうか。
+     */
+    private volatile boolean compiled;
+
+    /**
+     * 評価回数。
+     * <p>複数のスレッドから同時に評価されるため、アトミックに加算します。</p>
+     */
+    private final AtomicInteger evaluationCount = new AtomicInteger();
+
+    /**
+     * コンパイルに失敗した回数。
+     */
+    private final AtomicInteger failedAttempts = new AtomicInteger();
+
+    /**
+     * コンパイル対象の式を指定してインスタンスを作成します。
+     *
+     * @param delegate コンパイル対象の式。
+     * @param compilerMode コンパイルモード。{@link SpelCompilerMode#OFF} 以外を指定します。
+     * @throws IllegalArgumentException コンパイルモードが {@link SpelCompilerMode#OFF} の場合にスローされます。
+     */
+    public CompilableExpression(@NonNull SpelExpression delegate, @NonNull SpelCompilerMode compilerMode) {
+        if(compilerMode == SpelCompilerMode.OFF) {
+            throw new IllegalArgumentException("compilerMode should be IMMEDIATE or MIXED.");
+        }
+        this.delegate = delegate;
+        this.compilerMode = compilerMode;
+        this.compileThreshold = compilerMode == SpelCompilerMode.IMMEDIATE ? 1 : MIXED_COMPILE_THRESHOLD;
+    }
+
+    /**
+     * {@link SpelExpression} の、コンパイル済みの式を保持するフィールドを探します。
+     * @return フィールドが見つからない、またはアクセスできない場合は {@literal null} を返します。
+     */
+    private static Field findCompiledAstField() {
+        try {
+            final Field field = ReflectionUtils.findField(SpelExpression.class, "compiledAst");
+            if(field != null) {
+                ReflectionUtils.makeAccessible(field);
+            }
+            return field;
+        } catch(RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * バイトコードへのコンパイルに成功したかどうか。
+     * <p>ラップした {@link SpelExpression} が、コンパイルしたコードで評価する状態かどうかを判定します。</p>
+     * @return コンパイルに成功し、コンパイルしたコードで評価しているとき {@literal true} を返します。
+     */
+    public boolean isCompiled() {
+
+        if(interpreted != null) {
+            return false;
+        }
+
+        if(COMPILED_AST_FIELD == null) {
+            return compiled;
+        }
+
+        return ReflectionUtils.getField(COMPILED_AST_FIELD, delegate) != null;
+    }
+
+    /**
+     * インタプリタ方式にフォールバックしたかどうか。
+     * @return コンパイルがサポートされていない、またはコンパイルしたコードの実行に失敗したとき {@literal true} を返します。
+     */
+    public boolean isFallenBack() {
+        return interpreted != null;
+    }
+
+    /**
+     * 評価後に、必要であればコンパイルを試みます。
+     */
+    private void afterEvaluation() {
+
+        if(compiled || interpreted != null) {
+            return;
+        }
+
+        if(evaluationCount.incrementAndGet() < compileThreshold) {
+            return;
+        }
+
+        if(delegate.compileExpression()) {
+            this.compiled = true;
+
+        } else if(failedAttempts.incrementAndGet() >= MAX_FAILED_ATTEMPTS) {
+            // コンパイルがサポートされていないため諦める。
+            fallback();
+        }
+
+    }
+
+    /**
+     * インタプリタ方式の評価にフォールバックします。
+     * <p>複数のスレッドから同時に呼ばれても結果は同じになるため、排他制御は行いません。</p>
+     */
+    private void fallback() {
+        if(interpreted == null) {
+            delegate.revertToInterpreted();
+            this.interpreted = INTERPRETED_PARSER.parseRaw(delegate.getExpressionString());
+        }
+    }
+
+    /**
+     * コンパイルしたコードの実行に失敗したかどうか判定します。
+     * @param e 評価時の例外
+     * @return コンパイルしたコードの実行に失敗したとき {@literal true} を返します。
+     */
+    private boolean isCompiledExecutionFailure(final SpelEvaluationException e) {
+        return e.getMessageCode() == SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION;
+    }
+
+    /**
+     * 現在評価に使用する式を取得します。
+     * @return 評価に使用する式
+     */
+    private Expression current() {
+        final SpelExpression fallbackExpression = this.interpreted;
+        return fallbackExpression != null ? fallbackExpression : delegate;
+    }
+
+    @Override
+    public String getExpressionString() {
+        return delegate.getExpressionString();
+    }
+
+    @Override
+    public Object getValue() throws EvaluationException {
+        return current().getValue();
+    }
+
+    @Override
+    public <T> T getValue(Class<T> desiredResultType) throws EvaluationException {
+        return current().getValue(desiredResultType);
+    }
+
+    @Override
+    public Object getValue(Object rootObject) throws EvaluationException {
+        return current().getValue(rootObject);
+    }
+
+    @Override
+    public <T> T getValue(Object rootObject, Class<T> desiredResultType) throws EvaluationException {
+        return current().getValue(rootObject, desiredResultType);
+    }
+
+    @Override
+    public Object getValue(EvaluationContext context) throws EvaluationException {
+        return getValue(context, Object.class);
+    }
+
+    @Override
+    public Object getValue(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return current().getValue(context, rootObject);
+    }
+
+    @Override
+    public <T> T getValue(EvaluationContext context, Class<T> desiredResultType) throws EvaluationException {
+
+        final SpelExpression fallbackExpression = this.interpreted;
+        if(fallbackExpression != null) {
+            return fallbackExpression.getValue(context, desiredResultType);
+        }
+
+        try {
+            final T value = delegate.getValue(context, desiredResultType);
+            afterEvaluation();
+            return value;
+
+        } catch(SpelEvaluationException e) {
+            if(!isCompiledExecutionFailure(e)) {
+                throw e;
+            }
+
+            // コンパイルしたコードが実行できない場合は、インタプリタ方式で評価し直す。
+            fallback();
+            return interpreted.getValue(context, desiredResultType);
+        }
+    }
+
+    @Override
+    public <T> T getValue(EvaluationContext context, Object rootObject, Class<T> desiredResultType) throws EvaluationException {
+        return current().getValue(context, rootObject, desiredResultType);
+    }
+
+    @Override
+    public Class<?> getValueType() throws EvaluationException {
+        return current().getValueType();
+    }
+
+    @Override
+    public Class<?> getValueType(Object rootObject) throws EvaluationException {
+        return current().getValueType(rootObject);
+    }
+
+    @Override
+    public Class<?> getValueType(EvaluationContext context) throws EvaluationException {
+        return current().getValueType(context);
+    }
+
+    @Override
+    public Class<?> getValueType(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return current().getValueType(context, rootObject);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor() throws EvaluationException {
+        return current().getValueTypeDescriptor();
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(Object rootObject) throws EvaluationException {
+        return current().getValueTypeDescriptor(rootObject);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(EvaluationContext context) throws EvaluationException {
+        return current().getValueTypeDescriptor(context);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return current().getValueTypeDescriptor(context, rootObject);
+    }
+
+    @Override
+    public boolean isWritable(Object rootObject) throws EvaluationException {
+        return current().isWritable(rootObject);
+    }
+
+    @Override
+    public boolean isWritable(EvaluationContext context) throws EvaluationException {
+        return current().isWritable(context);
+    }
+
+    @Override
+    public boolean isWritable(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return current().isWritable(context, rootObject);
+    }
+
+    @Override
+    public void setValue(Object rootObject, Object value) throws EvaluationException {
+        current().setValue(rootObject, value);
+    }
+
+    @Override
+    public void setValue(EvaluationContext context, Object value) throws EvaluationException {
+        current().setValue(context, value);
+    }
+
+    @Override
+    public void setValue(EvaluationContext context, Object rootObject, Object value) throws EvaluationException {
+        current().setValue(context, rootObject, value);
+    }
+
+    @Override
+    public String toString() {
+        return getExpressionString();
+    }
+}
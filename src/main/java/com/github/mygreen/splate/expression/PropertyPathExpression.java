@@ -0,0 +1,727 @@
+package com.github.mygreen.splate.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import com.github.mygreen.splate.CustomMapAccessor;
+import com.github.mygreen.splate.CustomReflectivePropertyAccessor;
+
+import lombok.NonNull;
+
+/**
+ * 単純なプロパティパスの式を、SpELを介さずに評価する式です。
+ * <p>次の形式の式に対応し、{@link Map} の参照や、キャッシュしたgetterメソッドの呼び出しで値を取得します。</p>
+ * <ul>
+ *  <li>プロパティパス - {@literal name} / {@literal dept.name} / {@literal list[0]} / {@literal map['key']}</li>
+ *  <li>nullとの比較 - {@literal name != null} / {@literal dept.name == null}</li>
+ * </ul>
+ * <p>途中の値が {@literal null} の場合や、存在しないプロパティの場合など、SpELと結果が異なる可能性がある場合は、
+ *  SpELでパースした式で評価します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class PropertyPathExpression implements Expression {
+
+    /**
+     * SpELのキーワードのため、プロパティ名として扱わない識別子。
+     */
+    private static final Set<String> KEYWORDS = Set.of(
+            "true", "false", "null", "new", "and", "or", "not", "eq", "ne", "lt", "gt", "le", "ge",
+            "div", "mod", "instanceof", "matches", "between");
+
+    /**
+     * クラスごとのgetterメソッドのキャッシュ。
+     */
+    private static final ClassValue<ConcurrentMap<String, PropertyGetter>> GETTER_CACHE = new ClassValue<>() {
+
+        @Override
+        protected ConcurrentMap<String, PropertyGetter> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * 値を解決できなかったことを表す値。
+     */
+    private static final Object UNRESOLVED = new Object();
+
+    /**
+     * nullとの比較の種類
+     */
+    private enum NullCheck {
+        /** 比較しない */
+        NONE,
+        /** {@literal != null} */
+        NOT_NULL,
+        /** {@literal == null} */
+        IS_NULL
+    }
+
+    /**
+     * 式の文字列
+     */
+    private final String expressionString;
+
+    /**
+     * プロパティパスの各要素。
+     * {@link String} の場合はプロパティ名またはマップのキー、{@link Integer} の場合はインデックスです。
+     */
+    private final Object[] segments;
+
+    /**
+     * プロパティパスの各要素が、プロパティ名かどうか。
+     */
+    private final boolean[] propertySegments;
+
+    /**
+     * nullとの比較の種類
+     */
+    private final NullCheck nullCheck;
+
+    /**
+     * SpELで評価するときの式。
+     */
+    private final Expression fallback;
+
+    private PropertyPathExpression(final String expressionString, final List<Object> segments,
+            final List<Boolean> propertySegments, final NullCheck nullCheck, final Expression fallback) {
+        this.expressionString = expressionString;
+        this.segments = segments.toArray();
+        this.propertySegments = new boolean[propertySegments.size()];
+        for(int i=0; i < this.propertySegments.length; i++) {
+            this.propertySegments[i] = propertySegments.get(i);
+        }
+        this.nullCheck = nullCheck;
+        this.fallback = fallback;
+    }
+
+    /**
+     * 式が単純なプロパティパスの場合、{@link PropertyPathExpression} を作成します。
+     *
+     * @param expression 式
+     * @param fallback SpELで評価するときの式。単純なプロパティパスでも結果が異なる可能性がある場合に使用します。
+     * @return 単純なプロパティパスの場合、{@link PropertyPathExpression} のインスタンスを返します。
+     *         それ以外の場合は {@literal null} を返します。
+     */
+    @Nullable
+    public static PropertyPathExpression parse(@NonNull final String expression, @NonNull final Expression fallback) {
+
+        String path = expression.strip();
+        NullCheck nullCheck = NullCheck.NONE;
+
+        int opIndex = path.indexOf("!=");
+        if(opIndex < 0) {
+            opIndex = path.indexOf("==");
+        }
+
+        if(opIndex >= 0) {
+            if(!"null".equals(path.substring(opIndex + 2).strip())) {
+                return null;
+            }
+            nullCheck = path.charAt(opIndex) == '!' ? NullCheck.NOT_NULL : NullCheck.IS_NULL;
+            path = path.substring(0, opIndex).strip();
+        }
+
+        final List<Object> segments = new ArrayList<>();
+        final List<Boolean> propertySegments = new ArrayList<>();
+        if(!parsePath(path, segments, propertySegments)) {
+            return null;
+        }
+
+        return new PropertyPathExpression(expression, segments, propertySegments, nullCheck, fallback);
+
+    }
+
+    /**
+     * プロパティパスを要素に分解します。
+     * @param path プロパティパス
+     * @param segments 分解した要素
+     * @param propertySegments 分解した要素がプロパティ名かどうか
+     * @return 単純なプロパティパスの場合は {@literal true} を返します。
+     */
+    private static boolean parsePath(final String path, final List<Object> segments, final List<Boolean> propertySegments) {
+
+        final int length = path.length();
+        int pos = 0;
+        boolean expectProperty = true;
+
+        while(pos < length) {
+            final char c = path.charAt(pos);
+
+            if(expectProperty) {
+                if(!isIdentifierStart(c)) {
+                    return false;
+                }
+
+                int end = pos + 1;
+                while(end < length && isIdentifierPart(path.charAt(end))) {
+                    end++;
+                }
+
+                final String name = path.substring(pos, end);
+                if(KEYWORDS.contains(name.toLowerCase())) {
+                    return false;
+                }
+
+                segments.add(name);
+                propertySegments.add(true);
+                pos = end;
+                expectProperty = false;
+
+            } else if(c == '.') {
+                pos++;
+                expectProperty = true;
+
+            } else if(c == '[') {
+                final int end = path.indexOf(']', pos);
+                if(end < 0) {
+                    return false;
+                }
+
+                final String key = path.substring(pos + 1, end);
+                if(isIndex(key)) {
+                    segments.add(Integer.valueOf(key));
+                } else if(isQuotedKey(key)) {
+                    segments.add(key.substring(1, key.length() - 1));
+                } else {
+                    return false;
+                }
+
+                propertySegments.add(false);
+                pos = end + 1;
+
+            } else {
+                return false;
+            }
+        }
+
+        return !segments.isEmpty() && !expectProperty;
+
+    }
+
+    private static boolean isIdentifierStart(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentifierPart(final char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isIndex(final String key) {
+        if(key.isEmpty() || key.length() > 9) {
+            return false;
+        }
+
+        for(int i=0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if(c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isQuotedKey(final String key) {
+        return key.length() >= 2 && key.charAt(0) == '\'' && key.charAt(key.length() - 1) == '\''
+                && key.indexOf('\'', 1) == key.length() - 1;
+    }
+
+    /**
+     * nullとの比較を行う式かどうか。
+     * @return nullとの比較を行う式の場合は {@literal true} を返します。
+     */
+    public boolean isNullCheck() {
+        return nullCheck != NullCheck.NONE;
+    }
+
+    /**
+     * {@literal != null} で比較を行う式かどうか。
+     * @return {@literal != null} で比較を行う式の場合は {@literal true} を返します。
+     */
+    public boolean isNotNullCheck() {
+        return nullCheck == NullCheck.NOT_NULL;
+    }
+
+    /**
+     * SpELで評価するときの式を取得します。
+     * @return 値を解決できない場合に評価する式
+     */
+    public Expression getFallback() {
+        return fallback;
+    }
+
+    /**
+     * プロパティパスが1つのプロパティ名のみからなる場合、そのプロパティ名を取得します。
+     * @return プロパティ名。{@literal dept.name} のように複数の要素からなる場合は {@literal null} を返します。
+     */
+    @Nullable
+    public String getSinglePropertyName() {
+        if(segments.length == 1 && propertySegments[0]) {
+            return (String) segments[0];
+        }
+        return null;
+    }
+
+    /**
+     * SpELの {@link ReflectivePropertyAccessor} と同じ規則で、getterメソッドを探します。
+     * <p>{@code public} ではないクラスで宣言されたメソッドも返します。</p>
+     *
+     * @param type 対象のクラス
+     * @param name プロパティ名
+     * @return getterメソッド。存在しない場合は {@literal null} を返します。
+     */
+    @Nullable
+    public static Method findGetterMethod(@NonNull final Class<?> type, @NonNull final String name) {
+        return PropertyGetter.findGetterMethod(type, name);
+    }
+
+    /**
+     * プロパティパスを評価して値を取得します。
+     * <p>getterメソッドが存在しない場合などの解決できない場合は、SpELで評価し直すため {@link #UNRESOLVED} を返しますが、
+     *  getterメソッドが例外をスローした場合は、SpELと同じく {@link SpelEvaluationException} をスローします。
+     * </p>
+     * @param context 評価時のコンテキスト
+     * @param typeHolder 値のクラスタイプを格納する。不要な場合は {@literal null} を指定します。
+     * @return 評価した値。解決できない場合は {@link #UNRESOLVED} を返します。
+     * @throws SpelEvaluationException getterメソッドが例外をスローした場合
+     */
+    private Object resolvePath(final EvaluationContext context, @Nullable final Class<?>[] typeHolder) {
+
+        final AccessorSupport support = AccessorSupport.of(context.getPropertyAccessors());
+        if(support == AccessorSupport.NONE) {
+            return UNRESOLVED;
+        }
+
+        Object target = context.getRootObject().getValue();
+        Class<?> type = null;
+
+        for(int i=0; i < segments.length; i++) {
+            if(target == null) {
+                // 途中の値がnullの場合は、SpELの設定に従う。
+                return UNRESOLVED;
+            }
+
+            final Object segment = segments[i];
+            if(propertySegments[i]) {
+                final String name = (String) segment;
+                if(target instanceof Map) {
+                    if(!support.map) {
+                        return UNRESOLVED;
+                    }
+
+                    final Map<?, ?> map = (Map<?, ?>) target;
+                    final Object value = map.get(name);
+                    if(value == null && !map.containsKey(name)) {
+                        return UNRESOLVED;
+                    }
+                    target = value;
+                    type = null;
+
+                } else {
+                    if(!support.reflective || target instanceof Class || target.getClass().isArray()) {
+                        return UNRESOLVED;
+                    }
+
+                    final PropertyGetter getter = PropertyGetter.find(target.getClass(), name);
+                    if(getter == null) {
+                        return UNRESOLVED;
+                    }
+
+                    try {
+                        target = getter.handle.invokeExact(target);
+                    } catch(Error e) {
+                        throw e;
+                    } catch(Throwable e) {
+                        // SpELで評価し直すとgetterメソッドを再度呼び出すため、SpELと同じ例外をスローする。
+                        throw new SpelEvaluationException(e, SpelMessage.EXCEPTION_DURING_PROPERTY_READ, name,
+                                String.format("Unable to access property '%s' through getter method", name));
+                    }
+                    type = getter.returnType;
+                }
+
+            } else if(segment instanceof Integer) {
+                final int index = (Integer) segment;
+                if(target instanceof List) {
+                    final List<?> list = (List<?>) target;
+                    if(index >= list.size()) {
+                        return UNRESOLVED;
+                    }
+                    target = list.get(index);
+
+                } else if(target.getClass().isArray()) {
+                    if(index >= Array.getLength(target)) {
+                        return UNRESOLVED;
+                    }
+                    target = Array.get(target, index);
+
+                } else {
+                    return UNRESOLVED;
+                }
+
+                // 要素がnullのときのクラスタイプは、ジェネリクスの情報から決まるためSpELに従う。
+                if(target == null && typeHolder != null && i == segments.length - 1) {
+                    return UNRESOLVED;
+                }
+                type = null;
+
+            } else {
+                if(!(target instanceof Map) || !support.map) {
+                    return UNRESOLVED;
+                }
+
+                final Map<?, ?> map = (Map<?, ?>) target;
+                target = map.get(segment);
+                if(target == null && typeHolder != null && i == segments.length - 1) {
+                    return UNRESOLVED;
+                }
+                type = null;
+            }
+        }
+
+        if(typeHolder != null) {
+            typeHolder[0] = (target != null ? target.getClass() : type);
+        }
+
+        return target;
+    }
+
+    /**
+     * 式を評価します。
+     * @param context 評価時のコンテキスト
+     * @return 評価した値。解決できない場合は {@link #UNRESOLVED} を返します。
+     */
+    private Object evaluate(final EvaluationContext context) {
+
+        final Object value = resolvePath(context, null);
+        if(value == UNRESOLVED) {
+            return UNRESOLVED;
+        }
+
+        switch(nullCheck) {
+            case NOT_NULL:
+                return value != null;
+            case IS_NULL:
+                return value == null;
+            default:
+                return value;
+        }
+    }
+
+    @Override
+    public String getExpressionString() {
+        return expressionString;
+    }
+
+    @Override
+    public Object getValue(EvaluationContext context) throws EvaluationException {
+        return getValue(context, Object.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T getValue(EvaluationContext context, Class<T> desiredResultType) throws EvaluationException {
+
+        final Object value = evaluate(context);
+        if(value != UNRESOLVED
+                && (desiredResultType == null || ClassUtils.isAssignableValue(desiredResultType, value))) {
+            return (T) value;
+        }
+
+        return fallback.getValue(context, desiredResultType);
+    }
+
+    @Override
+    public Class<?> getValueType(EvaluationContext context) throws EvaluationException {
+
+        if(isNullCheck()) {
+            return evaluate(context) != UNRESOLVED ? Boolean.class : fallback.getValueType(context);
+        }
+
+        final Class<?>[] typeHolder = new Class<?>[1];
+        if(resolvePath(context, typeHolder) != UNRESOLVED) {
+            return typeHolder[0];
+        }
+
+        return fallback.getValueType(context);
+    }
+
+    @Override
+    public Object getValue() throws EvaluationException {
+        return fallback.getValue();
+    }
+
+    @Override
+    public <T> T getValue(Class<T> desiredResultType) throws EvaluationException {
+        return fallback.getValue(desiredResultType);
+    }
+
+    @Override
+    public Object getValue(Object rootObject) throws EvaluationException {
+        return fallback.getValue(rootObject);
+    }
+
+    @Override
+    public <T> T getValue(Object rootObject, Class<T> desiredResultType) throws EvaluationException {
+        return fallback.getValue(rootObject, desiredResultType);
+    }
+
+    @Override
+    public Object getValue(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return fallback.getValue(context, rootObject);
+    }
+
+    @Override
+    public <T> T getValue(EvaluationContext context, Object rootObject, Class<T> desiredResultType) throws EvaluationException {
+        return fallback.getValue(context, rootObject, desiredResultType);
+    }
+
+    @Override
+    public Class<?> getValueType() throws EvaluationException {
+        return fallback.getValueType();
+    }
+
+    @Override
+    public Class<?> getValueType(Object rootObject) throws EvaluationException {
+        return fallback.getValueType(rootObject);
+    }
+
+    @Override
+    public Class<?> getValueType(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return fallback.getValueType(context, rootObject);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor() throws EvaluationException {
+        return fallback.getValueTypeDescriptor();
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(Object rootObject) throws EvaluationException {
+        return fallback.getValueTypeDescriptor(rootObject);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(EvaluationContext context) throws EvaluationException {
+        return fallback.getValueTypeDescriptor(context);
+    }
+
+    @Override
+    public TypeDescriptor getValueTypeDescriptor(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return fallback.getValueTypeDescriptor(context, rootObject);
+    }
+
+    @Override
+    public boolean isWritable(Object rootObject) throws EvaluationException {
+        return fallback.isWritable(rootObject);
+    }
+
+    @Override
+    public boolean isWritable(EvaluationContext context) throws EvaluationException {
+        return fallback.isWritable(context);
+    }
+
+    @Override
+    public boolean isWritable(EvaluationContext context, Object rootObject) throws EvaluationException {
+        return fallback.isWritable(context, rootObject);
+    }
+
+    @Override
+    public void setValue(Object rootObject, Object value) throws EvaluationException {
+        fallback.setValue(rootObject, value);
+    }
+
+    @Override
+    public void setValue(EvaluationContext context, Object value) throws EvaluationException {
+        fallback.setValue(context, value);
+    }
+
+    @Override
+    public void setValue(EvaluationContext context, Object rootObject, Object value) throws EvaluationException {
+        fallback.setValue(context, rootObject, value);
+    }
+
+    @Override
+    public String toString() {
+        return expressionString;
+    }
+
+    /**
+     * {@link EvaluationContext} に設定されているプロパティアクセッサーのうち、SpELを介さずに再現できるもの。
+     */
+    private enum AccessorSupport {
+
+        NONE(false, false),
+        MAP(true, false),
+        REFLECTIVE(false, true),
+        ALL(true, true);
+
+        private final boolean map;
+
+        private final boolean reflective;
+
+        AccessorSupport(final boolean map, final boolean reflective) {
+            this.map = map;
+            this.reflective = reflective;
+        }
+
+        /**
+         * プロパティアクセッサーの構成から判定します。
+         * 未知のプロパティアクセッサーが含まれる場合は、{@link #NONE} を返します。
+         * @param accessors プロパティアクセッサー
+         * @return 判定結果
+         */
+        static AccessorSupport of(final List<PropertyAccessor> accessors) {
+
+            boolean map = false;
+            boolean reflective = false;
+            for(PropertyAccessor accessor : accessors) {
+                final Class<?> accessorClass = accessor.getClass();
+                if(accessorClass == CustomMapAccessor.class || accessorClass == MapAccessor.class) {
+                    map = true;
+                } else if(accessorClass == CustomReflectivePropertyAccessor.class || accessorClass == ReflectivePropertyAccessor.class) {
+                    reflective = true;
+                } else {
+                    return NONE;
+                }
+            }
+
+            if(map && reflective) {
+                return ALL;
+            } else if(map) {
+                return MAP;
+            } else if(reflective) {
+                return REFLECTIVE;
+            }
+            return NONE;
+        }
+    }
+
+    /**
+     * キャッシュしたgetterメソッド。
+     */
+    private static class PropertyGetter {
+
+        /**
+         * getterメソッドが存在しないことを表す値。
+         */
+        private static final PropertyGetter NOT_FOUND = new PropertyGetter(null, null);
+
+        /**
+         * {@code (Object)Object} の型に変換したgetterメソッドのハンドル
+         */
+        private final MethodHandle handle;
+
+        /**
+         * getterメソッドの戻り値のタイプ
+         */
+        private final Class<?> returnType;
+
+        private PropertyGetter(final MethodHandle handle, final Class<?> returnType) {
+            this.handle = handle;
+            this.returnType = returnType;
+        }
+
+        /**
+         * getterメソッドを取得します。
+         * @param type 対象のクラス
+         * @param name プロパティ名
+         * @return getterメソッド。存在しない場合は {@literal null} を返します。
+         */
+        @Nullable
+        static PropertyGetter find(final Class<?> type, final String name) {
+            final PropertyGetter getter = GETTER_CACHE.get(type).computeIfAbsent(name, n -> create(type, n));
+            return getter != NOT_FOUND ? getter : null;
+        }
+
+        private static PropertyGetter create(final Class<?> type, final String name) {
+
+            final Method method = findGetterMethod(type, name);
+            if(method == null) {
+                return NOT_FOUND;
+            }
+
+            try {
+                if(!Modifier.isPublic(method.getDeclaringClass().getModifiers()) && !method.trySetAccessible()) {
+                    return NOT_FOUND;
+                }
+
+                final MethodHandle handle = MethodHandles.lookup().unreflect(method)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                return new PropertyGetter(handle, method.getReturnType());
+
+            } catch(IllegalAccessException | SecurityException e) {
+                return NOT_FOUND;
+            }
+
+        }
+
+        /**
+         * SpELの {@link ReflectivePropertyAccessor} と同じ規則で、getterメソッドを探します。
+         * @param type 対象のクラス
+         * @param name プロパティ名
+         * @return getterメソッド。存在しない場合は {@literal null} を返します。
+         */
+        @Nullable
+        private static Method findGetterMethod(final Class<?> type, final String name) {
+
+            final String suffix = (name.length() > 1 && Character.isUpperCase(name.charAt(1)))
+                    ? name : StringUtils.capitalize(name);
+            final String[] suffixes = (suffix.length() > 0 && Character.isUpperCase(suffix.charAt(0)))
+                    ? new String[] {suffix} : new String[] {suffix, StringUtils.capitalize(suffix)};
+
+            final Method[] methods = type.getMethods();
+            for(String candidate : suffixes) {
+                for(Method method : methods) {
+                    if(isGetter(method, "get" + candidate)) {
+                        return method;
+                    }
+                }
+            }
+
+            for(String candidate : suffixes) {
+                for(Method method : methods) {
+                    if(isGetter(method, "is" + candidate)
+                            && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                        return method;
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        private static boolean isGetter(final Method method, final String methodName) {
+            return method.getName().equals(methodName)
+                    && method.getParameterCount() == 0
+                    && !Modifier.isStatic(method.getModifiers())
+                    && method.getReturnType() != void.class
+                    && !method.isBridge();
+        }
+    }
+}
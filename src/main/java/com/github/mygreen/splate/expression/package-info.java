@@ -0,0 +1,4 @@
+/**
+ * SQLテンプレート中のEL式の評価を最適化する機能を提供します。
+ */
+package com.github.mygreen.splate.expression;
@@ -15,33 +15,31 @@
  */
 package com.github.mygreen.splate.node;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Expression;
 
-import com.github.mygreen.splate.SqlUtils;
+import com.github.mygreen.splate.SqlLineIndex;
 import com.github.mygreen.splate.type.SqlTemplateValueType;
 import com.github.mygreen.splate.type.SqlTypeConversionException;
 import com.github.mygreen.splate.type.TextConversionException;
 
 /**
  * {@link Node}の抽象クラスです。
+ * <p>子ノードを持たない末端のノードとして振る舞います。
+ *  子ノードを持つノードは、{@link ContainerNode} を継承します。
+ * </p>
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  * @author T.TSUCHIE
  *
  */
 public abstract class AbstractNode implements Node {
 
-    /**
-     * 子ノードのリスト
-     */
-    protected List<Node> children = new ArrayList<>();
-
     /**
      * テンプレート内での位置情報
      */
@@ -56,19 +54,60 @@ public abstract class AbstractNode implements Node {
         this.position = position;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>末端のノードのため、常に {@literal 0} を返します。</p>
+     */
     @Override
     public int getChildSize() {
-        return children.size();
+        return 0;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>末端のノードのため、常に例外をスローします。</p>
+     * @throws IndexOutOfBoundsException 常にスローします。
+     */
     @Override
     public Node getChild(int index) {
-        return children.get(index);
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>末端のノードのため、常に例外をスローします。</p>
+     * @throws UnsupportedOperationException 常にスローします。
+     */
     @Override
     public void addChild(Node node) {
-        children.add(node);
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot have child nodes.");
+    }
+
+    /**
+     * 子ノードの一覧を取得します。
+     * <p>0.3以前の {@literal children} フィールドの代わりに、互換性のために残しているメソッドです。
+     *  子ノードの追加は、{@link #addChild(Node)} を使用します。
+     * </p>
+     *
+     * @since 0.4
+     * @return 読み取り専用の子ノードの一覧
+     * @deprecated 子ノードは {@link #getChildSize()} と {@link #getChild(int)} で参照してください。
+     *  次のバージョンで削除します。
+     */
+    @Deprecated
+    protected List<Node> getChildren() {
+        return new AbstractList<Node>() {
+
+            @Override
+            public Node get(int index) {
+                return getChild(index);
+            }
+
+            @Override
+            public int size() {
+                return getChildSize();
+            }
+        };
     }
 
     @Override
@@ -92,11 +131,30 @@ public abstract class AbstractNode implements Node {
      */
     protected <T> T evaluateExpression(final Expression expression, final EvaluationContext evaluationContext,
             final Class<T> requriedType, final int position, final String parsedSql) {
+        return evaluateExpression(expression, evaluationContext, requriedType, position, new SqlLineIndex(parsedSql));
+    }
+
+    /**
+     * EL式を評価します。
+     * <p>例外処理を含めて共通化のために切り出したメソッドです。</p>
+     *
+     * @since 0.4
+     * @param <T> 戻り値のタイプ
+     * @param expression EL式
+     * @param evaluationContext EL式のコンテキスト
+     * @param requriedType EL式の戻り値のタイプ
+     * @param position テンプレートの位置情報
+     * @param lineIndex パース済みのSQLテンプレートの行の開始位置の一覧
+     * @return EL式の評価結果
+     * @throws NodeProcessException EL式の評価に失敗した場合にスローされます。
+     */
+    protected <T> T evaluateExpression(final Expression expression, final EvaluationContext evaluationContext,
+            final Class<T> requriedType, final int position, final SqlLineIndex lineIndex) {
 
         try {
             return expression.getValue(evaluationContext, requriedType);
         } catch(EvaluationException e) {
-            throw new NodeProcessException(SqlUtils.resolveSqlPosition(parsedSql, position),
+            throw new NodeProcessException(lineIndex, position,
                     String.format("Fail evaluating expression '%s'.", expression.getExpressionString()),
                     e);
         }
@@ -116,9 +174,29 @@ public abstract class AbstractNode implements Node {
      * @return 変換した値。
      * @throws NodeProcessException 変換時の処理に失敗した場合にスローされます。
      */
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    @SuppressWarnings({"rawtypes"})
     protected Object getBindVariableValue(final Object value, SqlTemplateValueType valueType,
             final int position, final String parsedSql, final String expression) {
+        return getBindVariableValue(value, valueType, position, new SqlLineIndex(parsedSql), expression);
+    }
+
+    /**
+     * 変換規則を元にバインド変数を変換します。
+     * <p>例外処理を含めて共通化のために切り出したメソッドです。</p>
+     * <p>変換規則がnullの場合は、変換対象の値をそのまま返します。</p>
+     *
+     * @since 0.4
+     * @param value 変換対象の値。
+     * @param valueType 変換規則
+     * @param position テンプレートの位置情報
+     * @param lineIndex パース済みのSQLテンプレートの行の開始位置の一覧
+     * @param expression 変換対象の値の元となったEL式
+     * @return 変換した値。
+     * @throws NodeProcessException 変換時の処理に失敗した場合にスローされます。
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Object getBindVariableValue(final Object value, SqlTemplateValueType valueType,
+            final int position, final SqlLineIndex lineIndex, final String expression) {
 
         if(valueType == null) {
             return value;
@@ -127,7 +205,7 @@ public abstract class AbstractNode implements Node {
         try {
             return valueType.getBindVariableValue(value);
         } catch(SqlTypeConversionException e) {
-            throw new NodeProcessException(SqlUtils.resolveSqlPosition(parsedSql, position),
+            throw new NodeProcessException(lineIndex, position,
                     String.format("Fail converting value of expression '%s'.", expression),
                     e);
         }
@@ -148,9 +226,29 @@ public abstract class AbstractNode implements Node {
      * @return 変換した値。
      * @throws NodeProcessException 変換時の処理に失敗した場合にスローされます。
      */
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    @SuppressWarnings({"rawtypes"})
     protected String getEmbeddedValue(final Object value, SqlTemplateValueType valueType,
             final int position, final String parsedSql, final String expression) {
+        return getEmbeddedValue(value, valueType, position, new SqlLineIndex(parsedSql), expression);
+    }
+
+    /**
+     * 変換規則を元に埋め込み変数を変換します。
+     * <p>例外処理を含めて共通化のために切り出したメソッドです。</p>
+     * <p>変換規則がnullの場合は、変換対象の値をそのまま返します。</p>
+     *
+     * @since 0.4
+     * @param value 変換対象の値。
+     * @param valueType 変換規則
+     * @param position テンプレートの位置情報
+     * @param lineIndex パース済みのSQLテンプレートの行の開始位置の一覧
+     * @param expression 変換対象の値の元となったEL式
+     * @return 変換した値。
+     * @throws NodeProcessException 変換時の処理に失敗した場合にスローされます。
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected String getEmbeddedValue(final Object value, SqlTemplateValueType valueType,
+            final int position, final SqlLineIndex lineIndex, final String expression) {
 
         if(valueType == null) {
             return value.toString();
@@ -159,7 +257,7 @@ public abstract class AbstractNode implements Node {
         try {
             return valueType.getEmbeddedValue(value);
         } catch(TextConversionException e) {
-            throw new NodeProcessException(SqlUtils.resolveSqlPosition(parsedSql, position),
+            throw new NodeProcessException(lineIndex, position,
                     String.format("Fail converting value of expression '%s'.", expression),
                     e);
         }
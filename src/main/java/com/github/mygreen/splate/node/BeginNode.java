@@ -34,7 +34,7 @@ public class BeginNode extends ContainerNode {
         NodeProcessContext childCtx = new NodeProcessContext(ctx);
         super.accept(childCtx);
         if (childCtx.isEnabled()) {
-            ctx.addSql(childCtx.getProcessedSql(), childCtx.getBindParams());
+            ctx.addSql(childCtx);
         }
     }
 
@@ -42,7 +42,7 @@ public class BeginNode extends ContainerNode {
     public String toString() {
         return new ToStringCreator(this)
                 .append("position", getPosition())
-                .append("children", children)
+                .append("children", childList())
                 .toString();
     }
 }
\ No newline at end of file
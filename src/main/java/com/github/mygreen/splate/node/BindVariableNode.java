@@ -26,11 +26,11 @@ import lombok.Getter;
 /**
  * （コメントによる定義の）バインド変数のための{@link Node}です。
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  * @author T.TSUCHIE
  */
-public class BindVariableNode extends AbstractNode {
+public class BindVariableNode extends AbstractNode implements ExpressionNode {
 
     /**
      * 式
@@ -41,6 +41,7 @@ public class BindVariableNode extends AbstractNode {
     /**
      * パース済みの式
      */
+    @Getter
     private final Expression parsedExpression;
 
     /**
@@ -60,12 +61,24 @@ public class BindVariableNode extends AbstractNode {
     public void accept(final NodeProcessContext ctx) {
 
         final EvaluationContext evaluationContext = ctx.getEvaluationContext();
-        Object value = evaluateExpression(parsedExpression, evaluationContext, Object.class, getPosition(), ctx.getParsedSql());
+        Object value = evaluateExpression(parsedExpression, evaluationContext, Object.class, getPosition(), ctx.getSqlLineIndex());
         Class<?> clazz = parsedExpression.getValueType(evaluationContext);
 
-        SqlTemplateValueType<?> valueType = ctx.getValueTypeRegistry().findValueType(clazz, expression);
-        value = getBindVariableValue(value, valueType, getPosition(), ctx.getParsedSql(), expression);
-        ctx.addSql("?", value);
+        bindValue(ctx, value, clazz);
+    }
+
+    /**
+     * 評価済みの式の値を、変換規則に従って変換しバインド変数として追加します。
+     *
+     * @since 0.4
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @param value 式の値
+     * @param valueClass 式の値のクラスタイプ
+     * @throws NodeProcessException 変換に失敗した場合にスローされます。
+     */
+    public void bindValue(final NodeProcessContext ctx, final Object value, final Class<?> valueClass) {
+        SqlTemplateValueType<?> valueType = ctx.getValueTypeRegistry().findValueType(valueClass, expression);
+        ctx.addSql("?", getBindVariableValue(value, valueType, getPosition(), ctx.getSqlLineIndex(), expression));
     }
 
     @Override
@@ -74,7 +87,6 @@ public class BindVariableNode extends AbstractNode {
                 .append("position", getPosition())
                 .append("expression", expression)
                 .append("parsedExpression", parsedExpression)
-                .append("children", children)
                 .toString();
     }
 }
\ No newline at end of file
@@ -15,23 +15,162 @@
  */
 package com.github.mygreen.splate.node;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.springframework.core.style.ToStringCreator;
 
+import lombok.Getter;
+
 /**
  * {@link Node}のコンテナクラスです。
+ * <p>子ノードは配列で保持し、{@link #freeze()} を呼び出したときに必要なサイズに切り詰めます。</p>
  *
+ * @version 0.4
  * @author higa
+ * @author T.TSUCHIE
  */
 public class ContainerNode extends AbstractNode {
 
+    /**
+     * 子ノードが存在しないときの配列
+     */
+    private static final Node[] EMPTY_CHILDREN = new Node[0];
+
+    /**
+     * 子ノードを追加するときに最初に確保する配列のサイズ
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * 子ノードの配列。
+     * <p>先頭から {@link #childSize} 個の要素が有効な子ノードです。</p>
+     */
+    private Node[] children = EMPTY_CHILDREN;
+
+    /**
+     * 子ノードの個数
+     */
+    private int childSize;
+
+    /**
+     * 子ノードの追加が禁止されているかどうか。
+     *
+     * @since 0.4
+     */
+    @Getter
+    private boolean frozen;
+
     public ContainerNode(final int position) {
         super(position);
     }
 
+    @Override
+    public int getChildSize() {
+        return childSize;
+    }
+
+    @Override
+    public Node getChild(int index) {
+        if(index < 0 || index >= childSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childSize);
+        }
+        return children[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException {@link #freeze()} が呼び出された後に追加した場合にスローされます。
+     */
+    @Override
+    public void addChild(Node node) {
+        if(frozen) {
+            throw new IllegalStateException("node is frozen.");
+        }
+
+        if(childSize == children.length) {
+            children = Arrays.copyOf(children, Math.max(INITIAL_CAPACITY, childSize * 2));
+        }
+        children[childSize++] = node;
+    }
+
+    /**
+     * 子ノードを置き換えます。
+     * <p>パース中に、直前に追加したSQLのノードを分割するときなどに使用します。</p>
+     *
+     * @since 0.4
+     * @param index 置き換える子ノードのインデックス
+     * @param node 新しい子ノード
+     * @throws IllegalStateException {@link #freeze()} が呼び出された後に置き換えた場合にスローされます。
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合にスローされます。
+     */
+    public void replaceChild(final int index, final Node node) {
+        if(frozen) {
+            throw new IllegalStateException("node is frozen.");
+        }
+
+        if(index < 0 || index >= childSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childSize);
+        }
+        children[index] = node;
+    }
+
+    @Override
+    public void freeze() {
+        if(frozen) {
+            return;
+        }
+
+        if(children.length != childSize) {
+            children = childSize == 0 ? EMPTY_CHILDREN : Arrays.copyOf(children, childSize);
+        }
+
+        for(int i=0; i < childSize; i++) {
+            children[i].freeze();
+        }
+        this.frozen = true;
+    }
+
+    /**
+     * 子ノードの配列の長さを取得します。
+     * <p>{@link #freeze()} を呼び出した後は、子ノードの個数と一致します。</p>
+     *
+     * @since 0.4
+     * @return 子ノードの配列の長さ
+     */
+    public int getChildCapacity() {
+        return children.length;
+    }
+
+    /**
+     * 子ノードの一覧を取得します。
+     *
+     * @since 0.4
+     * @return 読み取り専用の子ノードの一覧
+     * @deprecated 子ノードは {@link #getChildSize()} と {@link #getChild(int)} で参照してください。
+     *  次のバージョンで削除します。
+     */
+    @Deprecated
+    @Override
+    protected List<Node> getChildren() {
+        return childList();
+    }
+
+    /**
+     * 子ノードの一覧を、{@link #toString()} で出力するために取得します。
+     * @return 読み取り専用の子ノードの一覧
+     */
+    List<Node> childList() {
+        return Collections.unmodifiableList(Arrays.asList(children).subList(0, childSize));
+    }
+
     @Override
     public void accept(final NodeProcessContext ctx) {
-        for (int i = 0; i < getChildSize(); ++i) {
-            getChild(i).accept(ctx);
+        final Node[] nodes = children;
+        final int size = childSize;
+        for (int i = 0; i < size; ++i) {
+            nodes[i].accept(ctx);
         }
     }
 
@@ -39,7 +178,7 @@ public class ContainerNode extends AbstractNode {
     public String toString() {
         return new ToStringCreator(this)
                 .append("position", getPosition())
-                .append("children", children)
+                .append("children", childList())
                 .toString();
     }
-}
\ No newline at end of file
+}
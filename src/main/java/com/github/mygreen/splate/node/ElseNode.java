@@ -39,7 +39,7 @@ public class ElseNode extends ContainerNode {
     public String toString() {
         return new ToStringCreator(this)
                 .append("position", getPosition())
-                .append("children", children)
+                .append("children", childList())
                 .toString();
     }
 }
\ No newline at end of file
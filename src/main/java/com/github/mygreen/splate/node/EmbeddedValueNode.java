@@ -19,7 +19,6 @@ import org.springframework.core.style.ToStringCreator;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 
-import com.github.mygreen.splate.SqlUtils;
 import com.github.mygreen.splate.type.SqlTemplateValueType;
 
 import lombok.Getter;
@@ -28,11 +27,11 @@ import lombok.Getter;
 /**
  * 値を埋め込む用の{@link Node}です
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  * @author T.TSUCHIE
  */
-public class EmbeddedValueNode extends AbstractNode {
+public class EmbeddedValueNode extends AbstractNode implements ExpressionNode {
 
     @Getter
     private final String expression;
@@ -40,6 +39,7 @@ public class EmbeddedValueNode extends AbstractNode {
     /**
      * パース済みの式
      */
+    @Getter
     private final Expression parsedExpression;
 
     /**
@@ -59,20 +59,35 @@ public class EmbeddedValueNode extends AbstractNode {
     public void accept(final NodeProcessContext ctx) {
 
         EvaluationContext evaluationContext = ctx.getEvaluationContext();
-        Object value = evaluateExpression(parsedExpression, evaluationContext, Object.class, getPosition(), ctx.getParsedSql());
+        Object value = evaluateExpression(parsedExpression, evaluationContext, Object.class, getPosition(), ctx.getSqlLineIndex());
 
         if (value != null) {
             // SQLファイルに埋め込むために、文字列に変換する。
             final Class<?> clazz = parsedExpression.getValueType(evaluationContext);
             SqlTemplateValueType<?> valueType = ctx.getValueTypeRegistry().findValueType(clazz, expression);
-            final String sql = getEmbeddedValue(value, valueType, getPosition(), ctx.getParsedSql(), expression);
+            final String sql = getEmbeddedValue(value, valueType, getPosition(), ctx.getSqlLineIndex(), expression);
 
             if (sql.indexOf(';') >= 0) {
                 // SQLインジェクションの原因となるセミコロンが含まれる場合は例外をスローする。
-                throw new NodeProcessException(SqlUtils.resolveSqlPosition(ctx.getParsedSql(), getPosition()),
+                throw new NodeProcessException(ctx.getSqlLineIndex(), getPosition(),
                         String.format("Not allowed semicolon at embedded value '%s' to '%s'.", expression, sql));
             }
+            recordShape(ctx, sql);
             ctx.addSql(sql);
+        } else {
+            recordShape(ctx, null);
+        }
+    }
+
+    /**
+     * 埋め込む値を、SQLの形として記録します。
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @param sql 埋め込む値。埋め込まない場合は {@literal null} です。
+     */
+    private void recordShape(final NodeProcessContext ctx, final String sql) {
+        final SqlShapeRecorder shapeRecorder = ctx.getShapeRecorder();
+        if(shapeRecorder != null) {
+            shapeRecorder.recordValue(sql);
         }
     }
 
@@ -82,7 +97,6 @@ public class EmbeddedValueNode extends AbstractNode {
                 .append("position", getPosition())
                 .append("expression", expression)
                 .append("parsedExpression", parsedExpression)
-                .append("children", children)
                 .toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.github.mygreen.splate.node;
+
+import org.springframework.expression.Expression;
+
+/**
+ * EL式を持つ{@link Node}を表します。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public interface ExpressionNode extends Node {
+
+    /**
+     * SQLテンプレート中に記述された式を返します。
+     *
+     * @return 式
+     */
+    String getExpression();
+
+    /**
+     * パース済みの式を返します。
+     *
+     * @return パース済みの式
+     */
+    Expression getParsedExpression();
+
+}
@@ -26,11 +26,11 @@ import lombok.Setter;
 /**
  * {@code IF} コメント用の{@link Node}です。
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  * @author T.TSUCHIE
  */
-public class IfNode extends ContainerNode {
+public class IfNode extends ContainerNode implements ExpressionNode {
 
     /**
      * {@code IF}コメント内の式
@@ -41,6 +41,7 @@ public class IfNode extends ContainerNode {
     /**
      * パース済みの式
      */
+    @Getter
     private final Expression parsedExpression;
 
     /**
@@ -63,11 +64,29 @@ public class IfNode extends ContainerNode {
         this.parsedExpression = parsedExpression;
     }
 
+    /**
+     * {@code IF}コメントの条件式を評価します。
+     *
+     * @since 0.4
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @return 条件式の評価結果
+     * @throws NodeProcessException 条件式の評価に失敗した場合にスローされます。
+     */
+    public boolean evaluateCondition(final NodeProcessContext ctx) {
+        final EvaluationContext evaluationContext = ctx.getEvaluationContext();
+        final boolean result = evaluateExpression(parsedExpression, evaluationContext, boolean.class, getPosition(), ctx.getSqlLineIndex());
+
+        final SqlShapeRecorder shapeRecorder = ctx.getShapeRecorder();
+        if(shapeRecorder != null) {
+            shapeRecorder.recordBranch(result);
+        }
+        return result;
+    }
+
     @Override
     public void accept(final NodeProcessContext ctx) {
 
-        final EvaluationContext evaluationContext = ctx.getEvaluationContext();
-        boolean result = evaluateExpression(parsedExpression, evaluationContext, boolean.class, getPosition(), ctx.getParsedSql());
+        boolean result = evaluateCondition(ctx);
 
         if (result) {
             super.accept(ctx);
@@ -78,6 +97,14 @@ public class IfNode extends ContainerNode {
         }
     }
 
+    @Override
+    public void freeze() {
+        super.freeze();
+        if(elseNode != null) {
+            elseNode.freeze();
+        }
+    }
+
     @Override
     public String toString() {
         return new ToStringCreator(this)
@@ -85,7 +112,7 @@ public class IfNode extends ContainerNode {
                 .append("expression", expression)
                 .append("parsedExpression", parsedExpression)
                 .append("elseNode", elseNode)
-                .append("children", children)
+                .append("children", childList())
                 .toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,456 @@
+package com.github.mygreen.splate.node;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * {@link Node} のツリーを、命令の配列に変換したものです。
+ * <p>ノードのツリーを再帰的に巡回する代わりに、命令の配列を1つのループで実行します。
+ *  {@code BEGIN} コメントの範囲は、子供のコンテキストを作成せずに、
+ *  範囲の開始時点のSQLの長さとバインド変数の個数を記録しておき、範囲内の {@code IF} コメントが
+ *  1つも成立しなかったときに切り詰めます。
+ * </p>
+ * <p>評価結果は、{@link Node#accept(NodeProcessContext)} でツリーを巡回したときと同じです。
+ *  本ライブラリで定義されていないノードのクラスは、そのノードの {@link Node#accept(NodeProcessContext)} を呼び出して評価します。
+ * </p>
+ * <p>インスタンスは不変で、複数のスレッドから同時に実行できます。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class InstructionProgram {
+
+    /**
+     * 命令 - SQLを追加します。オペランドは、追加するSQLの文字列です。
+     */
+    private static final byte EMIT_SQL = 0;
+
+    /**
+     * 命令 - プレフィックス付きのSQLを追加します。オペランドは {@link PrefixSqlNode} です。
+     */
+    private static final byte EMIT_PREFIX = 1;
+
+    /**
+     * 命令 - ノードを評価します。オペランドは、評価する {@link Node} です。
+     * <p>バインド変数、埋め込み変数のノードや、独自に定義されたノードを評価します。</p>
+     */
+    private static final byte ACCEPT = 2;
+
+    /**
+     * 命令 - {@code IF} コメントの条件式が成立しない場合に分岐します。オペランドは {@link IfNode} です。
+     */
+    private static final byte JUMP_IF_FALSE = 3;
+
+    /**
+     * 命令 - 無条件に分岐します。
+     */
+    private static final byte JUMP = 4;
+
+    /**
+     * 命令 - 現在の {@code BEGIN} コメントの範囲を有効にします。
+     */
+    private static final byte ENABLE = 5;
+
+    /**
+     * 命令 - {@code BEGIN} コメントの範囲を開始します。
+     */
+    private static final byte BEGIN_SCOPE = 6;
+
+    /**
+     * 命令 - {@code BEGIN} コメントの範囲を終了します。
+     */
+    private static final byte END_SCOPE = 7;
+
+    /**
+     * 1つの {@code BEGIN} コメントの範囲の状態を保持するのに必要な要素数。
+     * <p>SQLの長さ、バインド変数の個数、範囲の開始前の有効状態の3つです。</p>
+     */
+    private static final int SCOPE_FRAME_SIZE = 3;
+
+    /**
+     * 命令の種類
+     */
+    private final byte[] opcodes;
+
+    /**
+     * 命令のオペランド
+     */
+    private final Object[] operands;
+
+    /**
+     * 分岐命令の分岐先
+     */
+    private final int[] jumpTargets;
+
+    /**
+     * {@code BEGIN} コメントの入れ子の最大の深さ
+     */
+    @Getter
+    private final int maxScopeDepth;
+
+    /**
+     * 命令の配列を指定してインスタンスを作成します。
+     * @param builder 命令を組み立てた結果
+     */
+    private InstructionProgram(final Builder builder) {
+        this.opcodes = Arrays.copyOf(builder.opcodes, builder.size);
+        this.operands = Arrays.copyOf(builder.operands, builder.size);
+        this.jumpTargets = Arrays.copyOf(builder.jumpTargets, builder.size);
+        this.maxScopeDepth = builder.maxScopeDepth;
+    }
+
+    /**
+     * ノードのツリーを命令の配列に変換します。
+     *
+     * @param root ルートノード
+     * @return 変換した命令の配列
+     */
+    public static InstructionProgram compile(@NonNull final Node root) {
+        final Builder builder = new Builder();
+        builder.lower(root);
+        return new InstructionProgram(builder);
+    }
+
+    /**
+     * 命令の個数を取得します。
+     * @return 命令の個数
+     */
+    public int getInstructionCount() {
+        return opcodes.length;
+    }
+
+    /**
+     * 命令を実行します。
+     *
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @throws NodeProcessException 式の評価や変数の変換に失敗した場合にスローされます。
+     */
+    public void execute(final NodeProcessContext ctx) {
+
+        final byte[] ops = this.opcodes;
+        final Object[] args = this.operands;
+        final int[] targets = this.jumpTargets;
+        final int[] scopes = maxScopeDepth == 0 ? null : new int[maxScopeDepth * SCOPE_FRAME_SIZE];
+
+        int sp = 0;
+        int pc = 0;
+        final int end = ops.length;
+        while(pc < end) {
+            switch(ops[pc]) {
+                case EMIT_SQL:
+                    ctx.addSql((String) args[pc]);
+                    pc++;
+                    break;
+
+                case EMIT_PREFIX: {
+                    final PrefixSqlNode node = (PrefixSqlNode) args[pc];
+                    if(ctx.isEnabled()) {
+                        ctx.addSql(node.getPrefix());
+                    }
+                    ctx.addSql(node.getSql());
+                    pc++;
+                    break;
+                }
+
+                case ACCEPT:
+                    ((Node) args[pc]).accept(ctx);
+                    pc++;
+                    break;
+
+                case JUMP_IF_FALSE:
+                    pc = ((IfNode) args[pc]).evaluateCondition(ctx) ? pc + 1 : targets[pc];
+                    break;
+
+                case JUMP:
+                    pc = targets[pc];
+                    break;
+
+                case ENABLE:
+                    ctx.setEnabled(true);
+                    pc++;
+                    break;
+
+                case BEGIN_SCOPE:
+                    ctx.startBuffering();
+                    scopes[sp++] = ctx.getProcessedSqlLength();
+                    scopes[sp++] = ctx.getBindParams().size();
+                    scopes[sp++] = ctx.isEnabled() ? 1 : 0;
+                    ctx.setEnabled(false);
+                    pc++;
+                    break;
+
+                case END_SCOPE: {
+                    final boolean outerEnabled = scopes[--sp] == 1;
+                    final int bindParamSize = scopes[--sp];
+                    final int sqlLength = scopes[--sp];
+                    if(!ctx.isEnabled()) {
+                        // 範囲内のIFコメントが1つも成立しない場合は、範囲内で追加したSQLを取り除く。
+                        ctx.truncate(sqlLength, bindParamSize);
+                    }
+                    ctx.setEnabled(outerEnabled);
+                    ctx.endBuffering();
+                    pc++;
+                    break;
+                }
+
+                default:
+                    throw new IllegalStateException("Unknown opcode : " + ops[pc]);
+            }
+        }
+
+    }
+
+    /**
+     * 命令を先頭から順番に参照します。
+     * <p>Javaのクラスへの変換など、命令の配列を別の形式に変換するときに使用します。</p>
+     *
+     * @param visitor 命令を参照する処理
+     */
+    public void accept(@NonNull final InstructionVisitor visitor) {
+
+        final int end = opcodes.length;
+        final boolean[] labels = new boolean[end + 1];
+        for(int target : jumpTargets) {
+            if(target >= 0) {
+                labels[target] = true;
+            }
+        }
+
+        for(int pc=0; pc < end; pc++) {
+            if(labels[pc]) {
+                visitor.visitLabel(pc);
+            }
+
+            switch(opcodes[pc]) {
+                case EMIT_SQL:
+                    visitor.visitEmitSql((String) operands[pc]);
+                    break;
+                case EMIT_PREFIX:
+                    visitor.visitEmitPrefix((PrefixSqlNode) operands[pc]);
+                    break;
+                case ACCEPT:
+                    visitor.visitAccept((Node) operands[pc]);
+                    break;
+                case JUMP_IF_FALSE:
+                    visitor.visitJumpIfFalse((IfNode) operands[pc], jumpTargets[pc]);
+                    break;
+                case JUMP:
+                    visitor.visitJump(jumpTargets[pc]);
+                    break;
+                case ENABLE:
+                    visitor.visitEnable();
+                    break;
+                case BEGIN_SCOPE:
+                    visitor.visitBeginScope();
+                    break;
+                case END_SCOPE:
+                    visitor.visitEndScope();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode : " + opcodes[pc]);
+            }
+        }
+
+        if(labels[end]) {
+            visitor.visitLabel(end);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for(int i=0; i < opcodes.length; i++) {
+            sb.append(i).append(": ");
+            switch(opcodes[i]) {
+                case EMIT_SQL:
+                    sb.append("EMIT_SQL '").append(operands[i]).append('\'');
+                    break;
+                case EMIT_PREFIX:
+                    sb.append("EMIT_PREFIX '").append(((PrefixSqlNode) operands[i]).getPrefix())
+                        .append("' '").append(((PrefixSqlNode) operands[i]).getSql()).append('\'');
+                    break;
+                case ACCEPT:
+                    sb.append("ACCEPT ").append(operands[i].getClass().getSimpleName());
+                    if(operands[i] instanceof ExpressionNode) {
+                        sb.append(" '").append(((ExpressionNode) operands[i]).getExpression()).append('\'');
+                    }
+                    break;
+                case JUMP_IF_FALSE:
+                    sb.append("JUMP_IF_FALSE '").append(((IfNode) operands[i]).getExpression())
+                        .append("' -> ").append(jumpTargets[i]);
+                    break;
+                case JUMP:
+                    sb.append("JUMP -> ").append(jumpTargets[i]);
+                    break;
+                case ENABLE:
+                    sb.append("ENABLE");
+                    break;
+                case BEGIN_SCOPE:
+                    sb.append("BEGIN_SCOPE");
+                    break;
+                case END_SCOPE:
+                    sb.append("END_SCOPE");
+                    break;
+                default:
+                    sb.append("UNKNOWN");
+                    break;
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * ノードのツリーから命令の配列を組み立てます。
+     */
+    private static class Builder {
+
+        private byte[] opcodes = new byte[16];
+
+        private Object[] operands = new Object[16];
+
+        private int[] jumpTargets = new int[16];
+
+        private int size;
+
+        /**
+         * 分岐先として参照されている最後の位置。
+         * この位置の命令は、直前の命令と結合できません。
+         */
+        private int lastLabel = -1;
+
+        private int scopeDepth;
+
+        private int maxScopeDepth;
+
+        /**
+         * ノードを命令に変換します。
+         * <p>継承したクラスは処理が変更されている可能性があるため、クラスが一致する場合のみ変換し、
+         *  それ以外はノード自身に評価させます。
+         * </p>
+         * @param node 変換対象のノード
+         */
+        void lower(final Node node) {
+
+            final Class<?> type = node.getClass();
+            if(type == SqlNode.class) {
+                emitSql(((SqlNode) node).getSql());
+
+            } else if(type == PrefixSqlNode.class) {
+                emit(EMIT_PREFIX, node);
+
+            } else if(type == ContainerNode.class) {
+                lowerChildren(node);
+
+            } else if(type == BeginNode.class) {
+                emit(BEGIN_SCOPE, null);
+                scopeDepth++;
+                maxScopeDepth = Math.max(maxScopeDepth, scopeDepth);
+                lowerChildren(node);
+                scopeDepth--;
+                emit(END_SCOPE, null);
+
+            } else if(type == IfNode.class) {
+                lowerIf((IfNode) node);
+
+            } else if(type == ElseNode.class) {
+                lowerChildren(node);
+                emit(ENABLE, null);
+
+            } else {
+                emit(ACCEPT, node);
+            }
+
+        }
+
+        /**
+         * {@code IF} コメントのノードを命令に変換します。
+         * <pre>
+         *   JUMP_IF_FALSE -&gt; else
+         *   (IFの子ノード)
+         *   ENABLE
+         *   JUMP -&gt; end        ※ELSEがある場合
+         * else:
+         *   (ELSEの子ノード)    ※ELSEがある場合
+         *   ENABLE             ※ELSEがある場合
+         * end:
+         * </pre>
+         * @param node {@code IF} コメントのノード
+         */
+        private void lowerIf(final IfNode node) {
+
+            final int branch = emit(JUMP_IF_FALSE, node);
+            lowerChildren(node);
+            emit(ENABLE, null);
+
+            final ElseNode elseNode = node.getElseNode();
+            if(elseNode == null) {
+                bindLabel(branch);
+                return;
+            }
+
+            final int jumpToEnd = emit(JUMP, null);
+            bindLabel(branch);
+            lower(elseNode);
+            if(elseNode.getClass() != ElseNode.class) {
+                // ElseNode#accept の処理後に、IfNodeとしても有効にする。
+                emit(ENABLE, null);
+            }
+            bindLabel(jumpToEnd);
+
+        }
+
+        private void lowerChildren(final Node node) {
+            final int childSize = node.getChildSize();
+            for(int i=0; i < childSize; i++) {
+                lower(node.getChild(i));
+            }
+        }
+
+        /**
+         * SQLを追加する命令を追加します。
+         * 直前の命令もSQLの追加であれば、1つの命令に結合します。
+         * @param sql 追加するSQL
+         */
+        private void emitSql(final String sql) {
+            if(size > 0 && opcodes[size - 1] == EMIT_SQL && lastLabel != size) {
+                operands[size - 1] = operands[size - 1] + sql;
+                return;
+            }
+            emit(EMIT_SQL, sql);
+        }
+
+        /**
+         * 命令を追加します。
+         * @param opcode 命令の種類
+         * @param operand 命令のオペランド
+         * @return 追加した命令の位置
+         */
+        private int emit(final byte opcode, final Object operand) {
+            if(size == opcodes.length) {
+                final int capacity = size * 2;
+                opcodes = Arrays.copyOf(opcodes, capacity);
+                operands = Arrays.copyOf(operands, capacity);
+                jumpTargets = Arrays.copyOf(jumpTargets, capacity);
+            }
+
+            opcodes[size] = opcode;
+            operands[size] = operand;
+            jumpTargets[size] = -1;
+            return size++;
+        }
+
+        /**
+         * 分岐命令の分岐先を、次に追加する命令の位置に設定します。
+         * @param branch 分岐命令の位置
+         */
+        private void bindLabel(final int branch) {
+            jumpTargets[branch] = size;
+            lastLabel = size;
+        }
+
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.mygreen.splate.node;
+
+/**
+ * {@link InstructionProgram} の命令を、先頭から順番に参照する処理です。
+ * <p>{@link InstructionProgram#accept(InstructionVisitor)} に渡して、命令の配列を別の形式に変換するときに使用します。
+ *  各命令の意味は、{@link InstructionProgram#execute(NodeProcessContext)} と同じです。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public interface InstructionVisitor {
+
+    /**
+     * 分岐先となる位置を参照します。
+     * <p>分岐先となる命令の直前に呼び出します。最後の命令の次が分岐先の場合は、全ての命令の後に呼び出します。</p>
+     *
+     * @param index 分岐先の位置
+     */
+    void visitLabel(int index);
+
+    /**
+     * SQLを追加する命令を参照します。
+     *
+     * @param sql 追加するSQL
+     */
+    void visitEmitSql(String sql);
+
+    /**
+     * プレフィックス付きのSQLを追加する命令を参照します。
+     * <p>プレフィックスは、現在の範囲が有効な場合のみ追加します。</p>
+     *
+     * @param node プレフィックス付きのSQLのノード
+     */
+    void visitEmitPrefix(PrefixSqlNode node);
+
+    /**
+     * ノード自身に評価させる命令を参照します。
+     *
+     * @param node 評価するノード
+     */
+    void visitAccept(Node node);
+
+    /**
+     * {@code IF} コメントの条件式が成立しない場合に分岐する命令を参照します。
+     *
+     * @param node {@code IF} コメントのノード
+     * @param target 分岐先の位置
+     */
+    void visitJumpIfFalse(IfNode node, int target);
+
+    /**
+     * 無条件に分岐する命令を参照します。
+     *
+     * @param target 分岐先の位置
+     */
+    void visitJump(int target);
+
+    /**
+     * 現在の {@code BEGIN} コメントの範囲を有効にする命令を参照します。
+     */
+    void visitEnable();
+
+    /**
+     * {@code BEGIN} コメントの範囲を開始する命令を参照します。
+     */
+    void visitBeginScope();
+
+    /**
+     * {@code BEGIN} コメントの範囲を終了する命令を参照します。
+     */
+    void visitEndScope();
+
+}
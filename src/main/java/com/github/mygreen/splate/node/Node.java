@@ -18,6 +18,7 @@ package com.github.mygreen.splate.node;
 /**
  * <code>SQL</code>を構成する個々の要素をあらわします。
  *
+ * @version 0.4
  * @author higa
  *
  */
@@ -45,6 +46,16 @@ public interface Node {
      */
     void addChild(Node node);
 
+    /**
+     * パースが完了したときに、子ノードの追加を禁止し、子ノードの保持領域を必要なサイズに切り詰めます。
+     * <p>子ノードに対しても再帰的に呼び出します。子ノードを持たないノードは何もしません。</p>
+     *
+     * @since 0.4
+     */
+    default void freeze() {
+        // 子ノードを持たないため何もしない
+    }
+
     /**
      * SQLテンプレートを実行し評価します。
      *
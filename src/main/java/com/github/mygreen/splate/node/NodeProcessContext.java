@@ -15,13 +15,18 @@
  */
 package com.github.mygreen.splate.node;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
 import org.springframework.expression.EvaluationContext;
 
+import com.github.mygreen.splate.BindParameterSink;
+import com.github.mygreen.splate.InListPadding;
+import com.github.mygreen.splate.SqlLineIndex;
 import com.github.mygreen.splate.SqlTemplateContext;
+import com.github.mygreen.splate.TwoWaySqlException;
 import com.github.mygreen.splate.type.SqlTemplateValueTypeRegistry;
 
 import lombok.Getter;
@@ -35,7 +40,7 @@ import lombok.Setter;
  * 子供のコンテキストになります。 通常は、 {@code WHERE}句を{@code BEGIN}コメントと{@code END}コメントで囲み、
  * {@code WHERE}句の中の{@code IF}コメントが1つでも成立した場合、{@code enabled}になります。
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  *
  */
@@ -46,16 +51,31 @@ public class NodeProcessContext {
      */
     private final SqlTemplateContext<?> templateContext;
 
+    /**
+     * 組み立てたSQLのバッファの、デフォルトの初期容量。
+     *
+     * @since 0.4
+     */
+    public static final int DEFAULT_SQL_CAPACITY = 255;
+
+    /**
+     * バインドパラメータのリストの、デフォルトの初期容量。
+     * {@link ArrayList#ArrayList()} で作成した場合に、最初の追加時に確保される容量と同じです。
+     *
+     * @since 0.4
+     */
+    public static final int DEFAULT_BIND_PARAM_CAPACITY = 10;
+
     /**
      * 組み立てたSQL
      */
-    private StringBuffer sqlBuf = new StringBuffer(255);
+    private final StringBuilder sqlBuf;
 
     /**
      * SQLテンプレート中の変数をバインドしたパラメータ
      */
     @Getter
-    private List<Object> bindParams = new ArrayList<>();
+    private List<Object> bindParams;
 
     /**
      * {@code BEGIN} コメントと{@code END} コメントで、囲まれた子供のコンテキストが有効かどうか。
@@ -78,12 +98,113 @@ public class NodeProcessContext {
     @Setter
     private String parsedSql;
 
+    /**
+     * パースされた状態のSQLテンプレートの行の開始位置の一覧。
+     * エラー時の位置情報を解決するために使用します。
+     *
+     * @since 0.4
+     */
+    @Setter
+    private SqlLineIndex sqlLineIndex;
+
+    /**
+     * EL式を評価するためのコンテキスト。
+     * SQLテンプレートの評価中に1度だけ作成し、子供のコンテキストとも共有します。
+     */
+    private EvaluationContext evaluationContext;
+
+    /**
+     * 組み立てたSQLを直接出力する先。{@literal null} の場合は内部のバッファに蓄積します。
+     */
+    private final Appendable sqlSink;
+
+    /**
+     * バインドパラメータを直接出力する先。
+     */
+    private final BindParameterSink bindParameterSink;
+
+    /**
+     * {@link #startBuffering()} で開始した、バッファに蓄積する範囲の入れ子の深さ。
+     */
+    private int bufferingDepth;
+
+    /**
+     * 組み立てるSQLの形を決める情報を記録する処理。
+     * {@literal null} の場合は記録しません。子供のコンテキストとも共有します。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private SqlShapeRecorder shapeRecorder;
+
+    /**
+     * SQLを組み立てずに、バインドパラメータのみを集めるかどうか。
+     * <p>SQLの形から、組み立て済みのSQLを再利用する場合に使用します。</p>
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private boolean sqlSkipped;
+
+    /**
+     * {@code IN} 句のバインド変数の要素数を切り上げる設定。
+     * {@literal null} の場合は切り上げません。子供のコンテキストにも引き継ぎます。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private InListPadding inListPadding;
+
     /**
      * テンプレートパラメータなどのSQLコンテキストを指定するコンストラクタ。
      * @param templateContext SQLテンプレートのコンテキスト
      */
     public NodeProcessContext(final SqlTemplateContext<?> templateContext) {
         this.templateContext = templateContext;
+        this.sqlBuf = new StringBuilder(DEFAULT_SQL_CAPACITY);
+        this.bindParams = new ArrayList<>();
+        this.sqlSink = null;
+        this.bindParameterSink = null;
+    }
+
+    /**
+     * 組み立てるSQLとバインドパラメータの、初期容量を指定するコンストラクタ。
+     * <p>評価結果の大きさが分かっている場合に、バッファの拡張を減らすために使用します。</p>
+     *
+     * @since 0.4
+     * @param templateContext SQLテンプレートのコンテキスト
+     * @param sqlCapacity 組み立てるSQLのバッファの初期容量
+     * @param bindParamCapacity バインドパラメータのリストの初期容量
+     */
+    public NodeProcessContext(final SqlTemplateContext<?> templateContext, final int sqlCapacity, final int bindParamCapacity) {
+        this.templateContext = templateContext;
+        this.sqlBuf = new StringBuilder(sqlCapacity);
+        this.bindParams = new ArrayList<>(bindParamCapacity);
+        this.sqlSink = null;
+        this.bindParameterSink = null;
+    }
+
+    /**
+     * 組み立てたSQLとバインドパラメータを、直接出力するコンストラクタ。
+     * <p>{@code BEGIN} コメントの範囲など、出力するかどうか決まっていない部分のみ内部のバッファに蓄積し、
+     *  それ以外はすぐに出力先に書き込みます。
+     * </p>
+     *
+     * @since 0.4
+     * @param templateContext SQLテンプレートのコンテキスト
+     * @param sqlSink SQLの出力先
+     * @param bindParameterSink バインドパラメータの出力先
+     */
+    public NodeProcessContext(final SqlTemplateContext<?> templateContext,
+            final Appendable sqlSink, final BindParameterSink bindParameterSink) {
+        this.templateContext = templateContext;
+        this.sqlBuf = new StringBuilder(DEFAULT_SQL_CAPACITY);
+        this.bindParams = new ArrayList<>();
+        this.sqlSink = sqlSink;
+        this.bindParameterSink = bindParameterSink;
     }
 
     /**
@@ -98,11 +219,24 @@ public class NodeProcessContext {
         // 各種情報の引継ぎ
         this.templateContext = parent.templateContext;
         this.parsedSql = parent.parsedSql;
+        this.sqlLineIndex = parent.sqlLineIndex;
+
+        this.shapeRecorder = parent.shapeRecorder;
+        this.sqlSkipped = parent.sqlSkipped;
+        this.inListPadding = parent.inListPadding;
+
+        this.sqlBuf = new StringBuilder(sqlSkipped ? 0 : DEFAULT_SQL_CAPACITY);
+        this.bindParams = new ArrayList<>();
+
+        // 子供のコンテキストは、有効かどうか決まるまで常にバッファに蓄積する。
+        this.sqlSink = null;
+        this.bindParameterSink = null;
 
     }
 
     /**
      * 処理済みの{@code SQL} を取得します。
+     * <p>SQLを直接出力している場合は、出力せずにバッファに蓄積している部分のみを返します。</p>
      *
      * @return SQL
      */
@@ -116,7 +250,11 @@ public class NodeProcessContext {
      * @param sql SQL
      */
     public void addSql(String sql) {
-        sqlBuf.append(sql);
+        if(isDirectOutput()) {
+            write(sql);
+        } else if(!sqlSkipped) {
+            sqlBuf.append(sql);
+        }
     }
 
     /**
@@ -125,8 +263,15 @@ public class NodeProcessContext {
      * @param bindValue バインドする変数の値
      */
     public void addSql(String sql, Object bindValue) {
-        sqlBuf.append(sql);
-        bindParams.add(bindValue);
+        if(isDirectOutput()) {
+            write(sql);
+            bindParameterSink.add(bindValue);
+        } else {
+            if(!sqlSkipped) {
+                sqlBuf.append(sql);
+            }
+            bindParams.add(bindValue);
+        }
     }
 
     /**
@@ -135,17 +280,144 @@ public class NodeProcessContext {
      * @param bindParams バインドする変数情報
      */
     public void addSql(final String sql, final List<Object> bindParams) {
-        this.sqlBuf.append(sql);
-        this.bindParams.addAll(bindParams);
+        if(isDirectOutput()) {
+            write(sql);
+            bindParams.forEach(bindParameterSink::add);
+        } else {
+            if(!sqlSkipped) {
+                this.sqlBuf.append(sql);
+            }
+            this.bindParams.addAll(bindParams);
+        }
+
+    }
+
+    /**
+     * 子供のコンテキストで組み立てたSQLとバインド変数を追加します。
+     * <p>子供のコンテキストのバッファから直接追加するため、中間の文字列を作成しません。</p>
+     *
+     * @since 0.4
+     * @param child 子供のコンテキスト
+     */
+    public void addSql(final NodeProcessContext child) {
+        if(isDirectOutput()) {
+            write(child.sqlBuf);
+            child.bindParams.forEach(bindParameterSink::add);
+        } else {
+            this.sqlBuf.append(child.sqlBuf);
+            this.bindParams.addAll(child.bindParams);
+        }
+    }
+
+    /**
+     * 出力するかどうか決まっていない範囲を開始し、以降のSQLとバインド変数をバッファに蓄積します。
+     * <p>子供のコンテキストを作成せずに、{@code BEGIN} コメントの範囲を評価するときに使用します。
+     *  範囲は入れ子にできます。
+     * </p>
+     *
+     * @since 0.4
+     */
+    public void startBuffering() {
+        bufferingDepth++;
+    }
+
+    /**
+     * {@link #startBuffering()} で開始した範囲を終了します。
+     * <p>最も外側の範囲を終了したときに、SQLを直接出力している場合は、バッファに蓄積した内容を出力します。</p>
+     *
+     * @since 0.4
+     */
+    public void endBuffering() {
+        bufferingDepth--;
+        if(bufferingDepth == 0 && sqlSink != null) {
+            write(sqlBuf);
+            bindParams.forEach(bindParameterSink::add);
+            sqlBuf.setLength(0);
+            bindParams.clear();
+        }
+    }
+
+    /**
+     * SQLを、バッファを介さずに出力先に書き込むかどうか。
+     * @return 書き込む場合は {@literal true} を返します。
+     */
+    private boolean isDirectOutput() {
+        return sqlSink != null && bufferingDepth == 0;
+    }
+
+    /**
+     * SQLを出力先に書き込みます。
+     * @param sql 書き込むSQL
+     * @throws TwoWaySqlException 書き込みに失敗した場合にスローされます。
+     */
+    private void write(final CharSequence sql) {
+        try {
+            sqlSink.append(sql);
+        } catch(IOException e) {
+            throw new TwoWaySqlException("Fail writing processed SQL.", e);
+        }
+    }
+
+    /**
+     * 組み立て中のSQLの長さを取得します。
+     * <p>{@link #truncate(int, int)} で、組み立て途中の状態に戻すときの位置として使用します。</p>
+     *
+     * @since 0.4
+     * @return 組み立て中のSQLの長さ
+     */
+    public int getProcessedSqlLength() {
+        return sqlBuf.length();
+    }
+
+    /**
+     * 組み立て中のSQLとバインド変数を、指定した長さまで切り詰めます。
+     * <p>子供のコンテキストを作成せずに、{@code BEGIN} コメントの範囲を評価するときに使用します。</p>
+     *
+     * @since 0.4
+     * @param sqlLength 切り詰めた後のSQLの長さ
+     * @param bindParamSize 切り詰めた後のバインド変数の個数
+     */
+    public void truncate(final int sqlLength, final int bindParamSize) {
+        sqlBuf.setLength(sqlLength);
+        if(bindParams.size() > bindParamSize) {
+            bindParams.subList(bindParamSize, bindParams.size()).clear();
+        }
+    }
 
+    /**
+     * パースされた状態のSQLテンプレートの行の開始位置の一覧を取得します。
+     * <p>設定されていない場合は、パースされた状態のSQLテンプレートから作成します。</p>
+     *
+     * @since 0.4
+     * @return 行の開始位置の一覧
+     */
+    public SqlLineIndex getSqlLineIndex() {
+        if(sqlLineIndex == null) {
+            this.sqlLineIndex = new SqlLineIndex(parsedSql);
+        }
+        return sqlLineIndex;
     }
 
     /**
      * EL式で指定された時の式を評価するためのコンテキストを取得します。
+     * <p>初回の呼び出し時に作成し、以降は同じインスタンスを返します。
+     *  子供のコンテキストの場合は、親のコンテキストと同じインスタンスを返します。
+     * </p>
      * @return EL式で指定された時の式を評価するためのコンテキスト
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
     public EvaluationContext getEvaluationContext() {
+        if(evaluationContext == null) {
+            this.evaluationContext = (parent != null ? parent.getEvaluationContext() : createEvaluationContext());
+        }
+        return evaluationContext;
+    }
+
+    /**
+     * EL式で指定された時の式を評価するためのコンテキストを作成します。
+     * @return EL式で指定された時の式を評価するためのコンテキスト
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private EvaluationContext createEvaluationContext() {
         EvaluationContext context = templateContext.createEvaluationContext();
         templateContext.getEvaluationContextEditor().ifPresent(editor -> ((Consumer)editor).accept(context));
         return context;
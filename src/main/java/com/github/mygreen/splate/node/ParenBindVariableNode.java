@@ -18,11 +18,13 @@ package com.github.mygreen.splate.node;
 import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.regex.Pattern;
 
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 
+import com.github.mygreen.splate.InListPadding;
 import com.github.mygreen.splate.type.SqlTemplateValueType;
 
 import lombok.Getter;
@@ -30,12 +32,17 @@ import lombok.Getter;
 /**
  * {@literal IN}のバインド変数用の{@link Node}です。
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  * @author shuji.w6e
  * @author T.TSUCHIE
  */
-public class ParenBindVariableNode extends AbstractNode {
+public class ParenBindVariableNode extends AbstractNode implements ExpressionNode {
+
+    /**
+     * {@code NOT IN} の演算子の判定パターン
+     */
+    private static final Pattern NOT_IN_PATTERN = Pattern.compile("\\bnot\\s+in\\s*$", Pattern.CASE_INSENSITIVE);
 
     /**
      * 式
@@ -46,8 +53,25 @@ public class ParenBindVariableNode extends AbstractNode {
     /**
      * パース済みの式
      */
+    @Getter
     private final Expression parsedExpression;
 
+    /**
+     * バインド変数の直前の、{@code 列名 IN} の部分のSQL。
+     * <p>要素数の上限を超えたときに {@code IN} 句を分割するために、直前のSQLから切り出して保持します。
+     *  切り出していない場合は {@literal null} で、要素数の上限を超えたときは分割できないため例外をスローします。
+     * </p>
+     *
+     * @since 0.4
+     */
+    @Getter
+    private final String operand;
+
+    /**
+     * {@link #operand} が {@code NOT IN} かどうか。
+     */
+    private final boolean notIn;
+
     /**
      * {@link ParenBindVariableNode} を作成します。
      *
@@ -56,9 +80,25 @@ public class ParenBindVariableNode extends AbstractNode {
      * @param parsedExpression パース済みの式
      */
     public ParenBindVariableNode(final int position, final String expression, final Expression parsedExpression) {
+        this(position, expression, parsedExpression, null);
+    }
+
+    /**
+     * 直前の {@code 列名 IN} の部分のSQLを指定して、{@link ParenBindVariableNode} を作成します。
+     *
+     * @since 0.4
+     * @param position テンプレート位置情報
+     * @param expression 式
+     * @param parsedExpression パース済みの式
+     * @param operand バインド変数の直前の {@code 列名 IN} の部分のSQL。このノードが出力します。
+     */
+    public ParenBindVariableNode(final int position, final String expression, final Expression parsedExpression,
+            final String operand) {
         super(position);
         this.expression = expression;
         this.parsedExpression = parsedExpression;
+        this.operand = operand;
+        this.notIn = operand != null && NOT_IN_PATTERN.matcher(operand).find();
     }
 
     @SuppressWarnings("rawtypes")
@@ -66,8 +106,10 @@ public class ParenBindVariableNode extends AbstractNode {
     public void accept(final NodeProcessContext ctx) {
 
         final EvaluationContext evaluationContext = ctx.getEvaluationContext();
-        final Object var = evaluateExpression(parsedExpression, evaluationContext, Object.class, getPosition(), ctx.getParsedSql());
+        final Object var = evaluateExpression(parsedExpression, evaluationContext, Object.class, getPosition(), ctx.getSqlLineIndex());
         if(var == null) {
+            recordShape(ctx, 0);
+            addOperand(ctx);
             return;
         }
 
@@ -81,12 +123,36 @@ public class ParenBindVariableNode extends AbstractNode {
             // ただのオブジェクトの場合
             Class<?> clazz = parsedExpression.getValueType(evaluationContext);
             SqlTemplateValueType valueType = ctx.getValueTypeRegistry().findValueType(clazz, expression);
-            Object value = getBindVariableValue(var, valueType, getPosition(), ctx.getParsedSql(), expression);
+            Object value = getBindVariableValue(var, valueType, getPosition(), ctx.getSqlLineIndex(), expression);
+            recordShape(ctx, -1);
+            addOperand(ctx);
             ctx.addSql("?", value);
         }
 
     }
 
+    /**
+     * バインド変数の直前の {@code 列名 IN} の部分のSQLを追加します。
+     * @param ctx the NodeProcessContext
+     */
+    private void addOperand(final NodeProcessContext ctx) {
+        if(operand != null) {
+            ctx.addSql(operand);
+        }
+    }
+
+    /**
+     * バインドする要素数を、SQLの形として記録します。
+     * @param ctx SQLテンプレートを実行するときのコンテキスト。
+     * @param size 要素数。括弧で囲まない場合は {@literal -1} です。
+     */
+    private void recordShape(final NodeProcessContext ctx, final int size) {
+        final SqlShapeRecorder shapeRecorder = ctx.getShapeRecorder();
+        if(shapeRecorder != null) {
+            shapeRecorder.recordSize(size);
+        }
+    }
+
     /**
      * 配列に変換します。
      * @param iterable
@@ -102,13 +168,22 @@ public class ParenBindVariableNode extends AbstractNode {
 
     /**
      * 配列に変換してバインドする。
+     * <p>{@link InListPadding} が設定されている場合は、要素数を切り上げて最後の値を繰り返しバインドし、
+     *  要素数の上限を超える場合は {@code IN} 句を分割します。
+     * </p>
      * @param ctx the NodeProcessContext
      * @param array the variable array
      */
     @SuppressWarnings("rawtypes")
     private void bindArray(final NodeProcessContext ctx, final Object array) {
         int length = Array.getLength(array);
+
+        final InListPadding padding = ctx.getInListPadding();
+        final int paddedLength = padding == null ? length : padding.getPaddedSize(length);
+        recordShape(ctx, paddedLength);
+
         if (length == 0) {
+            addOperand(ctx);
             return;
         }
         Class<?> clazz = null;
@@ -119,19 +194,45 @@ public class ParenBindVariableNode extends AbstractNode {
             }
         }
 
+        // 分割するときの1つのIN句の要素数
+        final boolean split = padding != null && padding.getMaxElements() > 0 && paddedLength > padding.getMaxElements();
+        if(split && operand == null) {
+            // 分割できないまま、上限を超える要素数のSQLを組み立てないようにする。
+            throw new NodeProcessException(ctx.getSqlLineIndex(), getPosition(),
+                    String.format("Fail split IN list of %d elements over the max %d. The bind variable '%s' should follow 'column IN' or 'column NOT IN'.",
+                            length, padding.getMaxElements(), expression));
+        }
+        final int chunkSize = split ? padding.getMaxElements() : paddedLength;
+
+        if(split) {
+            ctx.addSql("(");
+        }
+        addOperand(ctx);
         ctx.addSql("(");
-        Object value = Array.get(array, 0);
+
         SqlTemplateValueType valueType = ctx.getValueTypeRegistry().findValueType(clazz, expression);
-        value = getBindVariableValue(value, valueType, getPosition(), ctx.getParsedSql(), expression);
+        Object value = null;
+        for (int i = 0; i < paddedLength; ++i) {
+            if(i < length) {
+                value = Array.get(array, i);
+                value = getBindVariableValue(value, valueType, getPosition(), ctx.getSqlLineIndex(), expression);
+            }
 
-        ctx.addSql("?", value);
-        for (int i = 1; i < length; ++i) {
-            ctx.addSql(", ");
-            value = Array.get(array, i);
-            value = getBindVariableValue(value, valueType, getPosition(), ctx.getParsedSql(), expression);
-            ctx.addSql("?", value);
+            if(i == 0) {
+                ctx.addSql("?", value);
+            } else if(i % chunkSize == 0) {
+                ctx.addSql(notIn ? ") AND " : ") OR ");
+                ctx.addSql(operand);
+                ctx.addSql("(?", value);
+            } else {
+                ctx.addSql(", ?", value);
+            }
         }
         ctx.addSql(")");
+
+        if(split) {
+            ctx.addSql(")");
+        }
     }
 
     @Override
@@ -140,7 +241,7 @@ public class ParenBindVariableNode extends AbstractNode {
                 .append("position", getPosition())
                 .append("expression", expression)
                 .append("parsedExpression", parsedExpression)
-                .append("children", children)
+                .append("operand", operand)
                 .toString();
     }
-}
\ No newline at end of file
+}
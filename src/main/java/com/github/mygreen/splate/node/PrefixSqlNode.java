@@ -65,7 +65,6 @@ public class PrefixSqlNode extends AbstractNode {
     public String toString() {
         return new ToStringCreator(this)
                 .append("position", getPosition())
-                .append("children", children)
                 .append("prefix", prefix)
                 .append("sql", sql)
                 .toString();
@@ -51,7 +51,6 @@ public class SqlNode extends AbstractNode {
     public String toString() {
         return new ToStringCreator(this)
                 .append("position", getPosition())
-                .append("children", children)
                 .append("sql", sql)
                 .toString();
     }
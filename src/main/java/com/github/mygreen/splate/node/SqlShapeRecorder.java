@@ -0,0 +1,154 @@
+package com.github.mygreen.splate.node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SQLテンプレートの評価中に、組み立てるSQLの形を決める情報を記録します。
+ * <p>SQLの形は、次の情報を評価した順に並べたもので決まります。</p>
+ * <ul>
+ *   <li>{@code IF} コメントの条件式の評価結果。</li>
+ *   <li>{@code IN} 句などの括弧で囲むバインド変数の要素数。</li>
+ *   <li>埋め込み変数の値。</li>
+ * </ul>
+ * <p>{@code BEGIN} コメントの範囲や、{@code AND} / {@code OR} のプレフィックスを出力するかどうかは、
+ *  {@code IF} コメントの評価結果から決まるため記録しません。
+ * </p>
+ * <p>スレッドセーフではないため、評価ごとにインスタンスを作成します。</p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public class SqlShapeRecorder {
+
+    /**
+     * {@code IF} コメントの評価結果。1ビットずつ詰めて保持します。
+     */
+    private long[] branches = new long[1];
+
+    /**
+     * 記録した {@code IF} コメントの評価結果の個数
+     */
+    private int branchCount;
+
+    /**
+     * 括弧で囲むバインド変数の要素数
+     */
+    private int[] sizes = new int[4];
+
+    /**
+     * 記録した要素数の個数
+     */
+    private int sizeCount;
+
+    /**
+     * 埋め込み変数の値。記録するまでは {@literal null} です。
+     */
+    private List<String> values;
+
+    /**
+     * {@code IF} コメントの条件式の評価結果を記録します。
+     *
+     * @param result 条件式の評価結果
+     */
+    public void recordBranch(final boolean result) {
+        final int index = branchCount >>> 6;
+        if(index == branches.length) {
+            branches = Arrays.copyOf(branches, index * 2);
+        }
+        if(result) {
+            branches[index] |= 1L << branchCount;
+        }
+        branchCount++;
+    }
+
+    /**
+     * 括弧で囲むバインド変数の要素数を記録します。
+     *
+     * @param size 要素数。括弧で囲まずに1つの値をバインドする場合は {@literal -1} です。
+     */
+    public void recordSize(final int size) {
+        if(sizeCount == sizes.length) {
+            sizes = Arrays.copyOf(sizes, sizeCount * 2);
+        }
+        sizes[sizeCount++] = size;
+    }
+
+    /**
+     * 埋め込み変数の値を記録します。
+     *
+     * @param value SQLに埋め込む文字列。値が {@literal null} で埋め込まない場合は {@literal null} です。
+     */
+    public void recordValue(final String value) {
+        if(values == null) {
+            values = new ArrayList<>();
+        }
+        values.add(value);
+    }
+
+    /**
+     * 記録した情報から、SQLの形を表すキーを作成します。
+     * <p>同じSQLテンプレートで、キーが等しい場合は、組み立てたSQLも等しくなります。</p>
+     *
+     * @return SQLの形を表すキー
+     */
+    public Object createKey() {
+        return new ShapeKey(Arrays.copyOf(branches, (branchCount + 63) >>> 6), branchCount,
+                Arrays.copyOf(sizes, sizeCount),
+                values == null ? null : values.toArray(new String[values.size()]));
+    }
+
+    /**
+     * SQLの形を表すキー
+     */
+    private static final class ShapeKey {
+
+        private final long[] branches;
+
+        private final int branchCount;
+
+        private final int[] sizes;
+
+        private final String[] values;
+
+        private final int hash;
+
+        ShapeKey(final long[] branches, final int branchCount, final int[] sizes, final String[] values) {
+            this.branches = branches;
+            this.branchCount = branchCount;
+            this.sizes = sizes;
+            this.values = values;
+
+            int h = Arrays.hashCode(branches);
+            h = 31 * h + branchCount;
+            h = 31 * h + Arrays.hashCode(sizes);
+            h = 31 * h + Arrays.hashCode(values);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if(this == obj) {
+                return true;
+            }
+
+            if(!(obj instanceof ShapeKey)) {
+                return false;
+            }
+
+            final ShapeKey other = (ShapeKey) obj;
+            return hash == other.hash
+                    && branchCount == other.branchCount
+                    && Arrays.equals(branches, other.branches)
+                    && Arrays.equals(sizes, other.sizes)
+                    && Arrays.equals(values, other.values);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.github.mygreen.splate.parser;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
 import com.github.mygreen.splate.Position;
+import com.github.mygreen.splate.SqlLineIndex;
 import com.github.mygreen.splate.TwoWaySqlException;
 
-import lombok.Getter;
+import lombok.NonNull;
 
 /**
  * SQLテンプレートのパース時のエラー。
  *
  * @since 0.2
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
@@ -17,8 +22,18 @@ public class SqlParseException extends TwoWaySqlException {
     /**
      * パースエラーが発生したテンプレート内での位置情報
      */
-    @Getter
-    private final Position position;
+    private Position position;
+
+    /**
+     * 位置情報を解決するための行の開始位置の一覧。
+     * 位置情報を解決した後は参照しません。
+     */
+    private transient SqlLineIndex lineIndex;
+
+    /**
+     * エラーが発生したテンプレート内での位置。
+     */
+    private final int offset;
 
     /**
      * メッセージと原因となったエラーを使用して新しいインスタンスを構築します。
@@ -30,6 +45,7 @@ public class SqlParseException extends TwoWaySqlException {
     public SqlParseException(final Position position, String message, Throwable cause) {
         super(message, cause);
         this.position = position;
+        this.offset = -1;
     }
 
     /**
@@ -40,10 +56,64 @@ public class SqlParseException extends TwoWaySqlException {
     public SqlParseException(final Position position, String message) {
         super(message);
         this.position = position;
+        this.offset = -1;
+    }
+
+    /**
+     * メッセージと原因となったエラーを使用して新しいインスタンスを構築します。
+     * <p>位置情報は、{@link #getPosition()} や {@link #getMessage()} で参照されたときに解決します。</p>
+     *
+     * @since 0.4
+     * @param lineIndex テンプレートの行の開始位置の一覧
+     * @param offset エラーが発生したテンプレート内での位置
+     * @param message エラーメッセージ
+     * @param cause 原因となったエラー
+     */
+    public SqlParseException(@NonNull final SqlLineIndex lineIndex, final int offset, String message, Throwable cause) {
+        super(message, cause);
+        this.lineIndex = lineIndex;
+        this.offset = offset;
+    }
+
+    /**
+     * メッセージを使用して新しいインスタンスを構築します。
+     * <p>位置情報は、{@link #getPosition()} や {@link #getMessage()} で参照されたときに解決します。</p>
+     *
+     * @since 0.4
+     * @param lineIndex テンプレートの行の開始位置の一覧
+     * @param offset エラーが発生したテンプレート内での位置
+     * @param message エラーメッセージ
+     */
+    public SqlParseException(@NonNull final SqlLineIndex lineIndex, final int offset, String message) {
+        super(message);
+        this.lineIndex = lineIndex;
+        this.offset = offset;
+    }
+
+    /**
+     * エラーが発生したテンプレート内での位置情報を取得します。
+     * @return 位置情報
+     */
+    public Position getPosition() {
+        if(position == null && lineIndex != null) {
+            this.position = lineIndex.resolve(offset);
+        }
+        return position;
+    }
+
+    /**
+     * シリアライズ前に位置情報を解決します。
+     * @param out 出力先
+     * @throws IOException 出力に失敗した場合にスローされます。
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        getPosition();
+        out.defaultWriteObject();
     }
 
     @Override
     public String getMessage() {
+        final Position position = getPosition();
         return super.getMessage()
                 + System.getProperty("line.separator")
                 + String.format("[row=%d, col=%d] %s", position.getRow(), position.getCol(), position.getLine());
@@ -15,13 +15,21 @@
  */
 package com.github.mygreen.splate.parser;
 
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.standard.SpelExpression;
 
+import com.github.mygreen.splate.SqlLineIndex;
 import com.github.mygreen.splate.SqlUtils;
+import com.github.mygreen.splate.expression.CompilableExpression;
+import com.github.mygreen.splate.expression.PropertyPathExpression;
 import com.github.mygreen.splate.node.BeginNode;
 import com.github.mygreen.splate.node.BindVariableNode;
 import com.github.mygreen.splate.node.ContainerNode;
@@ -34,14 +42,24 @@ import com.github.mygreen.splate.node.PrefixSqlNode;
 import com.github.mygreen.splate.node.SqlNode;
 import com.github.mygreen.splate.parser.SqlTokenizer.TokenType;
 
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
 /**
  * SQLを解析して<code>Node</code>のツリーにするクラスです。
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  */
 public class SqlParser {
 
+    /**
+     * {@code IN} 句のバインド変数の直前の、{@code 列名 IN} / {@code 列名 NOT IN} の部分のパターン
+     */
+    private static final Pattern IN_OPERAND_PATTERN = Pattern.compile("[\\w.\"`\\[\\]]+\\s+(?:not\\s+)?in\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
     /**
      * SQLテンプレートの字句解析処理。
      */
@@ -52,7 +70,69 @@ public class SqlParser {
      */
     private final ExpressionParser expressionParser;
 
-    private final Stack<Node> nodeStack = new Stack<>();
+    /**
+     * パース中のノードのスタック。
+     */
+    private final Deque<Node> nodeStack = new ArrayDeque<>();
+
+    /**
+     * EL式のコンパイルモード。
+     * <p>{@link SpelCompilerMode#OFF} 以外の場合、パースした式を {@link CompilableExpression} でラップします。</p>
+     * デフォルト値は、{@link SpelCompilerMode#OFF} です。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private SpelCompilerMode expressionCompilerMode = SpelCompilerMode.OFF;
+
+    /**
+     * 単純なプロパティパスの式を、SpELを介さずに評価するかどうか。
+     * <p>{@literal true} の場合、{@literal name} / {@literal dept.name} / {@literal name != null} のような式を
+     *  {@link PropertyPathExpression} として評価します。
+     * </p>
+     * デフォルト値は、{@literal true} です。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private boolean simpleExpressionOptimized = true;
+
+    /**
+     * {@code IN} 句のバインド変数の直前の {@code 列名 IN} の部分を、{@link ParenBindVariableNode} に切り出すかどうか。
+     * <p>{@link com.github.mygreen.splate.InListPadding} で要素数の上限を指定して {@code IN} 句を分割する場合に、
+     *  {@literal true} を指定します。{@literal false} の場合は、ノードのツリーを書き換えません。
+     * </p>
+     * デフォルト値は、{@literal false} です。
+     *
+     * @since 0.4
+     */
+    @Getter
+    @Setter
+    private boolean inOperandExtracted = false;
+
+    /**
+     * 文字列リテラルの扱いを取得します。
+     *
+     * @since 0.4
+     * @return 文字列リテラルの扱い
+     */
+    public StringLiteralMode getStringLiteralMode() {
+        return tokenizer.getStringLiteralMode();
+    }
+
+    /**
+     * 文字列リテラルの扱いを設定します。
+     * <p>パースする前に設定します。デフォルト値は、{@link StringLiteralMode#IGNORED} で文字列リテラルを区別しません。</p>
+     *
+     * @since 0.4
+     * @param stringLiteralMode 文字列リテラルの扱い
+     */
+    public void setStringLiteralMode(@NonNull final StringLiteralMode stringLiteralMode) {
+        tokenizer.setStringLiteralMode(stringLiteralMode);
+    }
 
     /**
      * {@link SqlParser}を作成します。
@@ -89,6 +169,8 @@ public class SqlParser {
     }
 
     /**
+     * SQLを解析します。
+     * <p>解析が完了したノードのツリーは {@link Node#freeze()} により、子ノードの追加が禁止されます。</p>
      *
      * @return SQLを解析して<code>Node</code>のツリーを返します。
      */
@@ -97,7 +179,10 @@ public class SqlParser {
         while (TokenType.EOF != tokenizer.next()) {
             parseToken();
         }
-        return pop();
+
+        final Node root = pop();
+        root.freeze();
+        return root;
     }
 
 	/**
@@ -182,7 +267,7 @@ public class SqlParser {
         final String condition = tokenizer.getToken().substring(2).trim();
         final int position = Math.max(tokenizer.getPosition() - 2 - condition.length(), 0);
         if (SqlUtils.isEmpty(condition)) {
-            throw new SqlParseException(SqlUtils.resolveSqlPosition(tokenizer.getSql(), position),
+            throw new SqlParseException(new SqlLineIndex(tokenizer.getSql()), position,
                     "Not found IF condition.");
         }
         IfNode ifNode = new IfNode(position, condition, parseExpression(condition, position));
@@ -214,7 +299,7 @@ public class SqlParser {
             }
             parseToken();
         }
-        throw new SqlParseException(SqlUtils.resolveSqlPosition(tokenizer.getSql(), tokenizer.getPosition()),
+        throw new SqlParseException(new SqlLineIndex(tokenizer.getSql()), tokenizer.getPosition(),
                 "Not found END comment.");
     }
 
@@ -241,7 +326,9 @@ public class SqlParser {
         String s = tokenizer.skipToken();
         int position = tokenizer.getPosition() - s.length() - expr.length() -2;
         if (s.startsWith("(") && s.endsWith(")")) {
-            peek().addChild(new ParenBindVariableNode(position, expr, parseExpression(expr, position)));
+            final Expression parsedExpression = parseExpression(expr, position);
+            final String operand = inOperandExtracted ? extractInOperand() : null;
+            peek().addChild(new ParenBindVariableNode(position, expr, parsedExpression, operand));
         } else if (expr.startsWith("$")) {
             expr = expr.substring(1);
             position += 1;
@@ -251,6 +338,45 @@ public class SqlParser {
         }
     }
 
+    /**
+     * 直前に追加したSQLのノードから、末尾の {@code 列名 IN} の部分を切り出します。
+     * <p>{@code IN} 句を分割するときに、{@link ParenBindVariableNode} が繰り返し出力するために使用します。
+     *  切り出した部分は、直前のノードから取り除きます。
+     * </p>
+     *
+     * @since 0.4
+     * @return 切り出した {@code 列名 IN} の部分。一致しない場合は {@literal null} を返します。
+     */
+    protected String extractInOperand() {
+
+        final Node parent = peek();
+        if(!(parent instanceof ContainerNode) || parent.getChildSize() == 0) {
+            return null;
+        }
+
+        final int index = parent.getChildSize() - 1;
+        final Node last = parent.getChild(index);
+        if(last.getClass() == SqlNode.class) {
+            final String sql = ((SqlNode) last).getSql();
+            final Matcher matcher = IN_OPERAND_PATTERN.matcher(sql);
+            if(matcher.find()) {
+                ((ContainerNode) parent).replaceChild(index, new SqlNode(last.getPosition(), sql.substring(0, matcher.start())));
+                return matcher.group();
+            }
+
+        } else if(last.getClass() == PrefixSqlNode.class) {
+            final PrefixSqlNode prefixNode = (PrefixSqlNode) last;
+            final Matcher matcher = IN_OPERAND_PATTERN.matcher(prefixNode.getSql());
+            if(matcher.find()) {
+                ((ContainerNode) parent).replaceChild(index, new PrefixSqlNode(last.getPosition(), prefixNode.getPrefix(),
+                        prefixNode.getSql().substring(0, matcher.start())));
+                return matcher.group();
+            }
+        }
+
+        return null;
+    }
+
     /**
      * バインド変数を解析します。
      */
@@ -260,6 +386,22 @@ public class SqlParser {
         peek().addChild(new BindVariableNode(position, expr, parseExpression(expr, position)));
     }
 
+    /**
+     * SQLテンプレートのパースとは別に、EL式をパースします。
+     * <p>アーカイブからノードのツリーを復元するときなど、パース済みのSQLに含まれるEL式を、
+     *  このパーサの設定でパースするときに使用します。
+     * </p>
+     *
+     * @since 0.4
+     * @param expression 式
+     * @param position テンプレート位置
+     * @return パースした式
+     * @throws SqlParseException EL式のパースに失敗した場合にスローされます。
+     */
+    public Expression createExpression(final String expression, final int position) {
+        return parseExpression(expression, position);
+    }
+
     /**
      * EL式をパースします。
      * <p>例外処理を含めて共通化のために切り出したメソッドです。</p>
@@ -272,9 +414,22 @@ public class SqlParser {
      */
     protected Expression parseExpression(final String expression, final int position) {
         try {
-            return expressionParser.parseExpression(expression);
+            Expression parsedExpression = expressionParser.parseExpression(expression);
+            if(expressionCompilerMode != SpelCompilerMode.OFF && parsedExpression instanceof SpelExpression) {
+                parsedExpression = new CompilableExpression((SpelExpression) parsedExpression, expressionCompilerMode);
+            }
+
+            if(simpleExpressionOptimized) {
+                // 単純なプロパティパスの場合は、SpELの式をフォールバック用として保持する。
+                final PropertyPathExpression propertyPathExpression = PropertyPathExpression.parse(expression, parsedExpression);
+                if(propertyPathExpression != null) {
+                    return propertyPathExpression;
+                }
+            }
+
+            return parsedExpression;
         } catch(ParseException e) {
-            throw new SqlParseException(SqlUtils.resolveSqlPosition(tokenizer.getSql(), position),
+            throw new SqlParseException(new SqlLineIndex(tokenizer.getSql()), position,
                     String.format("Fail parsing expression '%s'.", expression),
                     e);
         }
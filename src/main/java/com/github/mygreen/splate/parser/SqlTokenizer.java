@@ -15,12 +15,12 @@
  */
 package com.github.mygreen.splate.parser;
 
-import com.github.mygreen.splate.SqlUtils;
+import com.github.mygreen.splate.SqlLineIndex;
 
 /**
  * SQLをトークンに分解するクラスです。.
  *
- * @version 0.2
+ * @version 0.4
  * @author higa
  */
 public class SqlTokenizer {
@@ -64,10 +64,42 @@ public class SqlTokenizer {
 
     private int bindVariableNum = 0;
 
+    /**
+     * 文字列リテラルの扱い
+     */
+    private StringLiteralMode stringLiteralMode = StringLiteralMode.IGNORED;
+
+    /**
+     * 閉じられていない文字列リテラルが見つかったかどうか。
+     * <p>見つかった以降は、引用符を文字列リテラルの開始とみなしません。
+     *  エスケープの方式が異なる場合に、引用符ごとにSQLの末尾まで走査し直さないようにするためです。
+     * </p>
+     */
+    private boolean unterminatedLiteralFound = false;
+
     public SqlTokenizer(String sql) {
         this.sql = sql;
     }
 
+    /**
+     * @return 文字列リテラルの扱いを返します。
+     * @since 0.4
+     */
+    public StringLiteralMode getStringLiteralMode() {
+        return stringLiteralMode;
+    }
+
+    /**
+     * 文字列リテラルの扱いを設定します。
+     * <p>デフォルト値は、{@link StringLiteralMode#IGNORED} で文字列リテラルを区別しません。</p>
+     *
+     * @param stringLiteralMode 文字列リテラルの扱い
+     * @since 0.4
+     */
+    public void setStringLiteralMode(StringLiteralMode stringLiteralMode) {
+        this.stringLiteralMode = stringLiteralMode;
+    }
+
     /**
      * @return SQLを返します。
      */
@@ -149,52 +181,120 @@ public class SqlTokenizer {
 
     /**
      * Parse the SQL.
+     * <p>現在の位置から1文字ずつ走査し、コメント（{@literal /*}、{@literal #*}）、{@literal ELSE} コメント、
+     *  バインド変数（{@literal ?}）の開始位置を探します。
+     *  {@link #setStringLiteralMode(StringLiteralMode)} で文字列リテラルを区別する場合は、
+     *  文字列リテラル（{@literal '...'}）の中は読み飛ばします。
+     *  ただし、閉じられていない文字列リテラルが見つかった以降は、読み飛ばしません。
+     * </p>
      */
     protected void parseSql() {
-        int commentStartPos = sql.indexOf("/*", position);
-        int commentStartPos2 = sql.indexOf("#*", position);
-        if (0 < commentStartPos2 && commentStartPos2 < commentStartPos) {
-            commentStartPos = commentStartPos2;
-        }
-        int lineCommentStartPos = sql.indexOf("--", position);
-        int bindVariableStartPos = sql.indexOf("?", position);
-        int elseCommentStartPos = -1;
-        int elseCommentLength = -1;
-        if (lineCommentStartPos >= 0) {
-            int skipPos = skipWhitespace(lineCommentStartPos + 2);
-            if (skipPos + 4 < sql.length()
-                    && "ELSE".equals(sql.substring(skipPos, skipPos + 4))) {
-                elseCommentStartPos = lineCommentStartPos;
-                elseCommentLength = skipPos + 4 - lineCommentStartPos;
+
+        final int length = sql.length();
+        final boolean literalSkipped = stringLiteralMode != StringLiteralMode.IGNORED;
+        int nextStartPos = -1;
+        int nextPosition = length;
+        TokenType nextType = TokenType.EOF;
+
+        // 行コメント中は、引用符を文字列リテラルの開始とみなさない。
+        boolean inLineComment = false;
+
+        for (int i = position; i < length; i++) {
+            final char c = sql.charAt(i);
+
+            if (c == '\'' && literalSkipped && !unterminatedLiteralFound && !inLineComment) {
+                i = skipStringLiteral(i) - 1;
+                continue;
+            }
+
+            if (c == '\n' || c == '\r') {
+                inLineComment = false;
+                continue;
+            }
+
+            if (c == '?') {
+                nextStartPos = i;
+                nextPosition = i;
+                nextType = TokenType.BIND_VARIABLE;
+                break;
+            }
+
+            if (i + 1 >= length) {
+                break;
+            }
+
+            final char c2 = sql.charAt(i + 1);
+            if ((c == '/' || c == '#') && c2 == '*') {
+                nextStartPos = i;
+                nextPosition = i + 2;
+                nextType = TokenType.COMMENT;
+                break;
+            }
+
+            if (c == '-' && c2 == '-') {
+                final int skipPos = skipWhitespace(i + 2);
+                if (skipPos + 4 < length && sql.startsWith("ELSE", skipPos)) {
+                    nextStartPos = i;
+                    nextPosition = skipPos + 4;
+                    nextType = TokenType.ELSE;
+                    break;
+                }
+
+                inLineComment = true;
+                i++;
             }
         }
-        int nextStartPos = getNextStartPos(commentStartPos,
-                elseCommentStartPos, bindVariableStartPos);
+
         if (nextStartPos < 0) {
             token = sql.substring(position);
             nextTokenType = TokenType.EOF;
-            position = sql.length();
+            position = length;
             tokenType = TokenType.SQL;
         } else {
             token = sql.substring(position, nextStartPos);
             tokenType = TokenType.SQL;
             boolean needNext = nextStartPos == position;
-            if (nextStartPos == commentStartPos) {
-                nextTokenType = TokenType.COMMENT;
-                position = commentStartPos + 2;
-            } else if (nextStartPos == elseCommentStartPos) {
-                nextTokenType = TokenType.ELSE;
-                position = elseCommentStartPos + elseCommentLength;
-            } else if (nextStartPos == bindVariableStartPos) {
-                nextTokenType = TokenType.BIND_VARIABLE;
-                position = bindVariableStartPos;
-            }
+            nextTokenType = nextType;
+            position = nextPosition;
             if (needNext) {
                 next();
             }
         }
     }
 
+    /**
+     * 文字列リテラルを読み飛ばします。
+     * <p>連続した引用符（{@literal ''}）は、エスケープされた引用符として扱います。
+     *  {@link StringLiteralMode#BACKSLASH_ESCAPE} の場合は、バックスラッシュの次の文字も読み飛ばします。
+     * </p>
+     *
+     * @param startPos 開始の引用符の位置
+     * @return 終了の引用符の次の位置。閉じられていない場合は、エスケープの方式が異なる可能性があり、
+     *         以降のSQLを全て読み飛ばさないように、開始の引用符の次の位置を返します。
+     *         また、以降の引用符は文字列リテラルの開始とみなしません。
+     */
+    private int skipStringLiteral(final int startPos) {
+        final int length = sql.length();
+        final boolean backslashEscaped = stringLiteralMode == StringLiteralMode.BACKSLASH_ESCAPE;
+        for (int i = startPos + 1; i < length; i++) {
+            final char c = sql.charAt(i);
+            if (c == '\\' && backslashEscaped) {
+                i++;
+                continue;
+            }
+            if (c == '\'') {
+                if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                    i++;
+                    continue;
+                }
+                return i + 1;
+            }
+        }
+
+        this.unterminatedLiteralFound = true;
+        return startPos + 1;
+    }
+
     /**
      * Returns the next starting position.
      *
@@ -202,7 +302,9 @@ public class SqlTokenizer {
      * @param elseCommentStartPos starting position of the ELSE comment
      * @param bindVariableStartPos starting position of the bind variable
      * @return the next starting position.
+     * @deprecated 0.4以降、{@link #parseSql()} は1回の走査で開始位置を決定するため使用しません。
      */
+    @Deprecated
     protected int getNextStartPos(int commentStartPos, int elseCommentStartPos,
             int bindVariableStartPos) {
 
@@ -225,13 +327,18 @@ public class SqlTokenizer {
      * Parse the comment.
      */
     protected void parseComment() {
-        int commentEndPos = sql.indexOf("*/", position);
-        int commentEndPos2 = sql.indexOf("*#", position);
-        if (0 < commentEndPos2 && commentEndPos2 < commentEndPos) {
-            commentEndPos = commentEndPos2;
+        int commentEndPos = -1;
+        for (int i = position; i + 1 < sql.length(); i++) {
+            if (sql.charAt(i) == '*') {
+                final char c2 = sql.charAt(i + 1);
+                if (c2 == '/' || c2 == '#') {
+                    commentEndPos = i;
+                    break;
+                }
+            }
         }
         if (commentEndPos < 0) {
-            throw new SqlParseException(SqlUtils.resolveSqlPosition(sql, position),
+            throw new SqlParseException(new SqlLineIndex(sql), position,
                     String.format("Not closed comment '*/' for %s.", sql.substring(position)));
         }
         token = sql.substring(position, commentEndPos);
@@ -0,0 +1,36 @@
+package com.github.mygreen.splate.parser;
+
+/**
+ * SQLテンプレートをパースするときの、文字列リテラル（{@literal '...'}）の扱いです。
+ * <p>文字列リテラルを区別する場合は、リテラル中の {@literal ?} や {@literal /*} を、
+ *  バインド変数やコメントとみなしません。
+ *  引用符のエスケープの方式がデータベースと異なると、リテラルの終端を誤って判定し、以降のSQLを読み飛ばすため、
+ *  使用するデータベースに合わせて選択します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public enum StringLiteralMode {
+
+    /**
+     * 文字列リテラルを区別しません。0.3以前と同じ動作です。
+     */
+    IGNORED,
+
+    /**
+     * 文字列リテラルを区別します。連続した引用符（{@literal ''}）のみを、エスケープされた引用符として扱います。
+     * <p>標準SQLの形式で、Oracle、PostgreSQL（{@literal standard_conforming_strings=on}）、SQL Serverなどが該当します。</p>
+     */
+    STANDARD,
+
+    /**
+     * 文字列リテラルを区別します。連続した引用符（{@literal ''}）に加えて、
+     * バックスラッシュ（{@literal \'}）もエスケープとして扱います。
+     * <p>MySQLや、PostgreSQLの {@literal E'...'} 形式などが該当します。</p>
+     */
+    BACKSLASH_ESCAPE
+    ;
+
+}
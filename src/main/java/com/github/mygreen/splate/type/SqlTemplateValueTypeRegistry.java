@@ -6,15 +6,26 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 
+import com.github.mygreen.splate.SqlUtils;
+
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 
 /**
  * {@link SqlTemplateValueType}の管理クラス。
+ * <p>{@link #findValueType(Class, String)} の結果は、プロパティパスとクラスタイプの組み合わせごとにキャッシュします。
+ *  キャッシュは {@link #register(Class, SqlTemplateValueType)} などで登録内容を変更したときに破棄します。
+ * </p>
+ * <p>{@link #freeze()} で作成した変更できないインスタンスは、複数の {@link com.github.mygreen.splate.SqlTemplateContext} から
+ *  コピーせずに参照されます。
+ * </p>
  *
- *
+ * @version 0.4
  * @author T.TSUCHIE
  *
  */
@@ -30,18 +41,89 @@ public class SqlTemplateValueTypeRegistry {
      */
     private Map<String, ValueTypeHolder> pathMap = new ConcurrentHashMap<>();
 
-    public SqlTemplateValueTypeRegistry() {
+    /**
+     * {@link #findValueType(Class, String)} の結果のキャッシュ。
+     * <p>コピーして作成したインスタンスとは、どちらかの登録内容が変更されるまで共有します。</p>
+     */
+    private volatile ResolutionCache resolutionCache = new ResolutionCache();
 
+    /**
+     * 上書きする元となる変更できないインスタンス。
+     * {@link #createOverlay()} で作成したときに設定されます。
+     */
+    private SqlTemplateValueTypeRegistry parent;
+
+    /**
+     * 変更できないかどうか。
+     */
+    @Getter
+    private final boolean frozen;
+
+    public SqlTemplateValueTypeRegistry() {
+        this.frozen = false;
     }
 
     /**
      * {@code SqlTemplateValueTypeRegistry}を元にコンストラクタを作成します。
+     * <p>作成したインスタンスは、作成元が変更できないインスタンスであっても変更できます。</p>
      *
      * @param registry 作成元となる {@link SqlTemplateValueType}の管理情報。
      */
     public SqlTemplateValueTypeRegistry(final @NonNull SqlTemplateValueTypeRegistry registry) {
+        this(registry, false);
+    }
+
+    /**
+     * {@code SqlTemplateValueTypeRegistry}の登録内容をコピーしてインスタンスを作成します。
+     *
+     * @param registry 作成元となる {@link SqlTemplateValueType}の管理情報。
+     * @param frozen 変更できないかどうか。
+     */
+    private SqlTemplateValueTypeRegistry(final SqlTemplateValueTypeRegistry registry, final boolean frozen) {
+        if(registry.parent != null) {
+            this.typeMap.putAll(registry.parent.typeMap);
+            this.pathMap.putAll(registry.parent.pathMap);
+        }
         this.typeMap.putAll(registry.typeMap);
         this.pathMap.putAll(registry.pathMap);
+
+        // 登録内容が同じ間は、解決結果のキャッシュを共有する。
+        this.resolutionCache = registry.resolutionCache;
+
+        this.frozen = frozen;
+    }
+
+    /**
+     * 現在の登録内容をもとに、変更できないインスタンスを作成します。
+     * <p>作成したインスタンスは、{@link com.github.mygreen.splate.SqlTemplateContext} でコピーせずに共有されます。
+     *  その後にこのインスタンスに登録した内容は、作成したインスタンスには反映されません。
+     * </p>
+     *
+     * @since 0.4
+     * @return 変更できないインスタンス。既に変更できないインスタンスの場合は、自身を返します。
+     */
+    public SqlTemplateValueTypeRegistry freeze() {
+        if(frozen) {
+            return this;
+        }
+        return new SqlTemplateValueTypeRegistry(this, true);
+    }
+
+    /**
+     * 変更できないインスタンスを上書きして登録するためのインスタンスを作成します。
+     * <p>作成したインスタンスは、登録内容をコピーせずに参照し、登録した内容のみを保持します。</p>
+     *
+     * @since 0.4
+     * @return 上書きして登録するためのインスタンス。
+     * @throws IllegalStateException 変更できないインスタンスでない場合にスローされます。
+     */
+    public SqlTemplateValueTypeRegistry createOverlay() {
+        if(!frozen) {
+            throw new IllegalStateException("registry should be frozen.");
+        }
+        final SqlTemplateValueTypeRegistry overlay = new SqlTemplateValueTypeRegistry();
+        overlay.parent = this;
+        return overlay;
     }
 
     /**
@@ -53,6 +135,51 @@ public class SqlTemplateValueTypeRegistry {
     @Nullable
     public SqlTemplateValueType<?> findValueType(@Nullable Class<?> requiredType, @Nullable String propertyPath) {
 
+        if(isEmpty()) {
+            // 何も登録されていない場合は、キャッシュを作成せずに済ませる。
+            return null;
+        }
+
+        final ResolutionCache cache = this.resolutionCache;
+        final PathResolution pathResolution = cache.get(propertyPath);
+        final Resolution resolution = pathResolution.get(requiredType);
+        if(resolution != null) {
+            return resolution.valueType;
+        }
+
+        final SqlTemplateValueType<?> valueType = resolveValueType(requiredType, propertyPath, pathResolution.getStrippedPaths());
+
+        // 解決中に登録内容が変更された場合はキャッシュしない。
+        if(cache == this.resolutionCache) {
+            pathResolution.put(requiredType, valueType);
+        }
+
+        return valueType;
+
+    }
+
+    /**
+     * 変換処理が1つも登録されていないかどうか判定します。
+     * <p>{@link com.github.mygreen.splate.SqlTemplateContext} の既定のコンストラクタで作成したインスタンスなど、
+     *  登録がない場合は解決結果が常に {@literal null} になるため、キャッシュを参照しません。
+     * </p>
+     * @return 登録内容が空のとき {@literal true} を返します。
+     */
+    private boolean isEmpty() {
+        return parent == null && typeMap.isEmpty() && pathMap.isEmpty();
+    }
+
+    /**
+     * キャッシュを使用せずに、プロパティパスに対応した値の変換処理を解決します。
+     * @param requiredType プロパティのクラスタイプ。
+     * @param propertyPath プロパティのパス。
+     * @param strippedPaths インデックスを除去したパスの候補。
+     * @return 対応する変換処理の実装を返します。見つからない場合は {@literal null} を返します。
+     */
+    @Nullable
+    private SqlTemplateValueType<?> resolveValueType(@Nullable Class<?> requiredType, @Nullable String propertyPath,
+            final String[] strippedPaths) {
+
         if(propertyPath != null) {
             // 完全なパスで比較
             SqlTemplateValueType<?> valueType = getValueTypeByPropertyPath(propertyPath, requiredType);
@@ -61,8 +188,6 @@ public class SqlTemplateValueTypeRegistry {
             }
 
             // インデックスを除去した形式で比較
-            final List<String> strippedPaths = new ArrayList<>();
-            addStrippedPropertyPaths(strippedPaths, "", propertyPath);
             for(String strippedPath : strippedPaths) {
                 valueType = getValueTypeByPropertyPath(strippedPath, requiredType);
                 if(valueType != null) {
@@ -74,13 +199,14 @@ public class SqlTemplateValueTypeRegistry {
 
         if(requiredType != null) {
             // 見つからない場合は、クラスタイプで比較
-            if(typeMap.containsKey(requiredType)) {
-                return typeMap.get(requiredType);
+            final SqlTemplateValueType<?> valueType = getRegisteredValueType(requiredType);
+            if(valueType != null) {
+                return valueType;
             }
 
             // 列挙型の場合
             if(requiredType.isEnum()) {
-                return typeMap.get(Enum.class);
+                return getRegisteredValueType(Enum.class);
             }
         }
 
@@ -98,19 +224,60 @@ public class SqlTemplateValueTypeRegistry {
     @Nullable
     private SqlTemplateValueType<?> getValueTypeByPropertyPath(final String propertyPath, final Class<?> requiredType) {
 
-        ValueTypeHolder holder = pathMap.get(propertyPath);
+        ValueTypeHolder holder = getValueTypeHolder(propertyPath);
         return (holder != null ? holder.get(requiredType) : null);
 
     }
 
+    /**
+     * クラスタイプで登録された変換処理を取得します。上書き元のインスタンスも参照します。
+     * @param type クラスタイプ
+     * @return 登録された変換処理。見つからない場合は、{@literal null} を返します。
+     */
+    @Nullable
+    private SqlTemplateValueType<?> getRegisteredValueType(final Class<?> type) {
+        final SqlTemplateValueType<?> valueType = typeMap.get(type);
+        if(valueType == null && parent != null) {
+            return parent.typeMap.get(type);
+        }
+        return valueType;
+    }
+
+    /**
+     * パスで登録された変換処理を取得します。上書き元のインスタンスも参照します。
+     * @param propertyPath プロパティパス
+     * @return 登録された変換処理。見つからない場合は、{@literal null} を返します。
+     */
+    @Nullable
+    private ValueTypeHolder getValueTypeHolder(final String propertyPath) {
+        final ValueTypeHolder holder = pathMap.get(propertyPath);
+        if(holder == null && parent != null) {
+            return parent.pathMap.get(propertyPath);
+        }
+        return holder;
+    }
+
+    /**
+     * 変更できるか確認します。
+     * @throws IllegalStateException 変更できないインスタンスの場合にスローされます。
+     */
+    private void assertNotFrozen() {
+        if(frozen) {
+            throw new IllegalStateException("registry is frozen.");
+        }
+    }
+
     /**
      * {@link SqlTemplateValueType} を登録します。
      * @param <T> 関連付ける型
      * @param type 関連付けるクラスタイプ
      * @param valueType {@link SqlTemplateValueType}の実装
+     * @throws IllegalStateException 変更できないインスタンスの場合にスローされます。
      */
     public <T> void register(@NonNull Class<T> type, @NonNull SqlTemplateValueType<T> valueType) {
+        assertNotFrozen();
         this.typeMap.put(type, valueType);
+        this.resolutionCache = new ResolutionCache();
     }
 
     /**
@@ -121,9 +288,12 @@ public class SqlTemplateValueTypeRegistry {
      * @param propertyPath プロパティパス／式
      * @param type 関連付けるクラスタイプ
      * @param valueType {@link SqlTemplateValueType}の実装
+     * @throws IllegalStateException 変更できないインスタンスの場合にスローされます。
      */
     public <T> void register(@NonNull String propertyPath, @NonNull Class<T> type, @NonNull SqlTemplateValueType<T> valueType) {
+        assertNotFrozen();
         this.pathMap.put(propertyPath, new ValueTypeHolder(type, valueType));
+        this.resolutionCache = new ResolutionCache();
     }
 
     /**
@@ -155,6 +325,100 @@ public class SqlTemplateValueTypeRegistry {
         }
     }
 
+    /**
+     * {@link #findValueType(Class, String)} の結果のキャッシュ。
+     * <p>インスタンスを作り直すことで破棄し、コピー元／コピー先のインスタンスに影響を与えないようにします。</p>
+     */
+    private class ResolutionCache {
+
+        /**
+         * プロパティパスごとの解決結果
+         */
+        private final Map<String, PathResolution> pathResolutions = new ConcurrentHashMap<>();
+
+        /**
+         * プロパティパスが {@literal null} のときの解決結果。最初に参照したときに作成します。
+         */
+        private volatile PathResolution typeResolution;
+
+        PathResolution get(@Nullable final String propertyPath) {
+            if(propertyPath == null) {
+                PathResolution resolution = typeResolution;
+                if(resolution == null) {
+                    // 複数のスレッドで作成しても、解決結果が1回分キャッシュされないだけのため排他制御は行わない。
+                    resolution = new PathResolution(SqlUtils.EMPTY_STRINGS);
+                    this.typeResolution = resolution;
+                }
+                return resolution;
+            }
+
+            final PathResolution resolution = pathResolutions.get(propertyPath);
+            if(resolution != null) {
+                return resolution;
+            }
+
+            return pathResolutions.computeIfAbsent(propertyPath, path -> {
+                final List<String> strippedPaths = new ArrayList<>();
+                addStrippedPropertyPaths(strippedPaths, "", path);
+                return new PathResolution(strippedPaths.toArray(SqlUtils.EMPTY_STRINGS));
+            });
+        }
+
+    }
+
+    /**
+     * プロパティパスに対する、クラスタイプごとの解決結果。
+     */
+    @RequiredArgsConstructor
+    private static class PathResolution {
+
+        /**
+         * インデックスを除去したパスの候補
+         */
+        @Getter
+        private final String[] strippedPaths;
+
+        /**
+         * クラスタイプごとの解決結果。
+         * <p>Webアプリの再デプロイなどでクラスローダがアンロードされるように、クラスは弱参照で保持します。
+         *  キャッシュは登録内容が同じインスタンスの間でのみ共有し、クラス側には何も保持しません。
+         * </p>
+         */
+        private final Map<Class<?>, Resolution> typeResolutions =
+                new ConcurrentReferenceHashMap<>(4, 0.75f, 1, ReferenceType.WEAK);
+
+        /**
+         * クラスタイプが {@literal null} のときの解決結果
+         */
+        private volatile Resolution nullTypeResolution;
+
+        @Nullable
+        Resolution get(@Nullable final Class<?> requiredType) {
+            return requiredType != null ? typeResolutions.get(requiredType) : nullTypeResolution;
+        }
+
+        void put(@Nullable final Class<?> requiredType, @Nullable final SqlTemplateValueType<?> valueType) {
+            final Resolution resolution = valueType != null ? new Resolution(valueType) : Resolution.NOT_FOUND;
+            if(requiredType != null) {
+                typeResolutions.put(requiredType, resolution);
+            } else {
+                this.nullTypeResolution = resolution;
+            }
+        }
+    }
+
+    /**
+     * 解決結果。見つからなかったこともキャッシュするために使用します。
+     */
+    @RequiredArgsConstructor
+    private static class Resolution {
+
+        private static final Resolution NOT_FOUND = new Resolution(null);
+
+        private final SqlTemplateValueType<?> valueType;
+
+    }
+
     @RequiredArgsConstructor
     private static class ValueTypeHolder {
 
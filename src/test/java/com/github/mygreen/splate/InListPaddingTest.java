@@ -0,0 +1,199 @@
+package com.github.mygreen.splate;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.mygreen.splate.node.ContainerNode;
+import com.github.mygreen.splate.node.NodeProcessException;
+import com.github.mygreen.splate.node.SqlNode;
+
+/**
+ * {@link InListPadding} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class InListPaddingTest {
+
+    @Test
+    void testGetPaddedSize_powersOfTwo() {
+
+        InListPadding padding = InListPadding.powersOfTwo();
+        assertThat(padding.getPaddedSize(0)).isEqualTo(0);
+        assertThat(padding.getPaddedSize(1)).isEqualTo(1);
+        assertThat(padding.getPaddedSize(2)).isEqualTo(2);
+        assertThat(padding.getPaddedSize(3)).isEqualTo(4);
+        assertThat(padding.getPaddedSize(5)).isEqualTo(8);
+        assertThat(padding.getPaddedSize(1000)).isEqualTo(1024);
+
+    }
+
+    @Test
+    void testGetPaddedSize_ladder() {
+
+        InListPadding padding = InListPadding.ladder(1, 5, 10, 50);
+        assertThat(padding.getPaddedSize(1)).isEqualTo(1);
+        assertThat(padding.getPaddedSize(2)).isEqualTo(5);
+        assertThat(padding.getPaddedSize(10)).isEqualTo(10);
+        assertThat(padding.getPaddedSize(11)).isEqualTo(50);
+
+        // 最も大きい段階を超える場合は、その倍数
+        assertThat(padding.getPaddedSize(51)).isEqualTo(100);
+
+        assertThatThrownBy(() -> InListPadding.ladder(5, 1))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> InListPadding.ladder())
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+    @Test
+    void testGetPaddedSize_maxElements() {
+
+        InListPadding padding = InListPadding.powersOfTwo().withMaxElements(1000);
+        assertThat(padding.getMaxElements()).isEqualTo(1000);
+
+        // 上限を超えないように切り上げる
+        assertThat(padding.getPaddedSize(600)).isEqualTo(1000);
+
+        // 上限を超える場合は、上限の倍数
+        assertThat(padding.getPaddedSize(1001)).isEqualTo(2000);
+
+        InListPadding splitOnly = InListPadding.splitOnly(1000);
+        assertThat(splitOnly.getPaddedSize(3)).isEqualTo(3);
+        assertThat(splitOnly.getPaddedSize(1000)).isEqualTo(1000);
+        assertThat(splitOnly.getPaddedSize(1500)).isEqualTo(1500);
+
+        assertThatThrownBy(() -> InListPadding.powersOfTwo().withMaxElements(0))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+    @Test
+    void testProcess_padding() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setInListPadding(InListPadding.powersOfTwo());
+
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE id in /*ids*/(1, 2)");
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("ids", List.of(10, 20, 30))));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE id in (?, ?, ?, ?)");
+        assertThat(result.getParameters()).containsExactly(10, 20, 30, 30);
+
+        // 1つの値の場合は、括弧で囲まない
+        result = template.process(new MapSqlTemplateContext(Map.of("ids", 10)));
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE id in ?");
+        assertThat(result.getParameters()).containsExactly(10);
+
+    }
+
+    @Test
+    void testProcess_split() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setInListPadding(InListPadding.splitOnly(2));
+
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE deptno = 10 AND id in /*ids*/(1, 2)");
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("ids", List.of(1, 2, 3))));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE deptno = 10 AND (id in (?, ?) OR id in (?))");
+        assertThat(result.getParameters()).containsExactly(1, 2, 3);
+
+        // 上限以下の場合は分割しない
+        result = template.process(new MapSqlTemplateContext(Map.of("ids", List.of(1, 2))));
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE deptno = 10 AND id in (?, ?)");
+
+    }
+
+    @Test
+    void testProcess_split_notIn() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setInListPadding(InListPadding.splitOnly(2));
+
+        SqlTemplate template = templateEngine.getTemplateByText(
+                "SELECT * FROM emp WHERE /*IF ids != null*/e.id NOT IN /*ids*/(1, 2)/*END*/");
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("ids", List.of(1, 2, 3, 4))));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE (e.id NOT IN (?, ?) AND e.id NOT IN (?, ?))");
+        assertThat(result.getParameters()).containsExactly(1, 2, 3, 4);
+
+    }
+
+    @Test
+    void testProcess_split_prefix() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setInListPadding(InListPadding.splitOnly(1000));
+
+        SqlTemplate template = templateEngine.getTemplateByText(
+                "SELECT * FROM emp/*BEGIN*/ WHERE /*IF job != null*/job = /*job*/'CLERK'/*END*//*IF ids != null*/ AND id in /*ids*/(1)/*END*//*END*/");
+
+        List<Integer> ids = IntStream.rangeClosed(1, 1500).boxed().collect(Collectors.toList());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("job", null);
+        variables.put("ids", ids);
+
+        ProcessResult result = template.process(new MapSqlTemplateContext(variables));
+        assertThat(result.getSql())
+            .startsWith("SELECT * FROM emp WHERE (id in (?, ")
+            .contains("?) OR id in (?, ")
+            .endsWith("?))");
+        assertThat(result.getParameters()).hasSize(1500);
+        assertThat(result.getParameters().get(1499)).isEqualTo(1500);
+
+        // 分割しないときは、これまでと同じSQLになる。
+        variables.put("job", "CLERK");
+        variables.put("ids", List.of(1, 2));
+        result = template.process(new MapSqlTemplateContext(variables));
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE job = ? AND id in (?, ?)");
+
+    }
+
+    @Test
+    void testProcess_split_noOperand() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setInListPadding(InListPadding.powersOfTwo().withMaxElements(2));
+
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE UPPER(code) IN /*codes*/('a')");
+
+        // 上限以下の場合は、これまでと同じSQLになる。
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("codes", List.of("a", "b"))));
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE UPPER(code) IN (?, ?)");
+
+        // 分割できない場合は、上限を超えるSQLを組み立てずに例外とする。
+        assertThatThrownBy(() -> template.process(new MapSqlTemplateContext(Map.of("codes", List.of("a", "b", "c")))))
+            .isInstanceOf(NodeProcessException.class)
+            .hasMessageContaining("Fail split IN list of 3 elements over the max 2.");
+
+    }
+
+    @Test
+    void testParse_noOperandExtracted() {
+
+        // 分割しない設定の場合は、ノードのツリーを書き換えない。
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setInListPadding(InListPadding.powersOfTwo());
+
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE id in /*ids*/(1, 2)");
+        ContainerNode root = (ContainerNode) template.getNode();
+        assertThat(((SqlNode) root.getChild(0)).getSql()).isEqualTo("SELECT * FROM emp WHERE id in ");
+
+        // 分割する設定の場合は、バインド変数のノードが出力する。
+        templateEngine.setInListPadding(InListPadding.splitOnly(1000));
+        template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE id in /*ids*/(1, 2)");
+        root = (ContainerNode) template.getNode();
+        assertThat(((SqlNode) root.getChild(0)).getSql()).isEqualTo("SELECT * FROM emp WHERE ");
+
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.mygreen.splate;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.mygreen.splate.node.NodeProcessContext;
+
+/**
+ * {@link ProcessCapacityHint} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class ProcessCapacityHintTest {
+
+    @Test
+    void testEstimate() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        SqlTemplate template = templateEngine.getTemplateByText(
+                "SELECT * FROM emp WHERE job = /*job*/'CLERK' AND id in /*ids*/(1, 2)");
+
+        ProcessCapacityHint hint = template.getCapacityHint();
+        assertThat(hint.getEstimatedSqlLength()).isEqualTo("SELECT * FROM emp WHERE job = ? AND id in (?)".length());
+        assertThat(hint.getEstimatedBindParamCount()).isEqualTo(2);
+
+        assertThat(hint.getSqlCapacity()).isEqualTo(hint.getEstimatedSqlLength());
+        assertThat(hint.getBindParamCapacity()).isEqualTo(2);
+
+    }
+
+    @Test
+    void testRecord_previousResult() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setCapacityMetricsEnabled(true);
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE id in /*ids*/(1, 2)");
+        ProcessCapacityHint hint = template.getCapacityHint();
+        assertThat(hint.isMetricsEnabled()).isTrue();
+
+        Map<String, Object> variables = new HashMap<>();
+        List<Integer> ids = IntStream.range(0, 200).boxed().collect(Collectors.toList());
+        variables.put("ids", ids);
+
+        // 1回目は見積もりを超えるため、拡張が発生する。
+        ProcessResult first = template.process(new MapSqlTemplateContext(variables));
+        assertThat(first.getParameters()).hasSize(200);
+        assertThat(hint.getProcessCount()).isEqualTo(1L);
+        assertThat(hint.getSqlResizeCount()).isPositive();
+        assertThat(hint.getBindParamResizeCount()).isPositive();
+
+        assertThat(hint.getSqlCapacity()).isEqualTo(first.getSql().length());
+        assertThat(hint.getBindParamCapacity()).isEqualTo(200);
+
+        long sqlResizeCount = hint.getSqlResizeCount();
+        long bindParamResizeCount = hint.getBindParamResizeCount();
+
+        // 2回目以降は、前回の結果の大きさで確保するため拡張が発生しない。
+        ProcessResult second = template.process(new MapSqlTemplateContext(variables));
+        assertThat(second.getSql()).isEqualTo(first.getSql());
+        assertThat(hint.getProcessCount()).isEqualTo(2L);
+        assertThat(hint.getSqlResizeCount()).isEqualTo(sqlResizeCount);
+        assertThat(hint.getBindParamResizeCount()).isEqualTo(bindParamResizeCount);
+
+        // デフォルトの初期容量の場合は、毎回拡張が発生する。
+        assertThat(hint.getDefaultSqlResizeCount()).isEqualTo(2L * ProcessCapacityHint.countSqlResizes(
+                NodeProcessContext.DEFAULT_SQL_CAPACITY, first.getSql().length()));
+        assertThat(hint.getDefaultBindParamResizeCount()).isEqualTo(2L * ProcessCapacityHint.countBindParamResizes(
+                NodeProcessContext.DEFAULT_BIND_PARAM_CAPACITY, 200));
+
+    }
+
+    @Test
+    void testRecord_shrinkAfterOutlier() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE id in /*ids*/(1, 2)");
+        ProcessCapacityHint hint = template.getCapacityHint();
+
+        // 1回だけ大量の要素を渡す
+        Map<String, Object> outlier = new HashMap<>();
+        outlier.put("ids", IntStream.range(0, 200).boxed().collect(Collectors.toList()));
+        ProcessResult large = template.process(new MapSqlTemplateContext(outlier));
+        assertThat(hint.getSqlCapacity()).isEqualTo(large.getSql().length());
+        assertThat(hint.getBindParamCapacity()).isEqualTo(200);
+
+        // 以降の評価結果が小さい場合は、初期容量も小さくなる
+        Map<String, Object> typical = new HashMap<>();
+        typical.put("ids", List.of(1, 2));
+        ProcessResult small = null;
+        int previousCapacity = hint.getSqlCapacity();
+        for(int i=0; i < 50; i++) {
+            small = template.process(new MapSqlTemplateContext(typical));
+            assertThat(hint.getSqlCapacity()).isLessThanOrEqualTo(previousCapacity);
+            previousCapacity = hint.getSqlCapacity();
+        }
+
+        assertThat(hint.getSqlCapacity()).isLessThan(small.getSql().length() + 8);
+        assertThat(hint.getBindParamCapacity()).isLessThan(2 + 8);
+
+    }
+
+    @Test
+    void testUpdateRecent() {
+
+        AtomicInteger recent = new AtomicInteger();
+
+        // 大きい場合は切り上げる
+        ProcessCapacityHint.updateRecent(recent, 800);
+        assertThat(recent).hasValue(800);
+
+        // 小さい場合は、差分の1/8ずつ近づける
+        ProcessCapacityHint.updateRecent(recent, 0);
+        assertThat(recent).hasValue(700);
+        ProcessCapacityHint.updateRecent(recent, 700);
+        assertThat(recent).hasValue(700);
+        ProcessCapacityHint.updateRecent(recent, 100);
+        assertThat(recent).hasValue(625);
+
+    }
+
+    @Test
+    void testRecord_metricsDisabled() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE id in /*ids*/(1, 2)");
+        ProcessCapacityHint hint = template.getCapacityHint();
+        assertThat(hint.isMetricsEnabled()).isFalse();
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("ids", IntStream.range(0, 200).boxed().collect(Collectors.toList()));
+        ProcessResult result = template.process(new MapSqlTemplateContext(variables));
+
+        // 集計しない場合も、初期容量には反映する。
+        assertThat(hint.getSqlCapacity()).isEqualTo(result.getSql().length());
+        assertThat(hint.getBindParamCapacity()).isEqualTo(200);
+
+        assertThat(hint.getProcessCount()).isZero();
+        assertThat(hint.getSqlResizeCount()).isZero();
+        assertThat(hint.getDefaultSqlResizeCount()).isZero();
+
+    }
+
+    @Test
+    void testCapacity_limit() {
+
+        ProcessCapacityHint hint = new ProcessCapacityHint(ProcessCapacityHint.MAX_SQL_CAPACITY + 1,
+                ProcessCapacityHint.MAX_BIND_PARAM_CAPACITY + 1);
+
+        assertThat(hint.getSqlCapacity()).isEqualTo(ProcessCapacityHint.MAX_SQL_CAPACITY);
+        assertThat(hint.getBindParamCapacity()).isEqualTo(ProcessCapacityHint.MAX_BIND_PARAM_CAPACITY);
+
+    }
+
+    @Test
+    void testCountResizes() {
+
+        // StringBuilder : 16 -> 34 -> 70
+        assertThat(ProcessCapacityHint.countSqlResizes(16, 16)).isEqualTo(0);
+        assertThat(ProcessCapacityHint.countSqlResizes(16, 17)).isEqualTo(1);
+        assertThat(ProcessCapacityHint.countSqlResizes(16, 70)).isEqualTo(2);
+        assertThat(ProcessCapacityHint.countSqlResizes(16, 71)).isEqualTo(3);
+
+        // ArrayList : 10 -> 15 -> 22
+        assertThat(ProcessCapacityHint.countBindParamResizes(10, 10)).isEqualTo(0);
+        assertThat(ProcessCapacityHint.countBindParamResizes(10, 11)).isEqualTo(1);
+        assertThat(ProcessCapacityHint.countBindParamResizes(10, 22)).isEqualTo(2);
+        assertThat(ProcessCapacityHint.countBindParamResizes(0, 2)).isEqualTo(2);
+
+    }
+}
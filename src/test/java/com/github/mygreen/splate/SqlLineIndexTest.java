@@ -0,0 +1,79 @@
+package com.github.mygreen.splate;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link SqlLineIndex} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class SqlLineIndexTest {
+
+    @Test
+    void testResolve() {
+
+        String sql = "SELECT * "
+                + "\r\n" + " FROM"
+                + "\r\n" + " EMPLOYEE"
+                + "\r\n" + " WHERE"
+                + "\r\n" + "  /*IF id != null*/"
+                + "\r\n" + "  id = /*id*/10"
+                + "\r\n" + "  /*END*/"
+                ;
+
+        SqlLineIndex lineIndex = new SqlLineIndex(sql);
+        assertThat(lineIndex.getLineCount()).isEqualTo(7);
+
+        {
+            // 先頭行
+            Position result = lineIndex.resolve(7);
+            assertThat(result.getRow()).isEqualTo(1);
+            assertThat(result.getCol()).isEqualTo(7);
+            assertThat(result.getLine()).isEqualTo("SELECT * ");
+        }
+
+        {
+            // 行の途中
+            Position result = lineIndex.resolve(46);
+            assertThat(result.getRow()).isEqualTo(5);
+            assertThat(result.getCol()).isEqualTo(8);
+            assertThat(result.getLine()).isEqualTo("  /*IF id != null*/");
+        }
+
+    }
+
+    @Test
+    void testResolve_sameAsSqlUtils() {
+
+        // 改行コードが混在している場合
+        String[] sqls = {
+                "",
+                "SELECT * FROM EMPLOYEE",
+                "SELECT *\r\nFROM EMPLOYEE\rWHERE\n id = /*id*/1\r\n",
+                "\n\r\n\r\r\nSELECT\n\n",
+                "SELECT *\r\n\r\nFROM EMPLOYEE\r",
+        };
+
+        for(String sql : sqls) {
+            SqlLineIndex lineIndex = new SqlLineIndex(sql);
+            for(int i=0; i <= sql.length(); i++) {
+                assertThat(lineIndex.resolve(i)).as("sql=%s, position=%d", sql, i)
+                        .isEqualTo(SqlUtils.resolveSqlPosition(sql, i));
+            }
+        }
+
+    }
+
+    @Test
+    void testResolve_outOfRange() {
+
+        SqlLineIndex lineIndex = new SqlLineIndex("SELECT 1");
+        assertThatThrownBy(() -> lineIndex.resolve(-1)).isInstanceOf(StringIndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> lineIndex.resolve(9)).isInstanceOf(StringIndexOutOfBoundsException.class);
+
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.mygreen.splate;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * 同じ {@link SqlTemplate} を複数のスレッドから同時に評価するときのテスタ。
+ * <p>仮想スレッドが使用できる環境（JDK21以降）では仮想スレッドで評価し、
+ *  キャリアスレッドの固定（pinning）が発生しないことを確認します。
+ * </p>
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class SqlTemplateConcurrencyTest {
+
+    /**
+     * 同時に評価するタスク数
+     */
+    private static final int TASK_COUNT = 5_000;
+
+    /**
+     * 仮想スレッドがキャリアスレッドに固定されたときのJFRのイベント名
+     */
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private SqlTemplateEngine templateEngine;
+
+    @BeforeEach
+    void setUp() {
+        this.templateEngine = new SqlTemplateEngine();
+        templateEngine.setCached(true);
+    }
+
+    @Test
+    void testProcessConcurrently() throws Exception {
+
+        String sql = "select * from employee"
+                + " /*BEGIN*/where"
+                + " /*IF name != null*/name = /*name*/'Yamada'/*END*/"
+                + " /*IF ids != null*/and id in /*ids*/(1, 2)/*END*/"
+                + " /*IF salaryMin != null*/and salary >= /*salaryMin*/1000/*END*/"
+                + "/*END*/"
+                + " order by /*$order*/id";
+
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+
+        // 期待値として、1つのスレッドで評価した結果を作成しておく
+        List<ProcessResult> expectedResults = new ArrayList<>(TASK_COUNT);
+        for(int i=0; i < TASK_COUNT; i++) {
+            expectedResults.add(template.process(new MapSqlTemplateContext(createVariables(i))));
+        }
+
+        assertThat(expectedResults.get(0).getSql()).contains("name = ?", "id in (?, ?, ?)");
+        assertThat(expectedResults.get(0).getParameters()).containsExactly("name0", 0, 1, 2);
+        assertThat(expectedResults.get(1).getSql()).contains("salary >= ?").doesNotContain("name = ?");
+        assertThat(expectedResults.get(2).getSql()).doesNotContain("where");
+
+        final boolean virtualThreadSupported = isVirtualThreadSupported();
+
+        try(Recording recording = new Recording()) {
+            if(virtualThreadSupported) {
+                recording.enable(PINNED_EVENT).withThreshold(java.time.Duration.ZERO).withStackTrace();
+                recording.start();
+            }
+
+            ExecutorService executor = createExecutor(virtualThreadSupported);
+            List<Future<?>> futures = new ArrayList<>(TASK_COUNT);
+            try {
+                for(int i=0; i < TASK_COUNT; i++) {
+                    final int index = i;
+                    futures.add(executor.submit(() -> {
+                        // 同じテンプレートを、毎回SQLテンプレートのキャッシュから取得して評価する
+                        ProcessResult result = templateEngine.getTemplateByText(sql)
+                                .process(new MapSqlTemplateContext(createVariables(index)));
+                        assertThat(result.getSql()).isEqualTo(expectedResults.get(index).getSql());
+                        assertThat(result.getParameters()).isEqualTo(expectedResults.get(index).getParameters());
+                        return null;
+                    }));
+                }
+
+                for(Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+
+            if(virtualThreadSupported) {
+                recording.stop();
+                assertThat(countPinnedEvents(recording)).isZero();
+            }
+        }
+
+    }
+
+    /**
+     * インデックスに応じたパラメータを作成します。
+     * @param index パラメータを切り替えるためのインデックス
+     * @return パラメータ
+     */
+    private static Map<String, Object> createVariables(final int index) {
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("order", index % 2 == 0 ? "id" : "name");
+        variables.put("name", index % 3 == 0 ? "name" + index : null);
+        variables.put("ids", index % 3 == 0 ? List.of(index, index + 1, index + 2) : null);
+        variables.put("salaryMin", index % 3 == 1 ? index : null);
+        return variables;
+
+    }
+
+    /**
+     * 仮想スレッドが使用できるかどうか判定します。
+     * @return 仮想スレッドが使用できる場合は {@literal true} を返します。
+     */
+    private static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch(NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * タスクを実行する {@link ExecutorService} を作成します。
+     * <p>JDK11でもコンパイルできるように、仮想スレッドの {@link ExecutorService} はリフレクションで作成します。</p>
+     * @param virtualThreadSupported 仮想スレッドが使用できるかどうか
+     * @return {@link ExecutorService} のインスタンス
+     */
+    private static ExecutorService createExecutor(final boolean virtualThreadSupported) throws Exception {
+        if(virtualThreadSupported) {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * 記録したイベントのうち、仮想スレッドがキャリアスレッドに固定されたイベントの件数を数えます。
+     * @param recording JFRの記録
+     * @return イベントの件数
+     */
+    private static long countPinnedEvents(final Recording recording) throws Exception {
+
+        Path file = Files.createTempFile("splate-pinned", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .map(RecordedEvent::getEventType)
+                    .filter(type -> PINNED_EVENT.equals(type.getName()))
+                    .count();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+    }
+}
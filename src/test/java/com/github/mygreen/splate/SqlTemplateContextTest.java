@@ -3,11 +3,13 @@ package com.github.mygreen.splate;
 import static org.assertj.core.api.Assertions.*;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import com.github.mygreen.splate.type.EnumNameType;
 import com.github.mygreen.splate.type.EnumOrdinalType;
@@ -61,6 +63,39 @@ class SqlTemplateContextTest {
 
     }
 
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Test
+    void testValueTypeRegistry_frozen() {
+
+        SqlTemplateValueTypeRegistry registry = new SqlTemplateValueTypeRegistry();
+        registry.register(Enum.class, new EnumOrdinalType());
+        SqlTemplateValueTypeRegistry frozen = registry.freeze();
+
+        String sql = "SELECT * FROM Employee emp WHERE job = /*job*/'CLERK'";
+
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+
+        // 変更できないインスタンスはコピーせずに参照する
+        MapSqlTemplateContext context1 = new MapSqlTemplateContext(frozen, Map.of("job", JobType.COOKS));
+        assertThat(context1.getValueTypeRegistry()).isSameAs(frozen);
+
+        ProcessResult result1 = template.process(context1);
+        assertThat(result1.getParameters()).containsExactly(JobType.COOKS.ordinal());
+
+        // 登録したときは、上書き用のインスタンスに切り替わる
+        MapSqlTemplateContext context2 = new MapSqlTemplateContext(frozen, Map.of("job", JobType.COOKS));
+        context2.registerValueType(Enum.class, new EnumNameType());
+        assertThat(context2.getValueTypeRegistry()).isNotSameAs(frozen);
+
+        ProcessResult result2 = template.process(context2);
+        assertThat(result2.getParameters()).containsExactly("COOKS");
+
+        // 元のインスタンスには影響しない
+        ProcessResult result3 = template.process(new MapSqlTemplateContext(frozen, Map.of("job", JobType.COOKS)));
+        assertThat(result3.getParameters()).containsExactly(JobType.COOKS.ordinal());
+
+    }
+
     @Test
     void testEvaluationContextEditor() {
 
@@ -85,6 +120,64 @@ class SqlTemplateContextTest {
 
     }
 
+    @Test
+    void testEvaluationContext_createOnce() {
+
+        String sql = "select * from Employee emp"
+                + " /*BEGIN*/where"
+                + " /*IF name != null*/name like /*name*/'S%'/*END*/"
+                + " /*IF job != null*/AND job = /*job*/'CLERK'/*END*/"
+                + "/*END*/"
+                + " order by /*$order*/id";
+
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+
+        AtomicInteger createCount = new AtomicInteger();
+        AtomicInteger editCount = new AtomicInteger();
+        MapSqlTemplateContext templateContext = new MapSqlTemplateContext(Map.of("name", "%abc%", "job", "CLERK", "order", "id")) {
+            @Override
+            public StandardEvaluationContext createEvaluationContext() {
+                createCount.incrementAndGet();
+                return super.createEvaluationContext();
+            }
+        };
+        templateContext.setEvaluationContextEditor(c -> editCount.incrementAndGet());
+
+        ProcessResult result = template.process(templateContext);
+
+        assertThat(result.getSql()).isEqualTo("select * from Employee emp where name like ? AND job = ? order by id");
+        assertThat(result.getParameters()).containsExactly("%abc%", "CLERK");
+
+        // 1回の評価では、EL式のコンテキストは1度だけ作成される
+        assertThat(createCount).hasValue(1);
+        assertThat(editCount).hasValue(1);
+
+        template.process(templateContext);
+        assertThat(createCount).hasValue(2);
+
+    }
+
+    @Test
+    void testSharedPropertyAccessor() {
+
+        String sql = "select * from Employee emp where name like /*name*/'S%'";
+
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+
+        MapSqlTemplateContext context1 = new MapSqlTemplateContext(Map.of("name", "%abc%"));
+        context1.setSharedPropertyAccessor(true);
+        MapSqlTemplateContext context2 = new MapSqlTemplateContext(Map.of("name", "%efg%"));
+        context2.setSharedPropertyAccessor(true);
+
+        assertThat(template.process(context1).getParameters()).containsExactly("%abc%");
+        assertThat(template.process(context2).getParameters()).containsExactly("%efg%");
+
+        // プロパティアクセッサーのインスタンスが共有される
+        assertThat(context1.createEvaluationContext().getPropertyAccessors())
+            .containsExactlyElementsOf(context2.createEvaluationContext().getPropertyAccessors());
+
+    }
+
     /**
      * SQLテンプレート中で利用可能なカスタム関数
      *
@@ -2,10 +2,21 @@ package com.github.mygreen.splate;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Map;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import com.github.mygreen.splate.cache.LruSqlTemplateCache;
 
 
 /**
@@ -81,4 +92,304 @@ class SqlTemplateEngineTest {
         SqlTemplate template3 = sqlTemplateEngine.getTemplateByText(sql);
         assertThat(template).isNotEqualTo(template3);
     }
+
+    @Test
+    void testClearCache_key() {
+
+        sqlTemplateEngine.setCached(true);
+
+        String path = "classpath:template/employee_select.sql";
+        String sql = "select * from emp";
+
+        SqlTemplate template = sqlTemplateEngine.getTemplate(path);
+        SqlTemplate templateByText = sqlTemplateEngine.getTemplateByText(sql);
+
+        // 指定したキーのみキャッシュをクリアする
+        sqlTemplateEngine.clearCache(path);
+        assertThat(sqlTemplateEngine.getTemplate(path)).isNotSameAs(template);
+        assertThat(sqlTemplateEngine.getTemplateByText(sql)).isSameAs(templateByText);
+
+        sqlTemplateEngine.clearCacheByText(sql);
+        assertThat(sqlTemplateEngine.getTemplateByText(sql)).isNotSameAs(templateByText);
+
+    }
+
+    @Test
+    void testGetTemplate_boundedCache() {
+
+        sqlTemplateEngine.setCached(true);
+        sqlTemplateEngine.setTemplateCache(new LruSqlTemplateCache(1));
+
+        SqlTemplate template1 = sqlTemplateEngine.getTemplateByText("select * from a");
+        SqlTemplate template2 = sqlTemplateEngine.getTemplateByText("select * from b");
+
+        assertThat(sqlTemplateEngine.getTemplateCache().size()).isEqualTo(1);
+        assertThat(sqlTemplateEngine.getTemplateByText("select * from b")).isSameAs(template2);
+        assertThat(sqlTemplateEngine.getTemplateByText("select * from a")).isNotSameAs(template1);
+
+    }
+
+    @Test
+    void testExpressionCompilerMode() {
+
+        sqlTemplateEngine.setExpressionCompilerMode(SpelCompilerMode.IMMEDIATE);
+
+        String sql = "select * from emp where /*IF name != null && name != ''*/name = /*name*/'abc'/*END*/";
+
+        SqlTemplate template = sqlTemplateEngine.getTemplateByText(sql);
+        assertThat(template.getCompiledExpressions()).isEmpty();
+
+        for(int i=0; i < 3; i++) {
+            ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("name", "Yamada")));
+            assertThat(result.getSql()).isEqualTo("select * from emp where name = ?");
+            assertThat(result.getParameters()).containsExactly("Yamada");
+        }
+
+        // 評価後にコンパイルされる。単純なプロパティパスの式は、SpELを介さずに評価するためコンパイルされない。
+        assertThat(template.getCompiledExpressions()).containsExactly("name != null && name != ''");
+
+        // コンパイル後も評価結果は変わらない
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("name", "Tanaka")));
+        assertThat(result.getParameters()).containsExactly("Tanaka");
+
+    }
+
+    @Test
+    void testExpressionCompilerMode_propertyPathFallback() {
+
+        sqlTemplateEngine.setExpressionCompilerMode(SpelCompilerMode.IMMEDIATE);
+
+        SqlTemplate template = sqlTemplateEngine.getTemplateByText("select * from emp where /*IF name == null*/deleted = 0/*END*/");
+
+        // 存在しないキーは、単純なプロパティパスの式からSpELの式で評価し直すため、コンパイルされる。
+        MapSqlTemplateContext context = new MapSqlTemplateContext(Map.of());
+        context.setIgnoreNotFoundProperty(true);
+        assertThat(template.process(context).getSql()).isEqualTo("select * from emp where deleted = 0");
+
+        assertThat(template.getCompiledExpressions()).containsExactly("name == null");
+
+    }
+
+    @Test
+    void testExpressionCompilerMode_customParser() {
+
+        // パーサを後から設定しても、コンパイルモードは引き継がれる
+        sqlTemplateEngine.setExpressionCompilerMode(SpelCompilerMode.IMMEDIATE);
+        SpelExpressionParser expressionParser = new SpelExpressionParser();
+        sqlTemplateEngine.setExpressionParser(expressionParser);
+
+        // コンパイルはラップした式で行うため、パーサは作り直さない
+        sqlTemplateEngine.setExpressionCompilerMode(SpelCompilerMode.MIXED);
+        sqlTemplateEngine.setExpressionCompilerMode(SpelCompilerMode.IMMEDIATE);
+        assertThat(sqlTemplateEngine.getExpressionParser()).isSameAs(expressionParser);
+
+        SqlTemplate template = sqlTemplateEngine.getTemplateByText("select * from emp where name = /*name.trim()*/'abc'");
+        template.process(new MapSqlTemplateContext(Map.of("name", "Yamada")));
+
+        assertThat(template.getCompiledExpressions()).containsExactly("name.trim()");
+
+    }
+
+    @Test
+    void testPreload() {
+
+        sqlTemplateEngine.setCached(true);
+
+        PreloadReport report = sqlTemplateEngine.preload("classpath*:template_preload/success/**/*.sql");
+
+        assertThat(report.hasFailures()).isFalse();
+        assertThat(report.getEntries()).extracting(PreloadReport.Entry::getLocation)
+            .containsExactlyInAnyOrder(
+                    "classpath:template_preload/success/employee.sql",
+                    "classpath:template_preload/success/sub/address.sql");
+
+        // キャッシュに登録されている
+        SqlTemplate cached = sqlTemplateEngine.getTemplateCache().getIfPresent("classpath:template_preload/success/employee.sql");
+        assertThat(cached).isNotNull();
+        assertThat(sqlTemplateEngine.getTemplate("classpath:template_preload/success/employee.sql")).isSameAs(cached);
+
+    }
+
+    @Test
+    void testPreload_failure() {
+
+        sqlTemplateEngine.setCached(true);
+        sqlTemplateEngine.setPreloadExecutor(Runnable::run);
+
+        PreloadReport report = sqlTemplateEngine.preload("classpath:template_preload/*.sql");
+
+        assertThat(report.getEntries()).hasSize(2);
+        assertThat(report.hasFailures()).isTrue();
+        assertThat(report.getFailures()).hasSize(1);
+
+        PreloadReport.Entry failure = report.getFailures().get(0);
+        assertThat(failure.getLocation()).isEqualTo("classpath:template_preload/invalid.sql");
+        assertThat(failure.getError()).isInstanceOf(TwoWaySqlException.class);
+
+        // 失敗したテンプレートはキャッシュに登録しない
+        assertThat(sqlTemplateEngine.getTemplateCache().size()).isEqualTo(1);
+
+    }
+
+    @Test
+    void testReload(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("reload.sql");
+        Files.writeString(file, "select * from a");
+        String location = file.toUri().toString();
+
+        sqlTemplateEngine.setCached(true);
+        sqlTemplateEngine.setReloadInterval(Duration.ofHours(1));
+        try {
+            SqlTemplate template = sqlTemplateEngine.getTemplate(location);
+            assertThat(template.getSql()).isEqualTo("select * from a");
+
+            // 更新されていない場合は、キャッシュを置き換えない
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplate(location)).isSameAs(template);
+
+            // 更新された場合は、パースし直してキャッシュを置き換える
+            Files.writeString(file, "select * from b");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000L));
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from b");
+
+            // パースに失敗した場合は、更新前のSQLテンプレートを使い続ける
+            Files.writeString(file, "select * from c where /*IF a != null*/a = 1");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 20_000L));
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from b");
+
+        } finally {
+            sqlTemplateEngine.setReloadInterval(null);
+        }
+
+    }
+
+    @Test
+    void testReload_invalidated(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("reload.sql");
+        Files.writeString(file, "select * from a");
+        String location = file.toUri().toString();
+
+        sqlTemplateEngine.setCached(true);
+        sqlTemplateEngine.setReloadInterval(Duration.ofHours(1));
+        try {
+            sqlTemplateEngine.getTemplate(location);
+
+            // 破棄されたSQLテンプレートは、再読み込みしてもキャッシュに登録しない
+            sqlTemplateEngine.clearCache(location);
+            Files.writeString(file, "select * from b");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000L));
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplateCache().getIfPresent(location)).isNull();
+
+        } finally {
+            sqlTemplateEngine.close();
+        }
+
+        assertThat(sqlTemplateEngine.getReloadInterval()).isNull();
+
+    }
+
+    @Test
+    void testReload_suffix(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("reload.sql");
+        Files.writeString(file, "select * from a");
+        String location = file.toUri().toString();
+
+        sqlTemplateEngine.setCached(true);
+        sqlTemplateEngine.setSuffixName("oracle");
+        sqlTemplateEngine.setReloadInterval(Duration.ofHours(1));
+        try {
+            assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from a");
+
+            // 接尾語付きのファイルが追加された場合は、元のファイルが更新されていなくても、読み込み対象のリソースを決定し直す
+            Path suffixed = dir.resolve("reload-oracle.sql");
+            Files.writeString(suffixed, "select * from a_oracle");
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from a_oracle");
+
+            // 追加したファイルの更新を監視する
+            Files.writeString(suffixed, "select * from b_oracle");
+            Files.setLastModifiedTime(suffixed, FileTime.fromMillis(System.currentTimeMillis() + 10_000L));
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from b_oracle");
+
+            // 接尾語付きのファイルが削除された場合は、キャッシュから破棄し、次の取得時に元のファイルを読み込む
+            Files.delete(suffixed);
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplateCache().getIfPresent(location)).isNull();
+            assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from a");
+
+        } finally {
+            sqlTemplateEngine.close();
+        }
+
+    }
+
+    @Test
+    void testReload_deleted(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("reload.sql");
+        Files.writeString(file, "select * from a");
+        String location = file.toUri().toString();
+
+        sqlTemplateEngine.setCached(true);
+        sqlTemplateEngine.setReloadInterval(Duration.ofHours(1));
+        try {
+            sqlTemplateEngine.getTemplate(location);
+            assertThat(sqlTemplateEngine.getWatchedTemplateCount()).isEqualTo(1);
+
+            // 削除された場合は、キャッシュから破棄して監視を終了する
+            Files.delete(file);
+            sqlTemplateEngine.checkModifiedTemplates();
+            assertThat(sqlTemplateEngine.getTemplateCache().getIfPresent(location)).isNull();
+            assertThat(sqlTemplateEngine.getWatchedTemplateCount()).isEqualTo(0);
+
+            // 監視を終了しているため、確認を繰り返しても何もしない
+            sqlTemplateEngine.checkModifiedTemplates();
+
+            // ファイルが存在しないため、取得できない
+            assertThatThrownBy(() -> sqlTemplateEngine.getTemplate(location))
+                .isInstanceOf(TwoWaySqlException.class);
+
+        } finally {
+            sqlTemplateEngine.close();
+        }
+
+    }
+
+    @Test
+    void testGetTemplate_notCached_suffixAdded(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("dialect.sql");
+        Files.writeString(file, "select * from a");
+        String location = file.toUri().toString();
+
+        sqlTemplateEngine.setCached(false);
+        sqlTemplateEngine.setSuffixName("oracle");
+
+        assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from a");
+
+        // キャッシュしない場合は、後から追加した接尾語付きのファイルを次の読み込みから反映する
+        Path suffixed = dir.resolve("dialect-oracle.sql");
+        Files.writeString(suffixed, "select * from a_oracle");
+        assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from a_oracle");
+
+        // 削除した場合も反映する
+        Files.delete(suffixed);
+        assertThat(sqlTemplateEngine.getTemplate(location).getSql()).isEqualTo("select * from a");
+
+    }
+
+    @Test
+    void testReloadInterval_invalid() {
+
+        assertThatThrownBy(() -> sqlTemplateEngine.setReloadInterval(Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
 }
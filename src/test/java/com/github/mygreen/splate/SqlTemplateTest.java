@@ -0,0 +1,307 @@
+package com.github.mygreen.splate;
+
+import static com.github.mygreen.splate.TemplateFixtures.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link SqlTemplate} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class SqlTemplateTest {
+
+    @Test
+    void testProcess_shapeCache() {
+
+        for(ProcessMode mode : new ProcessMode[] {ProcessMode.NODE_TREE, ProcessMode.INSTRUCTION}) {
+            SqlTemplateEngine plainEngine = new SqlTemplateEngine();
+            plainEngine.setProcessMode(mode);
+
+            SqlTemplateEngine shapeEngine = new SqlTemplateEngine();
+            shapeEngine.setProcessMode(mode);
+            shapeEngine.setShapeCacheSize(16);
+
+            for(String sql : TEMPLATES) {
+                SqlTemplate plainTemplate = plainEngine.getTemplateByText(sql);
+                SqlTemplate shapeTemplate = shapeEngine.getTemplateByText(sql);
+
+                // 2回目はキャッシュしたSQLを使用する。
+                for(int i=0; i < 2; i++) {
+                    for(Map<String, Object> variables : createVariablesPatterns()) {
+                        ProcessResult expected = plainTemplate.process(new MapSqlTemplateContext(variables));
+                        ProcessResult actual = shapeTemplate.process(new MapSqlTemplateContext(variables));
+
+                        assertThat(actual.getSql()).as("mode=%s, sql=%s, variables=%s", mode, sql, variables).isEqualTo(expected.getSql());
+                        assertThat(actual.getParameters()).as("mode=%s, sql=%s, variables=%s", mode, sql, variables).isEqualTo(expected.getParameters());
+                    }
+                }
+
+                assertThat(shapeTemplate.getCachedShapeCount()).isPositive();
+                assertThat(plainTemplate.getCachedShapeCount()).isZero();
+            }
+        }
+
+    }
+
+    @Test
+    void testProcess_streaming() {
+
+        for(ProcessMode mode : new ProcessMode[] {ProcessMode.NODE_TREE, ProcessMode.INSTRUCTION}) {
+            SqlTemplateEngine engine = new SqlTemplateEngine();
+            engine.setProcessMode(mode);
+
+            for(String sql : TEMPLATES) {
+                SqlTemplate template = engine.getTemplateByText(sql);
+
+                for(Map<String, Object> variables : createVariablesPatterns()) {
+                    ProcessResult expected = template.process(new MapSqlTemplateContext(variables));
+
+                    StringBuilder actualSql = new StringBuilder();
+                    List<Object> actualParams = new ArrayList<>();
+                    template.process(new MapSqlTemplateContext(variables), actualSql, actualParams::add);
+
+                    assertThat(actualSql.toString()).as("mode=%s, sql=%s, variables=%s", mode, sql, variables).isEqualTo(expected.getSql());
+                    assertThat(actualParams).as("mode=%s, sql=%s, variables=%s", mode, sql, variables).isEqualTo(expected.getParameters());
+                }
+            }
+        }
+
+    }
+
+    @Test
+    void testProcess_shapeCache_sameInstance() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setShapeCacheSize(16);
+        SqlTemplate template = templateEngine.getTemplateByText(
+                "SELECT * FROM emp WHERE /*IF job != null*/job = /*job*/'CLERK'/*END*/ AND id in /*ids*/(1)");
+
+        Map<String, Object> variables1 = new HashMap<>();
+        variables1.put("job", "CLERK");
+        variables1.put("ids", Arrays.asList(1, 2));
+
+        Map<String, Object> variables2 = new HashMap<>();
+        variables2.put("job", "SALESMAN");
+        variables2.put("ids", Arrays.asList(3, 4));
+
+        ProcessResult result1 = template.process(new MapSqlTemplateContext(variables1));
+        ProcessResult result2 = template.process(new MapSqlTemplateContext(variables2));
+
+        assertThat(result2.getSql()).isSameAs(result1.getSql());
+        assertThat(result2.getParameters()).containsExactly("SALESMAN", 3, 4);
+        assertThat(template.getCachedShapeCount()).isEqualTo(1);
+
+        // 要素数が異なる場合は、別の形になる。
+        variables2.put("ids", Arrays.asList(3, 4, 5));
+        ProcessResult result3 = template.process(new MapSqlTemplateContext(variables2));
+        assertThat(result3.getSql()).isEqualTo("SELECT * FROM emp WHERE job = ? AND id in (?, ?, ?)");
+        assertThat(template.getCachedShapeCount()).isEqualTo(2);
+
+    }
+
+    @Test
+    void testProcess_shapeCache_embeddedValue() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        templateEngine.setShapeCacheSize(16);
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp ORDER BY /*$order*/id");
+
+        assertThat(template.process(new MapSqlTemplateContext(Map.<String, Object>of("order", "id"))).getSql())
+            .isEqualTo("SELECT * FROM emp ORDER BY id");
+        assertThat(template.process(new MapSqlTemplateContext(Map.<String, Object>of("order", "name"))).getSql())
+            .isEqualTo("SELECT * FROM emp ORDER BY name");
+        assertThat(template.getCachedShapeCount()).isEqualTo(2);
+
+    }
+
+    @Test
+    void testProcess_shapeCache_full() {
+
+        SqlTemplate template = new SqlTemplateEngine().getTemplateByText("SELECT * FROM emp WHERE id in /*ids*/(1)");
+        template = new SqlTemplate(template.getSql(), template.getNode(), ProcessMode.NODE_TREE, 1);
+
+        assertThat(template.process(new MapSqlTemplateContext(Map.<String, Object>of("ids", Arrays.asList(1)))).getSql())
+            .isEqualTo("SELECT * FROM emp WHERE id in (?)");
+
+        // 上限を超えた後も、正しく評価できる。
+        for(int i=0; i < 3; i++) {
+            assertThat(template.process(new MapSqlTemplateContext(Map.<String, Object>of("ids", Arrays.asList(1, 2)))).getSql())
+                .isEqualTo("SELECT * FROM emp WHERE id in (?, ?)");
+        }
+        assertThat(template.getCachedShapeCount()).isEqualTo(1);
+
+        // 上限に達する前にキャッシュした形は、引き続き再利用する。
+        ProcessResult result1 = template.process(new MapSqlTemplateContext(Map.<String, Object>of("ids", Arrays.asList(3))));
+        ProcessResult result2 = template.process(new MapSqlTemplateContext(Map.<String, Object>of("ids", Arrays.asList(4))));
+        assertThat(result2.getSql()).isSameAs(result1.getSql());
+        assertThat(result2.getParameters()).containsExactly(4);
+
+    }
+
+    @Test
+    void testProcess_shapeCache_fullSingleEvaluation() {
+
+        SqlTemplate template = new SqlTemplateEngine().getTemplateByText("SELECT * FROM emp WHERE id = /*counter.incrementAndGet()*/0");
+        template = new SqlTemplate(template.getSql(), template.getNode(), ProcessMode.NODE_TREE, 1);
+
+        AtomicInteger counter = new AtomicInteger();
+
+        // 初めての形の場合は、形を集める評価とSQLを組み立てる評価の2回評価する。
+        ProcessResult result1 = template.process(new MapSqlTemplateContext(Map.<String, Object>of("counter", counter)));
+        assertThat(result1.getParameters()).containsExactly(2);
+        assertThat(template.getCachedShapeCount()).isEqualTo(1);
+
+        // 上限に達した後は、1回の評価のみで、キャッシュしたSQLのインスタンスを返す。
+        ProcessResult result2 = template.process(new MapSqlTemplateContext(Map.<String, Object>of("counter", counter)));
+        assertThat(result2.getParameters()).containsExactly(3);
+        assertThat(result2.getSql()).isSameAs(result1.getSql());
+
+    }
+
+    @Test
+    void testProcess_shapeCache_nonDeterministic() {
+
+        // 評価するたびに分岐が変わる式の場合でも、SQLとバインドパラメータは同じ評価の結果になる。
+        SqlTemplate template = new SqlTemplateEngine().getTemplateByText(
+                "SELECT * FROM emp/*BEGIN*/ WHERE /*IF counter.incrementAndGet() % 2 == 0*/id = /*counter.get()*/0/*END*//*END*/");
+        template = new SqlTemplate(template.getSql(), template.getNode(), ProcessMode.NODE_TREE, 16);
+
+        AtomicInteger counter = new AtomicInteger();
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.<String, Object>of("counter", counter)));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(result.getParameters()).containsExactly(2);
+
+        // 形が一致しないため、キャッシュしない。
+        assertThat(template.getCachedShapeCount()).isZero();
+
+    }
+
+    @Test
+    void testProcess_shapeCache_customNode() {
+
+        // 独自に定義したノードを含む場合は、キャッシュしない。
+        SqlTemplate template = new SqlTemplate("SELECT * FROM emp", createCustomNodeTree(), ProcessMode.NODE_TREE, 16);
+        ProcessResult result = template.process(new MapSqlTemplateContext());
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(template.getCachedShapeCount()).isZero();
+
+    }
+
+    @Test
+    void testProcessBatch() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        SqlTemplate template = templateEngine.getTemplateByText(
+                "UPDATE emp SET name = /*name*/'a'/*IF job != null*/, job = /*job*/'CLERK'/*END*/ WHERE id = /*id*/1");
+
+        List<SqlTemplateContext<?>> contexts = new ArrayList<>();
+        for(int i=0; i < 20; i++) {
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("id", i);
+            variables.put("name", "name" + i);
+            variables.put("job", i % 3 == 0 ? null : "job" + i);
+            contexts.add(new MapSqlTemplateContext(variables));
+        }
+
+        BatchProcessResult result = template.processBatch(contexts);
+        assertThat(result.getRowCount()).isEqualTo(20);
+        assertThat(result.getGroups()).hasSize(2);
+
+        // 最初に出現した順に並ぶ
+        BatchProcessResult.Group withoutJob = result.getGroups().get(0);
+        assertThat(withoutJob.getSql()).isEqualTo("UPDATE emp SET name = ? WHERE id = ?");
+        assertThat(withoutJob.getRowCount()).isEqualTo(7);
+        assertThat(withoutJob.getColumnCount()).isEqualTo(2);
+        assertThat(withoutJob.getRowIndex(1)).isEqualTo(3);
+        assertThat(withoutJob.getRow(1)).containsExactly("name3", 3);
+        assertThat(withoutJob.getColumn(1)).containsExactly(0, 3, 6, 9, 12, 15, 18);
+
+        BatchProcessResult.Group withJob = result.getGroups().get(1);
+        assertThat(withJob.getSql()).isEqualTo("UPDATE emp SET name = ?, job = ? WHERE id = ?");
+        assertThat(withJob.getRowCount()).isEqualTo(13);
+        assertThat(withJob.getColumnCount()).isEqualTo(3);
+
+        // 各行の結果は、1件ずつ評価した場合と同じ
+        for(int row=0; row < withJob.getRowCount(); row++) {
+            ProcessResult expected = template.process(contexts.get(withJob.getRowIndex(row)));
+            assertThat(Arrays.asList(withJob.getRow(row))).isEqualTo(expected.getParameters());
+            assertThat(withJob.getParameter(row, 1)).isEqualTo("job" + withJob.getRowIndex(row));
+        }
+
+    }
+
+    @Test
+    void testProcessBatch_sameSql() {
+
+        // SQLの形が異なっても、組み立てたSQLが同じ場合は同じグループにまとめる。
+        SqlTemplate template = new SqlTemplateEngine().getTemplateByText(
+                "DELETE FROM emp WHERE id = /*id*/1/*IF job != null*//*END*/");
+
+        List<SqlTemplateContext<?>> contexts = new ArrayList<>();
+        for(int i=0; i < 4; i++) {
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("id", i);
+            variables.put("job", i % 2 == 0 ? null : "job" + i);
+            contexts.add(new MapSqlTemplateContext(variables));
+        }
+
+        BatchProcessResult result = template.processBatch(contexts);
+        assertThat(result.getGroups()).hasSize(1);
+        assertThat(result.getGroups().get(0).getSql()).isEqualTo("DELETE FROM emp WHERE id = ?");
+        assertThat(result.getGroups().get(0).getColumn(0)).containsExactly(0, 1, 2, 3);
+
+    }
+
+    @Test
+    void testProcessBatch_nonDeterministic() {
+
+        // 評価するたびに分岐が変わる式の場合でも、グループのSQLと行のバインドパラメータは一致する。
+        SqlTemplate template = new SqlTemplateEngine().getTemplateByText(
+                "SELECT * FROM emp/*BEGIN*/ WHERE /*IF counter.incrementAndGet() % 2 == 0*/id = /*counter.get()*/0/*END*//*END*/");
+
+        BatchProcessResult result = template.processBatch(Arrays.asList(
+                new MapSqlTemplateContext(Map.<String, Object>of("counter", new AtomicInteger()))));
+
+        assertThat(result.getGroups()).hasSize(1);
+        assertThat(result.getGroups().get(0).getSql()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(result.getGroups().get(0).getColumn(0)).containsExactly(2);
+
+    }
+
+    @Test
+    void testProcessBatch_customNode() {
+
+        // 独自に定義したノードを含む場合は、行ごとにSQLを組み立てる。
+        SqlTemplate template = new SqlTemplate("SELECT * FROM emp", createCustomNodeTree());
+        BatchProcessResult result = template.processBatch(Arrays.asList(new MapSqlTemplateContext(), new MapSqlTemplateContext()));
+
+        assertThat(result.getGroups()).hasSize(1);
+        assertThat(result.getGroups().get(0).getSql()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(result.getGroups().get(0).getColumn(0)).containsExactly(1, 1);
+
+    }
+
+    @Test
+    void testProcessBatch_empty() {
+
+        SqlTemplate template = new SqlTemplateEngine().getTemplateByText("DELETE FROM emp WHERE id = /*id*/1");
+        BatchProcessResult result = template.processBatch(new ArrayList<SqlTemplateContext<?>>());
+
+        assertThat(result.getRowCount()).isZero();
+        assertThat(result.getGroups()).isEmpty();
+
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.mygreen.splate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.mygreen.splate.node.ContainerNode;
+import com.github.mygreen.splate.node.NodeProcessContext;
+import com.github.mygreen.splate.node.SqlNode;
+
+/**
+ * 評価方式やキャッシュの有無などで、評価結果が変わらないことを確認するテストで共通のSQLテンプレートと変数です。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+public final class TemplateFixtures {
+
+    /**
+     * {@code BEGIN} / {@code IF} / {@code ELSE} コメントや、{@code IN} 句、埋め込み変数を組み合わせたSQLテンプレート。
+     */
+    public static final List<String> TEMPLATES = List.of(
+            "SELECT * FROM emp",
+            "SELECT * FROM emp WHERE job = /*job*/'CLERK' AND deptno = /*deptno*/20",
+            "SELECT * FROM emp/*BEGIN*/ WHERE /*IF job != null*/job = /*job*/'CLERK'/*END*//*IF deptno != null*/ AND deptno = /*deptno*/20/*END*//*END*/",
+            "SELECT * FROM emp WHERE /*IF job != null*/job = /*job*/'CLERK'-- ELSE job is null/*END*/",
+            "SELECT * FROM emp WHERE id in /*ids*/(1, 2) ORDER BY /*$order*/id",
+            "SELECT * FROM emp/*BEGIN*/ WHERE /*IF job != null*/job = /*job*/'CLERK'"
+                + "/*BEGIN*/ AND (/*IF deptno != null*/deptno = /*deptno*/20/*END*//*IF ids != null*/ OR id in /*ids*/(1)/*END*/)/*END*/"
+                + "/*END*//*END*/",
+            "UPDATE emp SET /*IF job != null*/job = /*job*/'CLERK'/*END*//*IF deptno != null*/, deptno = /*deptno*/20/*END*/ WHERE id = ?"
+    );
+
+    private TemplateFixtures() {
+    }
+
+    /**
+     * {@link #TEMPLATES} に渡す変数の組み合わせを作成します。
+     * @return 変数の組み合わせ
+     */
+    public static List<Map<String, Object>> createVariablesPatterns() {
+
+        Map<String, Object> all = new HashMap<>();
+        all.put("job", "SALESMAN");
+        all.put("deptno", 10);
+        all.put("ids", Arrays.asList(1, 2, 3));
+        all.put("order", "name");
+
+        Map<String, Object> onlyDeptno = new HashMap<>();
+        onlyDeptno.put("job", null);
+        onlyDeptno.put("deptno", 10);
+        onlyDeptno.put("ids", null);
+        onlyDeptno.put("order", "id");
+
+        Map<String, Object> onlyIds = new HashMap<>();
+        onlyIds.put("job", "CLERK");
+        onlyIds.put("deptno", null);
+        onlyIds.put("ids", Arrays.asList(4));
+        onlyIds.put("order", "id");
+
+        Map<String, Object> none = new HashMap<>();
+        none.put("job", null);
+        none.put("deptno", null);
+        none.put("ids", null);
+        none.put("order", "id");
+
+        return Arrays.asList(all, onlyDeptno, onlyIds, none);
+    }
+
+    /**
+     * 独自に定義したノードを含むノードのツリーを作成します。
+     * <p>評価結果は {@code SELECT * FROM emp WHERE id = ?} で、バインドパラメータは {@literal 1} です。</p>
+     *
+     * @return 子ノードの追加を禁止したノードのツリー
+     */
+    public static ContainerNode createCustomNodeTree() {
+
+        ContainerNode root = new ContainerNode(0);
+        root.addChild(new SqlNode(0, "SELECT * FROM emp"));
+        root.addChild(new SqlNode(0, " WHERE ") {
+            @Override
+            public void accept(NodeProcessContext ctx) {
+                ctx.addSql(" WHERE id = ?", 1);
+            }
+        });
+        root.freeze();
+        return root;
+    }
+}
@@ -3,6 +3,7 @@ package com.github.mygreen.splate;
 import static org.assertj.core.api.Assertions.*;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -98,5 +99,63 @@ class TemplateLoaderTest {
 
     }
 
+    @DisplayName("読み込み対象のリソースを記録する")
+    @Test
+    void testResolveByLocation_cached() {
+
+        AtomicInteger lookupCount = new AtomicInteger();
+        ResourceLoader countingLoader = new DefaultResourceLoader() {
+            @Override
+            public Resource getResource(String location) {
+                lookupCount.incrementAndGet();
+                return super.getResource(location);
+            }
+        };
+
+        templateLoader.setResolutionCached(true);
+
+        // 接尾語付きのファイルが存在しない場合は、接尾語付きと元々のパスの2回探す。
+        String location = "template/suffix2.sql";
+        Optional<String> suffixName = Optional.of("oracle");
+        String sql = templateLoader.loadByLocation(location, countingLoader, "UTF-8", suffixName);
+        assertThat(lookupCount).hasValue(2);
+
+        // 2回目以降は、記録したリソースを使用する。
+        assertThat(templateLoader.loadByLocation(location, countingLoader, "UTF-8", suffixName)).isEqualTo(sql);
+        assertThat(lookupCount).hasValue(2);
+
+        // 接尾語が異なる場合は、改めて探す。
+        templateLoader.loadByLocation(location, countingLoader, "UTF-8", Optional.empty());
+        assertThat(lookupCount).hasValue(3);
 
+        // 記録を破棄した場合
+        templateLoader.invalidateResolution(location);
+        templateLoader.loadByLocation(location, countingLoader, "UTF-8", suffixName);
+        assertThat(lookupCount).hasValue(5);
+
+    }
+
+    @DisplayName("読み込み対象のリソースを記録しない")
+    @Test
+    void testResolveByLocation_notCached() {
+
+        AtomicInteger lookupCount = new AtomicInteger();
+        ResourceLoader countingLoader = new DefaultResourceLoader() {
+            @Override
+            public Resource getResource(String location) {
+                lookupCount.incrementAndGet();
+                return super.getResource(location);
+            }
+        };
+
+        // デフォルトでは記録しない
+        assertThat(templateLoader.isResolutionCached()).isFalse();
+
+        String location = "template/suffix.sql";
+        Optional<String> suffixName = Optional.of("oracle");
+        templateLoader.loadByLocation(location, countingLoader, "UTF-8", suffixName);
+        templateLoader.loadByLocation(location, countingLoader, "UTF-8", suffixName);
+        assertThat(lookupCount).hasValue(2);
+
+    }
 }
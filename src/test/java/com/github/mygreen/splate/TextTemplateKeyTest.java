@@ -0,0 +1,54 @@
+package com.github.mygreen.splate;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link TextTemplateKey} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class TextTemplateKeyTest {
+
+    @Test
+    void testEquals() {
+
+        String sql = "select * from emp where id = /*id*/1";
+        TextTemplateKey key1 = TextTemplateKey.of(sql);
+        TextTemplateKey key2 = TextTemplateKey.of(new String(sql));
+
+        // 内容が同じであれば、インスタンスが異なっても一致する。
+        assertThat(key1).isEqualTo(key2).hasSameHashCodeAs(key2);
+        assertThat(key1.getText()).isSameAs(sql);
+
+        assertThat(TextTemplateKey.of("select * from emp where id = /*id*/2")).isNotEqualTo(key1);
+        assertThat(TextTemplateKey.of("abcd")).isNotEqualTo(TextTemplateKey.of("abcd\0"));
+
+        // リソースパスのキーとは区別する。
+        assertThat(TextTemplateKey.of(sql)).isNotEqualTo(sql);
+
+    }
+
+    @Test
+    void testGetTemplateByText() {
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        engine.setCached(true);
+
+        String sql = "select * from emp";
+        SqlTemplate template = engine.getTemplateByText(sql);
+
+        assertThat(engine.getTemplateByText(new String(sql))).isSameAs(template);
+        assertThat(engine.getTemplateCache().getIfPresent(TextTemplateKey.of(sql))).isSameAs(template);
+
+        // 同じ文字列のリソースパスとは、別のキーとしてキャッシュする。
+        assertThat(engine.getTemplateCache().getIfPresent(sql)).isNull();
+
+        engine.clearCacheByText(new String(sql));
+        assertThat(engine.getTemplateCache().getIfPresent(TextTemplateKey.of(sql))).isNull();
+
+    }
+}
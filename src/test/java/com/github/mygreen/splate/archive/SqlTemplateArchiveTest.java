@@ -0,0 +1,390 @@
+package com.github.mygreen.splate.archive;
+
+import static com.github.mygreen.splate.TemplateFixtures.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessMode;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+import com.github.mygreen.splate.node.ContainerNode;
+import com.github.mygreen.splate.parser.SqlParser;
+import com.github.mygreen.splate.parser.StringLiteralMode;
+
+/**
+ * {@link SqlTemplateArchive} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class SqlTemplateArchiveTest {
+
+    @Test
+    void testReadWrite() {
+
+        final SpelExpressionParser expressionParser = new SpelExpressionParser();
+
+        List<ArchivedTemplate> templates = new ArrayList<>();
+        for(int i=0; i < TEMPLATES.size(); i++) {
+            SqlParser parser = new SqlParser(TEMPLATES.get(i), expressionParser);
+            templates.add(new ArchivedTemplate("sql/template" + i + ".sql", parser.getSql(), parser.parse()));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, templates);
+
+        List<ArchivedTemplate> restored = SqlTemplateArchive.read(new ByteArrayInputStream(out.toByteArray()),
+                sql -> new SqlParser(sql, expressionParser));
+
+        assertThat(restored).hasSameSizeAs(templates);
+        for(int i=0; i < templates.size(); i++) {
+            ArchivedTemplate expected = templates.get(i);
+            ArchivedTemplate actual = restored.get(i);
+
+            assertThat(actual.getPath()).isEqualTo(expected.getPath());
+            assertThat(actual.getSql()).isEqualTo(expected.getSql());
+            assertThat(actual.getNode().getChildSize()).isEqualTo(expected.getNode().getChildSize());
+            assertThat(((ContainerNode) actual.getNode()).isFrozen()).isTrue();
+
+            SqlTemplate expectedTemplate = new SqlTemplate(expected.getSql(), expected.getNode());
+            SqlTemplate actualTemplate = new SqlTemplate(actual.getSql(), actual.getNode());
+            for(Map<String, Object> variables : createVariablesPatterns()) {
+                ProcessResult expectedResult = expectedTemplate.process(new MapSqlTemplateContext(variables));
+                ProcessResult actualResult = actualTemplate.process(new MapSqlTemplateContext(variables));
+
+                assertThat(actualResult.getSql()).isEqualTo(expectedResult.getSql());
+                assertThat(actualResult.getParameters()).isEqualTo(expectedResult.getParameters());
+            }
+        }
+
+    }
+
+    @Test
+    void testReadWrite_sharedStrings() {
+
+        final SpelExpressionParser expressionParser = new SpelExpressionParser();
+        SqlParser parser = new SqlParser(TEMPLATES.get(2), expressionParser);
+        ArchivedTemplate template = new ArchivedTemplate("sql/a.sql", parser.getSql(), parser.parse());
+
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(single, List.of(template));
+
+        ByteArrayOutputStream duplicated = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(duplicated, List.of(template,
+                new ArchivedTemplate("sql/b.sql", template.getSql(), template.getNode())));
+
+        // 文字列は文字列テーブルに1度だけ格納する。
+        assertThat(duplicated.size()).isLessThan(single.size() + 64);
+
+        List<ArchivedTemplate> restored = SqlTemplateArchive.read(new ByteArrayInputStream(duplicated.toByteArray()),
+                sql -> new SqlParser(sql, expressionParser));
+        assertThat(restored.get(0).getSql()).isSameAs(restored.get(1).getSql());
+
+    }
+
+    @Test
+    void testRead_notArchive() {
+
+        byte[] data = "select * from emp".getBytes();
+        assertThatThrownBy(() -> SqlTemplateArchive.read(new ByteArrayInputStream(data),
+                sql -> new SqlParser(sql, new SpelExpressionParser())))
+            .isInstanceOf(SqlTemplateArchiveException.class)
+            .hasMessage("Not template archive.");
+
+    }
+
+    @Test
+    void testReadWrite_parseOptions() {
+
+        final SpelExpressionParser expressionParser = new SpelExpressionParser();
+        final ArchiveParseOptions options = new ArchiveParseOptions(true, StringLiteralMode.STANDARD);
+
+        SqlParser parser = createParser("select * from emp where id in /*ids*/(1, 2) and name = '/*x*/'", expressionParser, options);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of(new ArchivedTemplate("sql/a.sql", parser.getSql(), parser.parse(), ArchiveParseOptions.of(parser))));
+
+        List<ArchivedTemplate> restored = SqlTemplateArchive.read(new ByteArrayInputStream(out.toByteArray()),
+                sql -> createParser(sql, expressionParser, options));
+        assertThat(restored.get(0).getParseOptions()).isEqualTo(options);
+
+        // パーサの設定が異なる場合
+        assertThatThrownBy(() -> SqlTemplateArchive.read(new ByteArrayInputStream(out.toByteArray()),
+                sql -> new SqlParser(sql, expressionParser)))
+            .isInstanceOf(SqlTemplateArchiveException.class)
+            .hasMessageStartingWith("Mismatched parse options");
+
+    }
+
+    @Test
+    void testWrite_mixedParseOptions() {
+
+        SqlParser parser = new SqlParser("select * from a", new SpelExpressionParser());
+        List<ArchivedTemplate> templates = List.of(
+                new ArchivedTemplate("sql/a.sql", parser.getSql(), parser.parse()),
+                new ArchivedTemplate("sql/b.sql", parser.getSql(), parser.parse(), new ArchiveParseOptions(true, StringLiteralMode.IGNORED)));
+
+        assertThatThrownBy(() -> SqlTemplateArchive.write(new ByteArrayOutputStream(), templates))
+            .isInstanceOf(SqlTemplateArchiveException.class)
+            .hasMessageStartingWith("Mismatched parse options in template 'sql/b.sql'");
+
+    }
+
+    @Test
+    void testRead_broken() {
+
+        // 文字列リテラルの扱いが不正
+        assertBroken(new int[] {0, 99}, "Unknown string literal mode : 99");
+
+        // 負の要素数
+        assertBroken(archiveBody(0xFF, 0xFF, 0xFF, 0xFF, 0x0F), "Broken template archive : negative value.");
+
+        // 残りのバイト数を超える要素数
+        assertBroken(archiveBody(0x7F), "Broken template archive : length 127 exceeds remaining 0 bytes.");
+
+        // 文字列テーブルの範囲外のインデックス
+        assertBroken(archiveBody(0, 1, 5), "Broken template archive : string index 5 out of 0.");
+
+        // 不明なノードの種類
+        assertBroken(archiveBody(1, 1, 'a', 1, 0, 0, 99, 0), "Unknown node kind : 99");
+
+        // ELSEコメント以外のノードを、IFコメントのELSEコメントとして格納
+        assertBroken(archiveBody(2, 1, 'a', 4, 't', 'r', 'u', 'e', 1, 0, 0, 2, 0, 1, 0, 1, 4, 0, 0),
+                "Broken template archive : unexpected else node SqlNode.");
+
+        // 途中で終わっている
+        assertBroken(archiveBody(1, 1, 'a', 1, 0, 0, 0), "Broken template archive.");
+
+    }
+
+    /**
+     * パース時の設定がデフォルトのヘッダに続けて、本体を組み立てます。
+     * @param body 文字列テーブル以降の内容
+     * @return ヘッダのパース時の設定以降の内容
+     */
+    private static int[] archiveBody(final int... body) {
+        final int[] data = new int[body.length + 2];
+        System.arraycopy(body, 0, data, 2, body.length);
+        return data;
+    }
+
+    private static void assertBroken(final int[] data, final String message) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of());
+
+        // 空のアーカイブのヘッダ（マジックナンバーとバージョン）に続けて、壊れた内容を書き込む。
+        final byte[] header = out.toByteArray();
+        final byte[] archive = new byte[6 + data.length];
+        System.arraycopy(header, 0, archive, 0, 6);
+        for(int i=0; i < data.length; i++) {
+            archive[6 + i] = (byte) data[i];
+        }
+
+        assertThatThrownBy(() -> SqlTemplateArchive.read(new ByteArrayInputStream(archive),
+                sql -> new SqlParser(sql, new SpelExpressionParser())))
+            .isInstanceOf(SqlTemplateArchiveException.class)
+            .hasMessageStartingWith(message);
+
+    }
+
+    private static SqlParser createParser(final String sql, final SpelExpressionParser expressionParser,
+            final ArchiveParseOptions options) {
+        SqlParser parser = new SqlParser(sql, expressionParser);
+        parser.setInOperandExtracted(options.isInOperandExtracted());
+        parser.setStringLiteralMode(options.getStringLiteralMode());
+        return parser;
+    }
+
+    @Test
+    void testLoadArchive() {
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        SqlTemplate parsed = engine.getTemplate("classpath:template/employee_select.sql");
+
+        // ファイルの内容とは異なるSQLをアーカイブに格納して、アーカイブが優先されることを確認する。
+        SqlParser parser = new SqlParser("select * from employee where salary >= /*salaryMin*/1000", new SpelExpressionParser());
+        ArchivedTemplate archived = new ArchivedTemplate("template/employee_select.sql", parser.getSql(), parser.parse());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of(archived));
+
+        assertThat(engine.loadArchive(new ByteArrayResource(out.toByteArray()))).isEqualTo(1);
+
+        for(String location : Arrays.asList("classpath:template/employee_select.sql",
+                "classpath:/template/employee_select.sql", "template/employee_select.sql", "/template/employee_select.sql")) {
+            SqlTemplate template = engine.getTemplate(location);
+            assertThat(template.getSql()).isEqualTo(archived.getSql());
+        }
+
+        // アーカイブに含まれないテンプレートは、ファイルから読み込む。
+        assertThat(engine.getTemplate("classpath:template/address_select.sql").getSql()).isNotEmpty();
+
+        // アーカイブを破棄した場合
+        engine.clearArchive();
+        assertThat(engine.getTemplate("classpath:template/employee_select.sql").getSql()).isEqualTo(parsed.getSql());
+
+    }
+
+    @Test
+    void testLoadArchive_currentSettings() {
+
+        SqlParser parser = new SqlParser("select * from employee where salary >= /*salaryMin*/1000", new SpelExpressionParser());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of(new ArchivedTemplate("template/employee_select.sql", parser.getSql(), parser.parse())));
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        engine.loadArchive(new ByteArrayResource(out.toByteArray()));
+
+        // 読み込んだ後に変更した設定を反映する。
+        engine.setProcessMode(ProcessMode.INSTRUCTION);
+        engine.setShapeCacheSize(16);
+
+        SqlTemplate template = engine.getTemplate("template/employee_select.sql");
+        assertThat(template.getSql()).isEqualTo(parser.getSql());
+        assertThat(template.getProcessMode()).isEqualTo(ProcessMode.INSTRUCTION);
+        assertThat(template.getShapeCacheSize()).isEqualTo(16);
+
+    }
+
+    @Test
+    void testLoadArchive_parseOptionsChanged() {
+
+        SqlParser parser = new SqlParser("select * from employee where salary >= /*salaryMin*/1000", new SpelExpressionParser());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of(new ArchivedTemplate("template/employee_select.sql", parser.getSql(), parser.parse())));
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        engine.loadArchive(new ByteArrayResource(out.toByteArray()));
+        assertThat(engine.getTemplate("template/employee_select.sql").getSql()).isEqualTo(parser.getSql());
+
+        // 読み込んだ後にパースの設定を変更した場合は、ファイルから読み込む。
+        engine.setStringLiteralMode(StringLiteralMode.STANDARD);
+        assertThat(engine.getTemplate("template/employee_select.sql").getSql()).isNotEqualTo(parser.getSql());
+
+        // 設定が異なるアーカイブは読み込めない。
+        assertThatThrownBy(() -> engine.loadArchive(new ByteArrayResource(out.toByteArray())))
+            .isInstanceOf(SqlTemplateArchiveException.class);
+
+    }
+
+    @Test
+    void testLoadArchive_reload() {
+
+        SqlParser parser = new SqlParser("select * from employee where salary >= /*salaryMin*/1000", new SpelExpressionParser());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of(new ArchivedTemplate("template/employee_select.sql", parser.getSql(), parser.parse())));
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        engine.setCached(true);
+        engine.loadArchive(new ByteArrayResource(out.toByteArray()));
+
+        // 更新を監視している間は、アーカイブを使用せずにファイルを読み込む。
+        engine.setReloadInterval(Duration.ofHours(1));
+        try {
+            assertThat(engine.getTemplate("template/employee_select.sql").getSql()).isNotEqualTo(parser.getSql());
+        } finally {
+            engine.setReloadInterval(null);
+        }
+
+    }
+
+    @Test
+    void testLoadArchive_resourceLoader() {
+
+        SqlParser parser = new SqlParser("select * from a", new SpelExpressionParser());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of(new ArchivedTemplate("template/employee_select.sql", parser.getSql(), parser.parse())));
+
+        // 接頭語がないリソースパスを、ファイルシステムのパスとして解決する場合は、アーカイブを使用しない。
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        engine.setResourceLoader(new FileSystemResourceLoader());
+        engine.loadArchive(new ByteArrayResource(out.toByteArray()));
+
+        assertThat(engine.getTemplate("src/test/resources/template/employee_select.sql").getSql()).isNotEqualTo(parser.getSql());
+        assertThat(engine.getTemplate("classpath:template/employee_select.sql").getSql()).isEqualTo(parser.getSql());
+
+    }
+
+    @Test
+    void testLoadArchive_suffix() {
+
+        SpelExpressionParser expressionParser = new SpelExpressionParser();
+        SqlParser parser = new SqlParser("select * from a", expressionParser);
+        SqlParser oracleParser = new SqlParser("select * from a_oracle", expressionParser);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SqlTemplateArchive.write(out, List.of(
+                new ArchivedTemplate("sql/a.sql", parser.getSql(), parser.parse()),
+                new ArchivedTemplate("sql/a-oracle.sql", oracleParser.getSql(), oracleParser.parse())));
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        engine.setSuffixName("oracle");
+        engine.loadArchive(new ByteArrayResource(out.toByteArray()));
+
+        assertThat(engine.getTemplate("sql/a.sql").getSql()).isEqualTo("select * from a_oracle");
+
+    }
+
+    @Test
+    void testWriteArchive(@TempDir Path dir) throws Exception {
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        SqlTemplate parsed = engine.getTemplate("classpath:template/employee_select.sql");
+
+        Path file = dir.resolve("templates.splate");
+        try(var out = Files.newOutputStream(file)) {
+            engine.writeArchive(out, List.of("classpath:template/employee_select.sql", "template/address_select.sql"));
+        }
+
+        // ファイルはメモリマップして読み込む。
+        SqlTemplateEngine archivedEngine = new SqlTemplateEngine();
+        assertThat(archivedEngine.loadArchive(new FileSystemResource(file))).isEqualTo(2);
+
+        SqlTemplate template = archivedEngine.getTemplate("/template/employee_select.sql");
+        assertThat(template.getSql()).isEqualTo(parsed.getSql());
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("salaryMin", 1000);
+        variables.put("salaryMax", null);
+        assertThat(template.process(new MapSqlTemplateContext(variables)).getSql())
+            .isEqualTo(parsed.process(new MapSqlTemplateContext(variables)).getSql());
+
+    }
+
+    @Test
+    void testWriteArchive_notClasspath() {
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        assertThatThrownBy(() -> engine.writeArchive(new ByteArrayOutputStream(), List.of("file:/tmp/a.sql")))
+            .isInstanceOf(SqlTemplateArchiveException.class);
+
+    }
+
+    @Test
+    void testLoadArchive_notExists() {
+
+        SqlTemplateEngine engine = new SqlTemplateEngine();
+        assertThat(engine.loadArchive(SqlTemplateEngine.DEFAULT_ARCHIVE_LOCATION)).isEqualTo(0);
+
+    }
+}
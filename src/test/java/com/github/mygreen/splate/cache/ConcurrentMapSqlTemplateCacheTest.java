@@ -0,0 +1,165 @@
+package com.github.mygreen.splate.cache;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
+
+/**
+ * {@link ConcurrentMapSqlTemplateCache}のテスタ。
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class ConcurrentMapSqlTemplateCacheTest {
+
+    private SqlTemplateEngine templateEngine;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.templateEngine = new SqlTemplateEngine();
+        this.executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testGet_singleFlight() throws Exception {
+
+        ConcurrentMapSqlTemplateCache cache = new ConcurrentMapSqlTemplateCache();
+        AtomicInteger loadCount = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<SqlTemplate> first = executor.submit(() -> cache.get("a", k -> {
+            loadCount.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return templateEngine.getTemplateByText("select * from a");
+        }));
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // 同じキーは、読み込み中の結果を待つ
+        Future<SqlTemplate> second = executor.submit(() -> cache.get("a", k -> {
+            loadCount.incrementAndGet();
+            return templateEngine.getTemplateByText("select * from a");
+        }));
+
+        // 異なるキーは、読み込み中でも待たされない
+        SqlTemplate other = executor.submit(() -> cache.get("b", k -> templateEngine.getTemplateByText("select * from b")))
+                .get(10, TimeUnit.SECONDS);
+        assertThat(other.getSql()).isEqualTo("select * from b");
+        assertThat(second.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(second.get(10, TimeUnit.SECONDS)).isSameAs(first.get(10, TimeUnit.SECONDS));
+        assertThat(loadCount).hasValue(1);
+        assertThat(cache.size()).isEqualTo(2);
+
+    }
+
+    @Test
+    void testGet_failureNotCached() {
+
+        ConcurrentMapSqlTemplateCache cache = new ConcurrentMapSqlTemplateCache();
+
+        assertThatThrownBy(() -> cache.get("a", k -> {
+            throw new IllegalArgumentException("fail");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(cache.getIfPresent("a")).isNull();
+
+        // 失敗した後は、改めて読み込む
+        SqlTemplate template = cache.get("a", k -> templateEngine.getTemplateByText("select * from a"));
+        assertThat(template.getSql()).isEqualTo("select * from a");
+
+    }
+
+    @Test
+    void testGet_recursive() {
+
+        ConcurrentMapSqlTemplateCache cache = new ConcurrentMapSqlTemplateCache();
+
+        assertThatThrownBy(() -> cache.get("a", k -> cache.get("a", k2 -> templateEngine.getTemplateByText("select * from a"))))
+            .isInstanceOf(IllegalStateException.class);
+
+        // 異なるキーであれば、読み込み中に呼び出せる
+        SqlTemplate template = cache.get("a", k -> {
+            cache.get("b", k2 -> templateEngine.getTemplateByText("select * from b"));
+            return templateEngine.getTemplateByText("select * from a");
+        });
+        assertThat(template.getSql()).isEqualTo("select * from a");
+        assertThat(cache.size()).isEqualTo(2);
+
+    }
+
+    @Test
+    void testReplace() {
+
+        ConcurrentMapSqlTemplateCache cache = new ConcurrentMapSqlTemplateCache();
+        SqlTemplate template1 = templateEngine.getTemplateByText("select * from a");
+        SqlTemplate template2 = templateEngine.getTemplateByText("select * from b");
+
+        // キャッシュされていない場合は置き換えない
+        assertThat(cache.replace("a", template1, template2)).isFalse();
+        assertThat(cache.getIfPresent("a")).isNull();
+
+        cache.put("a", template1);
+        assertThat(cache.replace("a", template1, template2)).isTrue();
+        assertThat(cache.getIfPresent("a")).isSameAs(template2);
+
+        // 既に置き換えられている場合は置き換えない
+        assertThat(cache.replace("a", template1, template1)).isFalse();
+        assertThat(cache.getIfPresent("a")).isSameAs(template2);
+
+    }
+
+    @Test
+    void testInvalidate_whileLoading() throws Exception {
+
+        ConcurrentMapSqlTemplateCache cache = new ConcurrentMapSqlTemplateCache();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<SqlTemplate> future = executor.submit(() -> cache.get("a", k -> {
+            loading.countDown();
+            await(release);
+            return templateEngine.getTemplateByText("select * from a");
+        }));
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        cache.invalidate("a");
+        release.countDown();
+
+        // 呼び出し元には結果を返すが、キャッシュには登録しない
+        assertThat(future.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(cache.getIfPresent("a")).isNull();
+
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.mygreen.splate.cache;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
+
+/**
+ * {@link LruSqlTemplateCache}のテスタ。
+ *
+ *
+ * @author T.TSUCHIE
+ *
+ */
+class LruSqlTemplateCacheTest {
+
+    private SqlTemplateEngine templateEngine;
+
+    private AtomicLong ticker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.templateEngine = new SqlTemplateEngine();
+        this.ticker = new AtomicLong();
+    }
+
+    private LruSqlTemplateCache createCache(int maximumSize) {
+        LruSqlTemplateCache cache = new LruSqlTemplateCache(maximumSize);
+        cache.setTicker(ticker::get);
+        return cache;
+    }
+
+    @Test
+    void testGet_cached() {
+
+        LruSqlTemplateCache cache = createCache(10);
+        AtomicInteger loadCount = new AtomicInteger();
+
+        SqlTemplate template1 = cache.get("a", k -> {
+            loadCount.incrementAndGet();
+            return templateEngine.getTemplateByText("select * from a");
+        });
+        SqlTemplate template2 = cache.get("a", k -> {
+            loadCount.incrementAndGet();
+            return templateEngine.getTemplateByText("select * from a");
+        });
+
+        assertThat(template1).isSameAs(template2);
+        assertThat(loadCount).hasValue(1);
+        assertThat(cache.size()).isEqualTo(1);
+
+    }
+
+    @Test
+    void testReplace() {
+
+        LruSqlTemplateCache cache = createCache(10);
+        SqlTemplate template1 = templateEngine.getTemplateByText("select * from a");
+        SqlTemplate template2 = templateEngine.getTemplateByText("select * from b");
+
+        // キャッシュされていない場合は置き換えない
+        assertThat(cache.replace("a", template1, template2)).isFalse();
+        assertThat(cache.getIfPresent("a")).isNull();
+
+        cache.put("a", template1);
+        assertThat(cache.replace("a", template1, template2)).isTrue();
+        assertThat(cache.getIfPresent("a")).isSameAs(template2);
+
+        // 既に置き換えられている場合は置き換えない
+        assertThat(cache.replace("a", template1, template1)).isFalse();
+        assertThat(cache.getIfPresent("a")).isSameAs(template2);
+
+    }
+
+    @Test
+    void testEvict_maximumSize() {
+
+        LruSqlTemplateCache cache = createCache(2);
+
+        cache.put("a", templateEngine.getTemplateByText("select * from a"));
+        cache.put("b", templateEngine.getTemplateByText("select * from b"));
+
+        // 参照することで「a」が最近使用したものになる。
+        assertThat(cache.getIfPresent("a")).isNotNull();
+
+        cache.put("c", templateEngine.getTemplateByText("select * from c"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getIfPresent("a")).isNotNull();
+        assertThat(cache.getIfPresent("b")).isNull();
+        assertThat(cache.getIfPresent("c")).isNotNull();
+
+    }
+
+    @Test
+    void testEvict_maximumWeight() {
+
+        LruSqlTemplateCache cache = createCache(100);
+        cache.setWeigher(template -> template.getSql().length());
+        cache.setMaximumWeight(30L);
+
+        cache.put("a", templateEngine.getTemplateByText("select * from a"));    // 15
+        cache.put("b", templateEngine.getTemplateByText("select * from b"));    // 15
+        assertThat(cache.getTotalWeight()).isEqualTo(30L);
+
+        cache.put("c", templateEngine.getTemplateByText("select * from c"));    // 15
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getTotalWeight()).isEqualTo(30L);
+        assertThat(cache.getIfPresent("a")).isNull();
+
+        // 単体で上限を超える場合はキャッシュしない
+        SqlTemplate large = cache.get("d", k -> templateEngine.getTemplateByText("select * from employee_address_history"));
+        assertThat(large).isNotNull();
+        assertThat(cache.getIfPresent("d")).isNull();
+
+    }
+
+    @Test
+    void testDefaultWeigher() {
+
+        SqlTemplate template = templateEngine.getTemplateByText("select * from emp where id = /*id*/1");
+
+        // SQLの文字数 + ノード数(コンテナ, SQL, バインド変数)
+        assertThat(SqlTemplateWeigher.DEFAULT.weigh(template)).isEqualTo(template.getSql().length() + template.getNodeCount());
+        assertThat(template.getNodeCount()).isEqualTo(3);
+
+    }
+
+    @Test
+    void testExpireAfterWrite() {
+
+        LruSqlTemplateCache cache = createCache(10);
+        cache.setExpireAfterWrite(Duration.ofSeconds(10));
+
+        cache.put("a", templateEngine.getTemplateByText("select * from a"));
+
+        ticker.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(cache.getIfPresent("a")).isNotNull();
+
+        ticker.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+
+    }
+
+    @Test
+    void testExpireAfterAccess() {
+
+        LruSqlTemplateCache cache = createCache(10);
+        cache.setExpireAfterAccess(Duration.ofSeconds(10));
+
+        cache.put("a", templateEngine.getTemplateByText("select * from a"));
+        cache.put("b", templateEngine.getTemplateByText("select * from b"));
+
+        ticker.addAndGet(Duration.ofSeconds(8).toNanos());
+        assertThat(cache.getIfPresent("a")).isNotNull();
+
+        ticker.addAndGet(Duration.ofSeconds(8).toNanos());
+        cache.cleanUp();
+
+        assertThat(cache.getIfPresent("a")).isNotNull();
+        assertThat(cache.getIfPresent("b")).isNull();
+
+    }
+
+    @Test
+    void testInvalidate() {
+
+        LruSqlTemplateCache cache = createCache(10);
+
+        cache.put("a", templateEngine.getTemplateByText("select * from a"));
+        cache.put("b", templateEngine.getTemplateByText("select * from b"));
+
+        cache.invalidate("a");
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.getIfPresent("b")).isNotNull();
+
+        cache.clear();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getTotalWeight()).isEqualTo(0L);
+
+    }
+
+    @Test
+    void testMaximumSize_invalid() {
+
+        assertThatThrownBy(() -> new LruSqlTemplateCache(0))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.mygreen.splate.compiler;
+
+import static com.github.mygreen.splate.TemplateFixtures.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.mygreen.splate.BeanPropertySqlTemplateContext;
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * {@link SqlTemplateCompiler} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class SqlTemplateCompilerTest {
+
+    private SqlTemplateEngine templateEngine;
+
+    private SqlTemplateCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        this.templateEngine = new SqlTemplateEngine();
+        this.compiler = new SqlTemplateCompiler();
+    }
+
+    @Test
+    void testProcess_sameAsTemplate() {
+
+        String[] sqls = {
+                "SELECT * FROM emp",
+                "SELECT * FROM emp WHERE job = /*job*/'CLERK' AND deptno = /*deptno*/20",
+                "SELECT * FROM emp/*BEGIN*/ WHERE /*IF job != null*/job = /*job*/'CLERK'/*END*//*IF deptno != null*/ AND deptno = /*deptno*/20/*END*//*END*/",
+                "SELECT * FROM emp WHERE /*IF job == null*/job is null-- ELSE job = /*job*/'CLERK'/*END*/",
+                "SELECT * FROM emp WHERE /*IF age != null*/age >= /*age*/20/*END*/ /*IF active*/AND active = /*active*/true/*END*/",
+                "SELECT * FROM emp WHERE id in /*ids*/(1, 2) AND name like /*job + '%'*/'A%' ORDER BY /*$order*/id",
+                "SELECT * FROM emp/*BEGIN*/ WHERE /*IF job != null*/job = /*job*/'CLERK'"
+                    + "/*BEGIN*/ AND (/*IF deptno != null*/deptno = /*deptno*/20/*END*//*IF ids != null*/ OR id in /*ids*/(1)/*END*/)/*END*/"
+                    + "/*END*//*END*/",
+        };
+
+        List<EmployeeParam> params = Arrays.asList(
+                new EmployeeParam("CLERK", 10, 30, true, Arrays.asList(1, 2), "name"),
+                new EmployeeParam(null, 20, 40, false, null, "id"),
+                new EmployeeParam("SALESMAN", null, 50, true, Arrays.asList(3), "id"),
+                new EmployeeParam(null, null, 60, false, null, "id"));
+
+        for(String sql : sqls) {
+            SqlTemplate template = templateEngine.getTemplateByText(sql);
+            CompiledSqlTemplate compiled = compiler.compile(template, EmployeeParam.class);
+
+            assertThat(compiled.getTemplate()).isSameAs(template);
+            assertThat(compiled.getBeanType()).isEqualTo(EmployeeParam.class);
+
+            for(EmployeeParam param : params) {
+                ProcessResult expected = template.process(new BeanPropertySqlTemplateContext(param));
+                ProcessResult actual = compiled.process(new BeanPropertySqlTemplateContext(param));
+
+                assertThat(actual.getSql()).as("sql=%s, param=%s", sql, param).isEqualTo(expected.getSql());
+                assertThat(actual.getParameters()).as("sql=%s, param=%s", sql, param).isEqualTo(expected.getParameters());
+            }
+        }
+
+    }
+
+    @Test
+    void testProcess_otherContext() {
+
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp WHERE /*IF job != null*/job = /*job*/'CLERK'/*END*/");
+        CompiledSqlTemplate compiled = compiler.compile(template, EmployeeParam.class);
+
+        // JavaBean以外のコンテキストは、変換元のSQLテンプレートで評価する。
+        MapSqlTemplateContext context = new MapSqlTemplateContext();
+        context.addVariable("job", "CLERK");
+        ProcessResult result = compiled.process(context);
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE job = ?");
+        assertThat(result.getParameters()).containsExactly("CLERK");
+
+    }
+
+    @Test
+    void testProcess_customNode() {
+
+        // 独自に定義したノードは、そのノード自身が評価する。
+        SqlTemplate template = new SqlTemplate("SELECT * FROM emp", createCustomNodeTree());
+        CompiledSqlTemplate compiled = compiler.compile(template, EmployeeParam.class);
+
+        ProcessResult result = compiled.process(new BeanPropertySqlTemplateContext(
+                new EmployeeParam(null, null, 20, false, null, "id")));
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(result.getParameters()).containsExactly(1);
+
+    }
+
+    @Test
+    void testCompile_sameTemplate() {
+
+        // 同じSQLテンプレートを複数回変換しても、それぞれ評価できる。
+        String sql = "SELECT * FROM emp WHERE /*IF job != null*/job = /*job*/'CLERK'/*END*/";
+        EmployeeParam param = new EmployeeParam("CLERK", null, 20, false, null, "id");
+        for(int i=0; i < 3; i++) {
+            CompiledSqlTemplate compiled = compiler.compile(templateEngine.getTemplateByText(sql), EmployeeParam.class);
+            ProcessResult result = compiled.process(new BeanPropertySqlTemplateContext(param));
+            assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE job = ?");
+            assertThat(result.getParameters()).containsExactly("CLERK");
+        }
+
+    }
+
+    @Test
+    void testCompile_notClass() {
+
+        SqlTemplate template = templateEngine.getTemplateByText("SELECT * FROM emp");
+        assertThatThrownBy(() -> compiler.compile(template, Runnable.class))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class EmployeeParam {
+
+        private String job;
+
+        private Integer deptno;
+
+        private int age;
+
+        private boolean active;
+
+        private List<Integer> ids;
+
+        private String order;
+
+    }
+}
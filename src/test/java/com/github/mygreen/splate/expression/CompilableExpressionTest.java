@@ -0,0 +1,62 @@
+package com.github.mygreen.splate.expression;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * {@link CompilableExpression} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class CompilableExpressionTest {
+
+    @Test
+    void testGetValue_immediate() {
+
+        SpelExpression delegate = new SpelExpressionParser().parseRaw("toString()");
+        CompilableExpression expression = new CompilableExpression(delegate, SpelCompilerMode.IMMEDIATE);
+        assertThat(expression.isCompiled()).isFalse();
+
+        assertThat(expression.getValue(new StandardEvaluationContext("abc"), String.class)).isEqualTo("abc");
+        assertThat(expression.isCompiled()).isTrue();
+
+        // コンパイルしたコードで評価できない場合は、インタプリタ方式にフォールバックする。
+        assertThat(expression.getValue(new StandardEvaluationContext(123), String.class)).isEqualTo("123");
+        assertThat(expression.isCompiled()).isFalse();
+        assertThat(expression.isFallenBack()).isTrue();
+
+    }
+
+    @Test
+    void testIsCompiled_revertedBySpel() {
+
+        // SpEL自身がコンパイル済みの式を破棄した場合も、コンパイル済みとは判定しない。
+        SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
+        CompilableExpression expression = new CompilableExpression(parser.parseRaw("toString()"), SpelCompilerMode.IMMEDIATE);
+
+        assertThat(expression.getValue(new StandardEvaluationContext("abc"), String.class)).isEqualTo("abc");
+        assertThat(expression.isCompiled()).isTrue();
+
+        assertThat(expression.getValue(new StandardEvaluationContext(123), String.class)).isEqualTo("123");
+        assertThat(expression.isCompiled()).isFalse();
+
+    }
+
+    @Test
+    void testConstructor_off() {
+
+        SpelExpression delegate = new SpelExpressionParser().parseRaw("name");
+        assertThatThrownBy(() -> new CompilableExpression(delegate, SpelCompilerMode.OFF))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.github.mygreen.splate.expression;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import com.github.mygreen.splate.BeanPropertySqlTemplateContext;
+import com.github.mygreen.splate.MapSqlTemplateContext;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * {@link PropertyPathExpression} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class PropertyPathExpressionTest {
+
+    private final SpelExpressionParser expressionParser = new SpelExpressionParser();
+
+    private PropertyPathExpression parse(String expression) {
+        return PropertyPathExpression.parse(expression, expressionParser.parseExpression(expression));
+    }
+
+    @Test
+    void testParse_simple() {
+
+        assertThat(parse("name")).isNotNull();
+        assertThat(parse("dept.name")).isNotNull();
+        assertThat(parse("list[0]")).isNotNull();
+        assertThat(parse("map['key'].name")).isNotNull();
+        assertThat(parse(" name ")).isNotNull();
+
+        assertThat(parse("name != null").isNullCheck()).isTrue();
+        assertThat(parse("dept.name == null").isNullCheck()).isTrue();
+        assertThat(parse("name").isNullCheck()).isFalse();
+
+    }
+
+    @Test
+    void testParse_notSimple() {
+
+        assertThat(parse("name + 1")).isNull();
+        assertThat(parse("name != 'abc'")).isNull();
+        assertThat(parse("#name")).isNull();
+        assertThat(parse("getName()")).isNull();
+        assertThat(parse("list[i]")).isNull();
+        assertThat(parse("dept?.name")).isNull();
+        assertThat(parse("true")).isNull();
+        assertThat(parse("NULL")).isNull();
+        assertThat(parse("name != null and age > 0")).isNull();
+        assertThat(parse("dept.")).isNull();
+
+    }
+
+    @Test
+    void testGetValue_map() {
+
+        Map<String, Object> dept = new HashMap<>();
+        dept.put("name", "Sales");
+        dept.put("code", null);
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("dept", dept);
+        variables.put("list", List.of("a", "b"));
+        variables.put("array", new int[] {1, 2});
+
+        EvaluationContext context = new MapSqlTemplateContext(variables).createEvaluationContext();
+
+        assertThat(parse("dept.name").getValue(context)).isEqualTo("Sales");
+        assertThat(parse("dept['name']").getValue(context)).isEqualTo("Sales");
+        assertThat(parse("list[1]").getValue(context)).isEqualTo("b");
+        assertThat(parse("array[0]").getValue(context)).isEqualTo(1);
+
+        assertThat(parse("dept.code").getValue(context)).isNull();
+        assertThat(parse("dept.code == null").getValue(context, boolean.class)).isTrue();
+        assertThat(parse("dept.name != null").getValue(context, boolean.class)).isTrue();
+
+        assertThat(parse("dept.name").getValueType(context)).isEqualTo(String.class);
+        assertThat(parse("dept.code").getValueType(context)).isNull();
+
+    }
+
+    @Test
+    void testGetValue_bean() {
+
+        Employee employee = new Employee("Yamada", new BigDecimal("1200"), null, true,
+                Arrays.asList(new Employee("Tanaka", null, null, false, null)));
+
+        EvaluationContext context = new BeanPropertySqlTemplateContext(employee).createEvaluationContext();
+
+        assertThat(parse("name").getValue(context)).isEqualTo("Yamada");
+        assertThat(parse("salary").getValue(context)).isEqualTo(new BigDecimal("1200"));
+        assertThat(parse("active").getValue(context, boolean.class)).isTrue();
+        assertThat(parse("subordinates[0].name").getValue(context)).isEqualTo("Tanaka");
+        assertThat(parse("boss == null").getValue(context, Boolean.class)).isTrue();
+
+        // nullのときは、getterメソッドの戻り値のタイプ
+        assertThat(parse("boss").getValueType(context)).isEqualTo(Employee.class);
+        assertThat(parse("salary").getValueType(context)).isEqualTo(BigDecimal.class);
+
+    }
+
+    @Test
+    void testGetValue_sameAsSpel() {
+
+        Employee employee = new Employee("Yamada", null, null, false, Arrays.asList((Employee)null));
+        EvaluationContext context = new BeanPropertySqlTemplateContext(employee).createEvaluationContext();
+
+        for(String expression : new String[] {"name", "salary", "boss", "active", "subordinates[0]", "salary == null"}) {
+            Expression spel = expressionParser.parseExpression(expression);
+            PropertyPathExpression fast = parse(expression);
+
+            assertThat(fast.getValue(context)).as(expression).isEqualTo(spel.getValue(context));
+            assertThat(fast.getValueType(context)).as(expression).isEqualTo(spel.getValueType(context));
+        }
+
+    }
+
+    @Test
+    void testGetValue_fallback() {
+
+        Employee employee = new Employee("Yamada", null, null, false, null);
+
+        // 存在しないプロパティは、SpELと同じく例外となる。
+        EvaluationContext context = new BeanPropertySqlTemplateContext(employee).createEvaluationContext();
+        assertThatThrownBy(() -> parse("unknown").getValue(context))
+                .isInstanceOf(EvaluationException.class);
+
+        // 途中の値がnullの場合も、SpELと同じく例外となる。
+        assertThatThrownBy(() -> parse("boss.name").getValue(context))
+                .isInstanceOf(EvaluationException.class);
+
+        // 存在しないプロパティを無視する場合は、SpELの設定に従う。
+        BeanPropertySqlTemplateContext ignoreContext = new BeanPropertySqlTemplateContext(employee);
+        ignoreContext.setIgnoreNotFoundProperty(true);
+        EvaluationContext context2 = ignoreContext.createEvaluationContext();
+        assertThat(parse("unknown").getValue(context2)).isNull();
+        assertThat(parse("boss.name == null").getValue(context2, boolean.class)).isTrue();
+
+    }
+
+    @Test
+    void testGetValue_getterException() {
+
+        FailingBean bean = new FailingBean();
+        EvaluationContext context = new BeanPropertySqlTemplateContext(bean).createEvaluationContext();
+
+        // getterメソッドの例外は、SpELで評価し直さずにスローする。
+        for(String expression : new String[] {"name", "name != null"}) {
+            bean.count = 0;
+            assertThatThrownBy(() -> parse(expression).getValue(context))
+                .isInstanceOfSatisfying(SpelEvaluationException.class,
+                        e -> assertThat(e.getMessageCode()).isEqualTo(SpelMessage.EXCEPTION_DURING_PROPERTY_READ))
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+            assertThat(bean.count).as(expression).isEqualTo(1);
+        }
+
+        // SpELと同じ種類の例外
+        assertThatThrownBy(() -> expressionParser.parseExpression("name").getValue(context))
+            .isInstanceOfSatisfying(SpelEvaluationException.class,
+                    e -> assertThat(e.getMessageCode()).isEqualTo(SpelMessage.EXCEPTION_DURING_PROPERTY_READ));
+
+    }
+
+    static class FailingBean {
+
+        private int count;
+
+        public String getName() {
+            count++;
+            throw new IllegalStateException("fail");
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Employee {
+
+        private String name;
+
+        private BigDecimal salary;
+
+        private Employee boss;
+
+        private boolean active;
+
+        private List<Employee> subordinates;
+
+    }
+}
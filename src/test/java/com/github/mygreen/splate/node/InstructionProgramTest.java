@@ -0,0 +1,83 @@
+package com.github.mygreen.splate.node;
+
+import static com.github.mygreen.splate.TemplateFixtures.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessMode;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
+/**
+ * {@link InstructionProgram} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class InstructionProgramTest {
+
+    @Test
+    void testExecute_sameAsNodeTree() {
+
+        SqlTemplateEngine treeEngine = new SqlTemplateEngine();
+        SqlTemplateEngine instructionEngine = new SqlTemplateEngine();
+        instructionEngine.setProcessMode(ProcessMode.INSTRUCTION);
+
+        for(String sql : TEMPLATES) {
+            SqlTemplate treeTemplate = treeEngine.getTemplateByText(sql);
+            SqlTemplate instructionTemplate = instructionEngine.getTemplateByText(sql);
+            assertThat(instructionTemplate.getProcessMode()).isEqualTo(ProcessMode.INSTRUCTION);
+
+            for(Map<String, Object> variables : createVariablesPatterns()) {
+                ProcessResult expected = treeTemplate.process(new MapSqlTemplateContext(variables));
+                ProcessResult actual = instructionTemplate.process(new MapSqlTemplateContext(variables));
+
+                assertThat(actual.getSql()).as("sql=%s, variables=%s", sql, variables).isEqualTo(expected.getSql());
+                assertThat(actual.getParameters()).as("sql=%s, variables=%s", sql, variables).isEqualTo(expected.getParameters());
+            }
+        }
+
+    }
+
+    @Test
+    void testCompile() {
+
+        SqlTemplateEngine templateEngine = new SqlTemplateEngine();
+        SqlTemplate template = templateEngine.getTemplateByText(
+                "SELECT * FROM emp/*BEGIN*/ WHERE /*IF job != null*/job = /*job*/'CLERK'-- ELSE job is null/*END*//*END*/");
+
+        InstructionProgram program = InstructionProgram.compile(template.getNode());
+        assertThat(program.getMaxScopeDepth()).isEqualTo(1);
+        assertThat(program.toString()).isEqualTo(
+                "0: EMIT_SQL 'SELECT * FROM emp'\n"
+                + "1: BEGIN_SCOPE\n"
+                + "2: EMIT_SQL ' WHERE '\n"
+                + "3: JUMP_IF_FALSE 'job != null' -> 8\n"
+                + "4: EMIT_SQL 'job = '\n"
+                + "5: ACCEPT BindVariableNode 'job'\n"
+                + "6: ENABLE\n"
+                + "7: JUMP -> 10\n"
+                + "8: EMIT_SQL 'job is null'\n"
+                + "9: ENABLE\n"
+                + "10: END_SCOPE\n");
+
+    }
+
+    @Test
+    void testExecute_customNode() {
+
+        // 独自に定義したノードは、そのノード自身が評価する。
+        SqlTemplate template = new SqlTemplate("SELECT * FROM emp", createCustomNodeTree(), ProcessMode.INSTRUCTION);
+        ProcessResult result = template.process(new MapSqlTemplateContext());
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(result.getParameters()).containsExactly(1);
+
+    }
+}
@@ -18,8 +18,13 @@ import com.github.mygreen.splate.ProcessResult;
 import com.github.mygreen.splate.SqlTemplate;
 import com.github.mygreen.splate.SqlTemplateContext;
 import com.github.mygreen.splate.SqlTemplateEngine;
+import com.github.mygreen.splate.SqlTemplateFootprint;
+import com.github.mygreen.splate.node.ContainerNode;
+import com.github.mygreen.splate.node.Node;
 import com.github.mygreen.splate.node.NodeProcessException;
+import com.github.mygreen.splate.node.SqlNode;
 import com.github.mygreen.splate.parser.SqlParseException;
+import com.github.mygreen.splate.parser.StringLiteralMode;
 
 /**
  * {@link SqlParserTest}のテスタ。
@@ -384,4 +389,119 @@ class SqlParserTest {
 
     }
 
+    @DisplayName("文字列リテラル中の記号はコメントやバインド変数とみなさない")
+    @Test
+    void testParse_stringLiteral() {
+
+        String sql = "SELECT * FROM emp WHERE name = 'a?b' AND note = '/*x*/' AND memo = 'it''s ?' AND id = /*id*/1";
+
+        templateEngine.setStringLiteralMode(StringLiteralMode.STANDARD);
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("id", 10)));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE name = 'a?b' AND note = '/*x*/' AND memo = 'it''s ?' AND id = ?");
+        assertThat(result.getParameters()).containsExactly(10);
+
+    }
+
+    @DisplayName("バックスラッシュでエスケープした文字列リテラル")
+    @Test
+    void testParse_stringLiteral_backslash() {
+
+        String sql = "SELECT * FROM emp WHERE memo = 'it\\'s ?' AND id = /*id*/1";
+
+        templateEngine.setStringLiteralMode(StringLiteralMode.BACKSLASH_ESCAPE);
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("id", 10)));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE memo = 'it\\'s ?' AND id = ?");
+        assertThat(result.getParameters()).containsExactly(10);
+
+    }
+
+    @DisplayName("行コメント中の引用符は文字列リテラルとみなさない")
+    @Test
+    void testParse_quoteInLineComment() {
+
+        String sql = "SELECT * FROM emp -- don't change\nWHERE id = /*id*/1";
+
+        templateEngine.setStringLiteralMode(StringLiteralMode.STANDARD);
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("id", 10)));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp -- don't change\nWHERE id = ?");
+        assertThat(result.getParameters()).containsExactly(10);
+
+    }
+
+    @DisplayName("ELSEコメントの前に通常の行コメントがある場合")
+    @Test
+    void testElse_afterLineComment() {
+
+        String sql = "SELECT * FROM emp WHERE /*IF job != null*/job = /*job*/'CLERK' -- comment\n-- ELSE job is null/*END*/";
+
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+
+        MapSqlTemplateContext context = new MapSqlTemplateContext();
+        context.addVariable("job", null);
+        ProcessResult result = template.process(context);
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE job is null");
+
+    }
+
+    @DisplayName("#*～*#形式のコメント")
+    @Test
+    void testParse_sharpComment() {
+
+        String sql = "SELECT * FROM emp WHERE id = #*id*#1";
+
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+        ProcessResult result = template.process(new MapSqlTemplateContext(Map.of("id", 10)));
+
+        assertThat(result.getSql()).isEqualTo("SELECT * FROM emp WHERE id = ?");
+        assertThat(result.getParameters()).containsExactly(10);
+
+    }
+
+    @DisplayName("パース後のノードは子ノードの保持領域が切り詰められる")
+    @Test
+    void testParse_frozenNodes() {
+
+        String sql = "SELECT * FROM emp/*BEGIN*/ WHERE"
+                + " /*IF job != null*/job = /*job*/'CLERK'-- ELSE job is null/*END*/"
+                + "/*IF deptno != null*/ AND deptno = /*deptno*/20/*END*/"
+                + "/*END*/";
+
+        SqlTemplate template = templateEngine.getTemplateByText(sql);
+
+        ContainerNode root = (ContainerNode) template.getNode();
+        assertThat(root.isFrozen()).isTrue();
+        assertThatThrownBy(() -> root.addChild(new SqlNode(0, "dummy")))
+                .isInstanceOf(IllegalStateException.class);
+
+        // 末端のノードは子ノードを持たない
+        Node leaf = root.getChild(0);
+        assertThat(root.getChildCapacity()).isEqualTo(root.getChildSize());
+        assertThat(leaf).isInstanceOf(SqlNode.class);
+        assertThat(leaf.getChildSize()).isZero();
+        assertThatThrownBy(() -> leaf.addChild(new SqlNode(0, "dummy")))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        SqlTemplateFootprint footprint = template.getFootprint();
+        assertThat(footprint.getNodeCount()).isEqualTo(template.getNodeCount());
+        assertThat(footprint.getUnusedChildSlotCount()).isZero();
+        assertThat(footprint.getContainerNodeCount()).isEqualTo(5);
+        assertThat(footprint.getTotalBytes()).isPositive();
+
+        // 評価結果は変わらない
+        MapSqlTemplateContext context = new MapSqlTemplateContext();
+        context.addVariable("job", null);
+        context.addVariable("deptno", 20);
+        ProcessResult result = template.process(context);
+        assertThat(result.getSql()).startsWith("SELECT * FROM emp WHERE job is null").endsWith("deptno = ?");
+        assertThat(result.getParameters()).containsExactly(20);
+
+    }
+
 }
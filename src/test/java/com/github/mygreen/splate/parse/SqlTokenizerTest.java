@@ -0,0 +1,112 @@
+package com.github.mygreen.splate.parse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.github.mygreen.splate.parser.SqlTokenizer;
+import com.github.mygreen.splate.parser.SqlTokenizer.TokenType;
+import com.github.mygreen.splate.parser.StringLiteralMode;
+
+/**
+ * {@link SqlTokenizer} のテスタ
+ *
+ * @since 0.4
+ * @author T.TSUCHIE
+ *
+ */
+class SqlTokenizerTest {
+
+    @DisplayName("文字列リテラルを区別しない場合は、リテラル中のコメントも分解する")
+    @Test
+    void testNext_ignored() {
+
+        assertThat(tokenize("name = '/*x*/'", StringLiteralMode.IGNORED))
+            .containsExactly("SQL:name = '", "COMMENT:x", "SQL:'");
+
+    }
+
+    @DisplayName("連続した引用符のエスケープ")
+    @Test
+    void testNext_standard() {
+
+        assertThat(tokenize("name = 'it''s /*x*/ ?' AND id = /*id*/1", StringLiteralMode.STANDARD))
+            .containsExactly("SQL:name = 'it''s /*x*/ ?' AND id = ", "COMMENT:id", "SQL:1");
+
+    }
+
+    @DisplayName("連続した引用符のみをエスケープとする場合に、バックスラッシュのエスケープがあっても以降のSQLを読み飛ばさない")
+    @Test
+    void testNext_standard_backslash() {
+
+        assertThat(tokenize("memo = 'it\\'s' AND id = /*id*/1", StringLiteralMode.STANDARD))
+            .containsExactly("SQL:memo = 'it\\'s' AND id = ", "COMMENT:id", "SQL:1");
+
+    }
+
+    @DisplayName("バックスラッシュのエスケープ")
+    @Test
+    void testNext_backslash() {
+
+        assertThat(tokenize("memo = 'it\\'s /*x*/' AND id = /*id*/1", StringLiteralMode.BACKSLASH_ESCAPE))
+            .containsExactly("SQL:memo = 'it\\'s /*x*/' AND id = ", "COMMENT:id", "SQL:1");
+
+        // 連続した引用符もエスケープとして扱う。
+        assertThat(tokenize("name = 'it''s /*x*/' AND id = /*id*/1", StringLiteralMode.BACKSLASH_ESCAPE))
+            .containsExactly("SQL:name = 'it''s /*x*/' AND id = ", "COMMENT:id", "SQL:1");
+
+    }
+
+    @DisplayName("閉じられていない引用符は、文字列リテラルの開始とみなさない")
+    @Test
+    void testNext_notClosed() {
+
+        for(StringLiteralMode mode : StringLiteralMode.values()) {
+            assertThat(tokenize("memo = 'abc /*id*/1", mode))
+                .as("mode=%s", mode)
+                .containsExactly("SQL:memo = 'abc ", "COMMENT:id", "SQL:1");
+        }
+
+    }
+
+    @DisplayName("閉じられていない引用符の後は、引用符ごとにSQLの末尾まで走査し直さない")
+    @Test
+    @Timeout(10)
+    void testNext_notClosed_long() {
+
+        // バックスラッシュでエスケープした引用符が続く、閉じられていない長い文字列リテラル
+        StringBuilder sql = new StringBuilder("memo = '");
+        for(int i=0; i < 200_000; i++) {
+            sql.append("\\' ");
+        }
+        sql.append("/*id*/1");
+
+        for(StringLiteralMode mode : StringLiteralMode.values()) {
+            List<String> tokens = tokenize(sql.toString(), mode);
+            assertThat(tokens).as("mode=%s", mode).hasSize(3);
+            assertThat(tokens.get(1)).as("mode=%s", mode).isEqualTo("COMMENT:id");
+        }
+
+        // 閉じられていない引用符の後も、コメントを分割する
+        assertThat(tokenize("memo = 'a\\' /*a*/ \\' /*b*/1", StringLiteralMode.BACKSLASH_ESCAPE))
+            .containsExactly("SQL:memo = 'a\\' ", "COMMENT:a", "SQL: \\' ", "COMMENT:b", "SQL:1");
+
+    }
+
+    private static List<String> tokenize(final String sql, final StringLiteralMode mode) {
+
+        SqlTokenizer tokenizer = new SqlTokenizer(sql);
+        tokenizer.setStringLiteralMode(mode);
+
+        List<String> tokens = new ArrayList<>();
+        while(tokenizer.next() != TokenType.EOF) {
+            tokens.add(tokenizer.getTokenType() + ":" + tokenizer.getToken());
+        }
+        return tokens;
+    }
+}
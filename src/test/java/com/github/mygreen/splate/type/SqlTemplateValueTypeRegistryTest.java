@@ -6,10 +6,16 @@ import java.sql.Date;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.github.mygreen.splate.MapSqlTemplateContext;
+import com.github.mygreen.splate.ProcessResult;
+import com.github.mygreen.splate.SqlTemplate;
+import com.github.mygreen.splate.SqlTemplateEngine;
+
 
 /**
  * {@link SqlTemplateValueType}のテスタ
@@ -142,5 +148,139 @@ class SqlTemplateValueTypeRegistryTest {
 
     }
 
+    @Test
+    void testFindValueType_cached() {
+
+        LocalDateType localDateType = new LocalDateType();
+        registry.register("person.birthday", LocalDate.class, localDateType);
+
+        // 同じ組み合わせは同じ結果を返す
+        assertThat(registry.findValueType(LocalDate.class, "person[0].birthday")).isSameAs(localDateType);
+        assertThat(registry.findValueType(LocalDate.class, "person[0].birthday")).isSameAs(localDateType);
+        assertThat(registry.findValueType(Date.class, "person[0].birthday")).isNull();
+        assertThat(registry.findValueType(Date.class, "person[0].birthday")).isNull();
+        assertThat(registry.findValueType(null, null)).isNull();
+
+        // 登録後はキャッシュが破棄される
+        LocalDateType localDateType2 = new LocalDateType();
+        registry.register("person[0].birthday", LocalDate.class, localDateType2);
+        assertThat(registry.findValueType(LocalDate.class, "person[0].birthday")).isSameAs(localDateType2);
+
+    }
+
+    @Test
+    void testFindValueType_cachedWithCopy() {
+
+        registry.register(LocalDate.class, new LocalDateType());
+        assertThat(registry.findValueType(LocalDate.class, "birthday")).isNotNull();
+
+        // コピー先の登録内容の変更は、コピー元に影響しない
+        SqlTemplateValueTypeRegistry copied = new SqlTemplateValueTypeRegistry(registry);
+        assertThat(copied.findValueType(LocalDate.class, "birthday")).isNotNull();
+
+        copied.register("birthday", Date.class, value -> value);
+
+        assertThat(copied.findValueType(Date.class, "birthday")).isNotNull();
+        assertThat(registry.findValueType(Date.class, "birthday")).isNull();
+
+    }
+
+    @Test
+    void testFindValueType_empty() {
+
+        // 何も登録されていない場合は見つからない
+        assertThat(registry.findValueType(LocalDate.class, "birthday")).isNull();
+        assertThat(registry.findValueType(null, "birthday")).isNull();
+        assertThat(registry.findValueType(LocalDate.class, null)).isNull();
+
+        // 登録後は見つかる
+        LocalDateType localDateType = new LocalDateType();
+        registry.register(LocalDate.class, localDateType);
+        assertThat(registry.findValueType(LocalDate.class, "birthday")).isSameAs(localDateType);
+
+    }
+
+    @Test
+    void testProcess_freshContexts() {
+
+        SqlTemplate template = new SqlTemplateEngine().getTemplateByText(
+                "select * from person where birthday = /*birthday*/'2020-01-01'");
+
+        LocalDate birthday = LocalDate.of(2020, 1, 1);
+        LocalDateType localDateType = new LocalDateType();
+
+        // リクエストごとにコンテキストを作成しても、コンテキストごとの登録内容で解決する
+        for(int i=0; i < 1000; i++) {
+            MapSqlTemplateContext context = new MapSqlTemplateContext(Map.of("birthday", birthday));
+            boolean registered = i % 2 == 0;
+            if(registered) {
+                context.registerValueType(LocalDate.class, localDateType);
+            }
+
+            ProcessResult result = template.process(context);
+            assertThat(result.getParameters()).containsExactly(registered ? Date.valueOf(birthday) : birthday);
+        }
+
+    }
+
+    @Test
+    void testFreeze() {
+
+        LocalDateType localDateType = new LocalDateType();
+        registry.register(LocalDate.class, localDateType);
+
+        SqlTemplateValueTypeRegistry frozen = registry.freeze();
+        assertThat(frozen.isFrozen()).isTrue();
+        assertThat(frozen.freeze()).isSameAs(frozen);
+        assertThat(frozen.findValueType(LocalDate.class, "birthday")).isSameAs(localDateType);
+
+        assertThatThrownBy(() -> frozen.register(Date.class, value -> value))
+                .isInstanceOf(IllegalStateException.class);
+
+        // 変更できないインスタンス作成後の登録は反映されない
+        registry.register("birthday", Date.class, value -> value);
+        assertThat(frozen.findValueType(Date.class, "birthday")).isNull();
+
+        // コピーしたインスタンスは変更できる
+        SqlTemplateValueTypeRegistry copied = new SqlTemplateValueTypeRegistry(frozen);
+        assertThat(copied.isFrozen()).isFalse();
+        copied.register(Date.class, value -> value);
+        assertThat(copied.findValueType(Date.class, "birthday")).isNotNull();
+
+    }
+
+    @Test
+    void testCreateOverlay() {
+
+        LocalDateType localDateType = new LocalDateType();
+        registry.register(LocalDate.class, localDateType);
+        registry.register("person.birthday", LocalDate.class, localDateType);
+
+        assertThatThrownBy(() -> registry.createOverlay())
+                .isInstanceOf(IllegalStateException.class);
+
+        SqlTemplateValueTypeRegistry frozen = registry.freeze();
+        SqlTemplateValueTypeRegistry overlay = frozen.createOverlay();
+
+        // 上書き元の登録内容を参照する
+        assertThat(overlay.findValueType(LocalDate.class, "birthday")).isSameAs(localDateType);
+        assertThat(overlay.findValueType(LocalDate.class, "person[0].birthday")).isSameAs(localDateType);
+
+        // 同じパスで登録した場合は上書きされる
+        LocalDateType localDateType2 = new LocalDateType();
+        overlay.register("person.birthday", Date.class, value -> value);
+        overlay.register(LocalDate.class, localDateType2);
+        assertThat(overlay.findValueType(LocalDate.class, "person[0].birthday")).isSameAs(localDateType2);
+        assertThat(overlay.findValueType(LocalDate.class, "birthday")).isSameAs(localDateType2);
+
+        // 上書き元には影響しない
+        assertThat(frozen.findValueType(LocalDate.class, "birthday")).isSameAs(localDateType);
+
+        // コピーした場合は、上書き元の内容も含む
+        SqlTemplateValueTypeRegistry copied = new SqlTemplateValueTypeRegistry(overlay);
+        assertThat(copied.findValueType(LocalDate.class, "person[0].birthday")).isSameAs(localDateType2);
+        assertThat(copied.findValueType(Date.class, "person[0].birthday")).isNotNull();
+
+    }
 
 }
@@ -0,0 +1 @@
+select * from emp where /*IF job != null*/job = /*job*/'CLERK'/*END*/